@@ -176,6 +176,15 @@ public class IndicesStatsRequest extends BroadcastOperationRequest<IndicesStatsR
         return flags.isSet(Flag.FilterCache);
     }
 
+    public IndicesStatsRequest queryCache(boolean queryCache) {
+        flags.set(Flag.QueryCache, queryCache);
+        return this;
+    }
+
+    public boolean queryCache() {
+        return flags.isSet(Flag.QueryCache);
+    }
+
     public IndicesStatsRequest idCache(boolean idCache) {
         flags.set(Flag.IdCache, idCache);
         return this;
@@ -49,7 +49,7 @@ public class BulkAction extends Action<BulkRequest, BulkResponse, BulkRequestBui
     public TransportRequestOptions transportOptions(Settings settings) {
         return TransportRequestOptions.options()
                 .withType(TransportRequestOptions.Type.fromString(settings.get("action.bulk.transport.type", TransportRequestOptions.Type.LOW.toString())))
-                .withCompress(settings.getAsBoolean("action.bulk.compress", true)
-                );
+                .withCompress(settings.getAsBoolean("action.bulk.compress", true))
+                .withCompressorType(settings.get("action.bulk.compress_type"));
     }
 }
@@ -38,10 +38,13 @@ import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.XContent;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.columnar.ColumnarRow;
+import org.elasticsearch.common.xcontent.columnar.ColumnarSchema;
 import org.elasticsearch.index.VersionType;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.elasticsearch.action.ValidateActions.addValidationError;
@@ -245,6 +248,40 @@ public class BulkRequest extends ActionRequest<BulkRequest> {
         return add(data, contentUnsafe, defaultIndex, defaultType, null, allowExplicitIndex);
     }
 
+    /**
+     * Adds the rows of a columnar bulk content, as built by {@link ColumnarBulkBuilder}, as index requests.
+     */
+    public BulkRequest addColumnar(BytesReference data, @Nullable String defaultIndex, @Nullable String defaultType, boolean allowExplicitIndex) throws Exception {
+        StreamInput in = data.streamInput();
+        byte[] header = new byte[ColumnarBulkBuilder.HEADER.length];
+        in.readBytes(header, 0, header.length);
+        if (!Arrays.equals(header, ColumnarBulkBuilder.HEADER)) {
+            throw new ElasticSearchIllegalArgumentException("content is not a columnar bulk");
+        }
+        byte version = in.readByte();
+        if (version != ColumnarBulkBuilder.VERSION) {
+            throw new ElasticSearchIllegalArgumentException("unsupported columnar bulk version [" + version + "]");
+        }
+        while (in.readBoolean()) {
+            String index = in.readOptionalString();
+            if (index == null) {
+                index = defaultIndex;
+            } else if (!allowExplicitIndex) {
+                throw new ElasticSearchIllegalArgumentException("explicit index in bulk is not allowed");
+            }
+            String type = in.readOptionalString();
+            if (type == null) {
+                type = defaultType;
+            }
+            ColumnarSchema schema = ColumnarSchema.readSchema(in);
+            while (in.readBoolean()) {
+                String id = in.readOptionalString();
+                internalAdd(new IndexRequest(index, type, id).columnarRow(ColumnarRow.readValues(schema, in)), null);
+            }
+        }
+        return this;
+    }
+
     public BulkRequest add(BytesReference data, boolean contentUnsafe, @Nullable String defaultIndex, @Nullable String defaultType, @Nullable Object payload, boolean allowExplicitIndex) throws Exception {
         XContent xContent = XContentFactory.xContent(data);
         int from = 0;
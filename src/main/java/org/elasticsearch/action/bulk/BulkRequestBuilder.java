@@ -32,6 +32,7 @@ import org.elasticsearch.action.update.UpdateRequestBuilder;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.client.internal.InternalClient;
 import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.bytes.BytesReference;
 
 /**
  * A bulk request holds an ordered {@link IndexRequest}s and {@link DeleteRequest}s and allows to executes
@@ -111,6 +112,21 @@ public class BulkRequestBuilder extends ActionRequestBuilder<BulkRequest, BulkRe
         return this;
     }
 
+    /**
+     * Adds the rows of a columnar bulk content, see {@link ColumnarBulkBuilder}.
+     */
+    public BulkRequestBuilder addColumnar(BytesReference data, @Nullable String defaultIndex, @Nullable String defaultType) throws Exception {
+        request.addColumnar(data, defaultIndex, defaultType, true);
+        return this;
+    }
+
+    /**
+     * Adds the rows of the columnar bulk being built, see {@link ColumnarBulkBuilder}.
+     */
+    public BulkRequestBuilder add(ColumnarBulkBuilder columnarBulk) throws Exception {
+        return addColumnar(columnarBulk.bytes(), null, null);
+    }
+
     /**
      * Set the replication type for this operation.
      */
@@ -0,0 +1,134 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.bulk;
+
+import org.elasticsearch.ElasticSearchGenerationException;
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.xcontent.columnar.ColumnarRow;
+import org.elasticsearch.common.xcontent.columnar.ColumnarSchema;
+
+import java.io.IOException;
+
+/**
+ * Builds the binary columnar bulk format, a compact alternative to the line delimited bulk format for large
+ * amounts of uniformly typed documents. The content is a header followed by blocks, each block declaring its
+ * index, type and {@link ColumnarSchema} once, followed by its rows as packed primitives:
+ * <pre>
+ * header: "ESCB" version
+ * block:  true [index] [type] schema (true [id] row)* false
+ * end:    false
+ * </pre>
+ * The rows are indexed without any parsing, see {@link BulkRequest#addColumnar(BytesReference, String, String, boolean)}.
+ */
+public class ColumnarBulkBuilder {
+
+    static final byte[] HEADER = new byte[]{'E', 'S', 'C', 'B'};
+    static final byte VERSION = 1;
+
+    private final BytesStreamOutput out = new BytesStreamOutput();
+
+    private ColumnarSchema schema;
+    private boolean closed;
+
+    public ColumnarBulkBuilder() {
+        try {
+            out.writeBytes(HEADER);
+            out.writeByte(VERSION);
+        } catch (IOException e) {
+            throw new ElasticSearchGenerationException("Failed to generate columnar bulk", e);
+        }
+    }
+
+    /**
+     * Starts a new block of rows laid out by the given schema, with the index and type defaulting to the ones
+     * of the request if <tt>null</tt>.
+     */
+    public ColumnarBulkBuilder block(@Nullable String index, @Nullable String type, ColumnarSchema schema) {
+        ensureOpen();
+        try {
+            endBlock();
+            out.writeBoolean(true);
+            out.writeOptionalString(index);
+            out.writeOptionalString(type);
+            schema.writeTo(out);
+            this.schema = schema;
+        } catch (IOException e) {
+            throw new ElasticSearchGenerationException("Failed to generate columnar bulk", e);
+        }
+        return this;
+    }
+
+    /**
+     * Adds a row to the current block, one value per column of its schema, a <tt>null</tt> value leaving the column out.
+     */
+    public ColumnarBulkBuilder row(@Nullable String id, Object... values) {
+        ensureOpen();
+        if (schema == null) {
+            throw new ElasticSearchIllegalArgumentException("a block must be started before adding rows");
+        }
+        if (values.length != schema.size()) {
+            throw new ElasticSearchIllegalArgumentException("expected [" + schema.size() + "] values, got [" + values.length + "]");
+        }
+        ColumnarRow row = new ColumnarRow(schema);
+        for (int i = 0; i < values.length; i++) {
+            row.set(i, values[i]);
+        }
+        try {
+            out.writeBoolean(true);
+            out.writeOptionalString(id);
+            row.writeValues(out);
+        } catch (IOException e) {
+            throw new ElasticSearchGenerationException("Failed to generate columnar bulk", e);
+        }
+        return this;
+    }
+
+    /**
+     * Ends the content and returns it, no more blocks or rows can be added afterwards.
+     */
+    public BytesReference bytes() {
+        if (!closed) {
+            try {
+                endBlock();
+                out.writeBoolean(false);
+            } catch (IOException e) {
+                throw new ElasticSearchGenerationException("Failed to generate columnar bulk", e);
+            }
+            closed = true;
+        }
+        return out.bytes();
+    }
+
+    private void endBlock() throws IOException {
+        if (schema != null) {
+            out.writeBoolean(false);
+            schema = null;
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new ElasticSearchIllegalArgumentException("columnar bulk already built");
+        }
+    }
+}
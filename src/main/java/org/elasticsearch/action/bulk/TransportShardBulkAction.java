@@ -47,6 +47,8 @@ import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.index.engine.DocumentAlreadyExistsException;
@@ -65,6 +67,8 @@ import org.elasticsearch.transport.TransportService;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Performs the index operation.
@@ -74,6 +78,10 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
     private final MappingUpdatedAction mappingUpdatedAction;
     private final UpdateHelper updateHelper;
     private final boolean allowIdGeneration;
+    private final boolean batchEngineOperations;
+    private final boolean parallelParse;
+    private final int parallelParseMinItems;
+    private final int parallelParseThreads;
 
     @Inject
     public TransportShardBulkAction(Settings settings, TransportService transportService, ClusterService clusterService,
@@ -83,6 +91,10 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
         this.mappingUpdatedAction = mappingUpdatedAction;
         this.updateHelper = updateHelper;
         this.allowIdGeneration = settings.getAsBoolean("action.allow_id_generation", true);
+        this.batchEngineOperations = settings.getAsBoolean("action.bulk.batch_engine_operations", true);
+        this.parallelParse = settings.getAsBoolean("action.bulk.parallel_parse", true);
+        this.parallelParseMinItems = settings.getAsInt("action.bulk.parallel_parse_min_items", 32);
+        this.parallelParseThreads = EsExecutors.boundedNumberOfProcessors(settings);
     }
 
     @Override
@@ -144,12 +156,35 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
 
         BulkItemResponse[] responses = new BulkItemResponse[request.items().length];
         long[] preVersions = new long[request.items().length];
+        // consecutive index requests are applied to the engine together, their ops (or failures) are kept up to batchEnd
+        Engine.IndexingOperation[] batchOps = null;
+        Throwable[] batchFailures = null;
+        int batchEnd = 0;
         for (int requestIndex = 0; requestIndex < request.items().length; requestIndex++) {
             BulkItemRequest item = request.items()[requestIndex];
             if (item.request() instanceof IndexRequest) {
                 IndexRequest indexRequest = (IndexRequest) item.request();
+                if (batchEngineOperations && requestIndex >= batchEnd) {
+                    int runEnd = indexRunEnd(request.items(), requestIndex);
+                    if (runEnd - requestIndex > 1) {
+                        if (batchOps == null) {
+                            batchOps = new Engine.IndexingOperation[request.items().length];
+                            batchFailures = new Throwable[request.items().length];
+                        }
+                        shardIndexOperations(request, requestIndex, runEnd, clusterState, indexShard, batchOps, batchFailures);
+                        batchEnd = runEnd;
+                    }
+                }
                 try {
-                    WriteResult result = shardIndexOperation(request, indexRequest, clusterState, indexShard, true);
+                    WriteResult result;
+                    if (requestIndex < batchEnd) {
+                        if (batchFailures[requestIndex] != null) {
+                            throw batchFailures[requestIndex];
+                        }
+                        result = finishIndexOperation(indexRequest, batchOps[requestIndex]);
+                    } else {
+                        result = shardIndexOperation(request, indexRequest, clusterState, indexShard, true);
+                    }
                     // add the response
                     IndexResponse indexResponse = result.response();
                     responses[requestIndex] = new BulkItemResponse(item.id(), indexRequest.opType().lowercase(), indexResponse);
@@ -370,7 +405,122 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
 
     private WriteResult shardIndexOperation(BulkShardRequest request, IndexRequest indexRequest, ClusterState clusterState,
                                             IndexShard indexShard, boolean processed) {
+        Engine.IndexingOperation op = prepareIndexOperation(request, indexRequest, clusterState, indexShard, processed);
+        if (op.opType() == Engine.Operation.Type.INDEX) {
+            indexShard.index((Engine.Index) op);
+        } else {
+            indexShard.create((Engine.Create) op);
+        }
+        return finishIndexOperation(indexRequest, op);
+    }
+
+    /**
+     * Returns the end (exclusive) of the run of index requests starting at the given item.
+     */
+    private static int indexRunEnd(BulkItemRequest[] items, int start) {
+        int end = start;
+        while (end < items.length && items[end] != null && items[end].request() instanceof IndexRequest) {
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * Prepares the index requests between start and end and applies them to the shard with a single
+     * {@link IndexShard#bulk(Engine.Bulk)}, leaving each item's applied op or its failure in the given arrays.
+     */
+    private void shardIndexOperations(BulkShardRequest request, int start, int end, ClusterState clusterState, IndexShard indexShard,
+                                      Engine.IndexingOperation[] batchOps, Throwable[] batchFailures) {
+        Engine.IndexingOperation[] ops = new Engine.IndexingOperation[end - start];
+        Throwable[] parseFailures = new Throwable[end - start];
+        prepareIndexOperations(request, start, end, clusterState, indexShard, true, ops, parseFailures);
+        for (int i = start; i < end; i++) {
+            batchOps[i] = null;
+            batchFailures[i] = parseFailures[i - start];
+        }
+        Engine.Bulk bulk = new Engine.Bulk(ops);
+        try {
+            indexShard.bulk(bulk);
+        } catch (Throwable e) {
+            for (int i = start; i < end; i++) {
+                if (batchFailures[i] == null) {
+                    batchFailures[i] = e;
+                }
+            }
+            return;
+        }
+        for (int i = start; i < end; i++) {
+            if (batchFailures[i] == null) {
+                if (bulk.failure(i - start) != null) {
+                    batchFailures[i] = bulk.failure(i - start);
+                } else {
+                    batchOps[i] = bulk.ops()[i - start];
+                }
+            }
+        }
+    }
+
+    /**
+     * Prepares (and so parses) the index requests between start and end, leaving each op or failure at its offset from start.
+     * Large enough runs are parsed in parallel on the bulk parse pool, the calling thread taking its share of the items so it
+     * never just waits on the pool. The ops are still applied in order by the caller once they are all parsed.
+     */
+    private void prepareIndexOperations(final BulkShardRequest request, final int start, final int end, final ClusterState clusterState,
+                                        final IndexShard indexShard, final boolean primary, final Engine.IndexingOperation[] ops,
+                                        final Throwable[] failures) {
+        final int count = end - start;
+        final AtomicInteger cursor = new AtomicInteger(start);
+        final CountDownLatch parsed = new CountDownLatch(count);
+        Runnable parser = new Runnable() {
+            @Override
+            public void run() {
+                for (int i = cursor.getAndIncrement(); i < end; i = cursor.getAndIncrement()) {
+                    try {
+                        IndexRequest indexRequest = (IndexRequest) request.items()[i].request();
+                        if (primary) {
+                            ops[i - start] = prepareIndexOperation(request, indexRequest, clusterState, indexShard, true);
+                        } else {
+                            ops[i - start] = prepareReplicaIndexOperation(indexRequest, indexShard);
+                        }
+                    } catch (Throwable e) {
+                        failures[i - start] = e;
+                    } finally {
+                        parsed.countDown();
+                    }
+                }
+            }
+        };
 
+        if (parallelParse && count >= parallelParseMinItems) {
+            int forks = Math.min(parallelParseThreads, count / parallelParseMinItems) - 1;
+            for (int i = 0; i < forks; i++) {
+                try {
+                    threadPool.executor(ThreadPool.Names.BULK_PARSE).execute(parser);
+                } catch (EsRejectedExecutionException e) {
+                    // the pool is busy, we parse more ourselves
+                    break;
+                }
+            }
+        }
+        parser.run();
+
+        // forked parsers that started late find nothing left to parse, we only wait for the items already claimed
+        boolean interrupted = false;
+        while (true) {
+            try {
+                parsed.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Engine.IndexingOperation prepareIndexOperation(BulkShardRequest request, IndexRequest indexRequest, ClusterState clusterState,
+                                                           IndexShard indexShard, boolean processed) {
         // validate, if routing is required, that we got routing
         MappingMetaData mappingMd = clusterState.metaData().index(request.index()).mappingOrDefault(indexRequest.type());
         if (mappingMd != null && mappingMd.routing().required()) {
@@ -383,23 +533,24 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
             indexRequest.process(clusterState.metaData(), indexRequest.index(), mappingMd, allowIdGeneration);
         }
 
-        SourceToParse sourceToParse = SourceToParse.source(SourceToParse.Origin.PRIMARY, indexRequest.source()).type(indexRequest.type()).id(indexRequest.id())
+        SourceToParse sourceToParse = sourceToParse(SourceToParse.Origin.PRIMARY, indexRequest).type(indexRequest.type()).id(indexRequest.id())
                 .routing(indexRequest.routing()).parent(indexRequest.parent()).timestamp(indexRequest.timestamp()).ttl(indexRequest.ttl());
 
+        if (indexRequest.opType() == IndexRequest.OpType.INDEX) {
+            return indexShard.prepareIndex(sourceToParse).version(indexRequest.version()).versionType(indexRequest.versionType()).origin(Engine.Operation.Origin.PRIMARY);
+        } else {
+            return indexShard.prepareCreate(sourceToParse).version(indexRequest.version()).versionType(indexRequest.versionType()).origin(Engine.Operation.Origin.PRIMARY);
+        }
+    }
+
+    private WriteResult finishIndexOperation(IndexRequest indexRequest, Engine.IndexingOperation op) {
         long version;
         boolean created;
-        Engine.IndexingOperation op;
-        if (indexRequest.opType() == IndexRequest.OpType.INDEX) {
-            Engine.Index index = indexShard.prepareIndex(sourceToParse).version(indexRequest.version()).versionType(indexRequest.versionType()).origin(Engine.Operation.Origin.PRIMARY);
-            indexShard.index(index);
-            version = index.version();
-            op = index;
-            created = index.created();
+        if (op.opType() == Engine.Operation.Type.INDEX) {
+            version = ((Engine.Index) op).version();
+            created = ((Engine.Index) op).created();
         } else {
-            Engine.Create create = indexShard.prepareCreate(sourceToParse).version(indexRequest.version()).versionType(indexRequest.versionType()).origin(Engine.Operation.Origin.PRIMARY);
-            indexShard.create(create);
-            version = create.version();
-            op = create;
+            version = ((Engine.Create) op).version();
             created = true;
         }
         long preVersion = indexRequest.version();
@@ -525,17 +676,27 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
                 continue;
             }
             if (item.request() instanceof IndexRequest) {
+                int runEnd = batchEngineOperations ? indexRunEnd(request.items(), i) : i + 1;
+                if (runEnd - i > 1) {
+                    Engine.IndexingOperation[] ops = new Engine.IndexingOperation[runEnd - i];
+                    // failures to parse are ignored, we are on backup
+                    prepareIndexOperations(request, i, runEnd, null, indexShard, false, ops, new Throwable[runEnd - i]);
+                    try {
+                        // per operation failures are recorded on the bulk, and ignored as we are on backup
+                        indexShard.bulk(new Engine.Bulk(ops));
+                    } catch (Throwable e) {
+                        // ignore, we are on backup
+                    }
+                    i = runEnd - 1;
+                    continue;
+                }
                 IndexRequest indexRequest = (IndexRequest) item.request();
                 try {
-                    SourceToParse sourceToParse = SourceToParse.source(SourceToParse.Origin.REPLICA, indexRequest.source()).type(indexRequest.type()).id(indexRequest.id())
-                            .routing(indexRequest.routing()).parent(indexRequest.parent()).timestamp(indexRequest.timestamp()).ttl(indexRequest.ttl());
-
-                    if (indexRequest.opType() == IndexRequest.OpType.INDEX) {
-                        Engine.Index index = indexShard.prepareIndex(sourceToParse).version(indexRequest.version()).origin(Engine.Operation.Origin.REPLICA);
-                        indexShard.index(index);
+                    Engine.IndexingOperation op = prepareReplicaIndexOperation(indexRequest, indexShard);
+                    if (op.opType() == Engine.Operation.Type.INDEX) {
+                        indexShard.index((Engine.Index) op);
                     } else {
-                        Engine.Create create = indexShard.prepareCreate(sourceToParse).version(indexRequest.version()).origin(Engine.Operation.Origin.REPLICA);
-                        indexShard.create(create);
+                        indexShard.create((Engine.Create) op);
                     }
                 } catch (Throwable e) {
                     // ignore, we are on backup
@@ -560,6 +721,26 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
         }
     }
 
+    /**
+     * Columnar rows are walked as they are, everything else goes through the parser of the source.
+     */
+    private static SourceToParse sourceToParse(SourceToParse.Origin origin, IndexRequest indexRequest) {
+        if (indexRequest.columnarRow() != null) {
+            return SourceToParse.source(origin, indexRequest.columnarRow().parser(), indexRequest.source());
+        }
+        return SourceToParse.source(origin, indexRequest.source());
+    }
+
+    private Engine.IndexingOperation prepareReplicaIndexOperation(IndexRequest indexRequest, IndexShard indexShard) {
+        SourceToParse sourceToParse = sourceToParse(SourceToParse.Origin.REPLICA, indexRequest).type(indexRequest.type()).id(indexRequest.id())
+                .routing(indexRequest.routing()).parent(indexRequest.parent()).timestamp(indexRequest.timestamp()).ttl(indexRequest.ttl());
+        if (indexRequest.opType() == IndexRequest.OpType.INDEX) {
+            return indexShard.prepareIndex(sourceToParse).version(indexRequest.version()).origin(Engine.Operation.Origin.REPLICA);
+        } else {
+            return indexShard.prepareCreate(sourceToParse).version(indexRequest.version()).origin(Engine.Operation.Origin.REPLICA);
+        }
+    }
+
     private void updateMappingOnMaster(final String index, final String type) {
         try {
             MapperService mapperService = indicesService.indexServiceSafe(index).mapperService();
@@ -109,29 +109,50 @@ public class TransportShardMultiGetAction extends TransportShardSingleOperationA
             indexShard.refresh(new Engine.Refresh("refresh_flag_mget").force(TransportGetAction.REFRESH_FORCE));
         }
 
-        MultiGetShardResponse response = new MultiGetShardResponse();
-        for (int i = 0; i < request.locations.size(); i++) {
-            String type = request.types.get(i);
-            String id = request.ids.get(i);
-            String[] fields = request.fields.get(i);
-
-            long version = request.versions.get(i);
-            VersionType versionType = request.versionTypes.get(i);
-            if (versionType == null) {
-                versionType = VersionType.INTERNAL;
+        int size = request.locations.size();
+        String[] types = new String[size];
+        String[] ids = new String[size];
+        String[][] fields = new String[size][];
+        long[] versions = new long[size];
+        VersionType[] versionTypes = new VersionType[size];
+        FetchSourceContext[] fetchSourceContexts = new FetchSourceContext[size];
+        for (int i = 0; i < size; i++) {
+            types[i] = request.types.get(i);
+            ids[i] = request.ids.get(i);
+            fields[i] = request.fields.get(i);
+            versions[i] = request.versions.get(i);
+            versionTypes[i] = request.versionTypes.get(i);
+            if (versionTypes[i] == null) {
+                versionTypes[i] = VersionType.INTERNAL;
             }
+            fetchSourceContexts[i] = request.fetchSourceContexts.get(i);
+        }
 
-            FetchSourceContext fetchSourceContext = request.fetchSourceContexts.get(i);
-            try {
-                GetResult getResult = indexShard.getService().get(type, id, fields, request.realtime(), version, versionType, fetchSourceContext);
-                response.add(request.locations.get(i), new GetResponse(getResult));
-            } catch (Throwable t) {
-                if (TransportActions.isShardNotAvailableException(t)) {
-                    throw (ElasticSearchException) t;
-                } else {
-                    logger.debug("[{}][{}] failed to execute multi_get for [{}]/[{}]", t, request.index(), shardId, type, id);
-                    response.add(request.locations.get(i), new MultiGetResponse.Failure(request.index(), type, id, ExceptionsHelper.detailedMessage(t)));
-                }
+        // all the docs are resolved against the shard in one go, sharing their version lookups
+        Throwable[] failures = new Throwable[size];
+        GetResult[] getResults;
+        try {
+            getResults = indexShard.getService().multiGet(types, ids, fields, request.realtime(), versions, versionTypes, fetchSourceContexts, failures);
+        } catch (Throwable t) {
+            if (TransportActions.isShardNotAvailableException(t)) {
+                throw (ElasticSearchException) t;
+            }
+            getResults = new GetResult[size];
+            for (int i = 0; i < size; i++) {
+                failures[i] = t;
+            }
+        }
+
+        MultiGetShardResponse response = new MultiGetShardResponse();
+        for (int i = 0; i < size; i++) {
+            Throwable t = failures[i];
+            if (t == null) {
+                response.add(request.locations.get(i), new GetResponse(getResults[i]));
+            } else if (TransportActions.isShardNotAvailableException(t)) {
+                throw (ElasticSearchException) t;
+            } else {
+                logger.debug("[{}][{}] failed to execute multi_get for [{}]/[{}]", t, request.index(), shardId, types[i], ids[i]);
+                response.add(request.locations.get(i), new MultiGetResponse.Failure(request.index(), types[i], ids[i], ExceptionsHelper.detailedMessage(t)));
             }
         }
 
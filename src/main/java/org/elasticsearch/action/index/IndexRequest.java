@@ -24,6 +24,7 @@ import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.ElasticSearchGenerationException;
 import org.elasticsearch.ElasticSearchIllegalArgumentException;
 import org.elasticsearch.ElasticSearchParseException;
+import org.elasticsearch.Version;
 import org.elasticsearch.action.ActionRequestValidationException;
 import org.elasticsearch.action.RoutingMissingException;
 import org.elasticsearch.action.support.replication.ShardReplicationOperationRequest;
@@ -38,6 +39,7 @@ import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.lucene.uid.Versions;
 import org.elasticsearch.common.xcontent.*;
+import org.elasticsearch.common.xcontent.columnar.ColumnarRow;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.mapper.internal.TimestampFieldMapper;
 
@@ -126,6 +128,7 @@ public class IndexRequest extends ShardReplicationOperationRequest<IndexRequest>
 
     private BytesReference source;
     private boolean sourceUnsafe;
+    private ColumnarRow columnarRow;
 
     private OpType opType = OpType.INDEX;
 
@@ -296,6 +299,29 @@ public class IndexRequest extends ShardReplicationOperationRequest<IndexRequest>
         return this.ttl;
     }
 
+    /**
+     * Sets the document to index as a columnar row, the source is generated from it as smile. On the shard
+     * the row is indexed as is, without parsing the source.
+     */
+    public IndexRequest columnarRow(ColumnarRow columnarRow) {
+        try {
+            this.source = columnarRow.toXContent(XContentFactory.smileBuilder()).bytes();
+        } catch (IOException e) {
+            throw new ElasticSearchGenerationException("Failed to generate [" + columnarRow + "]", e);
+        }
+        this.sourceUnsafe = false;
+        this.columnarRow = columnarRow;
+        return this;
+    }
+
+    /**
+     * The document to index as a columnar row, <tt>null</tt> if it was given as a source.
+     */
+    @Nullable
+    public ColumnarRow columnarRow() {
+        return this.columnarRow;
+    }
+
     /**
      * The source of the document to index, recopied to a new array if it is unsage.
      */
@@ -348,6 +374,7 @@ public class IndexRequest extends ShardReplicationOperationRequest<IndexRequest>
     public IndexRequest source(String source) {
         this.source = new BytesArray(source.getBytes(Charsets.UTF_8));
         this.sourceUnsafe = false;
+        this.columnarRow = null;
         return this;
     }
 
@@ -357,6 +384,7 @@ public class IndexRequest extends ShardReplicationOperationRequest<IndexRequest>
     public IndexRequest source(XContentBuilder sourceBuilder) {
         source = sourceBuilder.bytes();
         sourceUnsafe = false;
+        columnarRow = null;
         return this;
     }
 
@@ -423,6 +451,7 @@ public class IndexRequest extends ShardReplicationOperationRequest<IndexRequest>
     public IndexRequest source(BytesReference source, boolean unsafe) {
         this.source = source;
         this.sourceUnsafe = unsafe;
+        this.columnarRow = null;
         return this;
     }
 
@@ -456,6 +485,7 @@ public class IndexRequest extends ShardReplicationOperationRequest<IndexRequest>
     public IndexRequest source(byte[] source, int offset, int length, boolean unsafe) {
         this.source = new BytesArray(source, offset, length);
         this.sourceUnsafe = unsafe;
+        this.columnarRow = null;
         return this;
     }
 
@@ -612,8 +642,13 @@ public class IndexRequest extends ShardReplicationOperationRequest<IndexRequest>
         parent = in.readOptionalString();
         timestamp = in.readOptionalString();
         ttl = in.readLong();
-        source = in.readBytesReference();
-        sourceUnsafe = false;
+        if (in.getVersion().onOrAfter(Version.V_1_0_0_Beta1) && in.readBoolean()) {
+            // only the row is sent, the source is generated back from it
+            columnarRow(ColumnarRow.readRow(in));
+        } else {
+            source = in.readBytesReference();
+            sourceUnsafe = false;
+        }
 
         opType = OpType.fromId(in.readByte());
         refresh = in.readBoolean();
@@ -630,7 +665,16 @@ public class IndexRequest extends ShardReplicationOperationRequest<IndexRequest>
         out.writeOptionalString(parent);
         out.writeOptionalString(timestamp);
         out.writeLong(ttl);
-        out.writeBytesReference(source);
+        if (out.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            out.writeBoolean(columnarRow != null);
+            if (columnarRow != null) {
+                columnarRow.writeTo(out);
+            } else {
+                out.writeBytesReference(source);
+            }
+        } else {
+            out.writeBytesReference(source);
+        }
         out.writeByte(opType.id());
         out.writeBoolean(refresh);
         out.writeLong(version);
@@ -21,6 +21,7 @@ package org.elasticsearch.action.search;
 
 import org.elasticsearch.ElasticSearchGenerationException;
 import org.elasticsearch.ElasticSearchIllegalArgumentException;
+import org.elasticsearch.Version;
 import org.elasticsearch.action.ActionRequest;
 import org.elasticsearch.action.ActionRequestValidationException;
 import org.elasticsearch.action.support.IgnoreIndices;
@@ -77,6 +78,8 @@ public class SearchRequest extends ActionRequest<SearchRequest> {
 
     private Scroll scroll;
 
+    private boolean queryCache;
+
     private String[] types = Strings.EMPTY_ARRAY;
 
     private SearchOperationThreading operationThreading = SearchOperationThreading.THREAD_PER_SHARD;
@@ -445,6 +448,19 @@ public class SearchRequest extends ActionRequest<SearchRequest> {
         return scroll(new Scroll(TimeValue.parseTimeValue(keepAlive, null)));
     }
 
+    /**
+     * Sets if the shard level results of this request can be cached, only applies to
+     * {@link SearchType#COUNT} requests. Defaults to <tt>false</tt>.
+     */
+    public SearchRequest queryCache(boolean queryCache) {
+        this.queryCache = queryCache;
+        return this;
+    }
+
+    public boolean queryCache() {
+        return this.queryCache;
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
@@ -471,6 +487,9 @@ public class SearchRequest extends ActionRequest<SearchRequest> {
 
         types = in.readStringArray();
         ignoreIndices = IgnoreIndices.fromId(in.readByte());
+        if (in.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            queryCache = in.readBoolean();
+        }
     }
 
     @Override
@@ -497,5 +516,8 @@ public class SearchRequest extends ActionRequest<SearchRequest> {
         out.writeBytesReference(extraSource);
         out.writeStringArray(types);
         out.writeByte(ignoreIndices.id());
+        if (out.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            out.writeBoolean(queryCache);
+        }
     }
 }
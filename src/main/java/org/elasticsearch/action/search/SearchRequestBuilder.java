@@ -112,6 +112,15 @@ public class SearchRequestBuilder extends ActionRequestBuilder<SearchRequest, Se
         return this;
     }
 
+    /**
+     * Sets if the shard level results of this request can be cached, only applies to
+     * {@link SearchType#COUNT} requests. Defaults to <tt>false</tt>.
+     */
+    public SearchRequestBuilder setQueryCache(boolean queryCache) {
+        request.queryCache(queryCache);
+        return this;
+    }
+
     /**
      * An optional timeout to control how long search is allowed to take.
      */
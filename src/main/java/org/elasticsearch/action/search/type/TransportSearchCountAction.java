@@ -36,6 +36,8 @@ import org.elasticsearch.search.internal.ShardSearchRequest;
 import org.elasticsearch.search.query.QuerySearchResult;
 import org.elasticsearch.threadpool.ThreadPool;
 
+import java.util.List;
+
 import static org.elasticsearch.action.search.type.TransportSearchHelper.buildScrollId;
 
 /**
@@ -70,6 +72,16 @@ public class TransportSearchCountAction extends TransportSearchTypeAction {
             searchService.sendExecuteQuery(node, request, listener);
         }
 
+        @Override
+        protected boolean batchFirstPhase() {
+            return true;
+        }
+
+        @Override
+        protected void sendExecuteFirstPhase(DiscoveryNode node, List<ShardSearchRequest> requests, List<SearchServiceListener<QuerySearchResult>> listeners) {
+            searchService.sendExecuteQuery(node, requests, listeners);
+        }
+
         @Override
         protected void moveToSecondPhase() throws Exception {
             // no need to sort, since we know we have no hits back
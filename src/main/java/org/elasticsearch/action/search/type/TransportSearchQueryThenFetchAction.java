@@ -41,6 +41,7 @@ import org.elasticsearch.search.internal.ShardSearchRequest;
 import org.elasticsearch.search.query.QuerySearchResult;
 import org.elasticsearch.threadpool.ThreadPool;
 
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -80,6 +81,16 @@ public class TransportSearchQueryThenFetchAction extends TransportSearchTypeActi
             searchService.sendExecuteQuery(node, request, listener);
         }
 
+        @Override
+        protected boolean batchFirstPhase() {
+            return true;
+        }
+
+        @Override
+        protected void sendExecuteFirstPhase(DiscoveryNode node, List<ShardSearchRequest> requests, List<SearchServiceListener<QuerySearchResult>> listeners) {
+            searchService.sendExecuteQuery(node, requests, listeners);
+        }
+
         @Override
         protected void moveToSecondPhase() {
             sortedShardList = searchPhaseController.sortDocs(firstResults);
@@ -47,6 +47,8 @@ import org.elasticsearch.search.internal.ShardSearchRequest;
 import org.elasticsearch.search.query.QuerySearchResultProvider;
 import org.elasticsearch.threadpool.ThreadPool;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -132,12 +134,23 @@ public abstract class TransportSearchTypeAction extends TransportAction<SearchRe
             // count the local operations, and perform the non local ones
             int localOperations = 0;
             int shardIndex = -1;
+            // when the first phase can be batched, remote shards are grouped by node and sent together
+            final Map<String, IntArrayList> batchedShardIndices = batchFirstPhase() ? new HashMap<String, IntArrayList>() : null;
+            final ShardIterator[] batchedShardIts = batchedShardIndices != null ? new ShardIterator[shardsIts.size()] : null;
             for (final ShardIterator shardIt : shardsIts) {
                 shardIndex++;
                 final ShardRouting shard = shardIt.firstOrNull();
                 if (shard != null) {
                     if (shard.currentNodeId().equals(nodes.localNodeId())) {
                         localOperations++;
+                    } else if (batchedShardIndices != null) {
+                        IntArrayList shardIndices = batchedShardIndices.get(shard.currentNodeId());
+                        if (shardIndices == null) {
+                            shardIndices = new IntArrayList();
+                            batchedShardIndices.put(shard.currentNodeId(), shardIndices);
+                        }
+                        shardIndices.add(shardIndex);
+                        batchedShardIts[shardIndex] = shardIt;
                     } else {
                         // do the remote operation here, the localAsync flag is not relevant
                         performFirstPhase(shardIndex, shardIt);
@@ -147,6 +160,11 @@ public abstract class TransportSearchTypeAction extends TransportAction<SearchRe
                     onFirstPhaseResult(shardIndex, null, null, shardIt, new NoShardAvailableActionException(shardIt.shardId()));
                 }
             }
+            if (batchedShardIndices != null) {
+                for (Map.Entry<String, IntArrayList> entry : batchedShardIndices.entrySet()) {
+                    performFirstPhase(entry.getKey(), entry.getValue(), batchedShardIts);
+                }
+            }
             // we have local operations, perform them now
             if (localOperations > 0) {
                 if (request.operationThreading() == SearchOperationThreading.SINGLE_THREAD) {
@@ -213,19 +231,47 @@ public abstract class TransportSearchTypeAction extends TransportAction<SearchRe
                     onFirstPhaseResult(shardIndex, shard, null, shardIt, new NoShardAvailableActionException(shardIt.shardId()));
                 } else {
                     String[] filteringAliases = clusterState.metaData().filteringAliases(shard.index(), request.indices());
-                    sendExecuteFirstPhase(node, internalSearchRequest(shard, shardsIts.size(), request, filteringAliases, startTime), new SearchServiceListener<FirstResult>() {
-                        @Override
-                        public void onResult(FirstResult result) {
-                            onFirstPhaseResult(shardIndex, shard, result, shardIt);
-                        }
+                    sendExecuteFirstPhase(node, internalSearchRequest(shard, shardsIts.size(), request, filteringAliases, startTime), firstPhaseListener(shardIndex, shardIt, shard, node));
+                }
+            }
+        }
 
-                        @Override
-                        public void onFailure(Throwable t) {
-                            onFirstPhaseResult(shardIndex, shard, node.id(), shardIt, t);
-                        }
-                    });
+        /**
+         * Performs the first phase of several shards allocated on the same (remote) node in one go.
+         */
+        void performFirstPhase(String nodeId, IntArrayList shardIndices, ShardIterator[] shardIts) {
+            final DiscoveryNode node = nodes.get(nodeId);
+            if (node == null || shardIndices.size() == 1) {
+                for (int i = 0; i < shardIndices.size(); i++) {
+                    performFirstPhase(shardIndices.get(i), shardIts[shardIndices.get(i)]);
                 }
+                return;
+            }
+            List<ShardSearchRequest> requests = new ArrayList<ShardSearchRequest>(shardIndices.size());
+            List<SearchServiceListener<FirstResult>> listeners = new ArrayList<SearchServiceListener<FirstResult>>(shardIndices.size());
+            for (int i = 0; i < shardIndices.size(); i++) {
+                final int shardIndex = shardIndices.get(i);
+                final ShardIterator shardIt = shardIts[shardIndex];
+                final ShardRouting shard = shardIt.nextOrNull();
+                String[] filteringAliases = clusterState.metaData().filteringAliases(shard.index(), request.indices());
+                requests.add(internalSearchRequest(shard, shardsIts.size(), request, filteringAliases, startTime));
+                listeners.add(firstPhaseListener(shardIndex, shardIt, shard, node));
             }
+            sendExecuteFirstPhase(node, requests, listeners);
+        }
+
+        private SearchServiceListener<FirstResult> firstPhaseListener(final int shardIndex, final ShardIterator shardIt, final ShardRouting shard, final DiscoveryNode node) {
+            return new SearchServiceListener<FirstResult>() {
+                @Override
+                public void onResult(FirstResult result) {
+                    onFirstPhaseResult(shardIndex, shard, result, shardIt);
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    onFirstPhaseResult(shardIndex, shard, node.id(), shardIt, t);
+                }
+            };
         }
 
         void onFirstPhaseResult(int shardIndex, ShardRouting shard, FirstResult result, ShardIterator shardIt) {
@@ -375,6 +421,23 @@ public abstract class TransportSearchTypeAction extends TransportAction<SearchRe
 
         protected abstract void sendExecuteFirstPhase(DiscoveryNode node, ShardSearchRequest request, SearchServiceListener<FirstResult> listener);
 
+        /**
+         * Should the first phase requests of shards allocated on the same remote node be sent together, see
+         * {@link #sendExecuteFirstPhase(DiscoveryNode, List, List)}.
+         */
+        protected boolean batchFirstPhase() {
+            return false;
+        }
+
+        /**
+         * Executes the first phase of several shards allocated on the same node, by default sending each one on its own.
+         */
+        protected void sendExecuteFirstPhase(DiscoveryNode node, List<ShardSearchRequest> requests, List<SearchServiceListener<FirstResult>> listeners) {
+            for (int i = 0; i < requests.size(); i++) {
+                sendExecuteFirstPhase(node, requests.get(i), listeners.get(i));
+            }
+        }
+
         protected final void processFirstPhaseResult(int shardIndex, ShardRouting shard, FirstResult result) {
             firstResults.set(shardIndex, result);
 
@@ -24,6 +24,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.UnmodifiableIterator;
 import jsr166y.ThreadLocalRandom;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.cluster.routing.operation.ResponseCollectorService;
 import org.elasticsearch.common.collect.MapBuilder;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -44,6 +45,8 @@ import static com.google.common.collect.Lists.newArrayList;
  */
 public class IndexShardRoutingTable implements Iterable<ShardRouting> {
 
+    private static final double RANK_JITTER = 0.1d;
+
     final ShardId shardId;
 
     final ShardRouting primary;
@@ -303,6 +306,42 @@ public class IndexShardRoutingTable implements Iterable<ShardRouting> {
         return new PlainShardIterator(shardId, ordered);
     }
 
+    /**
+     * Returns an iterator over active and initializing shards, with the active shards ordered by the rank of the
+     * node they are allocated on (best expected latency first), and initializing shards the last to iterate through.
+     * Nodes without a rank yet come first so they get measured, shards are picked from a random offset and the ranks
+     * are jittered a bit so equally ranked nodes still share the load instead of all requests herding to one node.
+     */
+    public ShardIterator activeInitializingShardsRankedIt(ResponseCollectorService collector) {
+        final int size = activeShards.size();
+        if (size <= 1) {
+            return activeInitializingShardsIt(0);
+        }
+        ArrayList<ShardRouting> ordered = new ArrayList<ShardRouting>(size + allInitializingShards.size());
+        addToListFromIndex(activeShards, ordered, pickIndex());
+        double[] ranks = new double[size];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < size; i++) {
+            double rank = collector.rank(ordered.get(i).currentNodeId());
+            ranks[i] = rank < 0 ? rank : rank * (1 + (random.nextDouble() * RANK_JITTER));
+        }
+        // insertion sort, stable so ties keep the random offset order, and there are only a handful of replicas
+        for (int i = 1; i < size; i++) {
+            double rank = ranks[i];
+            ShardRouting shard = ordered.get(i);
+            int j = i - 1;
+            while (j >= 0 && ranks[j] > rank) {
+                ranks[j + 1] = ranks[j];
+                ordered.set(j + 1, ordered.get(j));
+                j--;
+            }
+            ranks[j + 1] = rank;
+            ordered.set(j + 1, shard);
+        }
+        ordered.addAll(allInitializingShards);
+        return new PlainShardIterator(shardId, ordered);
+    }
+
     public ShardIterator assignedShardsRandomIt() {
         return new PlainShardIterator(shardId, assignedShards, pickIndex());
     }
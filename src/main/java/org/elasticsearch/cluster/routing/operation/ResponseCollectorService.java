@@ -0,0 +1,175 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster.routing.operation;
+
+import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.cluster.ClusterChangedEvent;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.ClusterStateListener;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.component.AbstractLifecycleComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.metrics.ExponentiallyWeightedMovingAverage;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects the response times, service times and search queue sizes observed for requests sent to other nodes,
+ * and ranks nodes by their expected latency for adaptive replica selection.
+ * <p/>
+ * The rank follows the C3 replica ranking function: <tt>R - 1/mu + q^3/mu</tt>, where <tt>R</tt> is the
+ * moving average of the response time seen by this node, <tt>1/mu</tt> the moving average of the time the
+ * remote node spent serving the request, and <tt>q</tt> the estimated queue size on the remote node, which
+ * accounts for the requests this node (and, estimated, the rest of the cluster) has outstanding to it.
+ */
+public class ResponseCollectorService extends AbstractLifecycleComponent<ResponseCollectorService> implements ClusterStateListener {
+
+    private final double alpha;
+
+    private ClusterService clusterService;
+
+    private final ConcurrentMap<String, NodeStatistics> nodeStats = ConcurrentCollections.newConcurrentMap();
+
+    private volatile int clientCount = 1;
+
+    @Inject
+    public ResponseCollectorService(Settings settings) {
+        super(settings);
+        this.alpha = settings.getAsDouble("cluster.routing.operation.adaptive_replica_selection.alpha", 0.3d);
+    }
+
+    // inject it as a member, the cluster service depends on the operation routing, which depends on us
+    @Inject
+    public void setClusterService(ClusterService clusterService) {
+        this.clusterService = clusterService;
+    }
+
+    @Override
+    protected void doStart() throws ElasticSearchException {
+        clusterService.add(this);
+    }
+
+    @Override
+    protected void doStop() throws ElasticSearchException {
+        clusterService.remove(this);
+    }
+
+    @Override
+    protected void doClose() throws ElasticSearchException {
+        nodeStats.clear();
+    }
+
+    @Override
+    public void clusterChanged(ClusterChangedEvent event) {
+        clientCount = Math.max(1, event.state().nodes().size());
+        if (event.nodesRemoved()) {
+            for (DiscoveryNode removedNode : event.nodesDelta().removedNodes()) {
+                nodeStats.remove(removedNode.id());
+            }
+        }
+    }
+
+    /**
+     * Marks a request as sent to the given node, it is outstanding until {@link #addNodeStatistics} or
+     * {@link #requestFailed(String)} is called for it.
+     */
+    public void requestSent(String nodeId) {
+        nodeStatistics(nodeId).outstanding.incrementAndGet();
+    }
+
+    /**
+     * Marks an outstanding request to the given node as failed, without updating its statistics.
+     */
+    public void requestFailed(String nodeId) {
+        NodeStatistics stats = nodeStats.get(nodeId);
+        if (stats != null) {
+            stats.outstanding.decrementAndGet();
+        }
+    }
+
+    /**
+     * Records a response from the given node.
+     *
+     * @param queueSize         the search queue size reported by the node, or <tt>-1</tt> if unknown
+     * @param responseTimeNanos the time it took from sending the request to receiving the response
+     * @param serviceTimeNanos  the time the node reported to spend executing the request, or <tt>-1</tt> if unknown
+     */
+    public void addNodeStatistics(String nodeId, int queueSize, long responseTimeNanos, long serviceTimeNanos) {
+        NodeStatistics stats = nodeStatistics(nodeId);
+        stats.outstanding.decrementAndGet();
+        stats.responseTime.addValue(responseTimeNanos);
+        if (queueSize >= 0) {
+            stats.queueSize.addValue(queueSize);
+        }
+        // without a reported service time we can only assume the whole response time was spent serving it
+        stats.serviceTime.addValue(serviceTimeNanos >= 0 ? serviceTimeNanos : responseTimeNanos);
+        stats.responses = true;
+    }
+
+    /**
+     * Returns the rank of the given node, lower is better, or <tt>-1</tt> if no response has been collected from
+     * it yet.
+     */
+    public double rank(String nodeId) {
+        NodeStatistics stats = nodeStats.get(nodeId);
+        if (stats == null || !stats.responses) {
+            return -1;
+        }
+        // work in millis to keep the cubic term in a sane range
+        double responseTime = stats.responseTime.getAverage() / 1000000d;
+        double serviceTime = Math.max(stats.serviceTime.getAverage() / 1000000d, 0.001d);
+        double queue = 1 + (Math.max(stats.outstanding.get(), 0) * clientCount) + stats.queueSize.getAverage();
+        return responseTime - serviceTime + (Math.pow(queue, 3) * serviceTime);
+    }
+
+    private NodeStatistics nodeStatistics(String nodeId) {
+        NodeStatistics stats = nodeStats.get(nodeId);
+        if (stats == null) {
+            stats = new NodeStatistics(alpha);
+            NodeStatistics existing = nodeStats.putIfAbsent(nodeId, stats);
+            if (existing != null) {
+                stats = existing;
+            }
+        }
+        return stats;
+    }
+
+    static class NodeStatistics {
+
+        final AtomicInteger outstanding = new AtomicInteger();
+
+        final ExponentiallyWeightedMovingAverage responseTime;
+
+        final ExponentiallyWeightedMovingAverage serviceTime;
+
+        final ExponentiallyWeightedMovingAverage queueSize;
+
+        volatile boolean responses;
+
+        NodeStatistics(double alpha) {
+            this.responseTime = new ExponentiallyWeightedMovingAverage(alpha, 0);
+            this.serviceTime = new ExponentiallyWeightedMovingAverage(alpha, 0);
+            this.queueSize = new ExponentiallyWeightedMovingAverage(alpha, 0);
+        }
+    }
+}
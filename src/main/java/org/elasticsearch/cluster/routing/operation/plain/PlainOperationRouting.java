@@ -29,6 +29,7 @@ import org.elasticsearch.cluster.routing.IndexShardRoutingTable;
 import org.elasticsearch.cluster.routing.ShardIterator;
 import org.elasticsearch.cluster.routing.allocation.decider.AwarenessAllocationDecider;
 import org.elasticsearch.cluster.routing.operation.OperationRouting;
+import org.elasticsearch.cluster.routing.operation.ResponseCollectorService;
 import org.elasticsearch.cluster.routing.operation.hash.HashFunction;
 import org.elasticsearch.cluster.routing.operation.hash.djb.DjbHashFunction;
 import org.elasticsearch.common.Nullable;
@@ -57,12 +58,18 @@ public class PlainOperationRouting extends AbstractComponent implements Operatio
 
     private final AwarenessAllocationDecider awarenessAllocationDecider;
 
+    private final ResponseCollectorService responseCollectorService;
+
+    private final boolean adaptiveReplicaSelection;
+
     @Inject
-    public PlainOperationRouting(Settings indexSettings, HashFunction hashFunction, AwarenessAllocationDecider awarenessAllocationDecider) {
+    public PlainOperationRouting(Settings indexSettings, HashFunction hashFunction, AwarenessAllocationDecider awarenessAllocationDecider, ResponseCollectorService responseCollectorService) {
         super(indexSettings);
         this.hashFunction = hashFunction;
         this.useType = indexSettings.getAsBoolean("cluster.routing.operation.use_type", false);
         this.awarenessAllocationDecider = awarenessAllocationDecider;
+        this.responseCollectorService = responseCollectorService;
+        this.adaptiveReplicaSelection = indexSettings.getAsBoolean("cluster.routing.operation.adaptive_replica_selection", false);
     }
 
     @Override
@@ -120,8 +127,15 @@ public class PlainOperationRouting extends AbstractComponent implements Operatio
     public GroupShardsIterator searchShards(ClusterState clusterState, String[] indices, String[] concreteIndices, @Nullable Map<String, Set<String>> routing, @Nullable String preference) throws IndexMissingException {
         final Set<IndexShardRoutingTable> shards = computeTargetedShards(clusterState, indices, concreteIndices, routing);
         final Set<ShardIterator> set = new HashSet<ShardIterator>(shards.size());
+        final boolean ranked = adaptiveReplicaSelection && (preference == null || preference.isEmpty()) && awarenessAllocationDecider.awarenessAttributes().length == 0;
         for (IndexShardRoutingTable shard : shards) {
-            ShardIterator iterator = preferenceActiveShardIterator(shard, clusterState.nodes().localNodeId(), clusterState.nodes(), preference);
+            ShardIterator iterator;
+            if (ranked) {
+                // no preference, pick the copies on the nodes we expect to respond the fastest
+                iterator = shard.activeInitializingShardsRankedIt(responseCollectorService);
+            } else {
+                iterator = preferenceActiveShardIterator(shard, clusterState.nodes().localNodeId(), clusterState.nodes(), preference);
+            }
             if (iterator != null) {
                 set.add(iterator);
             }
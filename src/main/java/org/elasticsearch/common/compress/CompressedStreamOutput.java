@@ -34,6 +34,7 @@ public abstract class CompressedStreamOutput<T extends CompressorContext> extend
     protected byte[] uncompressed;
     protected int uncompressedLength;
     private int position = 0;
+    private long totalUncompressed = 0;
 
     private boolean closed;
 
@@ -50,6 +51,13 @@ public abstract class CompressedStreamOutput<T extends CompressorContext> extend
         return super.setVersion(version);
     }
 
+    /**
+     * The number of (uncompressed) bytes that have been compressed and handed over to the underlying stream so far.
+     */
+    public long totalUncompressed() {
+        return totalUncompressed;
+    }
+
     @Override
     public void write(int b) throws IOException {
         if (position >= uncompressedLength) {
@@ -93,6 +101,7 @@ public abstract class CompressedStreamOutput<T extends CompressorContext> extend
         // then write intermediate full block, if any, without copying:
         while (length >= BUFFER_LEN) {
             compress(input, offset, BUFFER_LEN, out);
+            totalUncompressed += BUFFER_LEN;
             offset += BUFFER_LEN;
             length -= BUFFER_LEN;
         }
@@ -125,12 +134,14 @@ public abstract class CompressedStreamOutput<T extends CompressorContext> extend
     @Override
     public void reset() throws IOException {
         position = 0;
+        totalUncompressed = 0;
         out.reset();
     }
 
     private void flushBuffer() throws IOException {
         if (position > 0) {
             compress(uncompressed, 0, position, out);
+            totalUncompressed += position;
             position = 0;
         }
     }
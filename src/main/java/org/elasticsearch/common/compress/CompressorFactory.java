@@ -26,6 +26,7 @@ import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.MapBuilder;
+import org.elasticsearch.common.compress.lz4.LZ4Compressor;
 import org.elasticsearch.common.compress.lzf.LZFCompressor;
 import org.elasticsearch.common.io.Streams;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
@@ -44,22 +45,44 @@ public class CompressorFactory {
 
     private static final LZFCompressor LZF = new LZFCompressor();
 
-    private static final Compressor[] compressors;
-    private static final ImmutableMap<String, Compressor> compressorsByType;
+    private static final LZ4Compressor LZ4 = new LZ4Compressor();
+
+    private static volatile Compressor[] compressors;
+    private static volatile ImmutableMap<String, Compressor> compressorsByType;
     private static Compressor defaultCompressor;
 
     static {
         List<Compressor> compressorsX = Lists.newArrayList();
         compressorsX.add(LZF);
+        compressorsX.add(LZ4);
 
-        compressors = compressorsX.toArray(new Compressor[compressorsX.size()]);
+        setCompressors(compressorsX);
+
+        defaultCompressor = LZF;
+    }
+
+    private static void setCompressors(List<Compressor> compressorsX) {
         MapBuilder<String, Compressor> compressorsByTypeX = MapBuilder.newMapBuilder();
-        for (Compressor compressor : compressors) {
+        for (Compressor compressor : compressorsX) {
             compressorsByTypeX.put(compressor.type(), compressor);
         }
         compressorsByType = compressorsByTypeX.immutableMap();
+        compressors = compressorsX.toArray(new Compressor[compressorsX.size()]);
+    }
 
-        defaultCompressor = LZF;
+    /**
+     * Registers an additional compressor, making it available by its type and to compressed data detection.
+     * A compressor registered with the type of an already registered one replaces it.
+     */
+    public static synchronized void registerCompressor(Compressor compressor) {
+        List<Compressor> compressorsX = Lists.newArrayList();
+        for (Compressor existing : compressors) {
+            if (!existing.type().equals(compressor.type())) {
+                compressorsX.add(existing);
+            }
+        }
+        compressorsX.add(compressor);
+        setCompressors(compressorsX);
     }
 
     public static synchronized void configure(Settings settings) {
@@ -149,6 +172,7 @@ public class CompressorFactory {
         return null;
     }
 
+    @Nullable
     public static Compressor compressor(String type) {
         return compressorsByType.get(type);
     }
@@ -0,0 +1,112 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.compress.lz4;
+
+import org.apache.lucene.codecs.compressing.CompressionMode;
+import org.apache.lucene.codecs.compressing.Decompressor;
+import org.apache.lucene.store.DataInput;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.compress.CompressedStreamInput;
+import org.elasticsearch.common.io.stream.StreamInput;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ */
+public class LZ4CompressedStreamInput extends CompressedStreamInput<LZ4CompressorContext> {
+
+    private final StreamInput in;
+    private final DataInput dataInput;
+    private final Decompressor decompressor;
+    private final BytesRef spare;
+
+    public LZ4CompressedStreamInput(StreamInput in) throws IOException {
+        super(in, LZ4CompressorContext.INSTANCE);
+        this.in = in;
+        this.dataInput = new StreamInputDataInput(in);
+        this.decompressor = CompressionMode.FAST.newDecompressor();
+        // the decompressor wants 7 bytes of padding, allocate them upfront so it can decompress in place
+        this.uncompressed = new byte[LZ4Compressor.CHUNK_SIZE + 7];
+        this.spare = new BytesRef(uncompressed);
+    }
+
+    @Override
+    protected void readHeader(StreamInput in) throws IOException {
+        byte[] header = new byte[LZ4Compressor.HEADER.length];
+        in.readBytes(header, 0, header.length);
+        if (!Arrays.equals(header, LZ4Compressor.HEADER)) {
+            throw new IOException("wrong lz4 compressed header [" + Arrays.toString(header) + "]");
+        }
+    }
+
+    @Override
+    protected int uncompress(StreamInput in, byte[] out) throws IOException {
+        int b = in.read();
+        if (b == -1) {
+            return -1;
+        }
+        // the first byte of the vint is read by hand so we can detect the end of the stream
+        int length = b & 0x7F;
+        for (int shift = 7; (b & 0x80) != 0; shift += 7) {
+            b = in.readByte();
+            length |= (b & 0x7F) << shift;
+        }
+        if (length > LZ4Compressor.CHUNK_SIZE) {
+            throw new IOException("lz4 chunk length [" + length + "] exceeds the maximum chunk size [" + LZ4Compressor.CHUNK_SIZE + "]");
+        }
+        spare.bytes = out;
+        decompressor.decompress(dataInput, length, 0, length, spare);
+        if (spare.bytes != out) {
+            System.arraycopy(spare.bytes, spare.offset, out, 0, length);
+        }
+        return length;
+    }
+
+    @Override
+    public void reset() throws IOException {
+        super.reset();
+        readHeader(in);
+    }
+
+    @Override
+    protected void doClose() throws IOException {
+        uncompressed = null;
+    }
+
+    static class StreamInputDataInput extends DataInput {
+
+        private final StreamInput in;
+
+        StreamInputDataInput(StreamInput in) {
+            this.in = in;
+        }
+
+        @Override
+        public byte readByte() throws IOException {
+            return in.readByte();
+        }
+
+        @Override
+        public void readBytes(byte[] b, int offset, int len) throws IOException {
+            in.readBytes(b, offset, len);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.compress.lz4;
+
+import org.apache.lucene.codecs.compressing.CompressionMode;
+import org.apache.lucene.store.DataOutput;
+import org.elasticsearch.common.compress.CompressedStreamOutput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+
+/**
+ * Writes the {@link LZ4Compressor#HEADER} once, followed by chunks of up to {@link LZ4Compressor#CHUNK_SIZE}
+ * bytes, each prefixed with its uncompressed length.
+ */
+public class LZ4CompressedStreamOutput extends CompressedStreamOutput<LZ4CompressorContext> {
+
+    private final StreamOutput out;
+    private final DataOutput dataOutput;
+    private final org.apache.lucene.codecs.compressing.Compressor compressor;
+
+    public LZ4CompressedStreamOutput(StreamOutput out) throws IOException {
+        super(out, LZ4CompressorContext.INSTANCE);
+        this.out = out;
+        this.dataOutput = new StreamOutputDataOutput(out);
+        this.compressor = CompressionMode.FAST.newCompressor();
+        this.uncompressed = new byte[LZ4Compressor.CHUNK_SIZE];
+        this.uncompressedLength = LZ4Compressor.CHUNK_SIZE;
+    }
+
+    @Override
+    protected void writeHeader(StreamOutput out) throws IOException {
+        out.writeBytes(LZ4Compressor.HEADER);
+    }
+
+    @Override
+    protected void compress(byte[] data, int offset, int len, StreamOutput out) throws IOException {
+        out.writeVInt(len);
+        compressor.compress(data, offset, len, dataOutput);
+    }
+
+    @Override
+    public void reset() throws IOException {
+        super.reset();
+        // the header is only written once per stream, so write it again after the underlying stream got reset
+        writeHeader(out);
+    }
+
+    @Override
+    protected void doClose() throws IOException {
+        uncompressed = null;
+    }
+
+    static class StreamOutputDataOutput extends DataOutput {
+
+        private final StreamOutput out;
+
+        StreamOutputDataOutput(StreamOutput out) {
+            this.out = out;
+        }
+
+        @Override
+        public void writeByte(byte b) throws IOException {
+            out.writeByte(b);
+        }
+
+        @Override
+        public void writeBytes(byte[] b, int offset, int length) throws IOException {
+            out.writeBytes(b, offset, length);
+        }
+    }
+}
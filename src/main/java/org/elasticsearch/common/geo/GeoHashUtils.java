@@ -106,6 +106,60 @@ public class GeoHashUtils {
         return geohash.toString();
     }
 
+    /**
+     * Encodes the given latitude and longitude into the bits of a geohash of the given precision, 5 bits per
+     * character. Cheaper to compute, compare and hash than the geohash string, see {@link #toString(long, int)}.
+     *
+     * @param latitude  Latitude to encode
+     * @param longitude Longitude to encode
+     * @param precision number of geohash characters to encode, at most {@link #PRECISION}
+     * @return the bits of the geohash, right aligned
+     */
+    public static long encodeAsLong(double latitude, double longitude, int precision) {
+        double latInterval0 = -90.0;
+        double latInterval1 = 90.0;
+        double lngInterval0 = -180.0;
+        double lngInterval1 = 180.0;
+
+        long bits = 0;
+        boolean isEven = true;
+        for (int i = precision * 5; i > 0; i--) {
+            bits <<= 1;
+            double mid;
+            if (isEven) {
+                mid = (lngInterval0 + lngInterval1) / 2D;
+                if (longitude > mid) {
+                    bits |= 1;
+                    lngInterval0 = mid;
+                } else {
+                    lngInterval1 = mid;
+                }
+            } else {
+                mid = (latInterval0 + latInterval1) / 2D;
+                if (latitude > mid) {
+                    bits |= 1;
+                    latInterval0 = mid;
+                } else {
+                    latInterval1 = mid;
+                }
+            }
+            isEven = !isEven;
+        }
+        return bits;
+    }
+
+    /**
+     * Converts the geohash bits computed by {@link #encodeAsLong(double, double, int)} back to a geohash.
+     */
+    public static String toString(long bits, int precision) {
+        char[] geohash = new char[precision];
+        for (int i = precision - 1; i >= 0; i--) {
+            geohash[i] = BASE_32[(int) (bits & 31)];
+            bits >>>= 5;
+        }
+        return new String(geohash);
+    }
+
     private static final char encode(int x, int y) {
         return BASE_32[((x & 1) + ((y & 1) * 2) + ((x & 2) * 2) + ((y & 2) * 4) + ((x & 4) * 4)) % 32];
     }
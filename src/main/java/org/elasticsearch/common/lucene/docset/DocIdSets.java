@@ -37,6 +37,9 @@ public class DocIdSets {
         if (docIdSet instanceof FixedBitSet) {
             return ((FixedBitSet) docIdSet).getBits().length * 8 + 16;
         }
+        if (docIdSet instanceof RoaringDocIdSet) {
+            return ((RoaringDocIdSet) docIdSet).sizeInBytes();
+        }
         // only for empty ones and unknowns...
         return 1;
     }
@@ -53,7 +56,7 @@ public class DocIdSets {
      * For example, it does not ends up iterating one doc at a time check for its "value".
      */
     public static boolean isFastIterator(DocIdSet set) {
-        return set instanceof FixedBitSet;
+        return set instanceof FixedBitSet || set instanceof RoaringDocIdSet;
     }
 
     /**
@@ -62,7 +65,7 @@ public class DocIdSets {
      */
     public static boolean isFastIterator(DocIdSetIterator iterator) {
         // this is the iterator in the FixedBitSet.
-        return iterator instanceof OpenBitSetIterator;
+        return iterator instanceof OpenBitSetIterator || iterator instanceof RoaringDocIdSet.Iterator;
     }
 
     /**
@@ -70,9 +73,19 @@ public class DocIdSets {
      * <p/>
      * Note, we don't use {@link org.apache.lucene.search.DocIdSet#isCacheable()} because execution
      * might be expensive even if its cacheable (i.e. not going back to the reader to execute). We effectively
-     * always either return an empty {@link DocIdSet} or {@link FixedBitSet} but never <code>null</code>.
+     * always either return an empty {@link DocIdSet}, a {@link RoaringDocIdSet} or a {@link FixedBitSet}
+     * but never <code>null</code>.
      */
     public static DocIdSet toCacheable(AtomicReader reader, @Nullable DocIdSet set) throws IOException {
+        return toCacheable(reader, set, true);
+    }
+
+    /**
+     * Converts to a cacheable {@link DocIdSet}, using a {@link RoaringDocIdSet} if <tt>allowCompressed</tt> is set
+     * and it takes less memory than the equivalent {@link FixedBitSet}. Callers that rely on getting back a
+     * {@link FixedBitSet} (like the parent filter of block join queries) should disallow compression.
+     */
+    public static DocIdSet toCacheable(AtomicReader reader, @Nullable DocIdSet set, boolean allowCompressed) throws IOException {
         if (set == null || set == EMPTY_DOCIDSET) {
             return EMPTY_DOCIDSET;
         }
@@ -84,16 +97,34 @@ public class DocIdSets {
         if (doc == DocIdSetIterator.NO_MORE_DOCS) {
             return EMPTY_DOCIDSET;
         }
-        if (set instanceof FixedBitSet) {
+        if (!allowCompressed) {
+            if (set instanceof FixedBitSet) {
+                return set;
+            }
+            FixedBitSet fixedBitSet = new FixedBitSet(reader.maxDoc());
+            do {
+                fixedBitSet.set(doc);
+                doc = it.nextDoc();
+            } while (doc != DocIdSetIterator.NO_MORE_DOCS);
+            return fixedBitSet;
+        }
+        if (set instanceof RoaringDocIdSet) {
             return set;
         }
-        // TODO: should we use WAH8DocIdSet like Lucene?
-        FixedBitSet fixedBitSet = new FixedBitSet(reader.maxDoc());
+        RoaringDocIdSet.Builder builder = new RoaringDocIdSet.Builder(reader.maxDoc());
         do {
-            fixedBitSet.set(doc);
+            builder.add(doc);
             doc = it.nextDoc();
         } while (doc != DocIdSetIterator.NO_MORE_DOCS);
-        return fixedBitSet;
+        RoaringDocIdSet roaringDocIdSet = builder.build();
+        if (roaringDocIdSet.sizeInBytes() < FixedBitSet.bits2words(reader.maxDoc()) * 8 + 16) {
+            return roaringDocIdSet;
+        }
+        // dense enough for the fixed bit set to be smaller
+        if (set instanceof FixedBitSet) {
+            return set;
+        }
+        return toFixedBitSet(roaringDocIdSet.iterator(), reader.maxDoc());
     }
     
     /** An empty {@code DocIdSet} instance */
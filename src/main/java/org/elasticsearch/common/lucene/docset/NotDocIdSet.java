@@ -54,6 +54,9 @@ public class NotDocIdSet extends DocIdSet {
 
     @Override
     public DocIdSetIterator iterator() throws IOException {
+        if (set instanceof RoaringDocIdSet) {
+            return new RoaringBasedIterator((RoaringDocIdSet) set, maxDoc);
+        }
         DocIdSetIterator it = set.iterator();
         if (it == null) {
             return new AllDocIdSet.Iterator(maxDoc);
@@ -108,6 +111,49 @@ public class NotDocIdSet extends DocIdSet {
         }
     }
 
+    /**
+     * Iterates over the docs missing from a {@link RoaringDocIdSet}, jumping over whole
+     * blocks that have no docs set and over full words of dense blocks.
+     */
+    public static class RoaringBasedIterator extends DocIdSetIterator {
+
+        private final RoaringDocIdSet set;
+        private final int max;
+        private int doc = -1;
+
+        public RoaringBasedIterator(RoaringDocIdSet set, int max) {
+            this.set = set;
+            this.max = max;
+        }
+
+        @Override
+        public int docID() {
+            return doc;
+        }
+
+        @Override
+        public int nextDoc() throws IOException {
+            if (doc == DocIdSetIterator.NO_MORE_DOCS) {
+                return DocIdSetIterator.NO_MORE_DOCS;
+            }
+            return advance(doc + 1);
+        }
+
+        @Override
+        public int advance(int target) throws IOException {
+            if (target >= max) {
+                return (doc = DocIdSetIterator.NO_MORE_DOCS);
+            }
+            int next = set.nextClearDoc(target);
+            return (doc = next >= max ? DocIdSetIterator.NO_MORE_DOCS : next);
+        }
+
+        @Override
+        public long cost() {
+            return max - set.cardinality();
+        }
+    }
+
     public static class IteratorBasedIterator extends DocIdSetIterator {
         private final int max;
         private DocIdSetIterator it1;
@@ -60,6 +60,11 @@ public class OrDocIdSet extends DocIdSet {
 
     @Override
     public DocIdSetIterator iterator() throws IOException {
+        RoaringDocIdSet[] compressed = RoaringDocIdSet.asRoaring(sets);
+        if (compressed != null && compressed.length > 1) {
+            // merging compressed sets block by block is much cheaper than going through the iterators heap
+            return RoaringDocIdSet.or(compressed).iterator();
+        }
         return new IteratorBasedIterator(sets);
     }
 
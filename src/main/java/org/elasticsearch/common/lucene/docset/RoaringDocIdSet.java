@@ -0,0 +1,606 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.lucene.docset;
+
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A compressed {@link DocIdSet} that splits the doc id space into blocks of 64K docs. Each non empty
+ * block is either stored as a sorted array of doc ids relative to the block when it is sparse, or as a
+ * bitset when it is dense, and empty blocks take no space at all.
+ * <p/>
+ * The set is immutable, provides random access using {@link Bits}, and is built using a {@link Builder}
+ * with docs added in increasing order.
+ */
+public final class RoaringDocIdSet extends DocIdSet implements Bits {
+
+    static final int BLOCK_SHIFT = 16;
+    static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    static final int BLOCK_MASK = BLOCK_SIZE - 1;
+    // a sparse block costs 2 bytes per doc, and a dense one BLOCK_SIZE / 8 bytes, they break even at 4096 docs
+    static final int MAX_SPARSE = BLOCK_SIZE >>> 4;
+    static final int DENSE_WORDS = BLOCK_SIZE >>> 6;
+
+    private final Container[] containers;
+    private final int numBits;
+    private final long cardinality;
+    private final long sizeInBytes;
+
+    private RoaringDocIdSet(Container[] containers, int numBits) {
+        this.containers = containers;
+        this.numBits = numBits;
+        long cardinality = 0;
+        long sizeInBytes = 32 + RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + containers.length * RamUsageEstimator.NUM_BYTES_OBJECT_REF;
+        for (Container container : containers) {
+            if (container != null) {
+                cardinality += container.cardinality();
+                sizeInBytes += container.sizeInBytes();
+            }
+        }
+        this.cardinality = cardinality;
+        this.sizeInBytes = sizeInBytes;
+    }
+
+    /**
+     * The number of docs in this set.
+     */
+    public long cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * The (estimated) memory used by this set.
+     */
+    public long sizeInBytes() {
+        return sizeInBytes;
+    }
+
+    @Override
+    public boolean get(int index) {
+        Container container = containers[index >>> BLOCK_SHIFT];
+        return container != null && container.get(index & BLOCK_MASK);
+    }
+
+    @Override
+    public int length() {
+        return numBits;
+    }
+
+    @Override
+    public boolean isCacheable() {
+        return true;
+    }
+
+    @Override
+    public Bits bits() {
+        return this;
+    }
+
+    @Override
+    public Iterator iterator() {
+        return new Iterator();
+    }
+
+    /**
+     * Returns the first doc, starting at <tt>from</tt>, that is not in this set. Might return a value
+     * equal or greater than {@link #length()} if all the remaining docs are in the set.
+     */
+    public int nextClearDoc(int from) {
+        for (int block = from >>> BLOCK_SHIFT; block < containers.length; block++) {
+            Container container = containers[block];
+            if (container == null) {
+                return from;
+            }
+            int low = container.nextClear(from & BLOCK_MASK);
+            if (low < BLOCK_SIZE) {
+                return (block << BLOCK_SHIFT) | low;
+            }
+            from = (block + 1) << BLOCK_SHIFT;
+        }
+        return from;
+    }
+
+    /**
+     * Intersects the provided sets block by block.
+     */
+    public static RoaringDocIdSet and(RoaringDocIdSet... sets) {
+        Container[] containers = new Container[sets[0].containers.length];
+        for (int block = 0; block < containers.length; block++) {
+            Container result = sets[0].containers[block];
+            for (int i = 1; i < sets.length && result != null; i++) {
+                Container other = block < sets[i].containers.length ? sets[i].containers[block] : null;
+                result = other == null ? null : result.and(other);
+            }
+            containers[block] = result;
+        }
+        return new RoaringDocIdSet(containers, sets[0].numBits);
+    }
+
+    /**
+     * Unions the provided sets block by block.
+     */
+    public static RoaringDocIdSet or(RoaringDocIdSet... sets) {
+        int numBits = 0;
+        for (RoaringDocIdSet set : sets) {
+            numBits = Math.max(numBits, set.numBits);
+        }
+        Container[] containers = new Container[(numBits + BLOCK_MASK) >>> BLOCK_SHIFT];
+        for (int block = 0; block < containers.length; block++) {
+            Container result = null;
+            for (RoaringDocIdSet set : sets) {
+                Container other = block < set.containers.length ? set.containers[block] : null;
+                if (other != null) {
+                    result = result == null ? other : result.or(other);
+                }
+            }
+            containers[block] = result;
+        }
+        return new RoaringDocIdSet(containers, numBits);
+    }
+
+    /**
+     * Returns the provided sets as compressed ones, or <tt>null</tt> if at least one of them is not.
+     */
+    static RoaringDocIdSet[] asRoaring(DocIdSet[] sets) {
+        RoaringDocIdSet[] result = new RoaringDocIdSet[sets.length];
+        for (int i = 0; i < sets.length; i++) {
+            if (!(sets[i] instanceof RoaringDocIdSet)) {
+                return null;
+            }
+            result[i] = (RoaringDocIdSet) sets[i];
+        }
+        return result;
+    }
+
+    /**
+     * Builds a {@link RoaringDocIdSet}, docs must be added in increasing order.
+     */
+    public static class Builder {
+
+        private final int numBits;
+        private final Container[] containers;
+        private final char[] buffer = new char[MAX_SPARSE];
+        private long[] dense;
+        private int block = -1;
+        private int blockCardinality;
+        private int lastDoc = -1;
+
+        public Builder(int numBits) {
+            this.numBits = numBits;
+            this.containers = new Container[(numBits + BLOCK_MASK) >>> BLOCK_SHIFT];
+        }
+
+        public Builder add(int doc) {
+            if (doc <= lastDoc || doc >= numBits) {
+                throw new ElasticSearchIllegalArgumentException("doc [" + doc + "] must be greater than [" + lastDoc + "] and lower than [" + numBits + "]");
+            }
+            int docBlock = doc >>> BLOCK_SHIFT;
+            if (docBlock != block) {
+                flush();
+                block = docBlock;
+            }
+            int low = doc & BLOCK_MASK;
+            if (dense != null) {
+                dense[low >>> 6] |= 1L << low;
+            } else if (blockCardinality < MAX_SPARSE) {
+                buffer[blockCardinality] = (char) low;
+            } else {
+                dense = new long[DENSE_WORDS];
+                for (int i = 0; i < blockCardinality; i++) {
+                    dense[buffer[i] >>> 6] |= 1L << buffer[i];
+                }
+                dense[low >>> 6] |= 1L << low;
+            }
+            blockCardinality++;
+            lastDoc = doc;
+            return this;
+        }
+
+        public Builder add(DocIdSetIterator iterator) throws IOException {
+            for (int doc = iterator.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = iterator.nextDoc()) {
+                add(doc);
+            }
+            return this;
+        }
+
+        private void flush() {
+            if (blockCardinality == 0) {
+                return;
+            }
+            if (dense != null) {
+                containers[block] = new DenseContainer(dense, blockCardinality);
+            } else {
+                containers[block] = new SparseContainer(Arrays.copyOf(buffer, blockCardinality));
+            }
+            dense = null;
+            blockCardinality = 0;
+        }
+
+        public RoaringDocIdSet build() {
+            flush();
+            return new RoaringDocIdSet(containers, numBits);
+        }
+    }
+
+    /**
+     * Iterates over the docs of the set, skipping whole empty blocks when advancing.
+     */
+    public final class Iterator extends DocIdSetIterator {
+
+        private int block = -1;
+        private ContainerIterator current;
+        private int doc = -1;
+
+        @Override
+        public int docID() {
+            return doc;
+        }
+
+        @Override
+        public int nextDoc() {
+            if (current != null) {
+                int low = current.nextDoc();
+                if (low != -1) {
+                    return doc = (block << BLOCK_SHIFT) | low;
+                }
+            }
+            return firstDocFrom(block + 1);
+        }
+
+        @Override
+        public int advance(int target) {
+            if (target >= numBits) {
+                return doc = NO_MORE_DOCS;
+            }
+            int targetBlock = target >>> BLOCK_SHIFT;
+            if (targetBlock != block) {
+                if (containers[targetBlock] == null) {
+                    return firstDocFrom(targetBlock + 1);
+                }
+                block = targetBlock;
+                current = containers[targetBlock].iterator();
+            }
+            int low = current.advance(target & BLOCK_MASK);
+            if (low != -1) {
+                return doc = (block << BLOCK_SHIFT) | low;
+            }
+            return firstDocFrom(block + 1);
+        }
+
+        private int firstDocFrom(int from) {
+            for (int i = from; i < containers.length; i++) {
+                if (containers[i] != null) {
+                    block = i;
+                    current = containers[i].iterator();
+                    return doc = (block << BLOCK_SHIFT) | current.nextDoc();
+                }
+            }
+            block = containers.length;
+            current = null;
+            return doc = NO_MORE_DOCS;
+        }
+
+        @Override
+        public long cost() {
+            return cardinality;
+        }
+    }
+
+    static abstract class Container {
+
+        abstract boolean get(int low);
+
+        abstract int cardinality();
+
+        abstract long sizeInBytes();
+
+        abstract ContainerIterator iterator();
+
+        /**
+         * Returns the first doc, starting at <tt>low</tt>, which is not in this container or
+         * {@link #BLOCK_SIZE} if there is none.
+         */
+        abstract int nextClear(int low);
+
+        /**
+         * Returns the intersection of this container with the other one, or <tt>null</tt> if empty.
+         */
+        abstract Container and(Container other);
+
+        abstract Container or(Container other);
+    }
+
+    static abstract class ContainerIterator {
+
+        /**
+         * Returns the next doc in the container, or <tt>-1</tt> if there is none.
+         */
+        abstract int nextDoc();
+
+        /**
+         * Returns the first doc equal or greater than target, or <tt>-1</tt> if there is none.
+         */
+        abstract int advance(int target);
+    }
+
+    static Container sparse(char[] docs, int length) {
+        if (length == 0) {
+            return null;
+        }
+        if (length <= MAX_SPARSE) {
+            return new SparseContainer(length == docs.length ? docs : Arrays.copyOf(docs, length));
+        }
+        long[] bits = new long[DENSE_WORDS];
+        for (int i = 0; i < length; i++) {
+            bits[docs[i] >>> 6] |= 1L << docs[i];
+        }
+        return new DenseContainer(bits, length);
+    }
+
+    static Container dense(long[] bits, int cardinality) {
+        if (cardinality == 0) {
+            return null;
+        }
+        if (cardinality > MAX_SPARSE) {
+            return new DenseContainer(bits, cardinality);
+        }
+        char[] docs = new char[cardinality];
+        int length = 0;
+        for (int i = 0; i < bits.length; i++) {
+            long word = bits[i];
+            while (word != 0) {
+                docs[length++] = (char) ((i << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return new SparseContainer(docs);
+    }
+
+    static final class SparseContainer extends Container {
+
+        final char[] docs;
+
+        SparseContainer(char[] docs) {
+            this.docs = docs;
+        }
+
+        @Override
+        boolean get(int low) {
+            return Arrays.binarySearch(docs, (char) low) >= 0;
+        }
+
+        @Override
+        int cardinality() {
+            return docs.length;
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 16 + RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + docs.length * RamUsageEstimator.NUM_BYTES_CHAR;
+        }
+
+        @Override
+        ContainerIterator iterator() {
+            return new ContainerIterator() {
+                int index = -1;
+
+                @Override
+                int nextDoc() {
+                    return ++index < docs.length ? docs[index] : -1;
+                }
+
+                @Override
+                int advance(int target) {
+                    int from = index + 1;
+                    if (from >= docs.length) {
+                        index = docs.length;
+                        return -1;
+                    }
+                    index = Arrays.binarySearch(docs, from, docs.length, (char) target);
+                    if (index < 0) {
+                        index = -1 - index;
+                    }
+                    return index < docs.length ? docs[index] : -1;
+                }
+            };
+        }
+
+        @Override
+        int nextClear(int low) {
+            int index = Arrays.binarySearch(docs, (char) low);
+            if (index < 0) {
+                return low;
+            }
+            while (index < docs.length && docs[index] == low) {
+                index++;
+                low++;
+            }
+            return low;
+        }
+
+        @Override
+        Container and(Container other) {
+            char[] result = new char[docs.length];
+            int length = 0;
+            if (other instanceof SparseContainer) {
+                char[] otherDocs = ((SparseContainer) other).docs;
+                int i = 0, j = 0;
+                while (i < docs.length && j < otherDocs.length) {
+                    if (docs[i] < otherDocs[j]) {
+                        i++;
+                    } else if (docs[i] > otherDocs[j]) {
+                        j++;
+                    } else {
+                        result[length++] = docs[i];
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (char doc : docs) {
+                    if (other.get(doc)) {
+                        result[length++] = doc;
+                    }
+                }
+            }
+            return sparse(result, length);
+        }
+
+        @Override
+        Container or(Container other) {
+            if (!(other instanceof SparseContainer)) {
+                return other.or(this);
+            }
+            char[] otherDocs = ((SparseContainer) other).docs;
+            char[] result = new char[docs.length + otherDocs.length];
+            int length = 0;
+            int i = 0, j = 0;
+            while (i < docs.length && j < otherDocs.length) {
+                if (docs[i] < otherDocs[j]) {
+                    result[length++] = docs[i++];
+                } else if (docs[i] > otherDocs[j]) {
+                    result[length++] = otherDocs[j++];
+                } else {
+                    result[length++] = docs[i++];
+                    j++;
+                }
+            }
+            while (i < docs.length) {
+                result[length++] = docs[i++];
+            }
+            while (j < otherDocs.length) {
+                result[length++] = otherDocs[j++];
+            }
+            return sparse(result, length);
+        }
+    }
+
+    static final class DenseContainer extends Container {
+
+        final long[] bits;
+        final int cardinality;
+
+        DenseContainer(long[] bits, int cardinality) {
+            this.bits = bits;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        boolean get(int low) {
+            return (bits[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 24 + RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + bits.length * RamUsageEstimator.NUM_BYTES_LONG;
+        }
+
+        @Override
+        ContainerIterator iterator() {
+            return new ContainerIterator() {
+                int doc = -1;
+
+                @Override
+                int nextDoc() {
+                    return advance(doc + 1);
+                }
+
+                @Override
+                int advance(int target) {
+                    if (target >= BLOCK_SIZE) {
+                        return doc = -1;
+                    }
+                    int i = target >>> 6;
+                    long word = bits[i] & (-1L << target);
+                    while (word == 0) {
+                        if (++i == bits.length) {
+                            return doc = -1;
+                        }
+                        word = bits[i];
+                    }
+                    return doc = (i << 6) + Long.numberOfTrailingZeros(word);
+                }
+            };
+        }
+
+        @Override
+        int nextClear(int low) {
+            int i = low >>> 6;
+            long word = ~bits[i] & (-1L << low);
+            while (word == 0) {
+                if (++i == bits.length) {
+                    return BLOCK_SIZE;
+                }
+                word = ~bits[i];
+            }
+            return (i << 6) + Long.numberOfTrailingZeros(word);
+        }
+
+        @Override
+        Container and(Container other) {
+            if (!(other instanceof DenseContainer)) {
+                return other.and(this);
+            }
+            long[] otherBits = ((DenseContainer) other).bits;
+            long[] result = new long[bits.length];
+            int cardinality = 0;
+            for (int i = 0; i < result.length; i++) {
+                result[i] = bits[i] & otherBits[i];
+                cardinality += Long.bitCount(result[i]);
+            }
+            return dense(result, cardinality);
+        }
+
+        @Override
+        Container or(Container other) {
+            long[] result = bits.clone();
+            int cardinality = this.cardinality;
+            if (other instanceof SparseContainer) {
+                for (char doc : ((SparseContainer) other).docs) {
+                    long mask = 1L << doc;
+                    if ((result[doc >>> 6] & mask) == 0) {
+                        result[doc >>> 6] |= mask;
+                        cardinality++;
+                    }
+                }
+            } else {
+                long[] otherBits = ((DenseContainer) other).bits;
+                cardinality = 0;
+                for (int i = 0; i < result.length; i++) {
+                    result[i] |= otherBits[i];
+                    cardinality += Long.bitCount(result[i]);
+                }
+            }
+            return new DenseContainer(result, cardinality);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.lucene.search;
+
+import org.apache.lucene.index.*;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.StringHelper;
+import org.elasticsearch.ElasticSearchIllegalStateException;
+import org.elasticsearch.common.io.stream.BytesStreamInput;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * A terms filter that holds its terms sorted and de-duplicated, each term only storing the suffix it does not
+ * share with the previous one. Large term sets (like the ones fetched by a terms lookup) take a fraction of the
+ * memory of a plain terms filter, and are matched against each segment with a single forward pass of the
+ * segment terms.
+ */
+public class PrefixCodedTermsFilter extends Filter {
+
+    private final String field;
+    private final byte[] bytes;
+    private final int size;
+    private final int hashCode;
+
+    public PrefixCodedTermsFilter(String field, Collection<BytesRef> terms) {
+        this(field, terms.toArray(new BytesRef[terms.size()]));
+    }
+
+    public PrefixCodedTermsFilter(String field, BytesRef... terms) {
+        this.field = field;
+        BytesRef[] sorted = terms.clone();
+        ArrayUtil.timSort(sorted);
+        BytesStreamOutput out = new BytesStreamOutput();
+        BytesRef previous = null;
+        int size = 0;
+        try {
+            for (BytesRef term : sorted) {
+                if (previous != null && previous.bytesEquals(term)) {
+                    continue;
+                }
+                int prefix = previous == null ? 0 : StringHelper.bytesDifference(previous, term);
+                out.writeVInt(prefix);
+                out.writeVInt(term.length - prefix);
+                out.writeBytes(term.bytes, term.offset + prefix, term.length - prefix);
+                previous = term;
+                size++;
+            }
+        } catch (IOException e) {
+            throw new ElasticSearchIllegalStateException("failed to encode terms", e);
+        }
+        this.bytes = out.bytes().toBytes();
+        this.size = size;
+        this.hashCode = 31 * field.hashCode() + Arrays.hashCode(bytes);
+    }
+
+    public String field() {
+        return field;
+    }
+
+    /**
+     * The number of unique terms of the filter.
+     */
+    public int size() {
+        return size;
+    }
+
+    public long sizeInBytes() {
+        return bytes.length;
+    }
+
+    @Override
+    public DocIdSet getDocIdSet(AtomicReaderContext context, Bits acceptDocs) throws IOException {
+        final AtomicReader reader = context.reader();
+        final Terms terms = reader.terms(field);
+        if (terms == null) {
+            return null;
+        }
+        final TermsEnum termsEnum = terms.iterator(null);
+        final BytesStreamInput in = new BytesStreamInput(bytes, false);
+        final BytesRef term = new BytesRef();
+        FixedBitSet result = null;
+        DocsEnum docsEnum = null;
+        for (int i = 0; i < size; i++) {
+            int prefix = in.readVInt();
+            int suffix = in.readVInt();
+            term.grow(prefix + suffix);
+            in.readBytes(term.bytes, prefix, suffix);
+            term.length = prefix + suffix;
+            // the terms are sorted, so the seeks only ever move the terms enum forward
+            if (!termsEnum.seekExact(term)) {
+                continue;
+            }
+            docsEnum = termsEnum.docs(acceptDocs, docsEnum, DocsEnum.FLAG_NONE);
+            if (result == null) {
+                if (docsEnum.nextDoc() == DocIdSetIterator.NO_MORE_DOCS) {
+                    continue;
+                }
+                result = new FixedBitSet(reader.maxDoc());
+                result.set(docsEnum.docID());
+            }
+            for (int docId = docsEnum.nextDoc(); docId != DocIdSetIterator.NO_MORE_DOCS; docId = docsEnum.nextDoc()) {
+                result.set(docId);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        PrefixCodedTermsFilter that = (PrefixCodedTermsFilter) o;
+        return hashCode == that.hashCode && size == that.size && field.equals(that.field) && Arrays.equals(bytes, that.bytes);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return field + ":[" + size + " terms]";
+    }
+}
@@ -22,6 +22,7 @@ package org.elasticsearch.common.lucene.uid;
 import org.apache.lucene.index.*;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IntroSorter;
 import org.elasticsearch.common.Numbers;
 import org.elasticsearch.index.mapper.internal.UidFieldMapper;
 import org.elasticsearch.index.mapper.internal.VersionFieldMapper;
@@ -83,57 +84,156 @@ public class Versions {
         return docIdAndVersion == null ? NOT_FOUND : docIdAndVersion.version;
     }
 
+    /**
+     * Load the internal doc IDs and versions for several uids at once, the result at a given position being the one
+     * of the uid at the same position, as returned by {@link #loadDocIdAndVersion(IndexReader, Term)}. The uids are
+     * resolved in sorted order, segment by segment, with a single terms enum per segment and reusing the docs enums,
+     * which saves a lot of seeking compared to looking them up one by one.
+     */
+    public static DocIdAndVersion[] loadDocIdsAndVersions(IndexReader reader, Term[] terms) throws IOException {
+        final DocIdAndVersion[] docIdsAndVersions = new DocIdAndVersion[terms.length];
+        final int[] order = sortedOrder(terms);
+        int pending = order.length;
+        final List<AtomicReaderContext> leaves = reader.leaves();
+        // iterate backwards to optimize for the frequently updated documents
+        // which are likely to be in the last segments
+        for (int i = leaves.size() - 1; i >= 0 && pending > 0; --i) {
+            final SegmentLookup lookup = new SegmentLookup(leaves.get(i));
+            int remaining = 0;
+            for (int j = 0; j < pending; j++) {
+                final int slot = order[j];
+                final DocIdAndVersion docIdAndVersion = lookup.lookup(terms[slot]);
+                if (docIdAndVersion != null) {
+                    assert docIdAndVersion.version != NOT_FOUND;
+                    docIdsAndVersions[slot] = docIdAndVersion;
+                } else {
+                    // keep it for the next segment, order is preserved
+                    order[remaining++] = slot;
+                }
+            }
+            pending = remaining;
+        }
+        return docIdsAndVersions;
+    }
+
+    /**
+     * Same as {@link #loadDocIdsAndVersions(IndexReader, Term[])} but only returns the versions, see {@link #loadVersion(IndexReader, Term)}.
+     */
+    public static long[] loadVersions(IndexReader reader, Term[] terms) throws IOException {
+        final DocIdAndVersion[] docIdsAndVersions = loadDocIdsAndVersions(reader, terms);
+        final long[] versions = new long[terms.length];
+        for (int i = 0; i < versions.length; i++) {
+            versions[i] = docIdsAndVersions[i] == null ? NOT_FOUND : docIdsAndVersions[i].version;
+        }
+        return versions;
+    }
+
+    private static int[] sortedOrder(final Term[] terms) {
+        final int[] order = new int[terms.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        new IntroSorter() {
+            Term pivot;
+
+            @Override
+            protected void swap(int i, int j) {
+                final int tmp = order[i];
+                order[i] = order[j];
+                order[j] = tmp;
+            }
+
+            @Override
+            protected int compare(int i, int j) {
+                return terms[order[i]].bytes().compareTo(terms[order[j]].bytes());
+            }
+
+            @Override
+            protected void setPivot(int i) {
+                pivot = terms[order[i]];
+            }
+
+            @Override
+            protected int comparePivot(int j) {
+                return pivot.bytes().compareTo(terms[order[j]].bytes());
+            }
+        }.sort(0, order.length);
+        return order;
+    }
+
     /** Same as {@link #loadDocIdAndVersion(IndexReader, Term)} but operates directly on a reader context. */
     public static DocIdAndVersion loadDocIdAndVersion(AtomicReaderContext readerContext, Term term) throws IOException {
-        assert term.field().equals(UidFieldMapper.NAME);
-        final AtomicReader reader = readerContext.reader();
-        final Bits liveDocs = reader.getLiveDocs();
-        final Terms terms = reader.terms(UidFieldMapper.NAME);
-        assert terms != null : "All segments must have a _uid field, but " + reader + " doesn't";
-        final TermsEnum termsEnum = terms.iterator(null);
-        if (!termsEnum.seekExact(term.bytes())) {
-            return null;
+        return new SegmentLookup(readerContext).lookup(term);
+    }
+
+    /**
+     * Looks up uids in a single segment, reusing the terms and docs enums across lookups.
+     */
+    private static final class SegmentLookup {
+
+        private final AtomicReaderContext readerContext;
+        private final Bits liveDocs;
+        private final Terms terms;
+        private final TermsEnum termsEnum;
+        private final NumericDocValues versions;
+        private DocsEnum docsEnum;
+        private DocsAndPositionsEnum dpe;
+
+        SegmentLookup(AtomicReaderContext readerContext) throws IOException {
+            this.readerContext = readerContext;
+            final AtomicReader reader = readerContext.reader();
+            this.liveDocs = reader.getLiveDocs();
+            this.terms = reader.terms(UidFieldMapper.NAME);
+            assert terms != null : "All segments must have a _uid field, but " + reader + " doesn't";
+            this.termsEnum = terms.iterator(null);
+            this.versions = reader.getNumericDocValues(VersionFieldMapper.NAME);
         }
 
-        // Versions are stored as doc values...
-        final NumericDocValues versions = reader.getNumericDocValues(VersionFieldMapper.NAME);
-        if (versions != null || !terms.hasPayloads()) {
-            // only the last doc that matches the _uid is interesting here: if it is deleted, then there is
-            // no match otherwise previous docs are necessarily either deleted or nested docs
-            final DocsEnum docs = termsEnum.docs(null, null);
+        DocIdAndVersion lookup(Term term) throws IOException {
+            assert term.field().equals(UidFieldMapper.NAME);
+            if (!termsEnum.seekExact(term.bytes())) {
+                return null;
+            }
+
+            // Versions are stored as doc values...
+            if (versions != null || !terms.hasPayloads()) {
+                // only the last doc that matches the _uid is interesting here: if it is deleted, then there is
+                // no match otherwise previous docs are necessarily either deleted or nested docs
+                docsEnum = termsEnum.docs(null, docsEnum);
+                int docID = DocsEnum.NO_MORE_DOCS;
+                for (int d = docsEnum.nextDoc(); d != DocsEnum.NO_MORE_DOCS; d = docsEnum.nextDoc()) {
+                    docID = d;
+                }
+                assert docID != DocsEnum.NO_MORE_DOCS; // would mean that the term exists but has no match at all
+                if (liveDocs != null && !liveDocs.get(docID)) {
+                    return null;
+                } else if (versions != null) {
+                    return new DocIdAndVersion(docID, versions.get(docID), readerContext);
+                } else {
+                    // _uid found, but no doc values and no payloads
+                    return new DocIdAndVersion(docID, NOT_SET, readerContext);
+                }
+            }
+
+            // ... but used to be stored as payloads
+            dpe = termsEnum.docsAndPositions(liveDocs, dpe, DocsAndPositionsEnum.FLAG_PAYLOADS);
+            assert dpe != null; // terms has payloads
             int docID = DocsEnum.NO_MORE_DOCS;
-            for (int d = docs.nextDoc(); d != DocsEnum.NO_MORE_DOCS; d = docs.nextDoc()) {
+            for (int d = dpe.nextDoc(); d != DocsEnum.NO_MORE_DOCS; d = dpe.nextDoc()) {
                 docID = d;
+                dpe.nextPosition();
+                final BytesRef payload = dpe.getPayload();
+                if (payload != null && payload.length == 8) {
+                    return new DocIdAndVersion(d, Numbers.bytesToLong(payload), readerContext);
+                }
             }
-            assert docID != DocsEnum.NO_MORE_DOCS; // would mean that the term exists but has no match at all
-            if (liveDocs != null && !liveDocs.get(docID)) {
+
+            if (docID == DocsEnum.NO_MORE_DOCS) {
                 return null;
-            } else if (versions != null) {
-                return new DocIdAndVersion(docID, versions.get(docID), readerContext);
             } else {
-                // _uid found, but no doc values and no payloads
                 return new DocIdAndVersion(docID, NOT_SET, readerContext);
             }
         }
-
-        // ... but used to be stored as payloads
-        final DocsAndPositionsEnum dpe = termsEnum.docsAndPositions(liveDocs, null, DocsAndPositionsEnum.FLAG_PAYLOADS);
-        assert dpe != null; // terms has payloads
-        int docID = DocsEnum.NO_MORE_DOCS;
-        for (int d = dpe.nextDoc(); d != DocsEnum.NO_MORE_DOCS; d = dpe.nextDoc()) {
-            docID = d;
-            dpe.nextPosition();
-            final BytesRef payload = dpe.getPayload();
-            if (payload != null && payload.length == 8) {
-                return new DocIdAndVersion(d, Numbers.bytesToLong(payload), readerContext);
-            }
-        }
-
-        if (docID == DocsEnum.NO_MORE_DOCS) {
-            return null;
-        } else {
-            return new DocIdAndVersion(docID, NOT_SET, readerContext);
-        }
     }
 
 }
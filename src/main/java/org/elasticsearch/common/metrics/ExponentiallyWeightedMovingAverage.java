@@ -0,0 +1,61 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.metrics;
+
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An exponentially-weighted moving average of sampled values (e.g. response times), as opposed to {@link EWMA}
+ * which averages a rate over fixed tick intervals. Each added value is weighted by <tt>alpha</tt>.
+ */
+public class ExponentiallyWeightedMovingAverage {
+
+    private final double alpha;
+    private final AtomicLong averageBits;
+
+    /**
+     * @param alpha        the weight of a new value, between 0 and 1
+     * @param initialValue the average before any value has been added
+     */
+    public ExponentiallyWeightedMovingAverage(double alpha, double initialValue) {
+        if (alpha < 0 || alpha > 1) {
+            throw new ElasticSearchIllegalArgumentException("alpha must be between 0 and 1, got [" + alpha + "]");
+        }
+        this.alpha = alpha;
+        this.averageBits = new AtomicLong(Double.doubleToLongBits(initialValue));
+    }
+
+    public double getAverage() {
+        return Double.longBitsToDouble(averageBits.get());
+    }
+
+    public void addValue(double value) {
+        while (true) {
+            long currentBits = averageBits.get();
+            double currentAvg = Double.longBitsToDouble(currentBits);
+            double newAvg = (alpha * value) + ((1 - alpha) * currentAvg);
+            if (averageBits.compareAndSet(currentBits, Double.doubleToLongBits(newAvg))) {
+                return;
+            }
+        }
+    }
+}
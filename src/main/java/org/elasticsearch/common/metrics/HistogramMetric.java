@@ -0,0 +1,116 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.metrics;
+
+import jsr166e.LongAdder;
+
+/**
+ * A histogram of non negative values over exponentially growing buckets. Bucket <tt>0</tt> holds <tt>0</tt>, bucket
+ * <tt>i</tt> holds the values in <tt>[2^(i-1), 2^i)</tt>, and the last bucket holds everything larger.
+ */
+public class HistogramMetric implements Metric {
+
+    public static final int BUCKETS = 32;
+
+    private final LongAdder[] buckets;
+    private final LongAdder counter = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+
+    public HistogramMetric() {
+        buckets = new LongAdder[BUCKETS];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void inc(long value) {
+        buckets[bucket(value)].increment();
+        counter.increment();
+        sum.add(value);
+    }
+
+    public long count() {
+        return counter.sum();
+    }
+
+    public long sum() {
+        return sum.sum();
+    }
+
+    /**
+     * The number of values per bucket.
+     */
+    public long[] counts() {
+        long[] counts = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    public void clear() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        counter.reset();
+        sum.reset();
+    }
+
+    static int bucket(long value) {
+        if (value <= 0) {
+            return 0;
+        }
+        return Math.min(64 - Long.numberOfLeadingZeros(value), BUCKETS - 1);
+    }
+
+    /**
+     * The largest value the provided bucket holds, or {@link Long#MAX_VALUE} for the last bucket.
+     */
+    public static long upperBound(int bucket) {
+        if (bucket >= BUCKETS - 1) {
+            return Long.MAX_VALUE;
+        }
+        return (1L << bucket) - 1;
+    }
+
+    /**
+     * Estimates the provided percentile (between <tt>0</tt> and <tt>100</tt>) of the values counted by bucket in
+     * <tt>counts</tt>, as the upper bound of the bucket the percentile falls into. Returns <tt>-1</tt> if there are no
+     * values.
+     */
+    public static long percentile(long[] counts, double percentile) {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return -1;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank && counts[i] > 0) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(counts.length - 1);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A compact, approximate frequency estimator (a count-min sketch with 4 bit counters), used to
+ * know how often keys have been seen recently without keeping the keys themselves.
+ * <p/>
+ * Each key is hashed to one counter in each of 4 rows, and its frequency is the minimum of its
+ * counters, so it can be overestimated (on collisions) but never underestimated. Counters saturate
+ * at 15 and are all halved once the number of increments reaches 10 times the number of counters
+ * per row, so old usage fades away and recently popular keys win. The sketch is thread safe.
+ */
+public class FrequencySketch {
+
+    static final int DEPTH = 4;
+    static final int MAX_COUNT = 15;
+    // each long holds 16 counters of 4 bits
+    static final long RESET_MASK = 0x7777777777777777L;
+
+    private static final int[] SEEDS = new int[]{0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+    private final AtomicLongArray table;
+    private final int rowMask;
+    private final int sampleSize;
+    private final AtomicInteger increments = new AtomicInteger();
+
+    /**
+     * @param expectedKeys the number of distinct keys expected to be tracked at once
+     */
+    public FrequencySketch(int expectedKeys) {
+        int counters = Integer.highestOneBit(Math.max(16, Math.min(expectedKeys, 1 << 26)) - 1) << 1;
+        // one row of counters per depth, laid out one after the other
+        this.table = new AtomicLongArray(DEPTH * counters / 16);
+        this.rowMask = counters - 1;
+        this.sampleSize = 10 * counters;
+    }
+
+    /**
+     * Returns the estimated frequency of the key hash, between 0 and 15.
+     */
+    public int frequency(int hash) {
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < DEPTH; i++) {
+            int counter = counterIndex(hash, i);
+            frequency = Math.min(frequency, count(table.get(counter >>> 4), counter));
+        }
+        return frequency;
+    }
+
+    /**
+     * Records one more occurrence of the key hash and returns its estimated frequency.
+     */
+    public int incrementAndGet(int hash) {
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < DEPTH; i++) {
+            int counter = counterIndex(hash, i);
+            frequency = Math.min(frequency, increment(counter));
+        }
+        if (increments.incrementAndGet() >= sampleSize) {
+            reset();
+        }
+        return frequency;
+    }
+
+    /**
+     * The memory used by the counters.
+     */
+    public long sizeInBytes() {
+        return table.length() * 8;
+    }
+
+    private int counterIndex(int hash, int depth) {
+        int h = (hash ^ (hash >>> 16)) * SEEDS[depth];
+        h ^= h >>> 15;
+        return depth * (rowMask + 1) + (h & rowMask);
+    }
+
+    private static int count(long word, int counter) {
+        return (int) ((word >>> ((counter & 15) << 2)) & 0xF);
+    }
+
+    private int increment(int counter) {
+        int index = counter >>> 4;
+        int shift = (counter & 15) << 2;
+        while (true) {
+            long word = table.get(index);
+            int count = (int) ((word >>> shift) & 0xF);
+            if (count == MAX_COUNT) {
+                return count;
+            }
+            if (table.compareAndSet(index, word, word + (1L << shift))) {
+                return count + 1;
+            }
+        }
+    }
+
+    /**
+     * Halves all the counters, concurrent increments might get lost which is fine for an estimate.
+     */
+    private void reset() {
+        int current = increments.get();
+        if (current < sampleSize || !increments.compareAndSet(current, current / 2)) {
+            return;
+        }
+        for (int i = 0; i < table.length(); i++) {
+            table.set(i, (table.get(i) >>> 1) & RESET_MASK);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.xcontent.columnar;
+
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentParser;
+
+import java.io.IOException;
+
+/**
+ * A document as a row of packed primitive values laid out by a {@link ColumnarSchema}. Numbers and booleans are
+ * kept as raw longs (doubles as their bits), strings on the side. A column without a value is left out of the document.
+ * <p/>
+ * The row can be indexed without going through a text parser, see {@link #parser()}.
+ */
+public class ColumnarRow {
+
+    private final ColumnarSchema schema;
+    private final long[] values;
+    private final String[] strings;
+    private final boolean[] present;
+
+    public ColumnarRow(ColumnarSchema schema) {
+        this.schema = schema;
+        this.values = new long[schema.size()];
+        this.strings = new String[schema.size()];
+        this.present = new boolean[schema.size()];
+    }
+
+    public ColumnarSchema schema() {
+        return this.schema;
+    }
+
+    public boolean present(int column) {
+        return present[column];
+    }
+
+    public long longValue(int column) {
+        return values[column];
+    }
+
+    public double doubleValue(int column) {
+        return Double.longBitsToDouble(values[column]);
+    }
+
+    public boolean booleanValue(int column) {
+        return values[column] != 0;
+    }
+
+    public String stringValue(int column) {
+        return strings[column];
+    }
+
+    /**
+     * Sets the value of a column, converting it to the column type. A <tt>null</tt> value leaves the column out.
+     */
+    public ColumnarRow set(int column, Object value) {
+        if (value == null) {
+            present[column] = false;
+            strings[column] = null;
+            return this;
+        }
+        switch (schema.type(column)) {
+            case LONG:
+                if (!(value instanceof Number)) {
+                    throw new ElasticSearchIllegalArgumentException("column [" + schema.name(column) + "] expects a number, got [" + value + "]");
+                }
+                values[column] = ((Number) value).longValue();
+                break;
+            case DOUBLE:
+                if (!(value instanceof Number)) {
+                    throw new ElasticSearchIllegalArgumentException("column [" + schema.name(column) + "] expects a number, got [" + value + "]");
+                }
+                values[column] = Double.doubleToRawLongBits(((Number) value).doubleValue());
+                break;
+            case BOOLEAN:
+                if (!(value instanceof Boolean)) {
+                    throw new ElasticSearchIllegalArgumentException("column [" + schema.name(column) + "] expects a boolean, got [" + value + "]");
+                }
+                values[column] = ((Boolean) value) ? 1 : 0;
+                break;
+            case STRING:
+                strings[column] = value.toString();
+                break;
+        }
+        present[column] = true;
+        return this;
+    }
+
+    /**
+     * Returns a parser walking the row as a flat object, so it can go through the regular mappers.
+     */
+    public XContentParser parser() {
+        return new ColumnarRowParser(this);
+    }
+
+    public XContentBuilder toXContent(XContentBuilder builder) throws IOException {
+        builder.startObject();
+        for (int i = 0; i < present.length; i++) {
+            if (!present[i]) {
+                continue;
+            }
+            switch (schema.type(i)) {
+                case LONG:
+                    builder.field(schema.name(i), longValue(i));
+                    break;
+                case DOUBLE:
+                    builder.field(schema.name(i), doubleValue(i));
+                    break;
+                case BOOLEAN:
+                    builder.field(schema.name(i), booleanValue(i));
+                    break;
+                case STRING:
+                    builder.field(schema.name(i), stringValue(i));
+                    break;
+            }
+        }
+        builder.endObject();
+        return builder;
+    }
+
+    /**
+     * Reads the values of a row of the given schema, as written by {@link #writeValues(StreamOutput)}.
+     */
+    public static ColumnarRow readValues(ColumnarSchema schema, StreamInput in) throws IOException {
+        ColumnarRow row = new ColumnarRow(schema);
+        int size = schema.size();
+        int bits = 0;
+        for (int i = 0; i < size; i++) {
+            if ((i & 7) == 0) {
+                bits = in.readByte();
+            }
+            row.present[i] = (bits & (1 << (i & 7))) != 0;
+        }
+        for (int i = 0; i < size; i++) {
+            if (!row.present[i]) {
+                continue;
+            }
+            switch (schema.type(i)) {
+                case LONG:
+                    row.values[i] = in.readLong();
+                    break;
+                case DOUBLE:
+                    row.values[i] = Double.doubleToRawLongBits(in.readDouble());
+                    break;
+                case BOOLEAN:
+                    row.values[i] = in.readBoolean() ? 1 : 0;
+                    break;
+                case STRING:
+                    row.strings[i] = in.readString();
+                    break;
+            }
+        }
+        return row;
+    }
+
+    /**
+     * Writes a presence bitmap followed by the values of the present columns, without the schema.
+     */
+    public void writeValues(StreamOutput out) throws IOException {
+        int size = schema.size();
+        int bits = 0;
+        for (int i = 0; i < size; i++) {
+            if (present[i]) {
+                bits |= 1 << (i & 7);
+            }
+            if ((i & 7) == 7 || i == size - 1) {
+                out.writeByte((byte) bits);
+                bits = 0;
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            if (!present[i]) {
+                continue;
+            }
+            switch (schema.type(i)) {
+                case LONG:
+                    out.writeLong(values[i]);
+                    break;
+                case DOUBLE:
+                    out.writeDouble(doubleValue(i));
+                    break;
+                case BOOLEAN:
+                    out.writeBoolean(values[i] != 0);
+                    break;
+                case STRING:
+                    out.writeString(strings[i]);
+                    break;
+            }
+        }
+    }
+
+    public static ColumnarRow readRow(StreamInput in) throws IOException {
+        return readValues(ColumnarSchema.readSchema(in), in);
+    }
+
+    public void writeTo(StreamOutput out) throws IOException {
+        schema.writeTo(out);
+        writeValues(out);
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.xcontent.columnar;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.ElasticSearchIllegalStateException;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.common.xcontent.support.AbstractXContentParser;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Walks a {@link ColumnarRow} as a flat object, one field per present column, handing out the packed values
+ * as they are. Nothing is parsed.
+ */
+public class ColumnarRowParser extends AbstractXContentParser {
+
+    private final ColumnarRow row;
+    private final ColumnarSchema schema;
+
+    private Token token;
+    private int column = -1;
+
+    public ColumnarRowParser(ColumnarRow row) {
+        this.row = row;
+        this.schema = row.schema();
+    }
+
+    @Override
+    public XContentType contentType() {
+        // the source of a columnar row is kept as smile
+        return XContentType.SMILE;
+    }
+
+    @Override
+    public Token nextToken() throws IOException {
+        if (token == null) {
+            if (column == -1) {
+                column = 0;
+                token = Token.START_OBJECT;
+            }
+            return token;
+        }
+        switch (token) {
+            case START_OBJECT:
+            case VALUE_STRING:
+            case VALUE_NUMBER:
+            case VALUE_BOOLEAN:
+                if (token != Token.START_OBJECT) {
+                    column++;
+                }
+                while (column < schema.size() && !row.present(column)) {
+                    column++;
+                }
+                token = column < schema.size() ? Token.FIELD_NAME : Token.END_OBJECT;
+                break;
+            case FIELD_NAME:
+                switch (schema.type(column)) {
+                    case LONG:
+                    case DOUBLE:
+                        token = Token.VALUE_NUMBER;
+                        break;
+                    case BOOLEAN:
+                        token = Token.VALUE_BOOLEAN;
+                        break;
+                    case STRING:
+                        token = Token.VALUE_STRING;
+                        break;
+                }
+                break;
+            default:
+                // done with the row
+                token = null;
+        }
+        return token;
+    }
+
+    @Override
+    public void skipChildren() throws IOException {
+        if (token == Token.START_OBJECT) {
+            column = schema.size();
+            token = Token.END_OBJECT;
+        }
+    }
+
+    @Override
+    public Token currentToken() {
+        return token;
+    }
+
+    @Override
+    public String currentName() throws IOException {
+        if (token == Token.FIELD_NAME || (token != null && token.isValue())) {
+            return schema.name(column);
+        }
+        return null;
+    }
+
+    private void ensureValue() {
+        if (token == null || !token.isValue()) {
+            throw new ElasticSearchIllegalStateException("no value for token [" + token + "]");
+        }
+    }
+
+    @Override
+    public String text() throws IOException {
+        if (token == Token.FIELD_NAME) {
+            return schema.name(column);
+        }
+        ensureValue();
+        switch (schema.type(column)) {
+            case LONG:
+                return Long.toString(row.longValue(column));
+            case DOUBLE:
+                return Double.toString(row.doubleValue(column));
+            case BOOLEAN:
+                return Boolean.toString(row.booleanValue(column));
+            default:
+                return row.stringValue(column);
+        }
+    }
+
+    @Override
+    public BytesRef bytes() throws IOException {
+        return new BytesRef(text());
+    }
+
+    @Override
+    public Object objectText() throws IOException {
+        ensureValue();
+        switch (schema.type(column)) {
+            case LONG:
+                return row.longValue(column);
+            case DOUBLE:
+                return row.doubleValue(column);
+            case BOOLEAN:
+                return row.booleanValue(column);
+            default:
+                return row.stringValue(column);
+        }
+    }
+
+    @Override
+    public Object objectBytes() throws IOException {
+        if (token == Token.VALUE_STRING) {
+            return bytes();
+        }
+        return objectText();
+    }
+
+    @Override
+    public boolean hasTextCharacters() {
+        return false;
+    }
+
+    @Override
+    public char[] textCharacters() throws IOException {
+        return text().toCharArray();
+    }
+
+    @Override
+    public int textLength() throws IOException {
+        return text().length();
+    }
+
+    @Override
+    public int textOffset() throws IOException {
+        return 0;
+    }
+
+    @Override
+    public Number numberValue() throws IOException {
+        ensureValue();
+        if (schema.type(column) == ColumnarSchema.Type.DOUBLE) {
+            return row.doubleValue(column);
+        }
+        return row.longValue(column);
+    }
+
+    @Override
+    public NumberType numberType() throws IOException {
+        return schema.type(column) == ColumnarSchema.Type.DOUBLE ? NumberType.DOUBLE : NumberType.LONG;
+    }
+
+    @Override
+    public boolean estimatedNumberType() {
+        return false;
+    }
+
+    @Override
+    public byte[] binaryValue() throws IOException {
+        BytesRef bytes = bytes();
+        return Arrays.copyOfRange(bytes.bytes, bytes.offset, bytes.offset + bytes.length);
+    }
+
+    @Override
+    protected boolean doBooleanValue() throws IOException {
+        return row.booleanValue(column);
+    }
+
+    @Override
+    protected short doShortValue() throws IOException {
+        return numberValue().shortValue();
+    }
+
+    @Override
+    protected int doIntValue() throws IOException {
+        return numberValue().intValue();
+    }
+
+    @Override
+    protected long doLongValue() throws IOException {
+        return numberValue().longValue();
+    }
+
+    @Override
+    protected float doFloatValue() throws IOException {
+        return numberValue().floatValue();
+    }
+
+    @Override
+    protected double doDoubleValue() throws IOException {
+        return numberValue().doubleValue();
+    }
+
+    @Override
+    public void close() {
+    }
+}
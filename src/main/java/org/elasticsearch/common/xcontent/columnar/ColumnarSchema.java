@@ -0,0 +1,112 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.xcontent.columnar;
+
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+
+/**
+ * The field layout of {@link ColumnarRow}s: the name and primitive type of each column. Columns are flat,
+ * a row maps to a document with one top level field per column.
+ */
+public class ColumnarSchema {
+
+    public static enum Type {
+        LONG((byte) 0),
+        DOUBLE((byte) 1),
+        BOOLEAN((byte) 2),
+        STRING((byte) 3);
+
+        private final byte id;
+
+        Type(byte id) {
+            this.id = id;
+        }
+
+        public byte id() {
+            return this.id;
+        }
+
+        public static Type fromId(byte id) {
+            switch (id) {
+                case 0:
+                    return LONG;
+                case 1:
+                    return DOUBLE;
+                case 2:
+                    return BOOLEAN;
+                case 3:
+                    return STRING;
+                default:
+                    throw new ElasticSearchIllegalArgumentException("No columnar type for [" + id + "]");
+            }
+        }
+    }
+
+    private final String[] names;
+    private final Type[] types;
+
+    public ColumnarSchema(String[] names, Type[] types) {
+        if (names.length != types.length) {
+            throw new ElasticSearchIllegalArgumentException("columnar schema has [" + names.length + "] names but [" + types.length + "] types");
+        }
+        for (String name : names) {
+            if (name == null || name.length() == 0) {
+                throw new ElasticSearchIllegalArgumentException("columnar schema column names must not be empty");
+            }
+        }
+        this.names = names;
+        this.types = types;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public String name(int column) {
+        return names[column];
+    }
+
+    public Type type(int column) {
+        return types[column];
+    }
+
+    public static ColumnarSchema readSchema(StreamInput in) throws IOException {
+        int size = in.readVInt();
+        String[] names = new String[size];
+        Type[] types = new Type[size];
+        for (int i = 0; i < size; i++) {
+            names[i] = in.readSharedString();
+            types[i] = Type.fromId(in.readByte());
+        }
+        return new ColumnarSchema(names, types);
+    }
+
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVInt(names.length);
+        for (int i = 0; i < names.length; i++) {
+            out.writeSharedString(names[i]);
+            out.writeByte(types[i].id());
+        }
+    }
+}
@@ -191,6 +191,10 @@ public abstract class AbstractXContentParser implements XContentParser {
         return map;
     }
 
+    static Object readValue(XContentParser parser, XContentParser.Token t) throws IOException {
+        return readValue(parser, SIMPLE_MAP_FACTORY, t);
+    }
+
     private static List<Object> readList(XContentParser parser, MapFactory mapFactory, XContentParser.Token t) throws IOException {
         ArrayList<Object> list = new ArrayList<Object>();
         while ((t = parser.nextToken()) != XContentParser.Token.END_ARRAY) {
@@ -24,7 +24,11 @@ import com.google.common.collect.Maps;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.regex.Regex;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentParser;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -164,46 +168,13 @@ public class XContentMapValues {
                 sb.setLength(mark);
                 continue;
             }
-            boolean exactIncludeMatch;
-            if (includes.length == 0) {
-                // implied match anything
-                exactIncludeMatch = true;
-            } else {
-                exactIncludeMatch = false;
-                boolean pathIsPrefixOfAnInclude = false;
-                for (String include : includes) {
-                    // check for prefix matches as well to see if we need to zero in, something like: obj1.arr1.* or *.field
-                    // note, this does not work well with middle matches, like obj1.*.obj3
-                    if (include.charAt(0) == '*') {
-                        if (Regex.simpleMatch(include, path)) {
-                            exactIncludeMatch = true;
-                            break;
-                        }
-                        pathIsPrefixOfAnInclude = true;
-                        break;
-                    }
-                    if (include.startsWith(path)) {
-                        if (include.length() == path.length()) {
-                            exactIncludeMatch = true;
-                            break;
-                        } else if (include.length() > path.length() && include.charAt(path.length()) == '.') {
-                            // include might may match deeper paths. Dive deeper.
-                            pathIsPrefixOfAnInclude = true;
-                            break;
-                        }
-                    }
-                    if (Regex.simpleMatch(include, path)) {
-                        exactIncludeMatch = true;
-                        break;
-                    }
-                }
-                if (!pathIsPrefixOfAnInclude && !exactIncludeMatch) {
-                    // skip subkeys, not interesting.
-                    sb.setLength(mark);
-                    continue;
-                }
+            int includeMatch = includeMatch(path, includes);
+            if (includeMatch == NO_MATCH) {
+                // skip subkeys, not interesting.
+                sb.setLength(mark);
+                continue;
             }
-
+            boolean exactIncludeMatch = includeMatch == EXACT_MATCH;
 
             if (entry.getValue() instanceof Map) {
                 Map<String, Object> innerInto = Maps.newHashMap();
@@ -250,6 +221,328 @@ public class XContentMapValues {
         }
     }
 
+    private static final int NO_MATCH = 0;
+    private static final int EXACT_MATCH = 1;
+    private static final int PREFIX_MATCH = 2;
+
+    private static int includeMatch(String path, String[] includes) {
+        if (includes.length == 0) {
+            // implied match anything
+            return EXACT_MATCH;
+        }
+        for (String include : includes) {
+            // check for prefix matches as well to see if we need to zero in, something like: obj1.arr1.* or *.field
+            // note, this does not work well with middle matches, like obj1.*.obj3
+            if (include.charAt(0) == '*') {
+                if (Regex.simpleMatch(include, path)) {
+                    return EXACT_MATCH;
+                }
+                return PREFIX_MATCH;
+            }
+            if (include.startsWith(path)) {
+                if (include.length() == path.length()) {
+                    return EXACT_MATCH;
+                } else if (include.length() > path.length() && include.charAt(path.length()) == '.') {
+                    // include might may match deeper paths. Dive deeper.
+                    return PREFIX_MATCH;
+                }
+            }
+            if (Regex.simpleMatch(include, path)) {
+                return EXACT_MATCH;
+            }
+        }
+        return NO_MATCH;
+    }
+
+    /**
+     * Same as {@link #extractRawValues(String, java.util.Map)}, but walks the parser positioned on (or before) the
+     * start of the source object, only materializing the values found on the path.
+     */
+    public static List<Object> extractRawValues(String path, XContentParser parser) throws IOException {
+        List<Object> values = Lists.newArrayList();
+        String[] pathElements = Strings.splitStringToArray(path, '.');
+        if (pathElements.length == 0) {
+            return values;
+        }
+        if (startObject(parser)) {
+            extractRawValuesFromObject(values, parser, pathElements, 0);
+        }
+        return values;
+    }
+
+    private static void extractRawValuesFromObject(List<Object> values, XContentParser parser, String[] pathElements, int index) throws IOException {
+        if (index == pathElements.length) {
+            parser.skipChildren();
+            return;
+        }
+        // like with maps, the shortest key matching the path wins over keys containing dots
+        int matchedIndex = Integer.MAX_VALUE;
+        List<Object> matchedValues = null;
+        XContentParser.Token token;
+        while ((token = parser.nextToken()) == XContentParser.Token.FIELD_NAME) {
+            String key = parser.currentName();
+            token = parser.nextToken();
+            int nextIndex = token == XContentParser.Token.VALUE_NULL ? -1 : matchPath(key, pathElements, index);
+            if (nextIndex == -1 || nextIndex > matchedIndex) {
+                parser.skipChildren();
+                continue;
+            }
+            matchedIndex = nextIndex;
+            matchedValues = Lists.newArrayList();
+            if (token == XContentParser.Token.START_OBJECT) {
+                extractRawValuesFromObject(matchedValues, parser, pathElements, nextIndex);
+            } else if (token == XContentParser.Token.START_ARRAY) {
+                extractRawValuesFromArray(matchedValues, parser, pathElements, nextIndex);
+            } else {
+                matchedValues.add(AbstractXContentParser.readValue(parser, token));
+            }
+        }
+        if (matchedValues != null) {
+            values.addAll(matchedValues);
+        }
+    }
+
+    private static void extractRawValuesFromArray(List<Object> values, XContentParser parser, String[] pathElements, int index) throws IOException {
+        XContentParser.Token token;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_ARRAY) {
+            if (token == XContentParser.Token.VALUE_NULL) {
+                continue;
+            }
+            if (token == XContentParser.Token.START_OBJECT) {
+                extractRawValuesFromObject(values, parser, pathElements, index);
+            } else if (token == XContentParser.Token.START_ARRAY) {
+                extractRawValuesFromArray(values, parser, pathElements, index);
+            } else {
+                values.add(AbstractXContentParser.readValue(parser, token));
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #extractValue(String, java.util.Map)}, but walks the parser positioned on (or before) the
+     * start of the source object, only materializing the value found on the path.
+     */
+    public static Object extractValue(String path, XContentParser parser) throws IOException {
+        String[] pathElements = Strings.splitStringToArray(path, '.');
+        if (pathElements.length == 0) {
+            return null;
+        }
+        if (!startObject(parser)) {
+            return null;
+        }
+        return extractValue(pathElements, 0, parser, XContentParser.Token.START_OBJECT);
+    }
+
+    private static Object extractValue(String[] pathElements, int index, XContentParser parser, XContentParser.Token token) throws IOException {
+        if (index == pathElements.length) {
+            return AbstractXContentParser.readValue(parser, token);
+        }
+        if (token == XContentParser.Token.START_OBJECT) {
+            // like with maps, the shortest key matching the path wins over keys containing dots
+            int matchedIndex = Integer.MAX_VALUE;
+            Object matchedValue = null;
+            while ((token = parser.nextToken()) == XContentParser.Token.FIELD_NAME) {
+                String key = parser.currentName();
+                token = parser.nextToken();
+                int nextIndex = token == XContentParser.Token.VALUE_NULL ? -1 : matchPath(key, pathElements, index);
+                if (nextIndex == -1 || nextIndex > matchedIndex) {
+                    parser.skipChildren();
+                    continue;
+                }
+                matchedIndex = nextIndex;
+                matchedValue = extractValue(pathElements, nextIndex, parser, token);
+            }
+            return matchedValue;
+        }
+        if (token == XContentParser.Token.START_ARRAY) {
+            List<Object> newList = new ArrayList<Object>();
+            while ((token = parser.nextToken()) != XContentParser.Token.END_ARRAY) {
+                Object listValue = extractValue(pathElements, index, parser, token);
+                if (listValue != null) {
+                    newList.add(listValue);
+                }
+            }
+            return newList;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the index of the path element following the key if the key is the path element at the
+     * given index, or several path elements joined with dots, <tt>-1</tt> otherwise.
+     */
+    private static int matchPath(String key, String[] pathElements, int index) {
+        String element = pathElements[index];
+        if (!key.startsWith(element)) {
+            return -1;
+        }
+        int position = element.length();
+        int nextIndex = index + 1;
+        while (position < key.length() && nextIndex < pathElements.length) {
+            element = pathElements[nextIndex];
+            if (key.charAt(position) != '.' || !key.startsWith(element, position + 1)) {
+                return -1;
+            }
+            position += element.length() + 1;
+            nextIndex++;
+        }
+        return position == key.length() ? nextIndex : -1;
+    }
+
+    private static boolean startObject(XContentParser parser) throws IOException {
+        XContentParser.Token token = parser.currentToken();
+        if (token == null) {
+            token = parser.nextToken();
+        }
+        return token == XContentParser.Token.START_OBJECT;
+    }
+
+    /**
+     * Same as {@link #filter(java.util.Map, String[], String[])}, but walks the parser positioned on (or before) the
+     * start of the source object and writes the filtered object into the builder, copying included values as is
+     * without building maps.
+     */
+    public static void filter(XContentParser parser, XContentBuilder builder, String[] includes, String[] excludes) throws IOException {
+        builder.startObject();
+        if (startObject(parser)) {
+            filterObject(parser, new Filter(builder), includes == null ? Strings.EMPTY_ARRAY : includes, excludes == null ? Strings.EMPTY_ARRAY : excludes, new StringBuilder());
+        }
+        builder.endObject();
+    }
+
+    private static void filterObject(XContentParser parser, Filter into, String[] includes, String[] excludes, StringBuilder sb) throws IOException {
+        XContentParser.Token token;
+        if (includes.length == 0 && excludes.length == 0) {
+            while ((token = parser.nextToken()) == XContentParser.Token.FIELD_NAME) {
+                into.open();
+                XContentHelper.copyCurrentStructure(into.builder.generator(), parser);
+            }
+            return;
+        }
+        while ((token = parser.nextToken()) == XContentParser.Token.FIELD_NAME) {
+            String key = parser.currentName();
+            token = parser.nextToken();
+            int mark = sb.length();
+            if (sb.length() > 0) {
+                sb.append('.');
+            }
+            sb.append(key);
+            String path = sb.toString();
+            boolean excluded = false;
+            for (String exclude : excludes) {
+                if (Regex.simpleMatch(exclude, path)) {
+                    excluded = true;
+                    break;
+                }
+            }
+            int includeMatch = excluded ? NO_MATCH : includeMatch(path, includes);
+            if (includeMatch == NO_MATCH) {
+                parser.skipChildren();
+                sb.setLength(mark);
+                continue;
+            }
+            boolean exactIncludeMatch = includeMatch == EXACT_MATCH;
+
+            if (token == XContentParser.Token.START_OBJECT) {
+                int depth = into.defer(key, false);
+                // if we had an exact match, we want give deeper excludes their chance
+                filterObject(parser, into, exactIncludeMatch ? Strings.EMPTY_ARRAY : includes, excludes, sb);
+                into.close(depth, false);
+            } else if (token == XContentParser.Token.START_ARRAY) {
+                into.open();
+                into.builder.startArray(key);
+                // if we had an exact match, we want give deeper excludes their chance
+                filterArray(parser, into, exactIncludeMatch ? Strings.EMPTY_ARRAY : includes, excludes, sb);
+                into.builder.endArray();
+            } else if (exactIncludeMatch) {
+                into.open();
+                into.builder.field(key);
+                XContentHelper.copyCurrentEvent(into.builder.generator(), parser);
+            }
+            sb.setLength(mark);
+        }
+    }
+
+    private static void filterArray(XContentParser parser, Filter into, String[] includes, String[] excludes, StringBuilder sb) throws IOException {
+        XContentParser.Token token;
+        if (includes.length == 0 && excludes.length == 0) {
+            while ((token = parser.nextToken()) != XContentParser.Token.END_ARRAY) {
+                XContentHelper.copyCurrentStructure(into.builder.generator(), parser);
+            }
+            return;
+        }
+        while ((token = parser.nextToken()) != XContentParser.Token.END_ARRAY) {
+            if (token == XContentParser.Token.START_OBJECT) {
+                int depth = into.defer(null, false);
+                filterObject(parser, into, includes, excludes, sb);
+                into.close(depth, false);
+            } else if (token == XContentParser.Token.START_ARRAY) {
+                int depth = into.defer(null, true);
+                filterArray(parser, into, includes, excludes, sb);
+                into.close(depth, true);
+            } else {
+                into.open();
+                XContentHelper.copyCurrentEvent(into.builder.generator(), parser);
+            }
+        }
+    }
+
+    /**
+     * Writes filtered objects and arrays lazily, so that the ones ending up empty are dropped like
+     * they are when filtering maps.
+     */
+    private static final class Filter {
+
+        final XContentBuilder builder;
+
+        // the names (null within arrays) and kinds of the objects and arrays started but not written yet
+        private final List<String> deferredNames = new ArrayList<String>();
+        private final List<Boolean> deferredArrays = new ArrayList<Boolean>();
+
+        Filter(XContentBuilder builder) {
+            this.builder = builder;
+        }
+
+        int defer(String name, boolean array) {
+            deferredNames.add(name);
+            deferredArrays.add(array);
+            return deferredNames.size();
+        }
+
+        void open() throws IOException {
+            for (int i = 0; i < deferredNames.size(); i++) {
+                String name = deferredNames.get(i);
+                if (deferredArrays.get(i)) {
+                    if (name == null) {
+                        builder.startArray();
+                    } else {
+                        builder.startArray(name);
+                    }
+                } else {
+                    if (name == null) {
+                        builder.startObject();
+                    } else {
+                        builder.startObject(name);
+                    }
+                }
+            }
+            deferredNames.clear();
+            deferredArrays.clear();
+        }
+
+        void close(int depth, boolean array) throws IOException {
+            if (deferredNames.size() >= depth) {
+                // nothing was written within, drop it
+                deferredNames.remove(depth - 1);
+                deferredArrays.remove(depth - 1);
+            } else if (array) {
+                builder.endArray();
+            } else {
+                builder.endObject();
+            }
+        }
+    }
+
     public static boolean isObject(Object node) {
         return node instanceof Map;
     }
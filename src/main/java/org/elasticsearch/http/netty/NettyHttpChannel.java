@@ -19,9 +19,11 @@
 
 package org.elasticsearch.http.netty;
 
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.http.HttpChannel;
 import org.elasticsearch.http.HttpException;
+import org.elasticsearch.rest.ChunkedRestChannel;
 import org.elasticsearch.rest.RestResponse;
 import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.rest.XContentRestResponse;
@@ -41,11 +43,14 @@ import java.util.Set;
 /**
  *
  */
-public class NettyHttpChannel implements HttpChannel {
+public class NettyHttpChannel implements HttpChannel, ChunkedRestChannel {
     private final NettyHttpServerTransport transport;
     private final Channel channel;
     private final org.jboss.netty.handler.codec.http.HttpRequest request;
 
+    private volatile boolean chunked;
+    private volatile boolean closeAfterChunks;
+
     public NettyHttpChannel(NettyHttpServerTransport transport, Channel channel, org.jboss.netty.handler.codec.http.HttpRequest request) {
         this.transport = transport;
         this.channel = channel;
@@ -56,39 +61,11 @@ public class NettyHttpChannel implements HttpChannel {
     public void sendResponse(RestResponse response) {
 
         // Decide whether to close the connection or not.
-        boolean http10 = request.getProtocolVersion().equals(HttpVersion.HTTP_1_0);
-        boolean close =
-                HttpHeaders.Values.CLOSE.equalsIgnoreCase(request.getHeader(HttpHeaders.Names.CONNECTION)) ||
-                        (http10 && !HttpHeaders.Values.KEEP_ALIVE.equalsIgnoreCase(request.getHeader(HttpHeaders.Names.CONNECTION)));
+        boolean http10 = isHttp10();
+        boolean close = isCloseConnection(http10);
 
         // Build the response object.
-        HttpResponseStatus status = getStatus(response.status());
-        org.jboss.netty.handler.codec.http.HttpResponse resp;
-        if (http10) {
-            resp = new DefaultHttpResponse(HttpVersion.HTTP_1_0, status);
-            if (!close) {
-                resp.addHeader(HttpHeaders.Names.CONNECTION, "Keep-Alive");
-            }
-        } else {
-            resp = new DefaultHttpResponse(HttpVersion.HTTP_1_1, status);
-        }
-        if (RestUtils.isBrowser(request.getHeader(HttpHeaders.Names.USER_AGENT))) {
-            if (transport.settings().getAsBoolean("http.cors.enabled", true)) {
-                // Add support for cross-origin Ajax requests (CORS)
-                resp.addHeader("Access-Control-Allow-Origin", transport.settings().get("http.cors.allow-origin", "*"));
-                if (request.getMethod() == HttpMethod.OPTIONS) {
-                    // Allow Ajax requests based on the CORS "preflight" request
-                    resp.addHeader("Access-Control-Max-Age", transport.settings().getAsInt("http.cors.max-age", 1728000));
-                    resp.addHeader("Access-Control-Allow-Methods", transport.settings().get("http.cors.allow-methods", "OPTIONS, HEAD, GET, POST, PUT, DELETE"));
-                    resp.addHeader("Access-Control-Allow-Headers", transport.settings().get("http.cors.allow-headers", "X-Requested-With, Content-Type, Content-Length"));
-                }
-            }
-        }
-
-        String opaque = request.getHeader("X-Opaque-Id");
-        if (opaque != null) {
-            resp.addHeader("X-Opaque-Id", opaque);
-        }
+        org.jboss.netty.handler.codec.http.HttpResponse resp = newResponse(getStatus(response.status()), http10, close);
 
         // Add all custom headers
         Map<String, List<String>> customHeaders = response.getHeaders();
@@ -138,6 +115,104 @@ public class NettyHttpChannel implements HttpChannel {
 
         resp.setHeader(HttpHeaders.Names.CONTENT_LENGTH, String.valueOf(buf.readableBytes()));
 
+        // Write the response.
+        ChannelFuture future = channel.write(resp);
+        // Close the connection after the write operation is done if necessary.
+        if (close) {
+            future.addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
+    @Override
+    public void startChunkedResponse(RestStatus status, String contentType) {
+        boolean http10 = isHttp10();
+        // HTTP 1.0 has no chunked transfer encoding, closing the connection marks the end of the response
+        chunked = !http10;
+        closeAfterChunks = http10 || isCloseConnection(false);
+
+        org.jboss.netty.handler.codec.http.HttpResponse resp = newResponse(getStatus(status), http10, closeAfterChunks);
+        resp.setHeader(HttpHeaders.Names.CONTENT_TYPE, contentType);
+        if (chunked) {
+            resp.setChunked(true);
+            resp.setHeader(HttpHeaders.Names.TRANSFER_ENCODING, HttpHeaders.Values.CHUNKED);
+        }
+        channel.write(resp);
+    }
+
+    @Override
+    public void sendChunk(BytesReference content, final Listener listener) {
+        if (content.length() == 0) {
+            // an empty chunk marks the end of a chunked response
+            listener.onReady();
+            return;
+        }
+        ChannelBuffer buf = content.toChannelBuffer();
+        ChannelFuture future = channel.write(chunked ? new DefaultHttpChunk(buf) : buf);
+        if (channel.isWritable()) {
+            listener.onReady();
+            return;
+        }
+        // the client doesn't keep up, wait for the pending data to be flushed before asking for more
+        future.addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) throws Exception {
+                if (future.isSuccess()) {
+                    listener.onReady();
+                } else {
+                    listener.onFailure(future.getCause());
+                }
+            }
+        });
+    }
+
+    @Override
+    public void endChunkedResponse() {
+        ChannelFuture future = channel.write(chunked ? HttpChunk.LAST_CHUNK : ChannelBuffers.EMPTY_BUFFER);
+        if (closeAfterChunks) {
+            future.addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
+    private boolean isHttp10() {
+        return request.getProtocolVersion().equals(HttpVersion.HTTP_1_0);
+    }
+
+    private boolean isCloseConnection(boolean http10) {
+        return HttpHeaders.Values.CLOSE.equalsIgnoreCase(request.getHeader(HttpHeaders.Names.CONNECTION)) ||
+                (http10 && !HttpHeaders.Values.KEEP_ALIVE.equalsIgnoreCase(request.getHeader(HttpHeaders.Names.CONNECTION)));
+    }
+
+    /**
+     * Creates a response with the headers common to all responses (keep alive, CORS, opaque id and cookies).
+     */
+    private org.jboss.netty.handler.codec.http.HttpResponse newResponse(HttpResponseStatus status, boolean http10, boolean close) {
+        org.jboss.netty.handler.codec.http.HttpResponse resp;
+        if (http10) {
+            resp = new DefaultHttpResponse(HttpVersion.HTTP_1_0, status);
+            if (!close) {
+                resp.addHeader(HttpHeaders.Names.CONNECTION, "Keep-Alive");
+            }
+        } else {
+            resp = new DefaultHttpResponse(HttpVersion.HTTP_1_1, status);
+        }
+        if (RestUtils.isBrowser(request.getHeader(HttpHeaders.Names.USER_AGENT))) {
+            if (transport.settings().getAsBoolean("http.cors.enabled", true)) {
+                // Add support for cross-origin Ajax requests (CORS)
+                resp.addHeader("Access-Control-Allow-Origin", transport.settings().get("http.cors.allow-origin", "*"));
+                if (request.getMethod() == HttpMethod.OPTIONS) {
+                    // Allow Ajax requests based on the CORS "preflight" request
+                    resp.addHeader("Access-Control-Max-Age", transport.settings().getAsInt("http.cors.max-age", 1728000));
+                    resp.addHeader("Access-Control-Allow-Methods", transport.settings().get("http.cors.allow-methods", "OPTIONS, HEAD, GET, POST, PUT, DELETE"));
+                    resp.addHeader("Access-Control-Allow-Headers", transport.settings().get("http.cors.allow-headers", "X-Requested-With, Content-Type, Content-Length"));
+                }
+            }
+        }
+
+        String opaque = request.getHeader("X-Opaque-Id");
+        if (opaque != null) {
+            resp.addHeader("X-Opaque-Id", opaque);
+        }
+
         if (transport.resetCookies) {
             String cookieString = request.getHeader(HttpHeaders.Names.COOKIE);
             if (cookieString != null) {
@@ -153,13 +228,7 @@ public class NettyHttpChannel implements HttpChannel {
                 }
             }
         }
-
-        // Write the response.
-        ChannelFuture future = channel.write(resp);
-        // Close the connection after the write operation is done if necessary.
-        if (close) {
-            future.addListener(ChannelFutureListener.CLOSE);
-        }
+        return resp;
     }
 
     private HttpResponseStatus getStatus(RestStatus status) {
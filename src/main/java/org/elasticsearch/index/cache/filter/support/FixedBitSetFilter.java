@@ -0,0 +1,70 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.cache.filter.support;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.util.Bits;
+
+import java.io.IOException;
+
+/**
+ * Marks a filter whose cached {@link DocIdSet} must be a {@link org.apache.lucene.util.FixedBitSet}, for
+ * example the parent filter of block join queries. The filter cache never compresses those.
+ */
+public interface FixedBitSetFilter {
+
+    public static class Wrapper extends Filter implements FixedBitSetFilter {
+
+        private final Filter filter;
+
+        public Wrapper(Filter filter) {
+            this.filter = filter;
+        }
+
+        public Filter wrappedFilter() {
+            return filter;
+        }
+
+        @Override
+        public DocIdSet getDocIdSet(AtomicReaderContext context, Bits acceptDocs) throws IOException {
+            return filter.getDocIdSet(context, acceptDocs);
+        }
+
+        @Override
+        public int hashCode() {
+            return filter.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Wrapper)) {
+                return false;
+            }
+            return filter.equals(((Wrapper) obj).filter);
+        }
+
+        @Override
+        public String toString() {
+            return filter.toString();
+        }
+    }
+}
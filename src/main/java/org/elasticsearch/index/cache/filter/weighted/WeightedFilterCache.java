@@ -41,7 +41,9 @@ import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.index.AbstractIndexComponent;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.cache.filter.FilterCache;
+import org.elasticsearch.index.cache.filter.ShardFilterCache;
 import org.elasticsearch.index.cache.filter.support.CacheKeyFilter;
+import org.elasticsearch.index.cache.filter.support.FixedBitSetFilter;
 import org.elasticsearch.index.service.IndexService;
 import org.elasticsearch.index.settings.IndexSettings;
 import org.elasticsearch.index.shard.ShardId;
@@ -157,6 +159,24 @@ public class WeightedFilterCache extends AbstractIndexComponent implements Filte
 
             DocIdSet cacheValue = innerCache.getIfPresent(cacheKey);
             if (cacheValue == null) {
+                // we can't pass down acceptedDocs provided, because we are caching the result, and acceptedDocs
+                // might be specific to a query. We don't pass the live docs either because a cache built for a specific
+                // generation of a segment might be reused by an older generation which has fewer deleted documents
+                DocIdSet docIdSet = filter.getDocIdSet(context, null);
+                ShardFilterCache shardFilterCache = null;
+                ShardId shardId = ShardUtils.extractShardId(context.reader());
+                if (shardId != null) {
+                    IndexShard shard = cache.indexService.shard(shardId.id());
+                    if (shard != null) {
+                        shardFilterCache = shard.filterCache();
+                    }
+                }
+                if (!cache.indicesFilterCache.admit(cacheKey, filter, docIdSet, context.reader())) {
+                    if (shardFilterCache != null) {
+                        shardFilterCache.onRejected();
+                    }
+                    return DocIdSets.isEmpty(docIdSet) ? null : docIdSet;
+                }
                 if (!cache.seenReaders.containsKey(context.reader().getCoreCacheKey())) {
                     Boolean previous = cache.seenReaders.putIfAbsent(context.reader().getCoreCacheKey(), Boolean.TRUE);
                     if (previous == null) {
@@ -166,19 +186,14 @@ public class WeightedFilterCache extends AbstractIndexComponent implements Filte
                         }
                     }
                 }
-                // we can't pass down acceptedDocs provided, because we are caching the result, and acceptedDocs
-                // might be specific to a query. We don't pass the live docs either because a cache built for a specific
-                // generation of a segment might be reused by an older generation which has fewer deleted documents
-                cacheValue = DocIdSets.toCacheable(context.reader(), filter.getDocIdSet(context, null));
+                // filters that need a FixedBitSet (block join parent filters for example) are never compressed
+                boolean allowCompressed = !(filter instanceof FixedBitSetFilter);
+                cacheValue = DocIdSets.toCacheable(context.reader(), docIdSet, allowCompressed);
                 // we might put the same one concurrently, that's fine, it will be replaced and the removal
                 // will be called
-                ShardId shardId = ShardUtils.extractShardId(context.reader());
-                if (shardId != null) {
-                    IndexShard shard = cache.indexService.shard(shardId.id());
-                    if (shard != null) {
-                        cacheKey.removalListener = shard.filterCache();
-                        shard.filterCache().onCached(DocIdSets.sizeInBytes(cacheValue));
-                    }
+                if (shardFilterCache != null) {
+                    cacheKey.removalListener = shardFilterCache;
+                    shardFilterCache.onCached(DocIdSets.sizeInBytes(cacheValue));
                 }
                 innerCache.put(cacheKey, cacheValue);
             }
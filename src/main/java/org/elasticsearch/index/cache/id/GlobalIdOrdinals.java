@@ -0,0 +1,209 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.cache.id;
+
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.PriorityQueue;
+import org.apache.lucene.util.packed.AppendingLongBuffer;
+import org.apache.lucene.util.packed.PackedInts;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ordinals of the ids of a type that are shared by all the segments of a reader, so that parent and child documents
+ * living in different segments can be joined on a primitive ordinal instead of on the id bytes. The ordinals are
+ * in id order and are built by merging the sorted per segment ids of the {@link IdReaderTypeCache}s.
+ */
+public final class GlobalIdOrdinals {
+
+    private final String type;
+    private final Map<Object, Segment> segments;
+    private final IdReaderTypeCache[] typeCaches;
+    private final AppendingLongBuffer ordToSegment;
+    private final AppendingLongBuffer ordToSegmentOrd;
+    private final int numberOfOrds;
+
+    private GlobalIdOrdinals(String type, Map<Object, Segment> segments, IdReaderTypeCache[] typeCaches,
+                             AppendingLongBuffer ordToSegment, AppendingLongBuffer ordToSegmentOrd, int numberOfOrds) {
+        this.type = type;
+        this.segments = segments;
+        this.typeCaches = typeCaches;
+        this.ordToSegment = ordToSegment;
+        this.ordToSegmentOrd = ordToSegmentOrd;
+        this.numberOfOrds = numberOfOrds;
+    }
+
+    public String type() {
+        return type;
+    }
+
+    /**
+     * @return The number of distinct ids, ordinals range from <tt>0</tt> (inclusive) to this number (exclusive)
+     */
+    public int numberOfOrds() {
+        return numberOfOrds;
+    }
+
+    /**
+     * @return The ordinals of the specified segment, or <tt>null</tt> if the segment holds no ids of this type
+     */
+    public Segment segment(AtomicReader reader) {
+        return segments.get(reader.getCoreCacheKey());
+    }
+
+    /**
+     * @param ord The ordinal of the id to return
+     * @param spare A spare the id may be filled into by reference
+     * @return The id with the specified ordinal
+     */
+    public BytesRef idByOrd(int ord, BytesRef spare) {
+        return typeCaches[(int) ordToSegment.get(ord)].idByOrd((int) ordToSegmentOrd.get(ord), spare);
+    }
+
+    public long sizeInBytes() {
+        long sizeInBytes = ordToSegment.ramBytesUsed() + ordToSegmentOrd.ramBytesUsed();
+        for (Segment segment : segments.values()) {
+            sizeInBytes += segment.segmentToGlobalOrds.ramBytesUsed();
+        }
+        return sizeInBytes;
+    }
+
+    /**
+     * Builds the ordinals of the specified type over the segments of a reader. The id cache must have been
+     * refreshed with these segments.
+     */
+    public static GlobalIdOrdinals build(String type, IdCache idCache, List<AtomicReaderContext> leaves) {
+        IdReaderTypeCache[] typeCaches = new IdReaderTypeCache[leaves.size()];
+        long maxNumberOfOrds = 0;
+        for (int i = 0; i < leaves.size(); i++) {
+            IdReaderCache readerCache = idCache.reader(leaves.get(i).reader());
+            if (readerCache != null) {
+                typeCaches[i] = readerCache.type(type);
+                if (typeCaches[i] != null) {
+                    maxNumberOfOrds += typeCaches[i].numberOfOrds();
+                }
+            }
+        }
+
+        int bitsRequired = PackedInts.bitsRequired(maxNumberOfOrds);
+        PackedInts.Mutable[] segmentToGlobalOrds = new PackedInts.Mutable[leaves.size()];
+        CursorQueue queue = new CursorQueue(leaves.size());
+        for (int i = 0; i < leaves.size(); i++) {
+            if (typeCaches[i] != null && typeCaches[i].numberOfOrds() > 0) {
+                segmentToGlobalOrds[i] = PackedInts.getMutable(typeCaches[i].numberOfOrds(), bitsRequired, PackedInts.DEFAULT);
+                Cursor cursor = new Cursor(i, typeCaches[i]);
+                typeCaches[i].idByOrd(0, cursor.current);
+                queue.add(cursor);
+            }
+        }
+
+        AppendingLongBuffer ordToSegment = new AppendingLongBuffer();
+        AppendingLongBuffer ordToSegmentOrd = new AppendingLongBuffer();
+        BytesRef previous = new BytesRef();
+        int ord = -1;
+        while (queue.size() > 0) {
+            Cursor top = queue.top();
+            if (ord == -1 || !top.current.bytesEquals(previous)) {
+                ord++;
+                previous.copyBytes(top.current);
+                ordToSegment.add(top.segment);
+                ordToSegmentOrd.add(top.ord);
+            }
+            segmentToGlobalOrds[top.segment].set(top.ord, ord);
+            if (++top.ord < top.typeCache.numberOfOrds()) {
+                top.typeCache.idByOrd(top.ord, top.current);
+                queue.updateTop();
+            } else {
+                queue.pop();
+            }
+        }
+
+        Map<Object, Segment> segments = new HashMap<Object, Segment>();
+        for (int i = 0; i < leaves.size(); i++) {
+            if (segmentToGlobalOrds[i] != null) {
+                segments.put(leaves.get(i).reader().getCoreCacheKey(), new Segment(typeCaches[i], segmentToGlobalOrds[i]));
+            }
+        }
+        return new GlobalIdOrdinals(type, segments, typeCaches, ordToSegment, ordToSegmentOrd, ord + 1);
+    }
+
+    /**
+     * Translates the ordinals of the ids in a segment to global ordinals.
+     */
+    public static final class Segment {
+
+        private final IdReaderTypeCache typeCache;
+        private final PackedInts.Reader segmentToGlobalOrds;
+
+        Segment(IdReaderTypeCache typeCache, PackedInts.Reader segmentToGlobalOrds) {
+            this.typeCache = typeCache;
+            this.segmentToGlobalOrds = segmentToGlobalOrds;
+        }
+
+        /**
+         * @return The global ordinal of the _uid of the specified docId, or <tt>-1</tt> if the document isn't of this type
+         */
+        public int ordByDoc(int docId) {
+            int ord = typeCache.ordByDoc(docId);
+            return ord < 0 ? -1 : (int) segmentToGlobalOrds.get(ord);
+        }
+
+        /**
+         * @return The global ordinal of the parent _uid of the specified docId, or <tt>-1</tt> if it has no parent
+         */
+        public int parentOrdByDoc(int docId) {
+            int ord = typeCache.parentOrdByDoc(docId);
+            return ord < 0 ? -1 : (int) segmentToGlobalOrds.get(ord);
+        }
+    }
+
+    private static final class Cursor {
+
+        final int segment;
+        final IdReaderTypeCache typeCache;
+        final BytesRef current = new BytesRef();
+        int ord;
+
+        Cursor(int segment, IdReaderTypeCache typeCache) {
+            this.segment = segment;
+            this.typeCache = typeCache;
+        }
+    }
+
+    private static final class CursorQueue extends PriorityQueue<Cursor> {
+
+        CursorQueue(int maxSize) {
+            super(maxSize);
+        }
+
+        @Override
+        protected boolean lessThan(Cursor a, Cursor b) {
+            int cmp = a.current.compareTo(b.current);
+            if (cmp != 0) {
+                return cmp < 0;
+            }
+            return a.segment < b.segment;
+        }
+    }
+}
@@ -45,4 +45,10 @@ public interface IdCache extends IndexComponent, CloseableComponent, Iterable<Id
     void refresh(List<AtomicReaderContext> readers) throws IOException;
 
     IdReaderCache reader(AtomicReader reader);
+
+    /**
+     * Returns the ordinals of the ids of the specified type shared by all the specified segments, which must have
+     * been refreshed before.
+     */
+    GlobalIdOrdinals globalOrdinals(String type, List<AtomicReaderContext> readers) throws IOException;
 }
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.index.cache.id;
 
+import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.common.bytes.HashedBytesArray;
 
 /**
@@ -44,6 +45,30 @@ public interface IdReaderTypeCache {
      */
     HashedBytesArray idByDoc(int docId);
 
+    /**
+     * @param docId The Lucene docId of the child document to return the parent _uid ordinal for.
+     * @return The ordinal of the parent _uid for the specified docId, or <tt>-1</tt> if it has no parent
+     */
+    int parentOrdByDoc(int docId);
+
+    /**
+     * @param docId The lucene docId of the document to return the _uid ordinal for
+     * @return The ordinal of the _uid of the specified docId, or <tt>-1</tt> if the document isn't of this type
+     */
+    int ordByDoc(int docId);
+
+    /**
+     * @return The number of distinct ids, ordinals range from <tt>0</tt> (inclusive) to this number (exclusive) in id order
+     */
+    int numberOfOrds();
+
+    /**
+     * @param ord The ordinal of the id to return
+     * @param spare A spare the id may be filled into by reference
+     * @return The id with the specified ordinal
+     */
+    BytesRef idByOrd(int ord, BytesRef spare);
+
     /**
      * @return The size in bytes for this particular instance
      */
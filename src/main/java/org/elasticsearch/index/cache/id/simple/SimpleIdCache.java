@@ -19,9 +19,13 @@
 
 package org.elasticsearch.index.cache.id.simple;
 
-import com.carrotsearch.hppc.ObjectIntOpenHashMap;
 import org.apache.lucene.index.*;
 import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefHash;
+import org.apache.lucene.util.PagedBytes;
+import org.apache.lucene.util.packed.GrowableWriter;
+import org.apache.lucene.util.packed.MonotonicAppendingLongBuffer;
+import org.apache.lucene.util.packed.PackedInts;
 import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.bytes.HashedBytesArray;
@@ -32,6 +36,7 @@ import org.elasticsearch.common.text.UTF8SortedAsUnicodeComparator;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.index.AbstractIndexComponent;
 import org.elasticsearch.index.Index;
+import org.elasticsearch.index.cache.id.GlobalIdOrdinals;
 import org.elasticsearch.index.cache.id.IdCache;
 import org.elasticsearch.index.cache.id.IdReaderCache;
 import org.elasticsearch.index.mapper.Uid;
@@ -39,6 +44,7 @@ import org.elasticsearch.index.mapper.internal.ParentFieldMapper;
 import org.elasticsearch.index.mapper.internal.UidFieldMapper;
 import org.elasticsearch.index.service.IndexService;
 import org.elasticsearch.index.settings.IndexSettings;
+import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.ShardUtils;
 import org.elasticsearch.index.shard.service.IndexShard;
 
@@ -52,7 +58,7 @@ import java.util.concurrent.ConcurrentMap;
 public class SimpleIdCache extends AbstractIndexComponent implements IdCache, SegmentReader.CoreClosedListener {
 
     private final ConcurrentMap<Object, SimpleIdReaderCache> idReaders;
-    private final boolean reuse;
+    private final ConcurrentMap<GlobalOrdinalsKey, GlobalIdOrdinals> globalOrdinals;
 
     IndexService indexService;
 
@@ -60,7 +66,7 @@ public class SimpleIdCache extends AbstractIndexComponent implements IdCache, Se
     public SimpleIdCache(Index index, @IndexSettings Settings indexSettings) {
         super(index, indexSettings);
         idReaders = ConcurrentCollections.newConcurrentMap();
-        this.reuse = componentSettings.getAsBoolean("reuse", false);
+        globalOrdinals = ConcurrentCollections.newConcurrentMap();
     }
 
     @Override
@@ -80,6 +86,11 @@ public class SimpleIdCache extends AbstractIndexComponent implements IdCache, Se
             it.remove();
             onRemoval(idReaderCache);
         }
+        for (Iterator<Map.Entry<GlobalOrdinalsKey, GlobalIdOrdinals>> it = globalOrdinals.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<GlobalOrdinalsKey, GlobalIdOrdinals> entry = it.next();
+            it.remove();
+            onRemoval(entry.getKey().shardId, entry.getValue().sizeInBytes());
+        }
     }
 
     @Override
@@ -91,6 +102,14 @@ public class SimpleIdCache extends AbstractIndexComponent implements IdCache, Se
     public void clear(IndexReader reader) {
         SimpleIdReaderCache removed = idReaders.remove(reader.getCoreCacheKey());
         if (removed != null) onRemoval(removed);
+        // the global ordinals spanning the segment can't be used anymore either
+        for (Iterator<Map.Entry<GlobalOrdinalsKey, GlobalIdOrdinals>> it = globalOrdinals.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<GlobalOrdinalsKey, GlobalIdOrdinals> entry = it.next();
+            if (entry.getKey().readerKeys.contains(reader.getCoreCacheKey())) {
+                it.remove();
+                onRemoval(entry.getKey().shardId, entry.getValue().sizeInBytes());
+            }
+        }
     }
 
     @Override
@@ -98,6 +117,32 @@ public class SimpleIdCache extends AbstractIndexComponent implements IdCache, Se
         return idReaders.get(reader.getCoreCacheKey());
     }
 
+    @Override
+    public GlobalIdOrdinals globalOrdinals(String type, List<AtomicReaderContext> atomicReaderContexts) throws IOException {
+        GlobalOrdinalsKey key = new GlobalOrdinalsKey(type, atomicReaderContexts);
+        GlobalIdOrdinals ordinals = globalOrdinals.get(key);
+        if (ordinals == null) {
+            synchronized (globalOrdinals) {
+                ordinals = globalOrdinals.get(key);
+                if (ordinals == null) {
+                    ordinals = GlobalIdOrdinals.build(type, this, atomicReaderContexts);
+                    // the segments of the superseded reader usually stay open (they are part of the new one as
+                    // well), so the ordinals built for it would never be cleared, keep only the latest per shard
+                    for (Iterator<Map.Entry<GlobalOrdinalsKey, GlobalIdOrdinals>> it = globalOrdinals.entrySet().iterator(); it.hasNext(); ) {
+                        Map.Entry<GlobalOrdinalsKey, GlobalIdOrdinals> entry = it.next();
+                        if (entry.getKey().sameShardAndType(key)) {
+                            it.remove();
+                            onRemoval(entry.getKey().shardId, entry.getValue().sizeInBytes());
+                        }
+                    }
+                    globalOrdinals.put(key, ordinals);
+                    onCached(key.shardId, ordinals.sizeInBytes());
+                }
+            }
+        }
+        return ordinals;
+    }
+
     @SuppressWarnings({"unchecked"})
     @Override
     public Iterator<IdReaderCache> iterator() {
@@ -178,11 +223,13 @@ public class SimpleIdCache extends AbstractIndexComponent implements IdCache, Se
                                 readerBuilder.put(type, typeBuilder);
                             }
 
-                            HashedBytesArray idAsBytes = checkIfCanReuse(builders, typeAndId[1]);
+                            int id = -1;
                             docsEnum = termsEnum.docs(null, docsEnum, 0);
                             for (int docId = docsEnum.nextDoc(); docId != DocsEnum.NO_MORE_DOCS; docId = docsEnum.nextDoc()) {
-                                typeBuilder.idToDoc.put(idAsBytes, docId);
-                                typeBuilder.docToId[docId] = idAsBytes;
+                                if (id == -1) {
+                                    id = typeBuilder.id(typeAndId[1].toBytesRef());
+                                }
+                                typeBuilder.docToId.set(docId, id + 1);
                             }
                         }
                     }
@@ -212,20 +259,13 @@ public class SimpleIdCache extends AbstractIndexComponent implements IdCache, Se
                                 readerBuilder.put(typeAndId[0].toUtf8(), typeBuilder);
                             }
 
-                            HashedBytesArray idAsBytes = checkIfCanReuse(builders, typeAndId[1]);
-                            boolean added = false; // optimize for when all the docs are deleted for this id
-
+                            int id = -1; // optimize for when all the docs are deleted for this id
                             docsEnum = termsEnum.docs(null, docsEnum, 0);
                             for (int docId = docsEnum.nextDoc(); docId != DocsEnum.NO_MORE_DOCS; docId = docsEnum.nextDoc()) {
-                                if (!added) {
-                                    typeBuilder.parentIdsValues.add(idAsBytes);
-                                    added = true;
+                                if (id == -1) {
+                                    id = typeBuilder.id(typeAndId[1].toBytesRef());
                                 }
-                                typeBuilder.parentIdsOrdinals[docId] = typeBuilder.t;
-                            }
-
-                            if (added) {
-                                typeBuilder.t++;
+                                typeBuilder.parentIds.set(docId, id + 1);
                             }
                         }
                     }
@@ -237,11 +277,7 @@ public class SimpleIdCache extends AbstractIndexComponent implements IdCache, Se
                     Object readerKey = entry.getKey();
                     MapBuilder<String, SimpleIdReaderTypeCache> types = MapBuilder.newMapBuilder();
                     for (Map.Entry<String, TypeBuilder> typeBuilderEntry : entry.getValue().entrySet()) {
-                        types.put(typeBuilderEntry.getKey(), new SimpleIdReaderTypeCache(typeBuilderEntry.getKey(),
-                                typeBuilderEntry.getValue().idToDoc,
-                                typeBuilderEntry.getValue().docToId,
-                                typeBuilderEntry.getValue().parentIdsValues.toArray(new HashedBytesArray[typeBuilderEntry.getValue().parentIdsValues.size()]),
-                                typeBuilderEntry.getValue().parentIdsOrdinals));
+                        types.put(typeBuilderEntry.getKey(), typeBuilderEntry.getValue().build(typeBuilderEntry.getKey()));
                     }
                     IndexReader indexReader = cacheToReader.get(readerKey);
                     SimpleIdReaderCache readerCache = new SimpleIdReaderCache(types.immutableMap(), ShardUtils.extractShardId(indexReader));
@@ -253,44 +289,29 @@ public class SimpleIdCache extends AbstractIndexComponent implements IdCache, Se
     }
 
     void onCached(SimpleIdReaderCache readerCache) {
-        if (readerCache.shardId != null) {
-            IndexShard shard = indexService.shard(readerCache.shardId.id());
+        onCached(readerCache.shardId, readerCache.sizeInBytes());
+    }
+
+    void onCached(ShardId shardId, long sizeInBytes) {
+        if (shardId != null) {
+            IndexShard shard = indexService.shard(shardId.id());
             if (shard != null) {
-                shard.idCache().onCached(readerCache.sizeInBytes());
+                shard.idCache().onCached(sizeInBytes);
             }
         }
     }
 
     void onRemoval(SimpleIdReaderCache readerCache) {
-        if (readerCache.shardId != null) {
-            IndexShard shard = indexService.shard(readerCache.shardId.id());
-            if (shard != null) {
-                shard.idCache().onRemoval(readerCache.sizeInBytes());
-            }
-        }
+        onRemoval(readerCache.shardId, readerCache.sizeInBytes());
     }
 
-    private HashedBytesArray checkIfCanReuse(Map<Object, Map<String, TypeBuilder>> builders, HashedBytesArray idAsBytes) {
-        HashedBytesArray finalIdAsBytes;
-        // go over and see if we can reuse this id
-        if (reuse) {
-            for (SimpleIdReaderCache idReaderCache : idReaders.values()) {
-                finalIdAsBytes = idReaderCache.canReuse(idAsBytes);
-                if (finalIdAsBytes != null) {
-                    return finalIdAsBytes;
-                }
-            }
-        }
-        // even if we don't enable reuse, at least check on the current "live" builders that we are handling
-        for (Map<String, TypeBuilder> map : builders.values()) {
-            for (TypeBuilder typeBuilder : map.values()) {
-                finalIdAsBytes = typeBuilder.canReuse(idAsBytes);
-                if (finalIdAsBytes != null) {
-                    return finalIdAsBytes;
-                }
+    void onRemoval(ShardId shardId, long sizeInBytes) {
+        if (shardId != null) {
+            IndexShard shard = indexService.shard(shardId.id());
+            if (shard != null) {
+                shard.idCache().onRemoval(sizeInBytes);
             }
         }
-        return idAsBytes;
     }
 
     private boolean refreshNeeded(List<AtomicReaderContext> atomicReaderContexts) {
@@ -303,28 +324,95 @@ public class SimpleIdCache extends AbstractIndexComponent implements IdCache, Se
     }
 
     static class TypeBuilder {
-        final ObjectIntOpenHashMap<HashedBytesArray> idToDoc = new ObjectIntOpenHashMap<HashedBytesArray>();
-        final HashedBytesArray[] docToId;
-        final ArrayList<HashedBytesArray> parentIdsValues = new ArrayList<HashedBytesArray>();
-        final int[] parentIdsOrdinals;
-        int t = 1;  // current term number (0 indicated null value)
+        final BytesRefHash ids = new BytesRefHash();
+        // id + 1 per doc, 0 indicates no value
+        final GrowableWriter docToId;
+        final GrowableWriter parentIds;
 
         TypeBuilder(IndexReader reader) {
-            parentIdsOrdinals = new int[reader.maxDoc()];
-            // the first one indicates null value
-            parentIdsValues.add(null);
-            docToId = new HashedBytesArray[reader.maxDoc()];
+            docToId = new GrowableWriter(1, reader.maxDoc(), PackedInts.FAST);
+            parentIds = new GrowableWriter(1, reader.maxDoc(), PackedInts.FAST);
+        }
+
+        /**
+         * Returns the id assigned to the specified id bytes, adding them if they are new.
+         */
+        int id(BytesRef idAsBytes) {
+            int id = ids.add(idAsBytes);
+            return id < 0 ? -id - 1 : id;
         }
 
         /**
-         * Returns an already stored instance if exists, if not, returns null;
+         * Stores the ids once in id order, and the docs by ordinal of their id.
          */
-        public HashedBytesArray canReuse(HashedBytesArray id) {
-            if (idToDoc.containsKey(id)) {
-                return idToDoc.lkey();
-            } else {
-                return id;
+        SimpleIdReaderTypeCache build(String type) {
+            int numberOfOrds = ids.size();
+            int[] sortedIds = ids.sort(BytesRef.getUTF8SortedAsUnicodeComparator());
+            int[] idToOrd = new int[numberOfOrds];
+            PagedBytes bytes = new PagedBytes(15);
+            MonotonicAppendingLongBuffer idOffsets = new MonotonicAppendingLongBuffer();
+            BytesRef spare = new BytesRef();
+            for (int ord = 0; ord < numberOfOrds; ord++) {
+                idToOrd[sortedIds[ord]] = ord;
+                idOffsets.add(bytes.copyUsingLengthPrefix(ids.get(sortedIds[ord], spare)));
             }
+            long idsSizeInBytes = bytes.getPointer();
+            PagedBytes.Reader idsReader = bytes.freeze(true);
+
+            int maxDoc = docToId.size();
+            int bitsRequired = PackedInts.bitsRequired(numberOfOrds);
+            PackedInts.Mutable docToOrd = PackedInts.getMutable(maxDoc, bitsRequired, PackedInts.DEFAULT);
+            PackedInts.Mutable parentOrds = PackedInts.getMutable(maxDoc, bitsRequired, PackedInts.DEFAULT);
+            PackedInts.Mutable ordToDoc = PackedInts.getMutable(numberOfOrds, PackedInts.bitsRequired(maxDoc), PackedInts.DEFAULT);
+            for (int docId = 0; docId < maxDoc; docId++) {
+                int id = (int) docToId.get(docId);
+                if (id != 0) {
+                    int ord = idToOrd[id - 1];
+                    docToOrd.set(docId, ord + 1);
+                    ordToDoc.set(ord, docId + 1);
+                }
+                int parentId = (int) parentIds.get(docId);
+                if (parentId != 0) {
+                    parentOrds.set(docId, idToOrd[parentId - 1] + 1);
+                }
+            }
+            return new SimpleIdReaderTypeCache(type, idsReader, idsSizeInBytes, idOffsets, docToOrd, parentOrds, ordToDoc);
+        }
+    }
+
+    static final class GlobalOrdinalsKey {
+        final String type;
+        final List<Object> readerKeys;
+        final ShardId shardId;
+
+        GlobalOrdinalsKey(String type, List<AtomicReaderContext> atomicReaderContexts) {
+            this.type = type;
+            this.readerKeys = new ArrayList<Object>(atomicReaderContexts.size());
+            for (AtomicReaderContext context : atomicReaderContexts) {
+                readerKeys.add(context.reader().getCoreCacheKey());
+            }
+            this.shardId = atomicReaderContexts.isEmpty() ? null : ShardUtils.extractShardId(atomicReaderContexts.get(0).reader());
+        }
+
+        boolean sameShardAndType(GlobalOrdinalsKey other) {
+            return type.equals(other.type) && (shardId == null ? other.shardId == null : shardId.equals(other.shardId));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            GlobalOrdinalsKey that = (GlobalOrdinalsKey) o;
+            return type.equals(that.type) && readerKeys.equals(that.readerKeys);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * type.hashCode() + readerKeys.hashCode();
         }
     }
 }
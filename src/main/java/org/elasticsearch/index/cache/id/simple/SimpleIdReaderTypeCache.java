@@ -19,35 +19,49 @@
 
 package org.elasticsearch.index.cache.id.simple;
 
-import com.carrotsearch.hppc.ObjectIntOpenHashMap;
-import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.PagedBytes;
+import org.apache.lucene.util.packed.MonotonicAppendingLongBuffer;
+import org.apache.lucene.util.packed.PackedInts;
 import org.elasticsearch.common.bytes.HashedBytesArray;
 import org.elasticsearch.index.cache.id.IdReaderTypeCache;
 
+import java.util.Arrays;
+
 /**
- *
+ * Holds the ids of a type in a segment once, sorted, in a paged bytes dictionary. Documents of the type and child
+ * documents pointing to the type refer to their ids by ordinal in packed arrays.
  */
 public class SimpleIdReaderTypeCache implements IdReaderTypeCache {
 
     private final String type;
 
-    private final ObjectIntOpenHashMap<HashedBytesArray> idToDoc;
+    private final PagedBytes.Reader ids;
+
+    private final long idsSizeInBytes;
 
-    private final HashedBytesArray[] docIdToId;
+    private final MonotonicAppendingLongBuffer idOffsets;
 
-    private final HashedBytesArray[] parentIdsValues;
+    // ordinal + 1 per doc, 0 if the doc isn't of this type
+    private final PackedInts.Reader docToOrd;
 
-    private final int[] parentIdsOrdinals;
+    // parent ordinal + 1 per doc, 0 if the doc has no parent of this type
+    private final PackedInts.Reader parentOrds;
+
+    // doc + 1 per ordinal, 0 if no doc has the id
+    private final PackedInts.Reader ordToDoc;
 
     private long sizeInBytes = -1;
 
-    public SimpleIdReaderTypeCache(String type, ObjectIntOpenHashMap<HashedBytesArray> idToDoc, HashedBytesArray[] docIdToId,
-                                   HashedBytesArray[] parentIdsValues, int[] parentIdsOrdinals) {
+    public SimpleIdReaderTypeCache(String type, PagedBytes.Reader ids, long idsSizeInBytes, MonotonicAppendingLongBuffer idOffsets,
+                                   PackedInts.Reader docToOrd, PackedInts.Reader parentOrds, PackedInts.Reader ordToDoc) {
         this.type = type;
-        this.idToDoc = idToDoc;
-        this.docIdToId = docIdToId;
-        this.parentIdsValues = parentIdsValues;
-        this.parentIdsOrdinals = parentIdsOrdinals;
+        this.ids = ids;
+        this.idsSizeInBytes = idsSizeInBytes;
+        this.idOffsets = idOffsets;
+        this.docToOrd = docToOrd;
+        this.parentOrds = parentOrds;
+        this.ordToDoc = ordToDoc;
     }
 
     public String type() {
@@ -55,19 +69,40 @@ public class SimpleIdReaderTypeCache implements IdReaderTypeCache {
     }
 
     public HashedBytesArray parentIdByDoc(int docId) {
-        return parentIdsValues[parentIdsOrdinals[docId]];
+        return idByOrd(parentOrdByDoc(docId));
     }
 
     public int docById(HashedBytesArray uid) {
-        if (idToDoc.containsKey(uid)) {
-            return idToDoc.lget();
-        } else {
+        int ord = ordById(uid.toBytesRef());
+        if (ord < 0) {
             return -1;
         }
+        return (int) ordToDoc.get(ord) - 1;
     }
 
     public HashedBytesArray idByDoc(int docId) {
-        return docIdToId[docId];
+        return idByOrd(ordByDoc(docId));
+    }
+
+    @Override
+    public int parentOrdByDoc(int docId) {
+        return (int) parentOrds.get(docId) - 1;
+    }
+
+    @Override
+    public int ordByDoc(int docId) {
+        return (int) docToOrd.get(docId) - 1;
+    }
+
+    @Override
+    public int numberOfOrds() {
+        return ordToDoc.size();
+    }
+
+    @Override
+    public BytesRef idByOrd(int ord, BytesRef spare) {
+        ids.fill(spare, idOffsets.get(ord));
+        return spare;
     }
 
     public long sizeInBytes() {
@@ -77,48 +112,37 @@ public class SimpleIdReaderTypeCache implements IdReaderTypeCache {
         return sizeInBytes;
     }
 
-    /**
-     * Returns an already stored instance if exists, if not, returns null;
-     */
-    public HashedBytesArray canReuse(HashedBytesArray id) {
-        if (idToDoc.containsKey(id)) {
-            return idToDoc.lkey();
-        } else {
-            return id;
+    private HashedBytesArray idByOrd(int ord) {
+        if (ord < 0) {
+            return null;
         }
+        BytesRef id = idByOrd(ord, new BytesRef());
+        return new HashedBytesArray(Arrays.copyOfRange(id.bytes, id.offset, id.offset + id.length));
     }
 
-    long computeSizeInBytes() {
-        long sizeInBytes = 0;
-        // Ignore type field
-        //  sizeInBytes += ((type.length() * RamUsage.NUM_BYTES_CHAR) + (3 * RamUsage.NUM_BYTES_INT)) + RamUsage.NUM_BYTES_OBJECT_HEADER;
-        sizeInBytes += RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + (idToDoc.values.length * RamUsageEstimator.NUM_BYTES_INT);
-        sizeInBytes += RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + (idToDoc.allocated.length);
-        final boolean[] states = idToDoc.allocated;
-        final Object[] keys = idToDoc.keys;
-        for (int i = 0; i < states.length; i++) {
-            if (states[i]) {
-                HashedBytesArray bytesArray = (HashedBytesArray) keys[i];
-                if (bytesArray != null) {
-                    sizeInBytes += RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + (bytesArray.length() + RamUsageEstimator.NUM_BYTES_INT);
-                } else {
-                    sizeInBytes += RamUsageEstimator.NUM_BYTES_OBJECT_REF;
-                }
-            }
-        }
-
-        // The docIdToId array contains references to idToDoc for this segment or other segments, so we can use OBJECT_REF
-        sizeInBytes += RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + (RamUsageEstimator.NUM_BYTES_OBJECT_REF * docIdToId.length);
-        for (HashedBytesArray bytesArray : parentIdsValues) {
-            if (bytesArray == null) {
-                sizeInBytes += RamUsageEstimator.NUM_BYTES_OBJECT_REF;
+    /**
+     * Returns the ordinal of the specified id, or <tt>-1</tt> if this type doesn't hold it.
+     */
+    private int ordById(BytesRef id) {
+        BytesRef spare = new BytesRef();
+        int low = 0;
+        int high = numberOfOrds() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = idByOrd(mid, spare).compareTo(id);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
             } else {
-                sizeInBytes += RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + (bytesArray.length() + RamUsageEstimator.NUM_BYTES_INT);
+                return mid;
             }
         }
-        sizeInBytes += RamUsageEstimator.sizeOf(parentIdsOrdinals);
+        return -1;
+    }
 
-        return sizeInBytes;
+    long computeSizeInBytes() {
+        return idsSizeInBytes + idOffsets.ramBytesUsed() + docToOrd.ramBytesUsed() + parentOrds.ramBytesUsed() + ordToDoc.ramBytesUsed();
     }
 
 }
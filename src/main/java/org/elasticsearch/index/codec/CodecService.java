@@ -26,6 +26,8 @@ import org.elasticsearch.common.collect.MapBuilder;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.ImmutableSettings;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.index.AbstractIndexComponent;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.codec.docvaluesformat.DocValuesFormatService;
@@ -44,6 +46,9 @@ import org.elasticsearch.index.settings.IndexSettings;
  */
 public class CodecService extends AbstractIndexComponent {
 
+    public static final String STORED_FIELDS_COMPRESSION = "index.codec.stored_fields.compression";
+    public static final String STORED_FIELDS_BLOCK_SIZE = "index.codec.stored_fields.block_size";
+
     private final PostingsFormatService postingsFormatService;
     private final DocValuesFormatService docValuesFormatService;
     private final MapperService mapperService;
@@ -65,11 +70,22 @@ public class CodecService extends AbstractIndexComponent {
         this.docValuesFormatService = docValuesFormatService;
         this.mapperService = mapperService;
         MapBuilder<String, Codec> codecs = MapBuilder.<String, Codec>newMapBuilder();
+        Codec defaultCodec;
         if (mapperService == null) {
-            codecs.put("default", Codec.getDefault());
+            defaultCodec = Codec.getDefault();
         } else {
-            codecs.put("default", new PerFieldMappingPostingFormatCodec(mapperService, postingsFormatService.get("default").get(), docValuesFormatService.get("default").get(), logger));
+            defaultCodec = new PerFieldMappingPostingFormatCodec(mapperService, postingsFormatService.get("default").get(), docValuesFormatService.get("default").get(), logger);
+        }
+        StoredFieldsCompressionCodec.Compression storedFieldsCompression = StoredFieldsCompressionCodec.Compression.fromString(indexSettings.get(STORED_FIELDS_COMPRESSION, "fast"));
+        ByteSizeValue storedFieldsBlockSize = indexSettings.getAsBytesSize(STORED_FIELDS_BLOCK_SIZE, new ByteSizeValue(StoredFieldsCompressionCodec.DEFAULT_BLOCK_SIZE, ByteSizeUnit.BYTES));
+        if (storedFieldsBlockSize.bytes() <= 0 || storedFieldsBlockSize.bytes() > Integer.MAX_VALUE) {
+            throw new ElasticSearchIllegalArgumentException("[" + STORED_FIELDS_BLOCK_SIZE + "] must be positive and below 2gb, got [" + storedFieldsBlockSize + "]");
+        }
+        if (storedFieldsCompression != StoredFieldsCompressionCodec.Compression.FAST || storedFieldsBlockSize.bytes() != StoredFieldsCompressionCodec.DEFAULT_BLOCK_SIZE) {
+            logger.debug("using [{}] stored fields compression with blocks of [{}]", storedFieldsCompression, storedFieldsBlockSize);
+            defaultCodec = new StoredFieldsCompressionCodec(defaultCodec, storedFieldsCompression, (int) storedFieldsBlockSize.bytes());
         }
+        codecs.put("default", defaultCodec);
         for (String codec : Codec.availableCodecs()) {
             codecs.put(codec, Codec.forName(codec));
         }
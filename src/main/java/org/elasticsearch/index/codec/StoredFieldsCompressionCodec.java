@@ -0,0 +1,94 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.codec;
+
+import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.codecs.FilterCodec;
+import org.apache.lucene.codecs.StoredFieldsFormat;
+import org.apache.lucene.codecs.compressing.CompressingStoredFieldsFormat;
+import org.apache.lucene.codecs.compressing.CompressionMode;
+import org.apache.lucene.codecs.lucene45.Lucene45Codec;
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
+
+/**
+ * A codec that compresses stored fields, and with them the <tt>_source</tt>, in blocks of several
+ * documents of a configurable size. The bigger the blocks the better small and repetitive documents
+ * compress, at the cost of decompressing more documents to fetch a single one.
+ * <p/>
+ * With {@link Compression#FAST} the blocks are compressed with LZ4 and written in the exact same
+ * format the default codec reads, only the block size differs. With {@link Compression#HIGH} the
+ * blocks are compressed with deflate and segments are written under this codec's name, which is
+ * registered so that they can be read back.
+ */
+// LUCENE UPGRADE: the delegate used to read segments must stay the codec they were written with
+public class StoredFieldsCompressionCodec extends FilterCodec {
+
+    public static final String HIGH_COMPRESSION_NAME = "es100HighCompression";
+
+    /**
+     * The default block size, in bytes, matching the block size of the default codec.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 14;
+
+    public static enum Compression {
+        /**
+         * LZ4, fast to compress and decompress.
+         */
+        FAST,
+        /**
+         * Deflate, slower but compressing better.
+         */
+        HIGH;
+
+        public static Compression fromString(String compression) {
+            if ("fast".equals(compression)) {
+                return FAST;
+            } else if ("high".equals(compression)) {
+                return HIGH;
+            }
+            throw new ElasticSearchIllegalArgumentException("No stored fields compression for [" + compression + "]");
+        }
+    }
+
+    private final StoredFieldsFormat storedFieldsFormat;
+
+    /**
+     * Used to read segments written with high compression.
+     */
+    public StoredFieldsCompressionCodec() {
+        // we can't lookup the delegate by name here, since this is called while loading the codecs
+        this(new Lucene45Codec(), Compression.HIGH, DEFAULT_BLOCK_SIZE);
+    }
+
+    public StoredFieldsCompressionCodec(Codec delegate, Compression compression, int blockSize) {
+        super(compression == Compression.HIGH ? HIGH_COMPRESSION_NAME : delegate.getName(), delegate);
+        if (compression == Compression.HIGH) {
+            this.storedFieldsFormat = new CompressingStoredFieldsFormat(HIGH_COMPRESSION_NAME + "StoredFields", CompressionMode.HIGH_COMPRESSION, blockSize);
+        } else {
+            // same format name as the default stored fields format, the block size is not needed to read the blocks
+            this.storedFieldsFormat = new CompressingStoredFieldsFormat("Lucene41StoredFields", CompressionMode.FAST, blockSize);
+        }
+    }
+
+    @Override
+    public StoredFieldsFormat storedFieldsFormat() {
+        return storedFieldsFormat;
+    }
+}
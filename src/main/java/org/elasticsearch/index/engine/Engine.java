@@ -61,6 +61,18 @@ public interface Engine extends IndexShardComponent, CloseableComponent {
 
     void updateIndexingBufferSize(ByteSizeValue indexingBufferSize);
 
+    /**
+     * Returns how many bytes of the indexing buffer are currently used by buffered documents and deletes,
+     * <tt>0</tt> if the engine is not started.
+     */
+    long indexingBufferRamUsed();
+
+    /**
+     * Writes the buffered documents and deletes to new segments, freeing the indexing buffer. Unlike a refresh
+     * the changes do not become visible to search, and unlike a flush nothing is committed.
+     */
+    void writeIndexingBuffer() throws EngineException;
+
     void addFailedEngineListener(FailedEngineListener listener);
 
     /**
@@ -75,12 +87,22 @@ public interface Engine extends IndexShardComponent, CloseableComponent {
 
     void index(Index index) throws EngineException;
 
+    /**
+     * Applies several create and index operations in one go, see {@link Bulk}.
+     */
+    void bulk(Bulk bulk) throws EngineException;
+
     void delete(Delete delete) throws EngineException;
 
     void delete(DeleteByQuery delete) throws EngineException;
 
     GetResult get(Get get) throws EngineException;
 
+    /**
+     * Executes several gets in one go, resolving the ones not served in realtime with a single searcher, see {@link MultiGet}.
+     */
+    void multiGet(MultiGet multiGet) throws EngineException;
+
     /**
      * Returns a new searcher instance. The consumer of this
      * API is responsible for releasing the returned seacher in a
@@ -97,6 +119,12 @@ public interface Engine extends IndexShardComponent, CloseableComponent {
      */
     boolean refreshNeeded();
 
+    /**
+     * Returns for how long changes have been waiting for a refresh to become visible to searches,
+     * <tt>0</tt> if there are none.
+     */
+    TimeValue refreshStaleness();
+
     /**
      * Returns <tt>true</tt> if a possible merge is really needed.
      */
@@ -365,6 +393,8 @@ public interface Engine extends IndexShardComponent, CloseableComponent {
 
     static interface IndexingOperation extends Operation {
 
+        Term uid();
+
         ParsedDocument parsedDoc();
 
         List<Document> docs();
@@ -641,6 +671,35 @@ public interface Engine extends IndexShardComponent, CloseableComponent {
         }
     }
 
+    /**
+     * Create and index operations applied together, in order. Each operation succeeds or fails on its own, a failed
+     * operation doesn't prevent the following ones from being applied. <tt>null</tt> operations are skipped.
+     */
+    static class Bulk {
+        private final IndexingOperation[] ops;
+        private final EngineException[] failures;
+
+        public Bulk(IndexingOperation[] ops) {
+            this.ops = ops;
+            this.failures = new EngineException[ops.length];
+        }
+
+        public IndexingOperation[] ops() {
+            return this.ops;
+        }
+
+        /**
+         * The failure of the operation at the given position, <tt>null</tt> if it succeeded (or was skipped).
+         */
+        public EngineException failure(int i) {
+            return failures[i];
+        }
+
+        public void failure(int i, EngineException failure) {
+            failures[i] = failure;
+        }
+    }
+
     static class Delete implements Operation {
         private final String type;
         private final String id;
@@ -873,6 +932,44 @@ public interface Engine extends IndexShardComponent, CloseableComponent {
         }
     }
 
+    static class MultiGet {
+        private final Get[] gets;
+        private final GetResult[] results;
+        private final EngineException[] failures;
+
+        public MultiGet(Get[] gets) {
+            this.gets = gets;
+            this.results = new GetResult[gets.length];
+            this.failures = new EngineException[gets.length];
+        }
+
+        public Get[] gets() {
+            return this.gets;
+        }
+
+        /**
+         * The result of the get at the given position, <tt>null</tt> if it failed. Each result must be released.
+         */
+        public GetResult result(int i) {
+            return results[i];
+        }
+
+        public void result(int i, GetResult result) {
+            results[i] = result;
+        }
+
+        /**
+         * The failure of the get at the given position, <tt>null</tt> if it succeeded.
+         */
+        public EngineException failure(int i) {
+            return failures[i];
+        }
+
+        public void failure(int i, EngineException failure) {
+            failures[i] = failure;
+        }
+    }
+
     static class GetResult {
         private final boolean exists;
         private final long version;
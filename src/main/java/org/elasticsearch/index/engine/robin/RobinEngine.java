@@ -19,7 +19,10 @@
 
 package org.elasticsearch.index.engine.robin;
 
+import com.carrotsearch.hppc.IntArrayList;
 import com.google.common.collect.Lists;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
 import org.apache.lucene.index.*;
 import org.apache.lucene.index.IndexWriter.IndexReaderWarmer;
 import org.apache.lucene.search.IndexSearcher;
@@ -27,6 +30,7 @@ import org.apache.lucene.search.Query;
 import org.apache.lucene.search.SearcherFactory;
 import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.LockObtainFailedException;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.IOUtils;
@@ -118,7 +122,10 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
 
     private final ReadWriteLock rwl = new ReentrantReadWriteLock();
 
-    private volatile IndexWriter indexWriter;
+    // incremented whenever entries are pruned from the version map, see BulkVersions
+    private final AtomicLong versionMapPruned = new AtomicLong();
+
+    private volatile RobinIndexWriter indexWriter;
 
     private final SearcherFactory searcherFactory = new RobinSearchFactory();
     private volatile SearcherManager searcherManager;
@@ -127,6 +134,8 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
 
     // flag indicating if a dirty operation has occurred since the last refresh
     private volatile boolean dirty = false;
+    // when the oldest change not visible to searches yet happened, -1 if not dirty
+    private final AtomicLong dirtySince = new AtomicLong(-1);
 
     private volatile boolean possibleMergeNeeded = false;
 
@@ -146,6 +155,9 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
 
     private final Object[] dirtyLocks;
 
+    // bounds the number of operations (and so of dirty locks) a bulk applies at once
+    private static final int MAX_BULK_GROUP_SIZE = 64;
+
     private final Object refreshMutex = new Object();
 
     private final ApplySettings applySettings = new ApplySettings();
@@ -237,6 +249,47 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         }
     }
 
+    @Override
+    public long indexingBufferRamUsed() {
+        IndexWriter indexWriter = this.indexWriter;
+        if (indexWriter == null) {
+            return 0;
+        }
+        try {
+            return indexWriter.ramSizeInBytes();
+        } catch (AlreadyClosedException e) {
+            // the writer is being replaced or closed, nothing is buffered in it anymore
+            return 0;
+        }
+    }
+
+    @Override
+    public void writeIndexingBuffer() throws EngineException {
+        rwl.readLock().lock();
+        try {
+            ensureOpen();
+            // no refresh here, the written segments only become visible on the next (scheduled) refresh
+            indexWriter.writeIndexingBuffer();
+        } catch (EngineClosedException e) {
+            throw e;
+        } catch (AlreadyClosedException e) {
+            // the writer got closed on us, its buffer was written when it was closed
+            ensureOpen();
+        } catch (OutOfMemoryError e) {
+            failEngine(e);
+            throw new FlushFailedEngineException(shardId, e);
+        } catch (IllegalStateException e) {
+            if (e.getMessage().contains("OutOfMemoryError")) {
+                failEngine(e);
+            }
+            throw new FlushFailedEngineException(shardId, e);
+        } catch (Throwable e) {
+            throw new FlushFailedEngineException(shardId, e);
+        } finally {
+            rwl.readLock().unlock();
+        }
+    }
+
     @Override
     public void addFailedEngineListener(FailedEngineListener listener) {
         failedEngineListeners.add(listener);
@@ -316,29 +369,9 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         rwl.readLock().lock();
         try {
             if (get.realtime()) {
-                VersionValue versionValue = versionMap.get(versionKey(get.uid()));
-                if (versionValue != null) {
-                    if (versionValue.delete()) {
-                        return GetResult.NOT_EXISTS;
-                    }
-                    if (get.version() != Versions.MATCH_ANY) {
-                        if (get.versionType().isVersionConflict(versionValue.version(), get.version())) {
-                            Uid uid = Uid.createUid(get.uid().text());
-                            throw new VersionConflictEngineException(shardId, uid.type(), uid.id(), versionValue.version(), get.version());
-                        }
-                    }
-                    if (!get.loadSource()) {
-                        return new GetResult(true, versionValue.version(), null);
-                    }
-                    byte[] data = translog.read(versionValue.translogLocation());
-                    if (data != null) {
-                        try {
-                            Translog.Source source = TranslogStreams.readSource(data);
-                            return new GetResult(true, versionValue.version(), source);
-                        } catch (IOException e) {
-                            // switched on us, read it from the reader
-                        }
-                    }
+                GetResult getResult = realtimeGet(get);
+                if (getResult != null) {
+                    return getResult;
                 }
             }
 
@@ -374,6 +407,105 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         }
     }
 
+    /**
+     * Serves the get from the version map and the translog, returns <tt>null</tt> if it needs to go to the index.
+     */
+    @Nullable
+    private GetResult realtimeGet(Get get) throws EngineException {
+        VersionValue versionValue = versionMap.get(versionKey(get.uid()));
+        if (versionValue == null) {
+            return null;
+        }
+        if (versionValue.delete()) {
+            return GetResult.NOT_EXISTS;
+        }
+        if (get.version() != Versions.MATCH_ANY) {
+            if (get.versionType().isVersionConflict(versionValue.version(), get.version())) {
+                Uid uid = Uid.createUid(get.uid().text());
+                throw new VersionConflictEngineException(shardId, uid.type(), uid.id(), versionValue.version(), get.version());
+            }
+        }
+        if (!get.loadSource()) {
+            return new GetResult(true, versionValue.version(), null);
+        }
+        byte[] data = translog.read(versionValue.translogLocation());
+        if (data != null) {
+            try {
+                Translog.Source source = TranslogStreams.readSource(data);
+                return new GetResult(true, versionValue.version(), source);
+            } catch (IOException e) {
+                // switched on us, read it from the reader
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void multiGet(MultiGet multiGet) throws EngineException {
+        final Get[] gets = multiGet.gets();
+        rwl.readLock().lock();
+        try {
+            IntArrayList pending = new IntArrayList(gets.length);
+            for (int i = 0; i < gets.length; i++) {
+                if (gets[i].realtime()) {
+                    try {
+                        GetResult getResult = realtimeGet(gets[i]);
+                        if (getResult != null) {
+                            multiGet.result(i, getResult);
+                            continue;
+                        }
+                    } catch (EngineException e) {
+                        multiGet.failure(i, e);
+                        continue;
+                    }
+                }
+                pending.add(i);
+            }
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            // no version, get the versions from the index with a single searcher, we know that we refresh on flush
+            Searcher searcher = acquireSearcher("get");
+            final Versions.DocIdAndVersion[] docIdsAndVersions;
+            try {
+                Term[] uids = new Term[pending.size()];
+                for (int i = 0; i < uids.length; i++) {
+                    uids[i] = gets[pending.get(i)].uid();
+                }
+                docIdsAndVersions = Versions.loadDocIdsAndVersions(searcher.reader(), uids);
+            } catch (Throwable e) {
+                searcher.release();
+                throw new EngineException(shardId(), "Couldn't resolve versions", e);
+            }
+
+            // the searcher is shared by all the results that found a doc, each of them releases it
+            boolean searcherUsed = false;
+            for (int i = 0; i < docIdsAndVersions.length; i++) {
+                final int slot = pending.get(i);
+                final Get get = gets[slot];
+                final Versions.DocIdAndVersion docIdAndVersion = docIdsAndVersions[i];
+                if (docIdAndVersion == null) {
+                    multiGet.result(slot, GetResult.NOT_EXISTS);
+                } else if (get.version() != Versions.MATCH_ANY && get.versionType().isVersionConflict(docIdAndVersion.version, get.version())) {
+                    Uid uid = Uid.createUid(get.uid().text());
+                    multiGet.failure(slot, new VersionConflictEngineException(shardId, uid.type(), uid.id(), docIdAndVersion.version, get.version()));
+                } else if (!searcherUsed) {
+                    searcherUsed = true;
+                    multiGet.result(slot, new GetResult(searcher, docIdAndVersion));
+                } else {
+                    searcher.reader().incRef();
+                    multiGet.result(slot, new GetResult(newSearcher(searcher.source(), searcher.searcher(), searcherManager), docIdAndVersion));
+                }
+            }
+            if (!searcherUsed) {
+                searcher.release();
+            }
+        } finally {
+            rwl.readLock().unlock();
+        }
+    }
+
     @Override
     public void create(Create create) throws EngineException {
         rwl.readLock().lock();
@@ -383,7 +515,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                 throw new EngineClosedException(shardId, failedEngine);
             }
             innerCreate(create, writer);
-            dirty = true;
+            markDirty();
             possibleMergeNeeded = true;
             flushNeeded = true;
         } catch (IOException e) {
@@ -404,70 +536,62 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
     private void innerCreate(Create create, IndexWriter writer) throws IOException {
         synchronized (dirtyLock(create.uid())) {
             HashedBytesRef versionKey = versionKey(create.uid());
-            final long currentVersion;
             VersionValue versionValue = versionMap.get(versionKey);
-            if (versionValue == null) {
-                currentVersion = loadCurrentVersionFromIndex(create.uid());
-            } else {
-                if (enableGcDeletes && versionValue.delete() && (threadPool.estimatedTimeInMillis() - versionValue.time()) > gcDeletesInMillis) {
-                    currentVersion = Versions.NOT_FOUND; // deleted, and GC
-                } else {
-                    currentVersion = versionValue.version();
-                }
+            long currentVersion = currentVersion(versionValue, create.uid(), null, -1);
+            if (!prepareCreate(create, versionValue, currentVersion)) {
+                return;
             }
+            addDocuments(create, writer);
+            postWrite(create, versionKey);
+        }
+    }
 
-            // same logic as index
-            long updatedVersion;
-            long expectedVersion = create.version();
-            if (create.origin() == Operation.Origin.PRIMARY) {
-                if (create.versionType().isVersionConflict(currentVersion, expectedVersion)) {
+    /**
+     * Checks the version of the create operation and sets its new version, must be called under the dirty lock of
+     * its uid. Returns <tt>false</tt> if the operation must be ignored.
+     */
+    private boolean prepareCreate(Create create, @Nullable VersionValue versionValue, long currentVersion) {
+        // same logic as index
+        long updatedVersion;
+        long expectedVersion = create.version();
+        if (create.origin() == Operation.Origin.PRIMARY) {
+            if (create.versionType().isVersionConflict(currentVersion, expectedVersion)) {
+                throw new VersionConflictEngineException(shardId, create.type(), create.id(), currentVersion, expectedVersion);
+            }
+            updatedVersion = create.versionType().updateVersion(currentVersion, expectedVersion);
+        } else { // if (index.origin() == Operation.Origin.REPLICA || index.origin() == Operation.Origin.RECOVERY) {
+            // replicas treat the version as "external" as it comes from the primary ->
+            // only exploding if the version they got is lower or equal to what they know.
+            if (VersionType.EXTERNAL.isVersionConflict(currentVersion, expectedVersion)) {
+                if (create.origin() == Operation.Origin.RECOVERY) {
+                    return false;
+                } else {
                     throw new VersionConflictEngineException(shardId, create.type(), create.id(), currentVersion, expectedVersion);
                 }
-                updatedVersion = create.versionType().updateVersion(currentVersion, expectedVersion);
-            } else { // if (index.origin() == Operation.Origin.REPLICA || index.origin() == Operation.Origin.RECOVERY) {
-                // replicas treat the version as "external" as it comes from the primary ->
-                // only exploding if the version they got is lower or equal to what they know.
-                if (VersionType.EXTERNAL.isVersionConflict(currentVersion, expectedVersion)) {
-                    if (create.origin() == Operation.Origin.RECOVERY) {
-                        return;
-                    } else {
-                        throw new VersionConflictEngineException(shardId, create.type(), create.id(), currentVersion, expectedVersion);
-                    }
-                }
-                updatedVersion = VersionType.EXTERNAL.updateVersion(currentVersion, expectedVersion);
             }
+            updatedVersion = VersionType.EXTERNAL.updateVersion(currentVersion, expectedVersion);
+        }
 
-            // if the doc does not exists or it exists but not delete
-            if (versionValue != null) {
-                if (!versionValue.delete()) {
-                    if (create.origin() == Operation.Origin.RECOVERY) {
-                        return;
-                    } else {
-                        throw new DocumentAlreadyExistsException(shardId, create.type(), create.id());
-                    }
-                }
-            } else if (currentVersion != Versions.NOT_FOUND) {
-                // its not deleted, its already there
+        // if the doc does not exists or it exists but not delete
+        if (versionValue != null) {
+            if (!versionValue.delete()) {
                 if (create.origin() == Operation.Origin.RECOVERY) {
-                    return;
+                    return false;
                 } else {
                     throw new DocumentAlreadyExistsException(shardId, create.type(), create.id());
                 }
             }
-
-            create.version(updatedVersion);
-
-            if (create.docs().size() > 1) {
-                writer.addDocuments(create.docs(), create.analyzer());
+        } else if (currentVersion != Versions.NOT_FOUND) {
+            // its not deleted, its already there
+            if (create.origin() == Operation.Origin.RECOVERY) {
+                return false;
             } else {
-                writer.addDocument(create.docs().get(0), create.analyzer());
+                throw new DocumentAlreadyExistsException(shardId, create.type(), create.id());
             }
-            Translog.Location translogLocation = translog.add(new Translog.Create(create));
-
-            versionMap.put(versionKey, new VersionValue(updatedVersion, false, threadPool.estimatedTimeInMillis(), translogLocation));
-
-            indexingService.postCreateUnderLock(create);
         }
+
+        create.version(updatedVersion);
+        return true;
     }
 
     @Override
@@ -480,7 +604,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
             }
 
             innerIndex(index, writer);
-            dirty = true;
+            markDirty();
             possibleMergeNeeded = true;
             flushNeeded = true;
         } catch (IOException e) {
@@ -498,67 +622,334 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         }
     }
 
-    private void innerIndex(Index index, IndexWriter writer) throws IOException {
-        synchronized (dirtyLock(index.uid())) {
-            HashedBytesRef versionKey = versionKey(index.uid());
-            final long currentVersion;
-            VersionValue versionValue = versionMap.get(versionKey);
-            if (versionValue == null) {
-                currentVersion = loadCurrentVersionFromIndex(index.uid());
-            } else {
-                if (enableGcDeletes && versionValue.delete() && (threadPool.estimatedTimeInMillis() - versionValue.time()) > gcDeletesInMillis) {
-                    currentVersion = Versions.NOT_FOUND; // deleted, and GC
-                } else {
-                    currentVersion = versionValue.version();
+    /**
+     * Applies the index and create operations of a bulk. Consecutive operations on distinct uids, parsed with the
+     * same analyzer, are applied as a group under the dirty locks of all their uids: the versions of the whole
+     * group are resolved first, then the documents that don't exist yet are added to the writer with a single
+     * {@link IndexWriter#addDocuments(Iterable, org.apache.lucene.analysis.Analyzer)} call. Documents that already
+     * exist are still updated one by one, since an {@link IndexWriter} update only deletes a single term.
+     */
+    @Override
+    public void bulk(Bulk bulk) throws EngineException {
+        final IndexingOperation[] ops = bulk.ops();
+        rwl.readLock().lock();
+        try {
+            IndexWriter writer = this.indexWriter;
+            if (writer == null) {
+                throw new EngineClosedException(shardId, failedEngine);
+            }
+            BulkVersions bulkVersions;
+            try {
+                bulkVersions = new BulkVersions(ops);
+            } catch (IOException e) {
+                throw new EngineException(shardId, "failed to load versions for bulk", e);
+            }
+            boolean applied = false;
+            int from = 0;
+            while (from < ops.length) {
+                if (ops[from] == null) {
+                    from++;
+                    continue;
                 }
+                int to = bulkGroupEnd(ops, from);
+                BulkGroup group = new BulkGroup(bulk, from, to, writer, bulkVersions);
+                applyUnderLocks(group, bulkGroupLocks(ops, from, to), 0);
+                applied |= group.applied;
+                from = to;
+            }
+            if (applied) {
+                markDirty();
+                possibleMergeNeeded = true;
+                flushNeeded = true;
             }
+        } finally {
+            rwl.readLock().unlock();
+        }
+    }
 
-            long updatedVersion;
-            long expectedVersion = index.version();
-            if (index.origin() == Operation.Origin.PRIMARY) {
-                if (index.versionType().isVersionConflict(currentVersion, expectedVersion)) {
-                    throw new VersionConflictEngineException(shardId, index.type(), index.id(), currentVersion, expectedVersion);
-                }
+    /**
+     * Returns the (exclusive) end of the group of operations starting at <tt>from</tt>.
+     */
+    private int bulkGroupEnd(IndexingOperation[] ops, int from) {
+        Set<HashedBytesRef> uids = new HashSet<HashedBytesRef>();
+        uids.add(versionKey(ops[from].uid()));
+        int to = from + 1;
+        while (to < ops.length && to - from < MAX_BULK_GROUP_SIZE && ops[to] != null
+                && ops[to].parsedDoc().analyzer() == ops[from].parsedDoc().analyzer() && uids.add(versionKey(ops[to].uid()))) {
+            to++;
+        }
+        return to;
+    }
 
-                updatedVersion = index.versionType().updateVersion(currentVersion, expectedVersion);
+    /**
+     * The distinct dirty locks of the uids of a group, sorted so that concurrent bulks always acquire them in the same order.
+     */
+    private int[] bulkGroupLocks(IndexingOperation[] ops, int from, int to) {
+        int[] locks = new int[to - from];
+        for (int i = from; i < to; i++) {
+            locks[i - from] = dirtyLockIndex(ops[i].uid().bytes());
+        }
+        Arrays.sort(locks);
+        int size = 0;
+        for (int i = 0; i < locks.length; i++) {
+            if (size == 0 || locks[size - 1] != locks[i]) {
+                locks[size++] = locks[i];
+            }
+        }
+        return Arrays.copyOf(locks, size);
+    }
 
-            } else { // if (index.origin() == Operation.Origin.REPLICA || index.origin() == Operation.Origin.RECOVERY) {
-                // replicas treat the version as "external" as it comes from the primary ->
-                // only exploding if the version they got is lower or equal to what they know.
-                if (VersionType.EXTERNAL.isVersionConflict(currentVersion, expectedVersion)) {
-                    if (index.origin() == Operation.Origin.RECOVERY) {
-                        return;
+    private void applyUnderLocks(BulkGroup group, int[] locks, int lock) {
+        if (lock == locks.length) {
+            group.apply();
+            return;
+        }
+        synchronized (dirtyLocks[locks[lock]]) {
+            applyUnderLocks(group, locks, lock + 1);
+        }
+    }
+
+    /**
+     * A group of index and create operations of a bulk, applied under the dirty locks of all their uids.
+     */
+    private class BulkGroup {
+
+        private final Bulk bulk;
+        private final IndexingOperation[] ops;
+        private final int from;
+        private final int to;
+        private final IndexWriter writer;
+        private final BulkVersions bulkVersions;
+        private final HashedBytesRef[] versionKeys;
+
+        boolean applied;
+
+        BulkGroup(Bulk bulk, int from, int to, IndexWriter writer, BulkVersions bulkVersions) {
+            this.bulk = bulk;
+            this.ops = bulk.ops();
+            this.from = from;
+            this.to = to;
+            this.writer = writer;
+            this.bulkVersions = bulkVersions;
+            this.versionKeys = new HashedBytesRef[to - from];
+        }
+
+        void apply() {
+            // resolve the versions of the whole group, and split it into new and existing documents
+            IntArrayList adds = new IntArrayList(to - from);
+            IntArrayList updates = new IntArrayList();
+            for (int i = from; i < to; i++) {
+                IndexingOperation op = ops[i];
+                try {
+                    HashedBytesRef versionKey = versionKey(op.uid());
+                    VersionValue versionValue = versionMap.get(versionKey);
+                    long currentVersion = currentVersion(versionValue, op.uid(), bulkVersions, i);
+                    boolean apply;
+                    if (op.opType() == Operation.Type.CREATE) {
+                        apply = prepareCreate((Create) op, versionValue, currentVersion);
                     } else {
-                        throw new VersionConflictEngineException(shardId, index.type(), index.id(), currentVersion, expectedVersion);
+                        apply = prepareIndex((Index) op, versionValue, currentVersion);
+                    }
+                    if (apply) {
+                        versionKeys[i - from] = versionKey;
+                        if (op.opType() == Operation.Type.CREATE || currentVersion == Versions.NOT_FOUND) {
+                            adds.add(i);
+                        } else {
+                            updates.add(i);
+                        }
                     }
+                } catch (Throwable t) {
+                    failed(i, t);
+                }
+            }
+
+            addDocuments(adds);
+            for (int i = 0; i < updates.size(); i++) {
+                int slot = updates.get(i);
+                try {
+                    Index index = (Index) ops[slot];
+                    if (index.docs().size() > 1) {
+                        writer.updateDocuments(index.uid(), index.docs(), index.analyzer());
+                    } else {
+                        writer.updateDocument(index.uid(), index.docs().get(0), index.analyzer());
+                    }
+                    written(slot);
+                } catch (Throwable t) {
+                    failed(slot, t);
                 }
-                updatedVersion = VersionType.EXTERNAL.updateVersion(currentVersion, expectedVersion);
             }
+        }
+
+        private void addDocuments(IntArrayList adds) {
+            if (adds.size() == 1) {
+                addDocuments(adds.get(0));
+                return;
+            }
+            if (adds.isEmpty()) {
+                return;
+            }
+            List<Document> docs = new ArrayList<Document>();
+            for (int i = 0; i < adds.size(); i++) {
+                docs.addAll(ops[adds.get(i)].docs());
+            }
+            try {
+                writer.addDocuments(docs, ops[adds.get(0)].parsedDoc().analyzer());
+            } catch (OutOfMemoryError e) {
+                failEngine(e);
+                for (int i = 0; i < adds.size(); i++) {
+                    failed(adds.get(i), e);
+                }
+                return;
+            } catch (Throwable t) {
+                // the writer drops all the documents of a block that failed, add them one by one so only the faulty ones fail
+                logger.trace("failed to add the documents of a bulk group, adding them one by one", t);
+                for (int i = 0; i < adds.size(); i++) {
+                    addDocuments(adds.get(i));
+                }
+                return;
+            }
+            for (int i = 0; i < adds.size(); i++) {
+                written(adds.get(i));
+            }
+        }
+
+        private void addDocuments(int slot) {
+            try {
+                RobinEngine.this.addDocuments(ops[slot], writer);
+                written(slot);
+            } catch (Throwable t) {
+                failed(slot, t);
+            }
+        }
 
-            index.version(updatedVersion);
+        private void written(int slot) {
+            try {
+                postWrite(ops[slot], versionKeys[slot - from]);
+                applied = true;
+            } catch (Throwable t) {
+                failed(slot, t);
+            }
+        }
+
+        private void failed(int slot, Throwable t) {
+            IndexingOperation op = ops[slot];
+            if (t instanceof EngineException) {
+                bulk.failure(slot, (EngineException) t);
+                return;
+            }
+            if (t instanceof OutOfMemoryError || (t instanceof IllegalStateException && t.getMessage() != null && t.getMessage().contains("OutOfMemoryError"))) {
+                failEngine(t);
+            }
+            if (op.opType() == Operation.Type.CREATE) {
+                bulk.failure(slot, new CreateFailedEngineException(shardId, (Create) op, t));
+            } else {
+                bulk.failure(slot, new IndexFailedEngineException(shardId, (Index) op, t));
+            }
+        }
+    }
+
+    private void innerIndex(Index index, IndexWriter writer) throws IOException {
+        synchronized (dirtyLock(index.uid())) {
+            HashedBytesRef versionKey = versionKey(index.uid());
+            VersionValue versionValue = versionMap.get(versionKey);
+            long currentVersion = currentVersion(versionValue, index.uid(), null, -1);
+            if (!prepareIndex(index, versionValue, currentVersion)) {
+                return;
+            }
             if (currentVersion == Versions.NOT_FOUND) {
                 // document does not exists, we can optimize for create
-                index.created(true);
-                if (index.docs().size() > 1) {
-                    writer.addDocuments(index.docs(), index.analyzer());
-                } else {
-                    writer.addDocument(index.docs().get(0), index.analyzer());
-                }
+                addDocuments(index, writer);
             } else {
-                if (versionValue != null) {
-                    index.created(versionValue.delete()); // we have a delete which is not GC'ed...
-                }
                 if (index.docs().size() > 1) {
                     writer.updateDocuments(index.uid(), index.docs(), index.analyzer());
                 } else {
                     writer.updateDocument(index.uid(), index.docs().get(0), index.analyzer());
                 }
             }
-            Translog.Location translogLocation = translog.add(new Translog.Index(index));
+            postWrite(index, versionKey);
+        }
+    }
+
+    /**
+     * Checks the version of the index operation and sets its new version, must be called under the dirty lock of
+     * its uid. Returns <tt>false</tt> if the operation must be ignored.
+     */
+    private boolean prepareIndex(Index index, @Nullable VersionValue versionValue, long currentVersion) {
+        long updatedVersion;
+        long expectedVersion = index.version();
+        if (index.origin() == Operation.Origin.PRIMARY) {
+            if (index.versionType().isVersionConflict(currentVersion, expectedVersion)) {
+                throw new VersionConflictEngineException(shardId, index.type(), index.id(), currentVersion, expectedVersion);
+            }
+
+            updatedVersion = index.versionType().updateVersion(currentVersion, expectedVersion);
 
-            versionMap.put(versionKey, new VersionValue(updatedVersion, false, threadPool.estimatedTimeInMillis(), translogLocation));
+        } else { // if (index.origin() == Operation.Origin.REPLICA || index.origin() == Operation.Origin.RECOVERY) {
+            // replicas treat the version as "external" as it comes from the primary ->
+            // only exploding if the version they got is lower or equal to what they know.
+            if (VersionType.EXTERNAL.isVersionConflict(currentVersion, expectedVersion)) {
+                if (index.origin() == Operation.Origin.RECOVERY) {
+                    return false;
+                } else {
+                    throw new VersionConflictEngineException(shardId, index.type(), index.id(), currentVersion, expectedVersion);
+                }
+            }
+            updatedVersion = VersionType.EXTERNAL.updateVersion(currentVersion, expectedVersion);
+        }
 
-            indexingService.postIndexUnderLock(index);
+        index.version(updatedVersion);
+        if (currentVersion == Versions.NOT_FOUND) {
+            index.created(true);
+        } else if (versionValue != null) {
+            index.created(versionValue.delete()); // we have a delete which is not GC'ed...
+        }
+        return true;
+    }
+
+    /**
+     * The current version of the document, from the version map if it is there, otherwise from the index.
+     */
+    private long currentVersion(@Nullable VersionValue versionValue, Term uid, @Nullable BulkVersions bulkVersions, int slot) throws IOException {
+        if (versionValue == null) {
+            return bulkVersions == null ? loadCurrentVersionFromIndex(uid) : bulkVersions.load(slot, uid);
+        }
+        if (enableGcDeletes && versionValue.delete() && (threadPool.estimatedTimeInMillis() - versionValue.time()) > gcDeletesInMillis) {
+            return Versions.NOT_FOUND; // deleted, and GC
+        }
+        return versionValue.version();
+    }
+
+    private void addDocuments(IndexingOperation op, IndexWriter writer) throws IOException {
+        Analyzer analyzer = op.parsedDoc().analyzer();
+        if (op.docs().size() > 1) {
+            writer.addDocuments(op.docs(), analyzer);
+        } else {
+            writer.addDocument(op.docs().get(0), analyzer);
+        }
+    }
+
+    /**
+     * Adds a written operation to the translog and the version map, must be called under the dirty lock of its uid.
+     */
+    private void postWrite(IndexingOperation op, HashedBytesRef versionKey) throws IOException {
+        long version;
+        Translog.Location translogLocation;
+        if (op.opType() == Operation.Type.CREATE) {
+            Create create = (Create) op;
+            version = create.version();
+            translogLocation = translog.add(new Translog.Create(create));
+        } else {
+            Index index = (Index) op;
+            version = index.version();
+            translogLocation = translog.add(new Translog.Index(index));
+        }
+
+        versionMap.put(versionKey, new VersionValue(version, false, threadPool.estimatedTimeInMillis(), translogLocation));
+
+        if (op.opType() == Operation.Type.CREATE) {
+            indexingService.postCreateUnderLock((Create) op);
+        } else {
+            indexingService.postIndexUnderLock((Index) op);
         }
     }
 
@@ -571,7 +962,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                 throw new EngineClosedException(shardId, failedEngine);
             }
             innerDelete(delete, writer);
-            dirty = true;
+            markDirty();
             possibleMergeNeeded = true;
             flushNeeded = true;
         } catch (IOException e) {
@@ -669,7 +1060,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
 
             writer.deleteDocuments(query);
             translog.add(new Translog.DeleteByQuery(delete));
-            dirty = true;
+            markDirty();
             possibleMergeNeeded = true;
             flushNeeded = true;
         } catch (IOException e) {
@@ -702,6 +1093,22 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         return dirty;
     }
 
+    @Override
+    public TimeValue refreshStaleness() {
+        long dirtySince = this.dirtySince.get();
+        if (dirtySince == -1) {
+            return TimeValue.timeValueMillis(0);
+        }
+        return TimeValue.timeValueNanos(Math.max(0, System.nanoTime() - dirtySince));
+    }
+
+    private void markDirty() {
+        // only the first change since the last refresh sets the timestamp; if a concurrent refresh
+        // clears it before dirty is set, that refresh already sees this change
+        dirtySince.compareAndSet(-1, System.nanoTime());
+        dirty = true;
+    }
+
     @Override
     public boolean possibleMergeNeeded() {
         return this.possibleMergeNeeded;
@@ -712,45 +1119,45 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         if (indexWriter == null) {
             throw new EngineClosedException(shardId);
         }
-        // we obtain a read lock here, since we don't want a flush to happen while we are refreshing
-        // since it flushes the index as well (though, in terms of concurrency, we are allowed to do it)
-        rwl.readLock().lock();
+        // we don't hold the read lock while refreshing: the new searcher is opened and warmed on the side
+        // and only swapped in once warm, so a long warmup doesn't hold up a flush replacing the writer.
+        // if the writer and searcher manager get replaced while we refresh, the new manager sees all the changes
+        IndexWriter currentWriter = null;
         try {
-            // this engine always acts as if waitForOperations=true
-            IndexWriter currentWriter = indexWriter;
-            if (currentWriter == null) {
-                throw new EngineClosedException(shardId, failedEngine);
-            }
-            try {
-                // maybeRefresh will only allow one refresh to execute, and the rest will "pass through",
-                // but, we want to make sure not to loose ant refresh calls, if one is taking time
-                synchronized (refreshMutex) {
-                    if (dirty || refresh.force()) {
-                        dirty = false;
-                        searcherManager.maybeRefresh();
-                    }
+            // maybeRefresh will only allow one refresh to execute, and the rest will "pass through",
+            // but, we want to make sure not to loose ant refresh calls, if one is taking time
+            synchronized (refreshMutex) {
+                // this engine always acts as if waitForOperations=true
+                currentWriter = indexWriter;
+                if (currentWriter == null) {
+                    throw new EngineClosedException(shardId, failedEngine);
                 }
-            } catch (AlreadyClosedException e) {
-                // an index writer got replaced on us, ignore
-            } catch (OutOfMemoryError e) {
-                failEngine(e);
-                throw new RefreshFailedEngineException(shardId, e);
-            } catch (IllegalStateException e) {
-                if (e.getMessage().contains("OutOfMemoryError")) {
-                    failEngine(e);
+                if (dirty || refresh.force()) {
+                    dirty = false;
+                    dirtySince.getAndSet(-1);
+                    searcherManager.maybeRefresh();
                 }
+            }
+        } catch (EngineClosedException e) {
+            throw e;
+        } catch (AlreadyClosedException e) {
+            // an index writer got replaced on us, ignore
+        } catch (OutOfMemoryError e) {
+            failEngine(e);
+            throw new RefreshFailedEngineException(shardId, e);
+        } catch (IllegalStateException e) {
+            if (e.getMessage().contains("OutOfMemoryError")) {
+                failEngine(e);
+            }
+            throw new RefreshFailedEngineException(shardId, e);
+        } catch (Throwable e) {
+            if (indexWriter == null) {
+                throw new EngineClosedException(shardId, failedEngine);
+            } else if (currentWriter != indexWriter) {
+                // an index writer got replaced on us, ignore
+            } else {
                 throw new RefreshFailedEngineException(shardId, e);
-            } catch (Throwable e) {
-                if (indexWriter == null) {
-                    throw new EngineClosedException(shardId, failedEngine);
-                } else if (currentWriter != indexWriter) {
-                    // an index writer got replaced on us, ignore
-                } else {
-                    throw new RefreshFailedEngineException(shardId, e);
-                }
             }
-        } finally {
-            rwl.readLock().unlock();
         }
     }
 
@@ -780,6 +1187,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                     }
                     // disable refreshing, not dirty
                     dirty = false;
+                    dirtySince.getAndSet(-1);
                     try {
                         // that's ok if the index writer failed and is in inconsistent state
                         // we will get an exception on a dirty operation, and will cause the shard
@@ -929,9 +1337,11 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                 }
                 if (versionValue.delete()) {
                     if (enableGcDeletes && (time - versionValue.time()) > gcDeletesInMillis) {
+                        versionMapPruned.incrementAndGet();
                         versionMap.remove(uid);
                     }
                 } else {
+                    versionMapPruned.incrementAndGet();
                     versionMap.remove(uid);
                 }
             }
@@ -1277,18 +1687,75 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
     }
 
     private Object dirtyLock(BytesRef uid) {
+        return dirtyLocks[dirtyLockIndex(uid)];
+    }
+
+    private int dirtyLockIndex(BytesRef uid) {
         int hash = DjbHashFunction.DJB_HASH(uid.bytes, uid.offset, uid.length);
         // abs returns Integer.MIN_VALUE, so we need to protect against it...
         if (hash == Integer.MIN_VALUE) {
             hash = 0;
         }
-        return dirtyLocks[Math.abs(hash) % dirtyLocks.length];
+        return Math.abs(hash) % dirtyLocks.length;
     }
 
     private Object dirtyLock(Term uid) {
         return dirtyLock(uid.bytes());
     }
 
+    /**
+     * The current versions of the documents of a bulk that are not in the version map, loaded up front from a
+     * single searcher, see {@link Versions#loadVersions(IndexReader, Term[])}. A loaded version can only be trusted as long as no entry
+     * has been pruned from the version map since, otherwise the document may have been changed after the searcher
+     * was acquired and we go back to the index.
+     */
+    private class BulkVersions {
+
+        private static final long NOT_LOADED = -3;
+
+        private final long[] versions;
+        private final long pruned;
+
+        BulkVersions(IndexingOperation[] ops) throws IOException {
+            this.pruned = versionMapPruned.get();
+            this.versions = new long[ops.length];
+            Arrays.fill(versions, NOT_LOADED);
+            IntArrayList slots = new IntArrayList(ops.length);
+            for (int i = 0; i < ops.length; i++) {
+                if (ops[i] != null && !versionMap.containsKey(versionKey(ops[i].uid()))) {
+                    slots.add(i);
+                }
+            }
+            if (slots.isEmpty()) {
+                return;
+            }
+            final Term[] uids = new Term[slots.size()];
+            for (int i = 0; i < uids.length; i++) {
+                uids[i] = ops[slots.get(i)].uid();
+            }
+            final long[] loaded;
+            Searcher searcher = acquireSearcher("load_version");
+            try {
+                loaded = Versions.loadVersions(searcher.reader(), uids);
+            } finally {
+                searcher.release();
+            }
+            for (int i = 0; i < loaded.length; i++) {
+                versions[slots.get(i)] = loaded[i];
+            }
+        }
+
+        /**
+         * Returns the current version of the document at the given slot, must be called under its dirty lock.
+         */
+        long load(int slot, Term uid) throws IOException {
+            if (versions[slot] == NOT_LOADED || versionMapPruned.get() != pruned) {
+                return loadCurrentVersionFromIndex(uid);
+            }
+            return versions[slot];
+        }
+    }
+
     private long loadCurrentVersionFromIndex(Term uid) throws IOException {
         Searcher searcher = acquireSearcher("load_version");
         try {
@@ -1309,7 +1776,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         return IndexWriter.SOURCE_MERGE.equals(source);
     }
 
-    private IndexWriter createWriter() throws IOException {
+    private RobinIndexWriter createWriter() throws IOException {
         try {
             // release locks when started
             if (IndexWriter.isLocked(store.directory())) {
@@ -1361,7 +1828,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                     }
                 }
             });
-            return new IndexWriter(store.directory(), config);
+            return new RobinIndexWriter(store.directory(), config);
         } catch (LockObtainFailedException ex) {
             boolean isLocked = IndexWriter.isLocked(store.directory());
             logger.warn("Could not lock IndexWriter isLocked [{}]", ex, isLocked);
@@ -1578,6 +2045,20 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         }
     }
 
+    /**
+     * Lucene only lets sub classes write the indexing buffer to segments without opening a reader or committing.
+     */
+    private static final class RobinIndexWriter extends IndexWriter {
+
+        RobinIndexWriter(Directory directory, IndexWriterConfig config) throws IOException {
+            super(directory, config);
+        }
+
+        void writeIndexingBuffer() throws IOException {
+            flush(true, true);
+        }
+    }
+
     private static final class RecoveryCounter {
         private volatile int ongoingRecoveries = 0;
 
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.index.get;
 
+import com.carrotsearch.hppc.IntArrayList;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Sets;
 import org.apache.lucene.index.Term;
@@ -55,6 +56,7 @@ import org.elasticsearch.search.lookup.SearchLookup;
 import org.elasticsearch.search.lookup.SourceLookup;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -115,6 +117,74 @@ public class ShardGetService extends AbstractIndexShardComponent {
         }
     }
 
+    /**
+     * Same as {@link #get(String, String, String[], boolean, long, VersionType, FetchSourceContext)} for several documents,
+     * the ones with a concrete type being resolved against the engine in one go, see {@link Engine#multiGet(Engine.MultiGet)}.
+     * The failure of a single get is set at its position in the given failures array, leaving its result <tt>null</tt>.
+     */
+    public GetResult[] multiGet(String[] types, String[] ids, String[][] gFields, boolean realtime, long[] versions, VersionType[] versionTypes,
+                                FetchSourceContext[] fetchSourceContexts, Throwable[] failures) throws ElasticSearchException {
+        currentMetric.inc(ids.length);
+        try {
+            long now = System.nanoTime();
+            GetResult[] results = new GetResult[ids.length];
+            List<Engine.Get> gets = new ArrayList<Engine.Get>(ids.length);
+            IntArrayList slots = new IntArrayList(ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                if (types[i] == null || types[i].equals("_all")) {
+                    try {
+                        results[i] = innerGet(types[i], ids[i], gFields[i], realtime, versions[i], versionTypes[i], fetchSourceContexts[i]);
+                        multiGetMetric(results[i], now);
+                    } catch (Throwable t) {
+                        failures[i] = t;
+                    }
+                    continue;
+                }
+                fetchSourceContexts[i] = normalizeFetchSourceContent(fetchSourceContexts[i], gFields[i]);
+                boolean loadSource = (gFields[i] != null && gFields[i].length > 0) || fetchSourceContexts[i].fetchSource();
+                gets.add(new Engine.Get(realtime, new Term(UidFieldMapper.NAME, Uid.createUidAsBytes(types[i], ids[i])))
+                        .loadSource(loadSource).version(versions[i]).versionType(versionTypes[i]));
+                slots.add(i);
+            }
+            if (gets.isEmpty()) {
+                return results;
+            }
+
+            Engine.MultiGet multiGet = new Engine.MultiGet(gets.toArray(new Engine.Get[gets.size()]));
+            indexShard.multiGet(multiGet);
+            for (int j = 0; j < slots.size(); j++) {
+                int i = slots.get(j);
+                if (multiGet.failure(j) != null) {
+                    failures[i] = multiGet.failure(j);
+                    continue;
+                }
+                Engine.GetResult get = multiGet.result(j);
+                try {
+                    if (!get.exists()) {
+                        get.release();
+                        results[i] = new GetResult(shardId.index().name(), types[i], ids[i], -1, false, null, null);
+                    } else {
+                        results[i] = innerGet(types[i], ids[i], gFields[i], fetchSourceContexts[i], get);
+                    }
+                    multiGetMetric(results[i], now);
+                } catch (Throwable t) {
+                    failures[i] = t;
+                }
+            }
+            return results;
+        } finally {
+            currentMetric.dec(ids.length);
+        }
+    }
+
+    private void multiGetMetric(GetResult getResult, long startTime) {
+        if (getResult.isExists()) {
+            existsMetric.inc(System.nanoTime() - startTime);
+        } else {
+            missingMetric.inc(System.nanoTime() - startTime);
+        }
+    }
+
     /**
      * Returns {@link GetResult} based on the specified {@link Engine.GetResult} argument.
      * This method basically loads specified fields for the associated document in the engineGetResult.
@@ -199,6 +269,13 @@ public class ShardGetService extends AbstractIndexShardComponent {
             }
         }
 
+        return innerGet(type, id, gFields, fetchSourceContext, get);
+    }
+
+    /**
+     * Builds the result out of the existing document the engine resolved, releasing the engine result.
+     */
+    private GetResult innerGet(String type, String id, String[] gFields, FetchSourceContext fetchSourceContext, Engine.GetResult get) {
         DocumentMapper docMapper = mapperService.documentMapper(type);
         if (docMapper == null) {
             get.release();
@@ -19,10 +19,12 @@
 
 package org.elasticsearch.index.indexing;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
@@ -148,13 +150,24 @@ public class IndexingStats implements Streamable, ToXContent {
     @Nullable
     private Map<String, Stats> typeStats;
 
+    private long indexBufferInBytes;
+
+    @Nullable
+    private Map<String, Long> indexBufferWrites;
+
     public IndexingStats() {
         totalStats = new Stats();
     }
 
     public IndexingStats(Stats totalStats, @Nullable Map<String, Stats> typeStats) {
+        this(totalStats, typeStats, 0, null);
+    }
+
+    public IndexingStats(Stats totalStats, @Nullable Map<String, Stats> typeStats, long indexBufferInBytes, @Nullable Map<String, Long> indexBufferWrites) {
         this.totalStats = totalStats;
         this.typeStats = typeStats;
+        this.indexBufferInBytes = indexBufferInBytes;
+        this.indexBufferWrites = indexBufferWrites;
     }
 
     public void add(IndexingStats indexingStats) {
@@ -166,6 +179,16 @@ public class IndexingStats implements Streamable, ToXContent {
             return;
         }
         totalStats.add(indexingStats.totalStats);
+        indexBufferInBytes += indexingStats.indexBufferInBytes;
+        if (indexingStats.indexBufferWrites != null && !indexingStats.indexBufferWrites.isEmpty()) {
+            if (indexBufferWrites == null) {
+                indexBufferWrites = new HashMap<String, Long>(indexingStats.indexBufferWrites.size());
+            }
+            for (Map.Entry<String, Long> entry : indexingStats.indexBufferWrites.entrySet()) {
+                Long count = indexBufferWrites.get(entry.getKey());
+                indexBufferWrites.put(entry.getKey(), count == null ? entry.getValue() : count + entry.getValue());
+            }
+        }
         if (includeTypes && indexingStats.typeStats != null && !indexingStats.typeStats.isEmpty()) {
             if (typeStats == null) {
                 typeStats = new HashMap<String, Stats>(indexingStats.typeStats.size());
@@ -190,10 +213,41 @@ public class IndexingStats implements Streamable, ToXContent {
         return this.typeStats;
     }
 
+    /**
+     * The memory currently used by the indexing buffers of the shards (in bytes).
+     */
+    public long getIndexBufferInBytes() {
+        return this.indexBufferInBytes;
+    }
+
+    /**
+     * The memory currently used by the indexing buffers of the shards.
+     */
+    public ByteSizeValue getIndexBuffer() {
+        return new ByteSizeValue(indexBufferInBytes);
+    }
+
+    /**
+     * How many times the indexing buffers were written to segments by the indexing memory
+     * controller, keyed by the cause (for example <tt>pressure</tt> or <tt>inactive</tt>).
+     */
+    @Nullable
+    public Map<String, Long> getIndexBufferWrites() {
+        return this.indexBufferWrites;
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, ToXContent.Params params) throws IOException {
         builder.startObject(Fields.INDEXING);
         totalStats.toXContent(builder, params);
+        builder.byteSizeField(Fields.INDEX_BUFFER_SIZE_IN_BYTES, Fields.INDEX_BUFFER_SIZE, indexBufferInBytes);
+        if (indexBufferWrites != null && !indexBufferWrites.isEmpty()) {
+            builder.startObject(Fields.INDEX_BUFFER_WRITES);
+            for (Map.Entry<String, Long> entry : indexBufferWrites.entrySet()) {
+                builder.field(entry.getKey(), entry.getValue());
+            }
+            builder.endObject();
+        }
         if (typeStats != null && !typeStats.isEmpty()) {
             builder.startObject(Fields.TYPES);
             for (Map.Entry<String, Stats> entry : typeStats.entrySet()) {
@@ -218,6 +272,9 @@ public class IndexingStats implements Streamable, ToXContent {
         static final XContentBuilderString DELETE_TIME = new XContentBuilderString("delete_time");
         static final XContentBuilderString DELETE_TIME_IN_MILLIS = new XContentBuilderString("delete_time_in_millis");
         static final XContentBuilderString DELETE_CURRENT = new XContentBuilderString("delete_current");
+        static final XContentBuilderString INDEX_BUFFER_SIZE = new XContentBuilderString("index_buffer_size");
+        static final XContentBuilderString INDEX_BUFFER_SIZE_IN_BYTES = new XContentBuilderString("index_buffer_size_in_bytes");
+        static final XContentBuilderString INDEX_BUFFER_WRITES = new XContentBuilderString("index_buffer_writes");
     }
 
     public static IndexingStats readIndexingStats(StreamInput in) throws IOException {
@@ -236,6 +293,16 @@ public class IndexingStats implements Streamable, ToXContent {
                 typeStats.put(in.readString(), Stats.readStats(in));
             }
         }
+        if (in.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            indexBufferInBytes = in.readVLong();
+            int size = in.readVInt();
+            if (size > 0) {
+                indexBufferWrites = new HashMap<String, Long>(size);
+                for (int i = 0; i < size; i++) {
+                    indexBufferWrites.put(in.readString(), in.readVLong());
+                }
+            }
+        }
     }
 
     @Override
@@ -251,5 +318,17 @@ public class IndexingStats implements Streamable, ToXContent {
                 entry.getValue().writeTo(out);
             }
         }
+        if (out.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            out.writeVLong(indexBufferInBytes);
+            if (indexBufferWrites == null) {
+                out.writeVInt(0);
+            } else {
+                out.writeVInt(indexBufferWrites.size());
+                for (Map.Entry<String, Long> entry : indexBufferWrites.entrySet()) {
+                    out.writeString(entry.getKey());
+                    out.writeVLong(entry.getValue());
+                }
+            }
+        }
     }
 }
@@ -25,6 +25,7 @@ import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.metrics.MeanMetric;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.indexing.slowlog.ShardSlowLogIndexingService;
 import org.elasticsearch.index.settings.IndexSettings;
@@ -33,6 +34,7 @@ import org.elasticsearch.index.shard.ShardId;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 
@@ -46,6 +48,8 @@ public class ShardIndexingService extends AbstractIndexShardComponent {
 
     private volatile Map<String, StatsHolder> typesStats = ImmutableMap.of();
 
+    private final ConcurrentMap<String, CounterMetric> indexBufferWrites = ConcurrentCollections.newConcurrentMap();
+
     private CopyOnWriteArrayList<IndexingOperationListener> listeners = null;
 
     @Inject
@@ -60,6 +64,13 @@ public class ShardIndexingService extends AbstractIndexShardComponent {
      * <tt>_all</tt> for all types.
      */
     public IndexingStats stats(String... types) {
+        return stats(0, types);
+    }
+
+    /**
+     * Returns the stats like {@link #stats(String...)}, including how much of the indexing buffer is currently used.
+     */
+    public IndexingStats stats(long indexBufferInBytes, String... types) {
         IndexingStats.Stats total = totalStats.stats();
         Map<String, IndexingStats.Stats> typesSt = null;
         if (types != null && types.length > 0) {
@@ -78,7 +89,29 @@ public class ShardIndexingService extends AbstractIndexShardComponent {
                 }
             }
         }
-        return new IndexingStats(total, typesSt);
+        Map<String, Long> indexBufferWritesSt = null;
+        if (!indexBufferWrites.isEmpty()) {
+            indexBufferWritesSt = new HashMap<String, Long>(indexBufferWrites.size());
+            for (Map.Entry<String, CounterMetric> entry : indexBufferWrites.entrySet()) {
+                indexBufferWritesSt.put(entry.getKey(), entry.getValue().count());
+            }
+        }
+        return new IndexingStats(total, typesSt, indexBufferInBytes, indexBufferWritesSt);
+    }
+
+    /**
+     * Records that the indexing buffer of this shard was written to a segment because of the provided cause.
+     */
+    public void indexBufferWritten(String cause) {
+        CounterMetric counter = indexBufferWrites.get(cause);
+        if (counter == null) {
+            counter = new CounterMetric();
+            CounterMetric existing = indexBufferWrites.putIfAbsent(cause, counter);
+            if (existing != null) {
+                counter = existing;
+            }
+        }
+        counter.inc();
     }
 
     public synchronized void addListener(IndexingOperationListener listener) {
@@ -470,7 +470,7 @@ public class DocumentMapper implements ToXContent {
             if (parser == null) {
                 parser = XContentHelper.createParser(source.source());
             }
-            context.reset(parser, new Document(), source, listener);
+            context.reset(parser, context.recycleDocument(), source, listener);
             // on a newly created instance of document mapper, we always consider it as new mappers that have been added
             if (initMappersAdded) {
                 context.setMappingsModified();
@@ -563,7 +563,7 @@ public class DocumentMapper implements ToXContent {
         }
 
         ParsedDocument doc = new ParsedDocument(context.uid(), context.version(), context.id(), context.type(), source.routing(), source.timestamp(), source.ttl(), context.docs(), context.analyzer(),
-                context.source(), context.mappingsModified()).parent(source.parent());
+                context.source(), context.mappingsModified()).parent(source.parent()).recycledDocument(context.recycledDocument());
         // reset the context to free up memory
         context.reset(null, null, null, null);
         return doc;
@@ -26,20 +26,29 @@ import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.lucene.all.AllEntries;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.index.analysis.AnalysisService;
 import org.elasticsearch.index.mapper.object.RootObjectMapper;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  *
  */
 public class ParseContext {
 
+    /**
+     * The maximum number of released documents kept around per context for reuse.
+     */
+    static final int MAX_RECYCLED_DOCUMENTS = 16;
+
     private final DocumentMapper docMapper;
 
     private final DocumentMapperParser docMapperParser;
@@ -83,6 +92,11 @@ public class ParseContext {
 
     private float docBoost = 1.0f;
 
+    private final Queue<RecycledDocument> recycledDocuments = ConcurrentCollections.newQueue();
+    private final AtomicInteger recycledDocumentsCount = new AtomicInteger();
+
+    private RecycledDocument recycledDocument;
+
     public ParseContext(String index, @Nullable Settings indexSettings, DocumentMapperParser docMapperParser, DocumentMapper docMapper, ContentPath path) {
         this.index = index;
         this.indexSettings = indexSettings;
@@ -99,6 +113,7 @@ public class ParseContext {
             this.documents.add(document);
         } else {
             this.documents = null;
+            this.recycledDocument = null;
         }
         this.analyzer = null;
         this.uid = null;
@@ -115,6 +130,60 @@ public class ParseContext {
         this.docBoost = 1.0f;
     }
 
+    /**
+     * Returns the root document to parse into, reusing the document and fields of a previously parsed
+     * document that has been released once indexed, if there is one.
+     */
+    public Document recycleDocument() {
+        RecycledDocument recycled = recycledDocuments.poll();
+        if (recycled == null) {
+            recycled = new RecycledDocument(this);
+        } else {
+            recycledDocumentsCount.decrementAndGet();
+            recycled.reuse();
+        }
+        this.recycledDocument = recycled;
+        return recycled.document;
+    }
+
+    /**
+     * The recycled document the current document is parsed into, <tt>null</tt> if not parsing into one.
+     */
+    @Nullable
+    public RecycledDocument recycledDocument() {
+        return this.recycledDocument;
+    }
+
+    /**
+     * Returns the field the mapper created at the same position when the recycled document was previously
+     * parsed, or <tt>null</tt> if there is none. The field must be passed to {@link #reuseField(Mapper, Field)}
+     * if it is used, and mappers must check that it still matches their field type.
+     */
+    @Nullable
+    public Field reusableField(Mapper mapper) {
+        if (recycledDocument == null) {
+            return null;
+        }
+        return recycledDocument.reusableField(mapper);
+    }
+
+    /**
+     * Registers the field the mapper added to the document so it can be reused once the document is released.
+     */
+    public void reuseField(Mapper mapper, Field field) {
+        if (recycledDocument != null) {
+            recycledDocument.reuseField(mapper, field);
+        }
+    }
+
+    void release(RecycledDocument recycled) {
+        if (recycledDocumentsCount.incrementAndGet() > MAX_RECYCLED_DOCUMENTS) {
+            recycledDocumentsCount.decrementAndGet();
+            return;
+        }
+        recycledDocuments.offer(recycled);
+    }
+
     public boolean flyweight() {
         return sourceToParse.flyweight();
     }
@@ -315,4 +384,72 @@ public class ParseContext {
         stringBuilder.setLength(0);
         return this.stringBuilder;
     }
+
+    /**
+     * The document and field instances of a parsed document, handed back to the context that
+     * created them once the document has been indexed, so they can be refilled by the next parse
+     * instead of being allocated again.
+     */
+    public static class RecycledDocument {
+
+        private final ParseContext owner;
+
+        private final Document document = new Document();
+
+        private Map<Mapper, ReusableFields> fields;
+
+        RecycledDocument(ParseContext owner) {
+            this.owner = owner;
+        }
+
+        void reuse() {
+            document.getFields().clear();
+            if (fields != null) {
+                for (ReusableFields reusableFields : fields.values()) {
+                    reusableFields.position = 0;
+                }
+            }
+        }
+
+        Field reusableField(Mapper mapper) {
+            if (fields == null) {
+                return null;
+            }
+            ReusableFields reusableFields = fields.get(mapper);
+            if (reusableFields == null || reusableFields.position >= reusableFields.fields.size()) {
+                return null;
+            }
+            return reusableFields.fields.get(reusableFields.position);
+        }
+
+        void reuseField(Mapper mapper, Field field) {
+            if (fields == null) {
+                fields = new IdentityHashMap<Mapper, ReusableFields>();
+            }
+            ReusableFields reusableFields = fields.get(mapper);
+            if (reusableFields == null) {
+                reusableFields = new ReusableFields();
+                fields.put(mapper, reusableFields);
+            }
+            if (reusableFields.position < reusableFields.fields.size()) {
+                reusableFields.fields.set(reusableFields.position, field);
+            } else {
+                reusableFields.fields.add(field);
+            }
+            reusableFields.position++;
+        }
+
+        /**
+         * Hands the document back to the context that parsed it. Must only be called once nothing
+         * references the parsed document's fields anymore.
+         */
+        public void release() {
+            owner.release(this);
+        }
+    }
+
+    private static class ReusableFields {
+        final List<Field> fields = new ArrayList<Field>(1);
+        int position;
+    }
 }
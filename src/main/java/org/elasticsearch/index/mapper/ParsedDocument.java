@@ -53,6 +53,8 @@ public class ParsedDocument {
 
     private String parent;
 
+    private ParseContext.RecycledDocument recycledDocument;
+
     public ParsedDocument(Field uid, Field version, String id, String type, String routing, long timestamp, long ttl, List<Document> documents, Analyzer analyzer, BytesReference source, boolean mappingsModified) {
         this.uid = uid;
         this.version = version;
@@ -124,6 +126,24 @@ public class ParsedDocument {
         return this.parent;
     }
 
+    ParsedDocument recycledDocument(ParseContext.RecycledDocument recycledDocument) {
+        this.recycledDocument = recycledDocument;
+        return this;
+    }
+
+    /**
+     * Releases the document and field instances of this parsed document so they can be reused by
+     * later parsing on the thread that parsed it. Must only be called once the document has been
+     * indexed and its {@link #docs()} are no longer used.
+     */
+    public void release() {
+        ParseContext.RecycledDocument recycledDocument = this.recycledDocument;
+        if (recycledDocument != null) {
+            this.recycledDocument = null;
+            recycledDocument.release();
+        }
+    }
+
     /**
      * Has the parsed document caused mappings to be modified?
      */
@@ -39,6 +39,13 @@ public class SourceToParse {
         return new SourceToParse(origin, source);
     }
 
+    /**
+     * A source that is parsed with the given parser, and stored as the given bytes.
+     */
+    public static SourceToParse source(Origin origin, XContentParser parser, BytesReference source) {
+        return new SourceToParse(origin, parser, source);
+    }
+
     private final Origin origin;
 
     private final BytesReference source;
@@ -65,6 +72,14 @@ public class SourceToParse {
         this.source = null;
     }
 
+    public SourceToParse(Origin origin, XContentParser parser, BytesReference source) {
+        this.origin = origin;
+        this.parser = parser;
+        // we always convert back to byte array, since we store it and Field only supports bytes..
+        // so, we might as well do it here, and improve the performance of working with direct byte arrays
+        this.source = source.toBytesArray();
+    }
+
     public SourceToParse(Origin origin, BytesReference source) {
         this.origin = origin;
         // we always convert back to byte array, since we store it and Field only supports bytes..
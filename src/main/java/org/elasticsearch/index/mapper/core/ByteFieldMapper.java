@@ -319,7 +319,15 @@ public class ByteFieldMapper extends NumberFieldMapper<Byte> {
             }
         }
         if (fieldType.indexed() || fieldType.stored()) {
-            CustomByteNumericField field = new CustomByteNumericField(this, value, fieldType);
+            Field reusable = context.reusableField(this);
+            CustomByteNumericField field;
+            if (reusable instanceof CustomByteNumericField && reusable.fieldType() == fieldType) {
+                field = (CustomByteNumericField) reusable;
+                field.reset(value);
+            } else {
+                field = new CustomByteNumericField(this, value, fieldType);
+            }
+            context.reuseField(this, field);
             field.setBoost(boost);
             fields.add(field);
         }
@@ -361,7 +369,7 @@ public class ByteFieldMapper extends NumberFieldMapper<Byte> {
 
     public static class CustomByteNumericField extends CustomNumericField {
 
-        private final byte number;
+        private byte number;
 
         private final NumberFieldMapper mapper;
 
@@ -371,6 +379,14 @@ public class ByteFieldMapper extends NumberFieldMapper<Byte> {
             this.number = number;
         }
 
+        /**
+         * Resets the value of the field so it can be reused for another document.
+         */
+        public void reset(byte number) {
+            this.number = number;
+            this.fieldsData = number;
+        }
+
         @Override
         public TokenStream tokenStream(Analyzer analyzer) {
             if (fieldType().indexed()) {
@@ -304,8 +304,13 @@ public class DateFieldMapper extends NumberFieldMapper<Long> {
     }
     
     public long parseToMilliseconds(Object value, @Nullable QueryParseContext context, boolean includeUpper) {
-        long now = context == null ? System.currentTimeMillis() : context.nowInMillis();
-        return includeUpper ? dateMathParser.parseUpperInclusive(convertToString(value), now) : dateMathParser.parse(convertToString(value), now);
+        String strValue = convertToString(value);
+        long now = 0;
+        if (strValue.startsWith("now")) {
+            // only resolve now when it is used, so that searches on fixed dates can be cached
+            now = context == null ? System.currentTimeMillis() : context.nowInMillis();
+        }
+        return includeUpper ? dateMathParser.parseUpperInclusive(strValue, now) : dateMathParser.parse(strValue, now);
     }
 
     @Override
@@ -415,7 +420,15 @@ public class DateFieldMapper extends NumberFieldMapper<Long> {
 
         if (value != null) {
             if (fieldType.indexed() || fieldType.stored()) {
-                CustomLongNumericField field = new CustomLongNumericField(this, value, fieldType);
+                Field reusable = context.reusableField(this);
+                CustomLongNumericField field;
+                if (reusable instanceof CustomLongNumericField && reusable.fieldType() == fieldType) {
+                    field = (CustomLongNumericField) reusable;
+                    field.reset(value);
+                } else {
+                    field = new CustomLongNumericField(this, value, fieldType);
+                }
+                context.reuseField(this, field);
                 field.setBoost(boost);
                 fields.add(field);
             }
@@ -315,7 +315,15 @@ public class DoubleFieldMapper extends NumberFieldMapper<Double> {
         }
 
         if (fieldType.indexed() || fieldType.stored()) {
-            CustomDoubleNumericField field = new CustomDoubleNumericField(this, value, fieldType);
+            Field reusable = context.reusableField(this);
+            CustomDoubleNumericField field;
+            if (reusable instanceof CustomDoubleNumericField && reusable.fieldType() == fieldType) {
+                field = (CustomDoubleNumericField) reusable;
+                field.reset(value);
+            } else {
+                field = new CustomDoubleNumericField(this, value, fieldType);
+            }
+            context.reuseField(this, field);
             field.setBoost(boost);
             fields.add(field);
         }
@@ -357,7 +365,7 @@ public class DoubleFieldMapper extends NumberFieldMapper<Double> {
 
     public static class CustomDoubleNumericField extends CustomNumericField {
 
-        private final double number;
+        private double number;
 
         private final NumberFieldMapper mapper;
 
@@ -367,6 +375,14 @@ public class DoubleFieldMapper extends NumberFieldMapper<Double> {
             this.number = number;
         }
 
+        /**
+         * Resets the value of the field so it can be reused for another document.
+         */
+        public void reset(double number) {
+            this.number = number;
+            this.fieldsData = number;
+        }
+
         @Override
         public TokenStream tokenStream(Analyzer analyzer) throws IOException {
             if (fieldType().indexed()) {
@@ -311,7 +311,15 @@ public class FloatFieldMapper extends NumberFieldMapper<Float> {
         }
 
         if (fieldType.indexed() || fieldType.stored()) {
-            CustomFloatNumericField field = new CustomFloatNumericField(this, value, fieldType);
+            Field reusable = context.reusableField(this);
+            CustomFloatNumericField field;
+            if (reusable instanceof CustomFloatNumericField && reusable.fieldType() == fieldType) {
+                field = (CustomFloatNumericField) reusable;
+                field.reset(value);
+            } else {
+                field = new CustomFloatNumericField(this, value, fieldType);
+            }
+            context.reuseField(this, field);
             field.setBoost(boost);
             fields.add(field);
         }
@@ -354,7 +362,7 @@ public class FloatFieldMapper extends NumberFieldMapper<Float> {
 
     public static class CustomFloatNumericField extends CustomNumericField {
 
-        private final float number;
+        private float number;
 
         private final NumberFieldMapper mapper;
 
@@ -364,6 +372,14 @@ public class FloatFieldMapper extends NumberFieldMapper<Float> {
             this.number = number;
         }
 
+        /**
+         * Resets the value of the field so it can be reused for another document.
+         */
+        public void reset(float number) {
+            this.number = number;
+            this.fieldsData = number;
+        }
+
         @Override
         public TokenStream tokenStream(Analyzer analyzer) throws IOException {
             if (fieldType().indexed()) {
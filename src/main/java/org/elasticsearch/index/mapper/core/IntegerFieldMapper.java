@@ -315,7 +315,15 @@ public class IntegerFieldMapper extends NumberFieldMapper<Integer> {
         }
 
         if (fieldType.indexed() || fieldType.stored()) {
-            CustomIntegerNumericField field = new CustomIntegerNumericField(this, value, fieldType);
+            Field reusable = context.reusableField(this);
+            CustomIntegerNumericField field;
+            if (reusable instanceof CustomIntegerNumericField && reusable.fieldType() == fieldType) {
+                field = (CustomIntegerNumericField) reusable;
+                field.reset(value);
+            } else {
+                field = new CustomIntegerNumericField(this, value, fieldType);
+            }
+            context.reuseField(this, field);
             field.setBoost(boost);
             fields.add(field);
         }
@@ -359,7 +367,7 @@ public class IntegerFieldMapper extends NumberFieldMapper<Integer> {
 
     public static class CustomIntegerNumericField extends CustomNumericField {
 
-        private final int number;
+        private int number;
 
         private final NumberFieldMapper mapper;
 
@@ -369,6 +377,14 @@ public class IntegerFieldMapper extends NumberFieldMapper<Integer> {
             this.number = number;
         }
 
+        /**
+         * Resets the value of the field so it can be reused for another document.
+         */
+        public void reset(int number) {
+            this.number = number;
+            this.fieldsData = number;
+        }
+
         @Override
         public TokenStream tokenStream(Analyzer analyzer) throws IOException {
             if (fieldType().indexed()) {
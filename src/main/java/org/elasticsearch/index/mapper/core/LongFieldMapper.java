@@ -313,7 +313,15 @@ public class LongFieldMapper extends NumberFieldMapper<Long> {
             }
         }
         if (fieldType.indexed() || fieldType.stored()) {
-            CustomLongNumericField field = new CustomLongNumericField(this, value, fieldType);
+            Field reusable = context.reusableField(this);
+            CustomLongNumericField field;
+            if (reusable instanceof CustomLongNumericField && reusable.fieldType() == fieldType) {
+                field = (CustomLongNumericField) reusable;
+                field.reset(value);
+            } else {
+                field = new CustomLongNumericField(this, value, fieldType);
+            }
+            context.reuseField(this, field);
             field.setBoost(boost);
             fields.add(field);
         }
@@ -355,7 +363,7 @@ public class LongFieldMapper extends NumberFieldMapper<Long> {
 
     public static class CustomLongNumericField extends CustomNumericField {
 
-        private final long number;
+        private long number;
 
         private final NumberFieldMapper mapper;
 
@@ -365,6 +373,14 @@ public class LongFieldMapper extends NumberFieldMapper<Long> {
             this.number = number;
         }
 
+        /**
+         * Resets the value of the field so it can be reused for another document.
+         */
+        public void reset(long number) {
+            this.number = number;
+            this.fieldsData = number;
+        }
+
         @Override
         public TokenStream tokenStream(Analyzer analyzer) throws IOException {
             if (fieldType().indexed()) {
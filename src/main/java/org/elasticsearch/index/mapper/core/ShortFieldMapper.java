@@ -318,7 +318,15 @@ public class ShortFieldMapper extends NumberFieldMapper<Short> {
             }
         }
         if (fieldType.indexed() || fieldType.stored()) {
-            CustomShortNumericField field = new CustomShortNumericField(this, value, fieldType);
+            Field reusable = context.reusableField(this);
+            CustomShortNumericField field;
+            if (reusable instanceof CustomShortNumericField && reusable.fieldType() == fieldType) {
+                field = (CustomShortNumericField) reusable;
+                field.reset(value);
+            } else {
+                field = new CustomShortNumericField(this, value, fieldType);
+            }
+            context.reuseField(this, field);
             field.setBoost(boost);
             fields.add(field);
         }
@@ -360,7 +368,7 @@ public class ShortFieldMapper extends NumberFieldMapper<Short> {
 
     public static class CustomShortNumericField extends CustomNumericField {
 
-        private final short number;
+        private short number;
 
         private final NumberFieldMapper mapper;
 
@@ -370,6 +378,14 @@ public class ShortFieldMapper extends NumberFieldMapper<Short> {
             this.number = number;
         }
 
+        /**
+         * Resets the value of the field so it can be reused for another document.
+         */
+        public void reset(short number) {
+            this.number = number;
+            this.fieldsData = number;
+        }
+
         @Override
         public TokenStream tokenStream(Analyzer analyzer) throws IOException {
             if (fieldType().indexed()) {
@@ -298,7 +298,13 @@ public class StringFieldMapper extends AbstractFieldMapper<String> implements Al
         }
 
         if (fieldType.indexed() || fieldType.stored()) {
-            Field field = new StringField(names.indexName(), value, fieldType);
+            Field field = context.reusableField(this);
+            if (field instanceof StringField && field.fieldType() == fieldType) {
+                field.setStringValue(value);
+            } else {
+                field = new StringField(names.indexName(), value, fieldType);
+            }
+            context.reuseField(this, field);
             field.setBoost(boost);
             fields.add(field);
         }
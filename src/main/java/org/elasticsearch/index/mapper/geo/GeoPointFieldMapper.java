@@ -319,6 +319,14 @@ public class GeoPointFieldMapper implements Mapper, ArrayValueMapperParser {
         return enableLatLon;
     }
 
+    public boolean isEnableGeohashPrefix() {
+        return enableGeohashPrefix;
+    }
+
+    public int geoHashPrecision() {
+        return precision;
+    }
+
     @Override
     public void parse(ParseContext context) throws IOException {
         ContentPath.Type origPathType = context.path().pathType();
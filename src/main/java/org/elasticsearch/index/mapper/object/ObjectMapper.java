@@ -33,6 +33,7 @@ import org.elasticsearch.common.joda.FormatDateTimeFormatter;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.index.cache.filter.support.FixedBitSetFilter;
 import org.elasticsearch.index.mapper.*;
 import org.elasticsearch.index.mapper.internal.AllFieldMapper;
 import org.elasticsearch.index.mapper.internal.TypeFieldMapper;
@@ -307,7 +308,8 @@ public class ObjectMapper implements Mapper, AllFieldMapper.IncludeInAll {
         }
         this.nestedTypePathAsString = "__" + fullPath;
         this.nestedTypePathAsBytes = new BytesRef(nestedTypePathAsString);
-        this.nestedTypeFilter = new TermFilter(new Term(TypeFieldMapper.NAME, nestedTypePathAsBytes));
+        // nested type docs act as the parent docs of deeper nested levels, so block join queries need them as a FixedBitSet
+        this.nestedTypeFilter = new FixedBitSetFilter.Wrapper(new TermFilter(new Term(TypeFieldMapper.NAME, nestedTypePathAsBytes)));
     }
 
     @Override
@@ -0,0 +1,250 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.percolator;
+
+import org.apache.lucene.index.*;
+import org.apache.lucene.queries.TermFilter;
+import org.apache.lucene.search.*;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.lucene.HashedBytesRef;
+import org.elasticsearch.common.lucene.search.XFilteredQuery;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An inverted index from terms to the registered percolator queries that require them. A query can only match a
+ * document that contains at least one of the terms extracted from it, so only the queries registered under the terms
+ * of the percolated document need to be executed. Queries no terms can be extracted from are always candidates.
+ */
+public class CandidateQueriesIndex {
+
+    private final ConcurrentMap<String, ConcurrentMap<BytesRef, Set<HashedBytesRef>>> terms = ConcurrentCollections.newConcurrentMap();
+    private final Map<HashedBytesRef, Set<Term>> queryTerms = new HashMap<HashedBytesRef, Set<Term>>();
+    private final Set<HashedBytesRef> alwaysCandidates = ConcurrentCollections.newConcurrentSet();
+
+    /**
+     * Registers the query under the terms extracted from it, replacing a previously registered query with the same id.
+     */
+    public synchronized void add(HashedBytesRef id, Query query) {
+        remove(id);
+        Set<Term> extracted = extractTerms(query);
+        if (extracted == null) {
+            alwaysCandidates.add(id);
+            return;
+        }
+        queryTerms.put(id, extracted);
+        for (Term term : extracted) {
+            ConcurrentMap<BytesRef, Set<HashedBytesRef>> fieldTerms = terms.get(term.field());
+            if (fieldTerms == null) {
+                fieldTerms = ConcurrentCollections.newConcurrentMap();
+                terms.put(term.field(), fieldTerms);
+            }
+            Set<HashedBytesRef> ids = fieldTerms.get(term.bytes());
+            if (ids == null) {
+                ids = ConcurrentCollections.newConcurrentSet();
+                fieldTerms.put(BytesRef.deepCopyOf(term.bytes()), ids);
+            }
+            ids.add(id);
+        }
+    }
+
+    public synchronized void remove(HashedBytesRef id) {
+        if (alwaysCandidates.remove(id)) {
+            return;
+        }
+        Set<Term> extracted = queryTerms.remove(id);
+        if (extracted == null) {
+            return;
+        }
+        for (Term term : extracted) {
+            ConcurrentMap<BytesRef, Set<HashedBytesRef>> fieldTerms = terms.get(term.field());
+            if (fieldTerms == null) {
+                continue;
+            }
+            Set<HashedBytesRef> ids = fieldTerms.get(term.bytes());
+            if (ids == null) {
+                continue;
+            }
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                fieldTerms.remove(term.bytes());
+                if (fieldTerms.isEmpty()) {
+                    terms.remove(term.field());
+                }
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        terms.clear();
+        queryTerms.clear();
+        alwaysCandidates.clear();
+    }
+
+    /**
+     * Returns the queries that may match the documents in the provided reader, looked up in the registered queries.
+     */
+    public Map<HashedBytesRef, Query> candidates(IndexReader docReader, Map<HashedBytesRef, Query> queries) throws IOException {
+        Set<HashedBytesRef> ids = new HashSet<HashedBytesRef>(alwaysCandidates);
+        for (AtomicReaderContext leaf : docReader.leaves()) {
+            Fields fields = leaf.reader().fields();
+            if (fields == null) {
+                continue;
+            }
+            for (String field : fields) {
+                ConcurrentMap<BytesRef, Set<HashedBytesRef>> fieldTerms = terms.get(field);
+                if (fieldTerms == null) {
+                    continue;
+                }
+                Terms docTerms = fields.terms(field);
+                if (docTerms == null) {
+                    continue;
+                }
+                TermsEnum termsEnum = docTerms.iterator(null);
+                for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+                    Set<HashedBytesRef> termIds = fieldTerms.get(term);
+                    if (termIds != null) {
+                        ids.addAll(termIds);
+                    }
+                }
+            }
+        }
+        Map<HashedBytesRef, Query> candidates = new HashMap<HashedBytesRef, Query>(ids.size());
+        for (HashedBytesRef id : ids) {
+            Query query = queries.get(id);
+            if (query != null) {
+                candidates.put(id, query);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Extracts terms from the query, one of which any matching document must contain. Returns <tt>null</tt> if
+     * that can't be determined for the query.
+     */
+    public static Set<Term> extractTerms(Query query) {
+        if (query instanceof TermQuery) {
+            return Collections.singleton(((TermQuery) query).getTerm());
+        } else if (query instanceof PhraseQuery) {
+            // all the terms are required, the longest one is likely the rarest
+            Term longest = null;
+            for (Term term : ((PhraseQuery) query).getTerms()) {
+                if (longest == null || term.bytes().length > longest.bytes().length) {
+                    longest = term;
+                }
+            }
+            return longest == null ? null : Collections.singleton(longest);
+        } else if (query instanceof BooleanQuery) {
+            return extractTerms((BooleanQuery) query);
+        } else if (query instanceof DisjunctionMaxQuery) {
+            return extractDisjunctionTerms(((DisjunctionMaxQuery) query).getDisjuncts());
+        } else if (query instanceof ConstantScoreQuery) {
+            ConstantScoreQuery constantScoreQuery = (ConstantScoreQuery) query;
+            if (constantScoreQuery.getQuery() != null) {
+                return extractTerms(constantScoreQuery.getQuery());
+            }
+            return extractTerms(constantScoreQuery.getFilter());
+        } else if (query instanceof FilteredQuery) {
+            FilteredQuery filteredQuery = (FilteredQuery) query;
+            return extractFilteredTerms(filteredQuery.getQuery(), filteredQuery.getFilter());
+        } else if (query instanceof XFilteredQuery) {
+            XFilteredQuery filteredQuery = (XFilteredQuery) query;
+            return extractFilteredTerms(filteredQuery.getQuery(), filteredQuery.getFilter());
+        }
+        return null;
+    }
+
+    private static Set<Term> extractFilteredTerms(Query query, Filter filter) {
+        // filters are often on broad terms, like the type, so prefer the terms of the query
+        Set<Term> terms = extractTerms(query);
+        return terms != null ? terms : extractTerms(filter);
+    }
+
+    private static Set<Term> extractTerms(Filter filter) {
+        if (filter instanceof TermFilter) {
+            return Collections.singleton(((TermFilter) filter).getTerm());
+        }
+        return null;
+    }
+
+    private static Set<Term> extractTerms(BooleanQuery query) {
+        List<Query> optional = new ArrayList<Query>();
+        Set<Term> required = null;
+        for (BooleanClause clause : query.clauses()) {
+            if (clause.isProhibited()) {
+                continue;
+            }
+            if (clause.isRequired()) {
+                required = extractRequiredTerms(required, extractTerms(clause.getQuery()));
+            } else {
+                optional.add(clause.getQuery());
+            }
+        }
+        if (required != null) {
+            return required;
+        }
+        boolean hasRequiredClauses = optional.size() < query.clauses().size();
+        if (hasRequiredClauses || optional.isEmpty()) {
+            // optional clauses don't need to match when there are required ones, or only prohibited clauses
+            return null;
+        }
+        return extractDisjunctionTerms(optional);
+    }
+
+    /**
+     * Of two sets of terms that are both required, picks the one that is most likely to be selective.
+     */
+    private static Set<Term> extractRequiredTerms(Set<Term> terms1, Set<Term> terms2) {
+        if (terms1 == null) {
+            return terms2;
+        }
+        if (terms2 == null) {
+            return terms1;
+        }
+        if (terms1.size() != terms2.size()) {
+            return terms1.size() < terms2.size() ? terms1 : terms2;
+        }
+        return minTermLength(terms1) >= minTermLength(terms2) ? terms1 : terms2;
+    }
+
+    private static int minTermLength(Set<Term> terms) {
+        int min = Integer.MAX_VALUE;
+        for (Term term : terms) {
+            min = Math.min(min, term.bytes().length);
+        }
+        return min;
+    }
+
+    private static Set<Term> extractDisjunctionTerms(Collection<Query> disjuncts) {
+        Set<Term> terms = new HashSet<Term>();
+        for (Query disjunct : disjuncts) {
+            Set<Term> disjunctTerms = extractTerms(disjunct);
+            if (disjunctTerms == null) {
+                return null;
+            }
+            terms.addAll(disjunctTerms);
+        }
+        return terms.isEmpty() ? null : terms;
+    }
+}
@@ -1,11 +1,13 @@
 package org.elasticsearch.index.percolator;
 
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queries.TermFilter;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.HashedBytesRef;
 import org.elasticsearch.common.lucene.search.XConstantScoreQuery;
@@ -33,6 +35,7 @@ import org.elasticsearch.index.shard.service.IndexShard;
 import org.elasticsearch.indices.IndicesLifecycle;
 import org.elasticsearch.percolator.PercolatorService;
 
+import java.io.IOException;
 import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
 
@@ -45,6 +48,8 @@ import java.util.concurrent.ConcurrentMap;
  */
 public class PercolatorQueriesRegistry extends AbstractIndexShardComponent {
 
+    public static final String INDEX_PERCOLATOR_CANDIDATE_FILTERING = "index.percolator.candidate_filtering";
+
     // This is a shard level service, but these below are index level service:
     private final IndexQueryParserService queryParserService;
     private final MapperService mapperService;
@@ -56,6 +61,8 @@ public class PercolatorQueriesRegistry extends AbstractIndexShardComponent {
     private final ShardPercolateService shardPercolateService;
 
     private final ConcurrentMap<HashedBytesRef, Query> percolateQueries = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
+    @Nullable
+    private final CandidateQueriesIndex candidateQueriesIndex;
     private final ShardLifecycleListener shardLifecycleListener = new ShardLifecycleListener();
     private final RealTimePercolatorOperationListener realTimePercolatorOperationListener = new RealTimePercolatorOperationListener();
     private final PercolateTypeListener percolateTypeListener = new PercolateTypeListener();
@@ -74,6 +81,7 @@ public class PercolatorQueriesRegistry extends AbstractIndexShardComponent {
         this.indexCache = indexCache;
         this.indexFieldDataService = indexFieldDataService;
         this.shardPercolateService = shardPercolateService;
+        this.candidateQueriesIndex = indexSettings.getAsBoolean(INDEX_PERCOLATOR_CANDIDATE_FILTERING, true) ? new CandidateQueriesIndex() : null;
 
         indicesLifecycle.addListener(shardLifecycleListener);
         mapperService.addTypeListener(percolateTypeListener);
@@ -83,6 +91,21 @@ public class PercolatorQueriesRegistry extends AbstractIndexShardComponent {
         return percolateQueries;
     }
 
+    /**
+     * Returns the registered queries that may match the documents in the provided reader. These are all the
+     * registered queries if candidate filtering is disabled.
+     */
+    public Map<HashedBytesRef, Query> candidateQueries(IndexReader docReader) {
+        if (candidateQueriesIndex == null) {
+            return percolateQueries;
+        }
+        try {
+            return candidateQueriesIndex.candidates(docReader, percolateQueries);
+        } catch (IOException e) {
+            throw new PercolatorException(shardId.index(), "failed to select the candidate queries", e);
+        }
+    }
+
     public void close() {
         mapperService.removeTypeListener(percolateTypeListener);
         indicesLifecycle.removeListener(shardLifecycleListener);
@@ -92,6 +115,9 @@ public class PercolatorQueriesRegistry extends AbstractIndexShardComponent {
 
     public void clear() {
         percolateQueries.clear();
+        if (candidateQueriesIndex != null) {
+            candidateQueriesIndex.clear();
+        }
     }
 
     void enableRealTimePercolator() {
@@ -111,8 +137,16 @@ public class PercolatorQueriesRegistry extends AbstractIndexShardComponent {
     public void addPercolateQuery(String idAsString, BytesReference source) {
         Query newquery = parsePercolatorDocument(idAsString, source);
         HashedBytesRef id = new HashedBytesRef(new BytesRef(idAsString));
-        Query previousQuery = percolateQueries.put(id, newquery);
-        shardPercolateService.addedQuery(id, previousQuery, newquery);
+        putPercolateQuery(id, newquery);
+    }
+
+    private void putPercolateQuery(HashedBytesRef id, Query query) {
+        // index the candidate terms first, so a concurrent percolation never misses a registered query
+        if (candidateQueriesIndex != null) {
+            candidateQueriesIndex.add(id, query);
+        }
+        Query previousQuery = percolateQueries.put(id, query);
+        shardPercolateService.addedQuery(id, previousQuery, query);
     }
 
     public void removePercolateQuery(String idAsString) {
@@ -121,6 +155,9 @@ public class PercolatorQueriesRegistry extends AbstractIndexShardComponent {
         if (query != null) {
             shardPercolateService.removedQuery(id, query);
         }
+        if (candidateQueriesIndex != null) {
+            candidateQueriesIndex.remove(id);
+        }
     }
 
     Query parsePercolatorDocument(String id, BytesReference source) {
@@ -248,8 +285,7 @@ public class PercolatorQueriesRegistry extends AbstractIndexShardComponent {
                     searcher.searcher().search(query, queryCollector);
                     Map<HashedBytesRef, Query> queries = queryCollector.queries();
                     for (Map.Entry<HashedBytesRef, Query> entry : queries.entrySet()) {
-                        Query previousQuery = percolateQueries.put(entry.getKey(), entry.getValue());
-                        shardPercolateService.addedQuery(entry.getKey(), previousQuery, entry.getValue());
+                        putPercolateQuery(entry.getKey(), entry.getValue());
                     }
                 } finally {
                     searcher.release();
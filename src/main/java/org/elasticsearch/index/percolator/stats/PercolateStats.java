@@ -1,5 +1,6 @@
 package org.elasticsearch.index.percolator.stats;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
@@ -21,6 +22,8 @@ public class PercolateStats implements Streamable, ToXContent {
     private long current;
     private long memorySizeInBytes;
     private long numQueries;
+    private long registeredQueries;
+    private long candidateQueries;
 
     /**
      * Noop constructor for serialazation purposes.
@@ -28,12 +31,15 @@ public class PercolateStats implements Streamable, ToXContent {
     public PercolateStats() {
     }
 
-    PercolateStats(long percolateCount, long percolateTimeInMillis, long current, long memorySizeInBytes, long numQueries) {
+    PercolateStats(long percolateCount, long percolateTimeInMillis, long current, long memorySizeInBytes, long numQueries,
+                   long registeredQueries, long candidateQueries) {
         this.percolateCount = percolateCount;
         this.percolateTimeInMillis = percolateTimeInMillis;
         this.current = current;
         this.memorySizeInBytes = memorySizeInBytes;
         this.numQueries = numQueries;
+        this.registeredQueries = registeredQueries;
+        this.candidateQueries = candidateQueries;
     }
 
     /**
@@ -85,6 +91,21 @@ public class PercolateStats implements Streamable, ToXContent {
         return new ByteSizeValue(memorySizeInBytes);
     }
 
+    /**
+     * @return The total number of registered queries the percolations could have executed.
+     */
+    public long getRegisteredQueries() {
+        return registeredQueries;
+    }
+
+    /**
+     * @return The total number of queries the percolations executed, after selecting the candidates that may
+     * match the percolated documents.
+     */
+    public long getCandidateQueries() {
+        return candidateQueries;
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject(Fields.PERCOLATE);
@@ -93,6 +114,8 @@ public class PercolateStats implements Streamable, ToXContent {
         builder.field(Fields.CURRENT, current);
         builder.field(Fields.MEMORY_SIZE_IN_BYTES, memorySizeInBytes);
         builder.field(Fields.MEMORY_SIZE, getMemorySize());
+        builder.field(Fields.REGISTERED_QUERIES, registeredQueries);
+        builder.field(Fields.CANDIDATE_QUERIES, candidateQueries);
         builder.endObject();
         return builder;
     }
@@ -107,6 +130,8 @@ public class PercolateStats implements Streamable, ToXContent {
         current += percolate.getCurrent();
         memorySizeInBytes += percolate.getMemorySizeInBytes();
         numQueries += percolate.getNumQueries();
+        registeredQueries += percolate.getRegisteredQueries();
+        candidateQueries += percolate.getCandidateQueries();
     }
 
     static final class Fields {
@@ -117,6 +142,8 @@ public class PercolateStats implements Streamable, ToXContent {
         static final XContentBuilderString CURRENT = new XContentBuilderString("current");
         static final XContentBuilderString MEMORY_SIZE_IN_BYTES = new XContentBuilderString("memory_size_in_bytes");
         static final XContentBuilderString MEMORY_SIZE = new XContentBuilderString("memory_size");
+        static final XContentBuilderString REGISTERED_QUERIES = new XContentBuilderString("registered_queries");
+        static final XContentBuilderString CANDIDATE_QUERIES = new XContentBuilderString("candidate_queries");
     }
 
     public static PercolateStats readPercolateStats(StreamInput in) throws IOException {
@@ -132,6 +159,10 @@ public class PercolateStats implements Streamable, ToXContent {
         current = in.readVLong();
         memorySizeInBytes = in.readVLong();
         numQueries = in.readVLong();
+        if (in.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            registeredQueries = in.readVLong();
+            candidateQueries = in.readVLong();
+        }
     }
 
     @Override
@@ -141,5 +172,9 @@ public class PercolateStats implements Streamable, ToXContent {
         out.writeVLong(current);
         out.writeVLong(memorySizeInBytes);
         out.writeVLong(numQueries);
+        if (out.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            out.writeVLong(registeredQueries);
+            out.writeVLong(candidateQueries);
+        }
     }
 }
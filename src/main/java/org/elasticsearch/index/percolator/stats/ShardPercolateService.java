@@ -39,6 +39,7 @@ import java.util.concurrent.TimeUnit;
  *     <li> the current number of percolate requests
  *     <li> number of registered percolate queries
  *     <li> the estimated amount of memory the registered queries take
+ *     <li> the number of candidate queries executed out of the registered ones
  * </ul>
  */
 public class ShardPercolateService extends AbstractIndexShardComponent {
@@ -54,6 +55,9 @@ public class ShardPercolateService extends AbstractIndexShardComponent {
     private final CounterMetric numberOfQueries = new CounterMetric();
     private final CounterMetric memorySizeInBytes = new CounterMetric();
 
+    private final CounterMetric registeredQueries = new CounterMetric();
+    private final CounterMetric candidateQueries = new CounterMetric();
+
     public void prePercolate() {
         currentMetric.inc();
     }
@@ -63,6 +67,14 @@ public class ShardPercolateService extends AbstractIndexShardComponent {
         percolateMetric.inc(tookInNanos);
     }
 
+    /**
+     * Records how many of the registered queries were selected as candidates for a percolation.
+     */
+    public void candidateQueries(long registered, long candidates) {
+        registeredQueries.inc(registered);
+        candidateQueries.inc(candidates);
+    }
+
     public void addedQuery(HashedBytesRef id, Query previousQuery, Query newQuery) {
         if (previousQuery != null) {
             memorySizeInBytes.dec(computeSizeInMemory(id, previousQuery));
@@ -81,7 +93,8 @@ public class ShardPercolateService extends AbstractIndexShardComponent {
      * @return The current metrics
      */
     public PercolateStats stats() {
-        return new PercolateStats(percolateMetric.count(), TimeUnit.NANOSECONDS.toMillis(percolateMetric.sum()), currentMetric.count(), memorySizeInBytes.count(), numberOfQueries.count());
+        return new PercolateStats(percolateMetric.count(), TimeUnit.NANOSECONDS.toMillis(percolateMetric.sum()), currentMetric.count(), memorySizeInBytes.count(), numberOfQueries.count(),
+                registeredQueries.count(), candidateQueries.count());
     }
 
     private static long computeSizeInMemory(HashedBytesRef id, Query query) {
@@ -118,7 +118,8 @@ public class GeoBoundingBoxFilterBuilder extends BaseFilterBuilder {
     }
 
     /**
-     * Sets the type of executing of the geo bounding box. Can be either `memory` or `indexed`. Defaults
+     * Sets the type of executing of the geo bounding box. Can be either `memory`, `indexed` or
+     * `geohash` (requires <tt>geohash_prefix</tt> to be enabled on the field). Defaults
      * to `memory`.
      */
     public GeoBoundingBoxFilterBuilder type(String type) {
@@ -31,6 +31,7 @@ import org.elasticsearch.index.fielddata.IndexGeoPointFieldData;
 import org.elasticsearch.index.mapper.FieldMapper;
 import org.elasticsearch.index.mapper.MapperService;
 import org.elasticsearch.index.mapper.geo.GeoPointFieldMapper;
+import org.elasticsearch.index.search.geo.GeohashPrefixTreeFilter;
 import org.elasticsearch.index.search.geo.InMemoryGeoBoundingBoxFilter;
 import org.elasticsearch.index.search.geo.IndexedGeoBoundingBoxFilter;
 
@@ -137,8 +138,11 @@ public class GeoBoundingBoxFilterParser implements FilterParser {
         } else if ("memory".equals(type)) {
             IndexGeoPointFieldData<?> indexFieldData = parseContext.fieldData().getForField(mapper);
             filter = new InMemoryGeoBoundingBoxFilter(topLeft, bottomRight, indexFieldData);
+        } else if ("geohash".equals(type)) {
+            IndexGeoPointFieldData<?> indexFieldData = parseContext.fieldData().getForField(mapper);
+            filter = GeohashPrefixTreeFilter.boundingBox(topLeft, bottomRight, geoMapper, new InMemoryGeoBoundingBoxFilter(topLeft, bottomRight, indexFieldData));
         } else {
-            throw new QueryParsingException(parseContext.index(), "geo bounding box type [" + type + "] not supported, either 'indexed' or 'memory' are allowed");
+            throw new QueryParsingException(parseContext.index(), "geo bounding box type [" + type + "] not supported, either 'indexed', 'memory' or 'geohash' are allowed");
         }
 
         if (cache) {
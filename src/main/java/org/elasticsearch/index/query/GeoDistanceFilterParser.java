@@ -33,6 +33,7 @@ import org.elasticsearch.index.mapper.FieldMapper;
 import org.elasticsearch.index.mapper.MapperService;
 import org.elasticsearch.index.mapper.geo.GeoPointFieldMapper;
 import org.elasticsearch.index.search.geo.GeoDistanceFilter;
+import org.elasticsearch.index.search.geo.GeohashPrefixTreeFilter;
 
 import java.io.IOException;
 
@@ -164,7 +165,13 @@ public class GeoDistanceFilterParser implements FilterParser {
 
 
         IndexGeoPointFieldData indexFieldData = parseContext.fieldData().getForField(mapper);
-        Filter filter = new GeoDistanceFilter(point.lat(), point.lon(), distance, geoDistance, indexFieldData, geoMapper, optimizeBbox);
+        Filter filter;
+        if ("geohash".equals(optimizeBbox)) {
+            Filter exactFilter = new GeoDistanceFilter(point.lat(), point.lon(), distance, geoDistance, indexFieldData, geoMapper, "memory");
+            filter = GeohashPrefixTreeFilter.distance(point.lat(), point.lon(), distance, geoDistance, geoMapper, exactFilter);
+        } else {
+            filter = new GeoDistanceFilter(point.lat(), point.lon(), distance, geoDistance, indexFieldData, geoMapper, optimizeBbox);
+        }
         if (cache) {
             filter = parseContext.cacheFilter(filter, cacheKey);
         }
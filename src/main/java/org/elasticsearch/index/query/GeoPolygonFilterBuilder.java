@@ -41,6 +41,8 @@ public class GeoPolygonFilterBuilder extends BaseFilterBuilder {
 
     private String filterName;
 
+    private String type;
+
     public GeoPolygonFilterBuilder(String name) {
         this.name = name;
     }
@@ -83,6 +85,15 @@ public class GeoPolygonFilterBuilder extends BaseFilterBuilder {
         return this;
     }
 
+    /**
+     * Sets the type of execution of the geo polygon. Can be either `memory` or `geohash` (requires
+     * <tt>geohash_prefix</tt> to be enabled on the field). Defaults to `memory`.
+     */
+    public GeoPolygonFilterBuilder type(String type) {
+        this.type = type;
+        return this;
+    }
+
     @Override
     protected void doXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject(GeoPolygonFilterParser.NAME);
@@ -95,6 +106,9 @@ public class GeoPolygonFilterBuilder extends BaseFilterBuilder {
         builder.endArray();
         builder.endObject();
 
+        if (type != null) {
+            builder.field("type", type);
+        }
         if (filterName != null) {
             builder.field("_name", filterName);
         }
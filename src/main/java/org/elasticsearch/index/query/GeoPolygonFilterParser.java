@@ -32,6 +32,7 @@ import org.elasticsearch.index.mapper.FieldMapper;
 import org.elasticsearch.index.mapper.MapperService;
 import org.elasticsearch.index.mapper.geo.GeoPointFieldMapper;
 import org.elasticsearch.index.search.geo.GeoPolygonFilter;
+import org.elasticsearch.index.search.geo.GeohashPrefixTreeFilter;
 
 import java.io.IOException;
 import java.util.List;
@@ -72,6 +73,8 @@ public class GeoPolygonFilterParser implements FilterParser {
         String fieldName = null;
         List<GeoPoint> points = Lists.newArrayList();
 
+        String type = "memory";
+
         boolean normalizeLon = true;
         boolean normalizeLat = true;
 
@@ -108,6 +111,8 @@ public class GeoPolygonFilterParser implements FilterParser {
                 } else if ("normalize".equals(currentFieldName)) {
                     normalizeLat = parser.booleanValue();
                     normalizeLon = parser.booleanValue();
+                } else if ("type".equals(currentFieldName)) {
+                    type = parser.text();
                 } else {
                     throw new QueryParsingException(parseContext.index(), "[geo_polygon] filter does not support [" + currentFieldName + "]");
                 }
@@ -134,7 +139,16 @@ public class GeoPolygonFilterParser implements FilterParser {
         }
 
         IndexGeoPointFieldData indexFieldData = parseContext.fieldData().getForField(mapper);
-        Filter filter = new GeoPolygonFilter(points.toArray(new GeoPoint[points.size()]), indexFieldData);
+        GeoPoint[] polygon = points.toArray(new GeoPoint[points.size()]);
+        Filter filter;
+        if ("memory".equals(type)) {
+            filter = new GeoPolygonFilter(polygon, indexFieldData);
+        } else if ("geohash".equals(type)) {
+            GeoPointFieldMapper geoMapper = ((GeoPointFieldMapper.GeoStringFieldMapper) mapper).geoMapper();
+            filter = GeohashPrefixTreeFilter.polygon(polygon, geoMapper, new GeoPolygonFilter(polygon, indexFieldData));
+        } else {
+            throw new QueryParsingException(parseContext.index(), "geo polygon type [" + type + "] not supported, either 'memory' or 'geohash' are allowed");
+        }
         if (cache) {
             filter = parseContext.cacheFilter(filter, cacheKey);
         }
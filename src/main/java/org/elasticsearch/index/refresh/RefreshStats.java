@@ -19,6 +19,7 @@
 
 package org.elasticsearch.index.refresh;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
@@ -35,13 +36,28 @@ public class RefreshStats implements Streamable, ToXContent {
 
     private long totalTimeInMillis;
 
+    private long stalenessInMillis;
+
+    private long intervalInMillis;
+
     public RefreshStats() {
 
     }
 
     public RefreshStats(long total, long totalTimeInMillis) {
+        this(total, totalTimeInMillis, 0);
+    }
+
+    public RefreshStats(long total, long totalTimeInMillis, long stalenessInMillis) {
+        this(total, totalTimeInMillis, stalenessInMillis, 0);
+    }
+
+    public RefreshStats(long total, long totalTimeInMillis, long stalenessInMillis, long intervalInMillis) {
         this.total = total;
         this.totalTimeInMillis = totalTimeInMillis;
+        this.stalenessInMillis = stalenessInMillis;
+        // a disabled refresh interval is -1
+        this.intervalInMillis = Math.max(0, intervalInMillis);
     }
 
     public void add(long total, long totalTimeInMillis) {
@@ -55,6 +71,8 @@ public class RefreshStats implements Streamable, ToXContent {
         }
         this.total += refreshStats.total;
         this.totalTimeInMillis += refreshStats.totalTimeInMillis;
+        this.stalenessInMillis = Math.max(this.stalenessInMillis, refreshStats.stalenessInMillis);
+        this.intervalInMillis = Math.max(this.intervalInMillis, refreshStats.intervalInMillis);
     }
 
     /**
@@ -78,6 +96,37 @@ public class RefreshStats implements Streamable, ToXContent {
         return new TimeValue(totalTimeInMillis);
     }
 
+    /**
+     * How long changes have been waiting to become visible to searches (in milliseconds), the
+     * maximum across shards. <tt>0</tt> when searches see all the changes.
+     */
+    public long getStalenessInMillis() {
+        return this.stalenessInMillis;
+    }
+
+    /**
+     * How long changes have been waiting to become visible to searches.
+     */
+    public TimeValue getStaleness() {
+        return new TimeValue(stalenessInMillis);
+    }
+
+    /**
+     * The effective refresh interval (in milliseconds), the maximum across shards. Idle shards
+     * with adaptive refresh enabled report their (longer) idle interval. <tt>0</tt> when scheduled
+     * refreshes are disabled.
+     */
+    public long getIntervalInMillis() {
+        return this.intervalInMillis;
+    }
+
+    /**
+     * The effective refresh interval.
+     */
+    public TimeValue getInterval() {
+        return new TimeValue(intervalInMillis);
+    }
+
     public static RefreshStats readRefreshStats(StreamInput in) throws IOException {
         RefreshStats refreshStats = new RefreshStats();
         refreshStats.readFrom(in);
@@ -89,6 +138,8 @@ public class RefreshStats implements Streamable, ToXContent {
         builder.startObject(Fields.REFRESH);
         builder.field(Fields.TOTAL, total);
         builder.timeValueField(Fields.TOTAL_TIME_IN_MILLIS, Fields.TOTAL_TIME, totalTimeInMillis);
+        builder.timeValueField(Fields.STALENESS_IN_MILLIS, Fields.STALENESS, stalenessInMillis);
+        builder.timeValueField(Fields.INTERVAL_IN_MILLIS, Fields.INTERVAL, intervalInMillis);
         builder.endObject();
         return builder;
     }
@@ -98,17 +149,29 @@ public class RefreshStats implements Streamable, ToXContent {
         static final XContentBuilderString TOTAL = new XContentBuilderString("total");
         static final XContentBuilderString TOTAL_TIME = new XContentBuilderString("total_time");
         static final XContentBuilderString TOTAL_TIME_IN_MILLIS = new XContentBuilderString("total_time_in_millis");
+        static final XContentBuilderString STALENESS = new XContentBuilderString("staleness");
+        static final XContentBuilderString STALENESS_IN_MILLIS = new XContentBuilderString("staleness_in_millis");
+        static final XContentBuilderString INTERVAL = new XContentBuilderString("interval");
+        static final XContentBuilderString INTERVAL_IN_MILLIS = new XContentBuilderString("interval_in_millis");
     }
 
     @Override
     public void readFrom(StreamInput in) throws IOException {
         total = in.readVLong();
         totalTimeInMillis = in.readVLong();
+        if (in.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            stalenessInMillis = in.readVLong();
+            intervalInMillis = in.readVLong();
+        }
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeVLong(total);
         out.writeVLong(totalTimeInMillis);
+        if (out.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            out.writeVLong(stalenessInMillis);
+            out.writeVLong(intervalInMillis);
+        }
     }
 }
\ No newline at end of file
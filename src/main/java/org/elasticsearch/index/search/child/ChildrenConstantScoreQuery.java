@@ -19,7 +19,6 @@
 
 package org.elasticsearch.index.search.child;
 
-import com.carrotsearch.hppc.ObjectOpenHashSet;
 import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.Term;
@@ -27,21 +26,18 @@ import org.apache.lucene.queries.TermFilter;
 import org.apache.lucene.search.*;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
-import org.elasticsearch.ElasticSearchException;
-import org.elasticsearch.common.bytes.HashedBytesArray;
-import org.elasticsearch.common.lease.Releasable;
+import org.apache.lucene.util.FixedBitSet;
 import org.elasticsearch.common.lucene.docset.DocIdSets;
 import org.elasticsearch.common.lucene.docset.MatchDocIdSet;
 import org.elasticsearch.common.lucene.search.ApplyAcceptedDocsFilter;
 import org.elasticsearch.common.lucene.search.Queries;
-import org.elasticsearch.common.recycler.Recycler;
-import org.elasticsearch.common.recycler.RecyclerUtils;
-import org.elasticsearch.index.cache.id.IdReaderTypeCache;
+import org.elasticsearch.index.cache.id.GlobalIdOrdinals;
 import org.elasticsearch.index.mapper.Uid;
 import org.elasticsearch.index.mapper.internal.UidFieldMapper;
 import org.elasticsearch.search.internal.SearchContext;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -86,9 +82,11 @@ public class ChildrenConstantScoreQuery extends Query {
     @Override
     public Weight createWeight(IndexSearcher searcher) throws IOException {
         SearchContext searchContext = SearchContext.current();
-        searchContext.idCache().refresh(searcher.getTopReaderContext().leaves());
-        Recycler.V<ObjectOpenHashSet<HashedBytesArray>> collectedUids = searchContext.cacheRecycler().hashSet(-1);
-        UidCollector collector = new UidCollector(parentType, searchContext, collectedUids.v());
+        List<AtomicReaderContext> leaves = searcher.getTopReaderContext().leaves();
+        searchContext.idCache().refresh(leaves);
+        GlobalIdOrdinals parentOrdinals = searchContext.idCache().globalOrdinals(parentType, leaves);
+        FixedBitSet collectedOrds = new FixedBitSet(parentOrdinals.numberOfOrds());
+        ParentOrdCollector collector = new ParentOrdCollector(parentOrdinals, collectedOrds);
         final Query childQuery;
         if (rewrittenChildQuery == null) {
             childQuery = rewrittenChildQuery = searcher.rewrite(originalChildQuery);
@@ -99,36 +97,34 @@ public class ChildrenConstantScoreQuery extends Query {
         IndexSearcher indexSearcher = new IndexSearcher(searcher.getIndexReader());
         indexSearcher.search(childQuery, collector);
 
-        int remaining = collectedUids.v().size();
+        int remaining = (int) collectedOrds.cardinality();
         if (remaining == 0) {
             return Queries.NO_MATCH_QUERY.createWeight(searcher);
         }
 
         Filter shortCircuitFilter = null;
         if (remaining == 1) {
-            BytesRef id = collectedUids.v().iterator().next().value.toBytesRef();
+            BytesRef id = parentOrdinals.idByOrd(collectedOrds.nextSetBit(0), new BytesRef());
             shortCircuitFilter = new TermFilter(new Term(UidFieldMapper.NAME, Uid.createUidAsBytes(parentType, id)));
         } else if (remaining <= shortCircuitParentDocSet) {
-            shortCircuitFilter = new ParentIdsFilter(parentType, collectedUids.v().keys, collectedUids.v().allocated);
+            shortCircuitFilter = new ParentIdsFilter(parentType, parentOrdinals, collectedOrds);
         }
 
-        ParentWeight parentWeight = new ParentWeight(parentFilter, shortCircuitFilter, searchContext, collectedUids);
-        searchContext.addReleasable(parentWeight);
-        return parentWeight;
+        return new ParentWeight(parentFilter, shortCircuitFilter, parentOrdinals, collectedOrds, remaining);
     }
 
-    private final class ParentWeight extends Weight implements Releasable  {
+    private final class ParentWeight extends Weight {
 
         private final Filter parentFilter;
         private final Filter shortCircuitFilter;
-        private final SearchContext searchContext;
-        private final Recycler.V<ObjectOpenHashSet<HashedBytesArray>> collectedUids;
+        private final GlobalIdOrdinals parentOrdinals;
+        private final FixedBitSet collectedOrds;
 
         private int remaining;
         private float queryNorm;
         private float queryWeight;
 
-        public ParentWeight(Filter parentFilter, Filter shortCircuitFilter, SearchContext searchContext, Recycler.V<ObjectOpenHashSet<HashedBytesArray>> collectedUids) {
+        public ParentWeight(Filter parentFilter, Filter shortCircuitFilter, GlobalIdOrdinals parentOrdinals, FixedBitSet collectedOrds, int remaining) {
             if (applyAcceptedDocs) {
                 // In case filters are cached, we need to apply deletes, since filters from filter cache didn't apply deletes
                 this.parentFilter = new ApplyAcceptedDocsFilter(parentFilter);
@@ -138,9 +134,9 @@ public class ChildrenConstantScoreQuery extends Query {
                 this.shortCircuitFilter = shortCircuitFilter;
 
             }
-            this.searchContext = searchContext;
-            this.collectedUids = collectedUids;
-            this.remaining = collectedUids.v().size();
+            this.parentOrdinals = parentOrdinals;
+            this.collectedOrds = collectedOrds;
+            this.remaining = remaining;
         }
 
         @Override
@@ -184,30 +180,22 @@ public class ChildrenConstantScoreQuery extends Query {
             }
 
             Bits parentsBits = DocIdSets.toSafeBits(context.reader(), parentDocIdSet);
-            IdReaderTypeCache idReaderTypeCache = searchContext.idCache().reader(context.reader()).type(parentType);
-            if (idReaderTypeCache != null) {
-                DocIdSet docIdSet = new ParentDocSet(context.reader(), parentsBits, collectedUids.v(), idReaderTypeCache);
+            GlobalIdOrdinals.Segment segment = parentOrdinals.segment(context.reader());
+            if (segment != null) {
+                DocIdSet docIdSet = new ParentDocSet(context.reader(), parentsBits, segment);
                 return ConstantScorer.create(docIdSet, this, queryWeight);
             } else {
                 return null;
             }
         }
 
-        @Override
-        public boolean release() throws ElasticSearchException {
-            RecyclerUtils.release(collectedUids);
-            return true;
-        }
-
         private final class ParentDocSet extends MatchDocIdSet {
 
-            private final ObjectOpenHashSet<HashedBytesArray> parents;
-            private final IdReaderTypeCache typeCache;
+            private final GlobalIdOrdinals.Segment segment;
 
-            ParentDocSet(IndexReader reader, Bits acceptDocs, ObjectOpenHashSet<HashedBytesArray> parents, IdReaderTypeCache typeCache) {
+            ParentDocSet(IndexReader reader, Bits acceptDocs, GlobalIdOrdinals.Segment segment) {
                 super(reader.maxDoc(), acceptDocs);
-                this.parents = parents;
-                this.typeCache = typeCache;
+                this.segment = segment;
             }
 
             @Override
@@ -217,7 +205,8 @@ public class ChildrenConstantScoreQuery extends Query {
                     return false;
                 }
 
-                boolean match = parents.contains(typeCache.idByDoc(doc));
+                int ord = segment.ordByDoc(doc);
+                boolean match = ord >= 0 && collectedOrds.get(ord);
                 if (match) {
                     remaining--;
                 }
@@ -226,18 +215,18 @@ public class ChildrenConstantScoreQuery extends Query {
         }
     }
 
-    private final static class UidCollector extends ParentIdCollector {
+    private final static class ParentOrdCollector extends ParentIdCollector {
 
-        private final ObjectOpenHashSet<HashedBytesArray> collectedUids;
+        private final FixedBitSet collectedOrds;
 
-        UidCollector(String parentType, SearchContext context, ObjectOpenHashSet<HashedBytesArray> collectedUids) {
-            super(parentType, context);
-            this.collectedUids = collectedUids;
+        ParentOrdCollector(GlobalIdOrdinals parentOrdinals, FixedBitSet collectedOrds) {
+            super(parentOrdinals);
+            this.collectedOrds = collectedOrds;
         }
 
         @Override
-        public void collect(int doc, HashedBytesArray parentIdByDoc) {
-            collectedUids.add(parentIdByDoc);
+        public void collect(int doc, int parentOrd) {
+            collectedOrds.set(parentOrd);
         }
 
     }
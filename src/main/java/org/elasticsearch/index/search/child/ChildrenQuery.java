@@ -19,8 +19,6 @@
 
 package org.elasticsearch.index.search.child;
 
-import com.carrotsearch.hppc.ObjectFloatOpenHashMap;
-import com.carrotsearch.hppc.ObjectIntOpenHashMap;
 import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.Term;
@@ -28,21 +26,19 @@ import org.apache.lucene.queries.TermFilter;
 import org.apache.lucene.search.*;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
 import org.apache.lucene.util.ToStringUtils;
-import org.elasticsearch.ElasticSearchException;
-import org.elasticsearch.common.bytes.HashedBytesArray;
-import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lucene.docset.DocIdSets;
 import org.elasticsearch.common.lucene.search.ApplyAcceptedDocsFilter;
 import org.elasticsearch.common.lucene.search.Queries;
-import org.elasticsearch.common.recycler.Recycler;
-import org.elasticsearch.common.recycler.RecyclerUtils;
+import org.elasticsearch.index.cache.id.GlobalIdOrdinals;
 import org.elasticsearch.index.cache.id.IdReaderTypeCache;
 import org.elasticsearch.index.mapper.Uid;
 import org.elasticsearch.index.mapper.internal.UidFieldMapper;
 import org.elasticsearch.search.internal.SearchContext;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -50,11 +46,10 @@ import java.util.Set;
  * parent documents using the {@link IdReaderTypeCache}.
  * <p/>
  * This query is executed in two rounds. The first round resolves all the matching child documents and groups these
- * documents by parent uid value. Also the child scores are aggregated per parent uid value. During the second round
- * all parent documents having the same uid value that is collected in the first phase are emitted as hit including
- * a score based on the aggregated child scores and score type.
+ * documents by the global ordinal of the parent uid value. Also the child scores are aggregated per parent ordinal.
+ * During the second round all parent documents having a uid value with an ordinal that is collected in the first
+ * phase are emitted as hit including a score based on the aggregated child scores and score type.
  */
-// TODO We use a score of 0 to indicate a doc was not scored in uidToScore, this means score of 0 can be problematic, if we move to HPCC, we can use lset/...
 public class ChildrenQuery extends Query {
 
     private final String parentType;
@@ -128,19 +123,22 @@ public class ChildrenQuery extends Query {
     @Override
     public Weight createWeight(IndexSearcher searcher) throws IOException {
         SearchContext searchContext = SearchContext.current();
-        searchContext.idCache().refresh(searchContext.searcher().getTopReaderContext().leaves());
+        List<AtomicReaderContext> leaves = searcher.getTopReaderContext().leaves();
+        searchContext.idCache().refresh(leaves);
+        GlobalIdOrdinals parentOrdinals = searchContext.idCache().globalOrdinals(parentType, leaves);
 
-        Recycler.V<ObjectFloatOpenHashMap<HashedBytesArray>> uidToScore = searchContext.cacheRecycler().objectFloatMap(-1);
-        Recycler.V<ObjectIntOpenHashMap<HashedBytesArray>> uidToCount = null;
+        FixedBitSet parentOrds = new FixedBitSet(parentOrdinals.numberOfOrds());
+        float[] ordToScore = new float[parentOrdinals.numberOfOrds()];
+        int[] ordToCount = null;
 
         final Collector collector;
         switch (scoreType) {
             case AVG:
-                uidToCount = searchContext.cacheRecycler().objectIntMap(-1);
-                collector = new AvgChildUidCollector(scoreType, searchContext, parentType, uidToScore.v(), uidToCount.v());
+                ordToCount = new int[parentOrdinals.numberOfOrds()];
+                collector = new AvgChildOrdCollector(scoreType, parentOrdinals, parentOrds, ordToScore, ordToCount);
                 break;
             default:
-                collector = new ChildUidCollector(scoreType, searchContext, parentType, uidToScore.v());
+                collector = new ChildOrdCollector(scoreType, parentOrdinals, parentOrds, ordToScore);
         }
         final Query childQuery;
         if (rewrittenChildQuery == null) {
@@ -152,46 +150,42 @@ public class ChildrenQuery extends Query {
         IndexSearcher indexSearcher = new IndexSearcher(searcher.getIndexReader());
         indexSearcher.search(childQuery, collector);
 
-        int size = uidToScore.v().size();
+        int size = (int) parentOrds.cardinality();
         if (size == 0) {
-            uidToScore.release();
-            if (uidToCount != null) {
-                uidToCount.release();
-            }
             return Queries.NO_MATCH_QUERY.createWeight(searcher);
         }
 
         Filter parentFilter;
         if (size == 1) {
-            BytesRef id = uidToScore.v().keys().iterator().next().value.toBytesRef();
+            BytesRef id = parentOrdinals.idByOrd(parentOrds.nextSetBit(0), new BytesRef());
             parentFilter = new TermFilter(new Term(UidFieldMapper.NAME, Uid.createUidAsBytes(parentType, id)));
         } else if (size <= shortCircuitParentDocSet) {
-            parentFilter = new ParentIdsFilter(parentType, uidToScore.v().keys, uidToScore.v().allocated);
+            parentFilter = new ParentIdsFilter(parentType, parentOrdinals, parentOrds);
         } else {
             parentFilter = this.parentFilter;
         }
-        ParentWeight parentWeight = new ParentWeight(rewrittenChildQuery.createWeight(searcher), parentFilter, searchContext, size, uidToScore, uidToCount);
-        searchContext.addReleasable(parentWeight);
-        return parentWeight;
+        return new ParentWeight(rewrittenChildQuery.createWeight(searcher), parentFilter, parentOrdinals, size, parentOrds, ordToScore, ordToCount);
     }
 
-    private final class ParentWeight extends Weight implements Releasable {
+    private final class ParentWeight extends Weight {
 
         private final Weight childWeight;
         private final Filter parentFilter;
-        private final SearchContext searchContext;
-        private final Recycler.V<ObjectFloatOpenHashMap<HashedBytesArray>> uidToScore;
-        private final Recycler.V<ObjectIntOpenHashMap<HashedBytesArray>> uidToCount;
+        private final GlobalIdOrdinals parentOrdinals;
+        private final FixedBitSet parentOrds;
+        private final float[] ordToScore;
+        private final int[] ordToCount;
 
         private int remaining;
 
-        private ParentWeight(Weight childWeight, Filter parentFilter, SearchContext searchContext, int remaining, Recycler.V<ObjectFloatOpenHashMap<HashedBytesArray>> uidToScore, Recycler.V<ObjectIntOpenHashMap<HashedBytesArray>> uidToCount) {
+        private ParentWeight(Weight childWeight, Filter parentFilter, GlobalIdOrdinals parentOrdinals, int remaining, FixedBitSet parentOrds, float[] ordToScore, int[] ordToCount) {
             this.childWeight = childWeight;
             this.parentFilter = parentFilter;
-            this.searchContext = searchContext;
+            this.parentOrdinals = parentOrdinals;
             this.remaining = remaining;
-            this.uidToScore = uidToScore;
-            this.uidToCount= uidToCount;
+            this.parentOrds = parentOrds;
+            this.ordToScore = ordToScore;
+            this.ordToCount = ordToCount;
         }
 
         @Override
@@ -222,38 +216,33 @@ public class ChildrenQuery extends Query {
                 return null;
             }
 
-            IdReaderTypeCache idTypeCache = searchContext.idCache().reader(context.reader()).type(parentType);
+            GlobalIdOrdinals.Segment segment = parentOrdinals.segment(context.reader());
+            if (segment == null) {
+                return null;
+            }
             DocIdSetIterator parentsIterator = parentsSet.iterator();
             switch (scoreType) {
                 case AVG:
-                    return new AvgParentScorer(this, idTypeCache, uidToScore.v(), uidToCount.v(), parentsIterator);
+                    return new AvgParentScorer(this, segment, parentsIterator);
                 default:
-                    return new ParentScorer(this, idTypeCache, uidToScore.v(), parentsIterator);
+                    return new ParentScorer(this, segment, parentsIterator);
             }
         }
 
-        @Override
-        public boolean release() throws ElasticSearchException {
-            RecyclerUtils.release(uidToScore, uidToCount);
-            return true;
-        }
-
         private class ParentScorer extends Scorer {
 
-            final ObjectFloatOpenHashMap<HashedBytesArray> uidToScore;
-            final IdReaderTypeCache idTypeCache;
+            final GlobalIdOrdinals.Segment segment;
             final DocIdSetIterator parentsIterator;
 
             int remaining;
             int currentDocId = -1;
             float currentScore;
 
-            ParentScorer(Weight weight, IdReaderTypeCache idTypeCache, ObjectFloatOpenHashMap<HashedBytesArray> uidToScore, DocIdSetIterator parentsIterator) {
+            ParentScorer(Weight weight, GlobalIdOrdinals.Segment segment, DocIdSetIterator parentsIterator) {
                 super(weight);
-                this.idTypeCache = idTypeCache;
+                this.segment = segment;
                 this.parentsIterator = parentsIterator;
-                this.uidToScore = uidToScore;
-                this.remaining = uidToScore.size();
+                this.remaining = ParentWeight.this.remaining;
             }
 
             @Override
@@ -276,7 +265,7 @@ public class ChildrenQuery extends Query {
             @Override
             public int nextDoc() throws IOException {
                 if (remaining == 0) {
-                    return NO_MORE_DOCS;
+                    return currentDocId = NO_MORE_DOCS;
                 }
 
                 while (true) {
@@ -285,9 +274,7 @@ public class ChildrenQuery extends Query {
                         return currentDocId;
                     }
 
-                    HashedBytesArray uid = idTypeCache.idByDoc(currentDocId);
-                    currentScore = uidToScore.get(uid);
-                    if (currentScore != 0) {
+                    if (matches(segment.ordByDoc(currentDocId))) {
                         remaining--;
                         return currentDocId;
                     }
@@ -297,7 +284,7 @@ public class ChildrenQuery extends Query {
             @Override
             public int advance(int target) throws IOException {
                 if (remaining == 0) {
-                    return NO_MORE_DOCS;
+                    return currentDocId = NO_MORE_DOCS;
                 }
 
                 currentDocId = parentsIterator.advance(target);
@@ -305,9 +292,7 @@ public class ChildrenQuery extends Query {
                     return currentDocId;
                 }
 
-                HashedBytesArray uid = idTypeCache.idByDoc(currentDocId);
-                currentScore = uidToScore.get(uid);
-                if (currentScore != 0) {
+                if (matches(segment.ordByDoc(currentDocId))) {
                     remaining--;
                     return currentDocId;
                 } else {
@@ -315,6 +300,17 @@ public class ChildrenQuery extends Query {
                 }
             }
 
+            /**
+             * Returns whether children matched the parent with the specified ordinal, and sets its score if so.
+             */
+            boolean matches(int parentOrd) {
+                if (parentOrd < 0 || !parentOrds.get(parentOrd)) {
+                    return false;
+                }
+                currentScore = ordToScore[parentOrd];
+                return true;
+            }
+
             @Override
             public long cost() {
                 return parentsIterator.cost();
@@ -323,62 +319,33 @@ public class ChildrenQuery extends Query {
 
         private final class AvgParentScorer extends ParentScorer {
 
-            HashedBytesArray currentUid;
-            final ObjectIntOpenHashMap<HashedBytesArray> uidToCount;
-
-            AvgParentScorer(Weight weight, IdReaderTypeCache idTypeCache, ObjectFloatOpenHashMap<HashedBytesArray> uidToScore, ObjectIntOpenHashMap<HashedBytesArray> uidToCount, DocIdSetIterator parentsIterator) {
-                super(weight, idTypeCache, uidToScore, parentsIterator);
-                this.uidToCount = uidToCount;
+            AvgParentScorer(Weight weight, GlobalIdOrdinals.Segment segment, DocIdSetIterator parentsIterator) {
+                super(weight, segment, parentsIterator);
             }
 
             @Override
-            public int nextDoc() throws IOException {
-                while (true) {
-                    currentDocId = parentsIterator.nextDoc();
-                    if (currentDocId == DocIdSetIterator.NO_MORE_DOCS) {
-                        return currentDocId;
-                    }
-
-                    currentUid = idTypeCache.idByDoc(currentDocId);
-                    currentScore = uidToScore.get(currentUid);
-                    if (currentScore != 0) {
-                        remaining--;
-                        currentScore /= uidToCount.get(currentUid);
-                        return currentDocId;
-                    }
-                }
-            }
-
-            @Override
-            public int advance(int target) throws IOException {
-                currentDocId = parentsIterator.advance(target);
-                if (currentDocId == DocIdSetIterator.NO_MORE_DOCS) {
-                    return currentDocId;
-                }
-
-                HashedBytesArray uid = idTypeCache.idByDoc(currentDocId);
-                currentScore = uidToScore.get(uid);
-                if (currentScore != 0) {
-                    remaining--;
-                    currentScore /= uidToCount.get(currentUid);
-                    return currentDocId;
-                } else {
-                    return nextDoc();
+            boolean matches(int parentOrd) {
+                if (!super.matches(parentOrd)) {
+                    return false;
                 }
+                currentScore /= ordToCount[parentOrd];
+                return true;
             }
         }
 
     }
 
-    private static class ChildUidCollector extends ParentIdCollector {
+    private static class ChildOrdCollector extends ParentIdCollector {
 
-        protected final ObjectFloatOpenHashMap<HashedBytesArray> uidToScore;
+        protected final FixedBitSet parentOrds;
+        protected final float[] ordToScore;
         private final ScoreType scoreType;
         protected Scorer scorer;
 
-        ChildUidCollector(ScoreType scoreType, SearchContext searchContext, String childType, ObjectFloatOpenHashMap<HashedBytesArray> uidToScore) {
-            super(childType, searchContext);
-            this.uidToScore = uidToScore;
+        ChildOrdCollector(ScoreType scoreType, GlobalIdOrdinals parentOrdinals, FixedBitSet parentOrds, float[] ordToScore) {
+            super(parentOrdinals);
+            this.parentOrds = parentOrds;
+            this.ordToScore = ordToScore;
             this.scoreType = scoreType;
         }
 
@@ -388,20 +355,15 @@ public class ChildrenQuery extends Query {
         }
 
         @Override
-        protected void collect(int doc, HashedBytesArray parentUid) throws IOException {
+        protected void collect(int doc, int parentOrd) throws IOException {
             float currentScore = scorer.score();
             switch (scoreType) {
                 case SUM:
-                    uidToScore.addTo(parentUid, currentScore);
+                    ordToScore[parentOrd] += currentScore;
                     break;
                 case MAX:
-                    if (uidToScore.containsKey(parentUid)) {
-                        float previousScore = uidToScore.lget();
-                        if (currentScore > previousScore) {
-                            uidToScore.lset(currentScore);
-                        }
-                    } else {
-                        uidToScore.put(parentUid, currentScore);
+                    if (!parentOrds.get(parentOrd) || currentScore > ordToScore[parentOrd]) {
+                        ordToScore[parentOrd] = currentScore;
                     }
                     break;
                 case AVG:
@@ -411,25 +373,27 @@ public class ChildrenQuery extends Query {
                     assert false : "Are we missing a score type here? -- " + scoreType;
                     break;
             }
+            parentOrds.set(parentOrd);
         }
 
     }
 
-    private final static class AvgChildUidCollector extends ChildUidCollector {
+    private final static class AvgChildOrdCollector extends ChildOrdCollector {
 
-        private final ObjectIntOpenHashMap<HashedBytesArray> uidToCount;
+        private final int[] ordToCount;
 
-        AvgChildUidCollector(ScoreType scoreType, SearchContext searchContext, String childType, ObjectFloatOpenHashMap<HashedBytesArray> uidToScore, ObjectIntOpenHashMap<HashedBytesArray> uidToCount) {
-            super(scoreType, searchContext, childType, uidToScore);
-            this.uidToCount = uidToCount;
+        AvgChildOrdCollector(ScoreType scoreType, GlobalIdOrdinals parentOrdinals, FixedBitSet parentOrds, float[] ordToScore, int[] ordToCount) {
+            super(scoreType, parentOrdinals, parentOrds, ordToScore);
+            this.ordToCount = ordToCount;
             assert scoreType == ScoreType.AVG;
         }
 
         @Override
-        protected void collect(int doc, HashedBytesArray parentUid) throws IOException {
+        protected void collect(int doc, int parentOrd) throws IOException {
             float currentScore = scorer.score();
-            uidToCount.addTo(parentUid, 1);
-            uidToScore.addTo(parentUid, currentScore);
+            ordToCount[parentOrd]++;
+            ordToScore[parentOrd] += currentScore;
+            parentOrds.set(parentOrd);
         }
 
     }
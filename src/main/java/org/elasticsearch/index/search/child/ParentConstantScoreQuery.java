@@ -19,26 +19,22 @@
 
 package org.elasticsearch.index.search.child;
 
-import com.carrotsearch.hppc.ObjectOpenHashSet;
 import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.*;
 import org.apache.lucene.util.Bits;
-import org.elasticsearch.ElasticSearchException;
-import org.elasticsearch.common.bytes.HashedBytesArray;
-import org.elasticsearch.common.lease.Releasable;
+import org.apache.lucene.util.FixedBitSet;
 import org.elasticsearch.common.lucene.docset.DocIdSets;
 import org.elasticsearch.common.lucene.docset.MatchDocIdSet;
 import org.elasticsearch.common.lucene.search.ApplyAcceptedDocsFilter;
 import org.elasticsearch.common.lucene.search.NoopCollector;
 import org.elasticsearch.common.lucene.search.Queries;
-import org.elasticsearch.common.recycler.Recycler;
-import org.elasticsearch.common.recycler.RecyclerUtils;
-import org.elasticsearch.index.cache.id.IdReaderTypeCache;
+import org.elasticsearch.index.cache.id.GlobalIdOrdinals;
 import org.elasticsearch.search.internal.SearchContext;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -84,9 +80,11 @@ public class ParentConstantScoreQuery extends Query {
     @Override
     public Weight createWeight(IndexSearcher searcher) throws IOException {
         SearchContext searchContext = SearchContext.current();
-        searchContext.idCache().refresh(searcher.getTopReaderContext().leaves());
-        Recycler.V<ObjectOpenHashSet<HashedBytesArray>> parents = searchContext.cacheRecycler().hashSet(-1);
-        ParentUidsCollector collector = new ParentUidsCollector(parents.v(), searchContext, parentType);
+        List<AtomicReaderContext> leaves = searcher.getTopReaderContext().leaves();
+        searchContext.idCache().refresh(leaves);
+        GlobalIdOrdinals parentOrdinals = searchContext.idCache().globalOrdinals(parentType, leaves);
+        FixedBitSet parentOrds = new FixedBitSet(parentOrdinals.numberOfOrds());
+        ParentOrdsCollector collector = new ParentOrdsCollector(parentOrdinals, parentOrds);
 
         final Query parentQuery;
         if (rewrittenParentQuery != null) {
@@ -98,26 +96,24 @@ public class ParentConstantScoreQuery extends Query {
         IndexSearcher indexSearcher = new IndexSearcher(searcher.getIndexReader());
         indexSearcher.search(parentQuery, collector);
 
-        if (parents.v().isEmpty()) {
+        if (parentOrds.cardinality() == 0) {
             return Queries.NO_MATCH_QUERY.createWeight(searcher);
         }
 
-        ChildrenWeight childrenWeight = new ChildrenWeight(searchContext, parents);
-        searchContext.addReleasable(childrenWeight);
-        return childrenWeight;
+        return new ChildrenWeight(parentOrdinals, parentOrds);
     }
 
-    private final class ChildrenWeight extends Weight implements Releasable {
+    private final class ChildrenWeight extends Weight {
 
-        private final SearchContext searchContext;
-        private final Recycler.V<ObjectOpenHashSet<HashedBytesArray>> parents;
+        private final GlobalIdOrdinals parentOrdinals;
+        private final FixedBitSet parentOrds;
 
         private float queryNorm;
         private float queryWeight;
 
-        private ChildrenWeight(SearchContext searchContext, Recycler.V<ObjectOpenHashSet<HashedBytesArray>> parents) {
-            this.searchContext = searchContext;
-            this.parents = parents;
+        private ChildrenWeight(GlobalIdOrdinals parentOrdinals, FixedBitSet parentOrds) {
+            this.parentOrdinals = parentOrdinals;
+            this.parentOrds = parentOrds;
         }
 
         @Override
@@ -154,64 +150,58 @@ public class ParentConstantScoreQuery extends Query {
             }
 
             Bits childrenBits = DocIdSets.toSafeBits(context.reader(), childrenDocIdSet);
-            IdReaderTypeCache idReaderTypeCache = searchContext.idCache().reader(context.reader()).type(parentType);
-            if (idReaderTypeCache != null) {
-                DocIdSet docIdSet = new ChildrenDocSet(context.reader(), childrenBits, parents.v(), idReaderTypeCache);
+            GlobalIdOrdinals.Segment segment = parentOrdinals.segment(context.reader());
+            if (segment != null) {
+                DocIdSet docIdSet = new ChildrenDocSet(context.reader(), childrenBits, segment);
                 return ConstantScorer.create(docIdSet, this, queryWeight);
             } else {
                 return null;
             }
         }
 
-        @Override
-        public boolean release() throws ElasticSearchException {
-            RecyclerUtils.release(parents);
-            return true;
-        }
-
         private final class ChildrenDocSet extends MatchDocIdSet {
 
-            private final ObjectOpenHashSet<HashedBytesArray> parents;
-            private final IdReaderTypeCache idReaderTypeCache;
+            private final GlobalIdOrdinals.Segment segment;
 
-            ChildrenDocSet(IndexReader reader, Bits acceptDocs, ObjectOpenHashSet<HashedBytesArray> parents, IdReaderTypeCache idReaderTypeCache) {
+            ChildrenDocSet(IndexReader reader, Bits acceptDocs, GlobalIdOrdinals.Segment segment) {
                 super(reader.maxDoc(), acceptDocs);
-                this.parents = parents;
-                this.idReaderTypeCache = idReaderTypeCache;
+                this.segment = segment;
             }
 
             @Override
             protected boolean matchDoc(int doc) {
-                return parents.contains(idReaderTypeCache.parentIdByDoc(doc));
+                int parentOrd = segment.parentOrdByDoc(doc);
+                return parentOrd >= 0 && parentOrds.get(parentOrd);
             }
 
         }
     }
 
-    private final static class ParentUidsCollector extends NoopCollector {
+    private final static class ParentOrdsCollector extends NoopCollector {
 
-        private final ObjectOpenHashSet<HashedBytesArray> collectedUids;
-        private final SearchContext context;
-        private final String parentType;
+        private final GlobalIdOrdinals parentOrdinals;
+        private final FixedBitSet parentOrds;
 
-        private IdReaderTypeCache typeCache;
+        private GlobalIdOrdinals.Segment segment;
 
-        ParentUidsCollector(ObjectOpenHashSet<HashedBytesArray> collectedUids, SearchContext context, String parentType) {
-            this.collectedUids = collectedUids;
-            this.context = context;
-            this.parentType = parentType;
+        ParentOrdsCollector(GlobalIdOrdinals parentOrdinals, FixedBitSet parentOrds) {
+            this.parentOrdinals = parentOrdinals;
+            this.parentOrds = parentOrds;
         }
 
         public void collect(int doc) throws IOException {
             // It can happen that for particular segment no document exist for an specific type. This prevents NPE
-            if (typeCache != null) {
-                collectedUids.add(typeCache.idByDoc(doc));
+            if (segment != null) {
+                int parentOrd = segment.ordByDoc(doc);
+                if (parentOrd >= 0) {
+                    parentOrds.set(parentOrd);
+                }
             }
         }
 
         @Override
         public void setNextReader(AtomicReaderContext readerContext) throws IOException {
-            typeCache = context.idCache().reader(readerContext.reader()).type(parentType);
+            segment = parentOrdinals.segment(readerContext.reader());
         }
     }
 
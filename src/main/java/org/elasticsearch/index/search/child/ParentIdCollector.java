@@ -21,39 +21,35 @@ package org.elasticsearch.index.search.child;
 import java.io.IOException;
 
 import org.apache.lucene.index.AtomicReaderContext;
-import org.elasticsearch.common.bytes.HashedBytesArray;
 import org.elasticsearch.common.lucene.search.NoopCollector;
-import org.elasticsearch.index.cache.id.IdReaderTypeCache;
-import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.index.cache.id.GlobalIdOrdinals;
 
 /**
- * A simple collector that only collects if the docs parent ID is not
- * <code>null</code>
+ * A simple collector that only collects if the doc has a parent, with the
+ * global ordinal of the parent ID.
  */
 abstract class ParentIdCollector extends NoopCollector {
-    protected final String type;
-    protected final SearchContext context;
-    private IdReaderTypeCache typeCache;
+    protected final GlobalIdOrdinals parentOrdinals;
+    private GlobalIdOrdinals.Segment segment;
 
-    protected ParentIdCollector(String parentType, SearchContext context) {
-        this.type = parentType;
-        this.context = context;
+    protected ParentIdCollector(GlobalIdOrdinals parentOrdinals) {
+        this.parentOrdinals = parentOrdinals;
     }
 
     @Override
     public final void collect(int doc) throws IOException {
-        if (typeCache != null) {
-            HashedBytesArray parentIdByDoc = typeCache.parentIdByDoc(doc);
-            if (parentIdByDoc != null) {
-               collect(doc, parentIdByDoc);
+        if (segment != null) {
+            int parentOrd = segment.parentOrdByDoc(doc);
+            if (parentOrd >= 0) {
+               collect(doc, parentOrd);
             }
         }
     }
     
-    protected abstract void collect(int doc, HashedBytesArray parentId) throws IOException;
+    protected abstract void collect(int doc, int parentOrd) throws IOException;
 
     @Override
     public void setNextReader(AtomicReaderContext readerContext) throws IOException {
-        typeCache = context.idCache().reader(readerContext.reader()).type(type);
+        segment = parentOrdinals.segment(readerContext.reader());
     }
 }
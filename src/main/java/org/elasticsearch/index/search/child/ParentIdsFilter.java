@@ -29,7 +29,7 @@ import org.apache.lucene.search.Filter;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.FixedBitSet;
-import org.elasticsearch.common.bytes.HashedBytesArray;
+import org.elasticsearch.index.cache.id.GlobalIdOrdinals;
 import org.elasticsearch.index.mapper.Uid;
 import org.elasticsearch.index.mapper.internal.UidFieldMapper;
 
@@ -45,13 +45,13 @@ import java.io.IOException;
 final class ParentIdsFilter extends Filter {
 
     private final BytesRef parentTypeBr;
-    private final Object[] keys;
-    private final boolean[] allocated;
+    private final GlobalIdOrdinals parentOrdinals;
+    private final FixedBitSet parentOrds;
 
-    public ParentIdsFilter(String parentType, Object[] keys, boolean[] allocated) {
+    public ParentIdsFilter(String parentType, GlobalIdOrdinals parentOrdinals, FixedBitSet parentOrds) {
         this.parentTypeBr = new BytesRef(parentType);
-        this.keys = keys;
-        this.allocated = allocated;
+        this.parentOrdinals = parentOrdinals;
+        this.parentOrds = parentOrds;
     }
 
     @Override
@@ -67,13 +67,9 @@ final class ParentIdsFilter extends Filter {
 
         DocsEnum docsEnum = null;
         FixedBitSet result = null;
-        for (int i = 0; i < allocated.length; i++) {
-            if (!allocated[i]) {
-                continue;
-            }
-
-            idSpare.bytes = ((HashedBytesArray) keys[i]).toBytes();
-            idSpare.length = idSpare.bytes.length;
+        DocIdSetIterator parentOrdsIterator = parentOrds.iterator();
+        for (int ord = parentOrdsIterator.nextDoc(); ord != DocIdSetIterator.NO_MORE_DOCS; ord = parentOrdsIterator.nextDoc()) {
+            parentOrdinals.idByOrd(ord, idSpare);
             Uid.createUidAsBytes(parentTypeBr, idSpare, uidSpare);
             if (termsEnum.seekExact(uidSpare)) {
                 int docId;
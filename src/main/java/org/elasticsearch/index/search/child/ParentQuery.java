@@ -19,34 +19,31 @@
 
 package org.elasticsearch.index.search.child;
 
-import com.carrotsearch.hppc.ObjectFloatOpenHashMap;
 import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.*;
 import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.FixedBitSet;
 import org.apache.lucene.util.ToStringUtils;
-import org.elasticsearch.ElasticSearchException;
-import org.elasticsearch.common.bytes.HashedBytesArray;
-import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lucene.docset.DocIdSets;
 import org.elasticsearch.common.lucene.search.ApplyAcceptedDocsFilter;
 import org.elasticsearch.common.lucene.search.NoopCollector;
 import org.elasticsearch.common.lucene.search.Queries;
-import org.elasticsearch.common.recycler.Recycler;
-import org.elasticsearch.common.recycler.RecyclerUtils;
+import org.elasticsearch.index.cache.id.GlobalIdOrdinals;
 import org.elasticsearch.index.cache.id.IdReaderTypeCache;
 import org.elasticsearch.search.internal.SearchContext;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Set;
 
 /**
  * A query implementation that executes the wrapped parent query and
  * connects the matching parent docs to the related child documents
- * using the {@link IdReaderTypeCache}.
+ * using the {@link IdReaderTypeCache}. The parent docs are joined with the child docs by the global ordinal of
+ * their uid value.
  */
-// TODO We use a score of 0 to indicate a doc was not scored in uidToScore, this means score of 0 can be problematic, if we move to HPCC, we can use lset/...
 public class ParentQuery extends Query {
 
     private final Query originalParentQuery;
@@ -115,9 +112,12 @@ public class ParentQuery extends Query {
     @Override
     public Weight createWeight(IndexSearcher searcher) throws IOException {
         SearchContext searchContext = SearchContext.current();
-        searchContext.idCache().refresh(searchContext.searcher().getTopReaderContext().leaves());
-        Recycler.V<ObjectFloatOpenHashMap<HashedBytesArray>> uidToScore = searchContext.cacheRecycler().objectFloatMap(-1);
-        ParentUidCollector collector = new ParentUidCollector(uidToScore.v(), searchContext, parentType);
+        List<AtomicReaderContext> leaves = searcher.getTopReaderContext().leaves();
+        searchContext.idCache().refresh(leaves);
+        GlobalIdOrdinals parentOrdinals = searchContext.idCache().globalOrdinals(parentType, leaves);
+        FixedBitSet parentOrds = new FixedBitSet(parentOrdinals.numberOfOrds());
+        float[] ordToScore = new float[parentOrdinals.numberOfOrds()];
+        ParentOrdCollector collector = new ParentOrdCollector(parentOrdinals, parentOrds, ordToScore);
 
         final Query parentQuery;
         if (rewrittenParentQuery == null) {
@@ -129,39 +129,39 @@ public class ParentQuery extends Query {
         IndexSearcher indexSearcher = new IndexSearcher(searcher.getIndexReader());
         indexSearcher.search(parentQuery, collector);
 
-        if (uidToScore.v().isEmpty()) {
-            uidToScore.release();
+        if (parentOrds.cardinality() == 0) {
             return Queries.NO_MATCH_QUERY.createWeight(searcher);
         }
 
-        ChildWeight childWeight = new ChildWeight(parentQuery.createWeight(searcher), searchContext, uidToScore);
-        searchContext.addReleasable(childWeight);
-        return childWeight;
+        return new ChildWeight(parentQuery.createWeight(searcher), parentOrdinals, parentOrds, ordToScore);
     }
 
-    private static class ParentUidCollector extends NoopCollector {
+    private static class ParentOrdCollector extends NoopCollector {
 
-        private final ObjectFloatOpenHashMap<HashedBytesArray> uidToScore;
-        private final SearchContext searchContext;
-        private final String parentType;
+        private final GlobalIdOrdinals parentOrdinals;
+        private final FixedBitSet parentOrds;
+        private final float[] ordToScore;
 
         private Scorer scorer;
-        private IdReaderTypeCache typeCache;
+        private GlobalIdOrdinals.Segment segment;
 
-        ParentUidCollector(ObjectFloatOpenHashMap<HashedBytesArray> uidToScore, SearchContext searchContext, String parentType) {
-            this.uidToScore = uidToScore;
-            this.searchContext = searchContext;
-            this.parentType = parentType;
+        ParentOrdCollector(GlobalIdOrdinals parentOrdinals, FixedBitSet parentOrds, float[] ordToScore) {
+            this.parentOrdinals = parentOrdinals;
+            this.parentOrds = parentOrds;
+            this.ordToScore = ordToScore;
         }
 
         @Override
         public void collect(int doc) throws IOException {
-            if (typeCache == null) {
+            if (segment == null) {
                 return;
             }
 
-            HashedBytesArray parentUid = typeCache.idByDoc(doc);
-            uidToScore.put(parentUid, scorer.score());
+            int parentOrd = segment.ordByDoc(doc);
+            if (parentOrd >= 0) {
+                parentOrds.set(parentOrd);
+                ordToScore[parentOrd] = scorer.score();
+            }
         }
 
         @Override
@@ -171,20 +171,22 @@ public class ParentQuery extends Query {
 
         @Override
         public void setNextReader(AtomicReaderContext context) throws IOException {
-            typeCache = searchContext.idCache().reader(context.reader()).type(parentType);
+            segment = parentOrdinals.segment(context.reader());
         }
     }
 
-    private class ChildWeight extends Weight implements Releasable {
+    private class ChildWeight extends Weight {
 
         private final Weight parentWeight;
-        private final SearchContext searchContext;
-        private final Recycler.V<ObjectFloatOpenHashMap<HashedBytesArray>> uidToScore;
+        private final GlobalIdOrdinals parentOrdinals;
+        private final FixedBitSet parentOrds;
+        private final float[] ordToScore;
 
-        private ChildWeight(Weight parentWeight, SearchContext searchContext, Recycler.V<ObjectFloatOpenHashMap<HashedBytesArray>> uidToScore) {
+        private ChildWeight(Weight parentWeight, GlobalIdOrdinals parentOrdinals, FixedBitSet parentOrds, float[] ordToScore) {
             this.parentWeight = parentWeight;
-            this.searchContext = searchContext;
-            this.uidToScore = uidToScore;
+            this.parentOrdinals = parentOrdinals;
+            this.parentOrds = parentOrds;
+            this.ordToScore = ordToScore;
         }
 
         @Override
@@ -214,35 +216,31 @@ public class ParentQuery extends Query {
             if (DocIdSets.isEmpty(childrenDocSet)) {
                 return null;
             }
-            IdReaderTypeCache idTypeCache = searchContext.idCache().reader(context.reader()).type(parentType);
-            if (idTypeCache == null) {
+            GlobalIdOrdinals.Segment segment = parentOrdinals.segment(context.reader());
+            if (segment == null) {
                 return null;
             }
 
-            return new ChildScorer(this, uidToScore.v(), childrenDocSet.iterator(), idTypeCache);
-        }
-
-        @Override
-        public boolean release() throws ElasticSearchException {
-            RecyclerUtils.release(uidToScore);
-            return true;
+            return new ChildScorer(this, parentOrds, ordToScore, childrenDocSet.iterator(), segment);
         }
     }
 
     private static class ChildScorer extends Scorer {
 
-        private final ObjectFloatOpenHashMap<HashedBytesArray> uidToScore;
+        private final FixedBitSet parentOrds;
+        private final float[] ordToScore;
         private final DocIdSetIterator childrenIterator;
-        private final IdReaderTypeCache typeCache;
+        private final GlobalIdOrdinals.Segment segment;
 
         private int currentChildDoc = -1;
         private float currentScore;
 
-        ChildScorer(Weight weight, ObjectFloatOpenHashMap<HashedBytesArray> uidToScore, DocIdSetIterator childrenIterator, IdReaderTypeCache typeCache) {
+        ChildScorer(Weight weight, FixedBitSet parentOrds, float[] ordToScore, DocIdSetIterator childrenIterator, GlobalIdOrdinals.Segment segment) {
             super(weight);
-            this.uidToScore = uidToScore;
+            this.parentOrds = parentOrds;
+            this.ordToScore = ordToScore;
             this.childrenIterator = childrenIterator;
-            this.typeCache = typeCache;
+            this.segment = segment;
         }
 
         @Override
@@ -270,12 +268,7 @@ public class ParentQuery extends Query {
                     return currentChildDoc;
                 }
 
-                HashedBytesArray uid = typeCache.parentIdByDoc(currentChildDoc);
-                if (uid == null) {
-                    continue;
-                }
-                currentScore = uidToScore.get(uid);
-                if (currentScore != 0) {
+                if (matches(segment.parentOrdByDoc(currentChildDoc))) {
                     return currentChildDoc;
                 }
             }
@@ -287,17 +280,20 @@ public class ParentQuery extends Query {
             if (currentChildDoc == DocIdSetIterator.NO_MORE_DOCS) {
                 return currentChildDoc;
             }
-            HashedBytesArray uid = typeCache.idByDoc(currentChildDoc);
-            if (uid == null) {
-                return nextDoc();
-            }
-            currentScore = uidToScore.get(uid);
-            if (currentScore == 0) {
+            if (!matches(segment.parentOrdByDoc(currentChildDoc))) {
                 return nextDoc();
             }
             return currentChildDoc;
         }
 
+        private boolean matches(int parentOrd) {
+            if (parentOrd < 0 || !parentOrds.get(parentOrd)) {
+                return false;
+            }
+            currentScore = ordToScore[parentOrd];
+            return true;
+        }
+
         @Override
         public long cost() {
             return childrenIterator.cost();
@@ -101,7 +101,7 @@ public class GeoPolygonFilter extends Filter {
             return false;
         }
 
-        private static boolean pointInPolygon(GeoPoint[] points, double lat, double lon) {
+        static boolean pointInPolygon(GeoPoint[] points, double lat, double lon) {
             int i;
             int j = points.length - 1;
             boolean inPoly = false;
@@ -0,0 +1,427 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.search.geo;
+
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.DocsEnum;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
+import org.elasticsearch.common.geo.GeoDistance;
+import org.elasticsearch.common.geo.GeoHashUtils;
+import org.elasticsearch.common.geo.GeoPoint;
+import org.elasticsearch.common.lucene.docset.DocIdSets;
+import org.elasticsearch.common.unit.DistanceUnit;
+import org.elasticsearch.index.mapper.geo.GeoPointFieldMapper;
+
+import java.io.IOException;
+
+/**
+ * A geo filter that walks the geohash prefix tree indexed by a <tt>geo_point</tt> field that has
+ * <tt>geohash_prefix</tt> enabled. Cells that are fully inside the shape contribute their documents
+ * directly from the postings of the cell term, cells that don't touch the shape (or have no term in
+ * the segment) are pruned together with all their children, and only the documents of cells on the
+ * boundary of the shape are verified against the exact filter (using field data).
+ */
+public class GeohashPrefixTreeFilter extends Filter {
+
+    private static final char[] BASE_32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    /**
+     * Cells are refined until they are at least this many times smaller than the shape.
+     */
+    private static final int CELLS_PER_SHAPE = 16;
+
+    public static enum Relation {
+        DISJOINT, INTERSECTS, WITHIN
+    }
+
+    /**
+     * A shape that a geohash cell can be related to.
+     */
+    public static interface Shape {
+
+        /**
+         * Returns how the cell defined by the given bounds relates to this shape. {@link Relation#WITHIN}
+         * must only be returned if all the points of the cell are matched by the exact filter, and
+         * {@link Relation#DISJOINT} if none of them is.
+         */
+        Relation relate(double minLat, double maxLat, double minLon, double maxLon);
+    }
+
+    public static Filter boundingBox(GeoPoint topLeft, GeoPoint bottomRight, GeoPointFieldMapper fieldMapper, Filter exactFilter) {
+        return create(new BoundingBox(topLeft, bottomRight), topLeft, bottomRight, fieldMapper, exactFilter);
+    }
+
+    /**
+     * @param distance the distance in miles, as passed to the {@link GeoDistanceFilter}
+     */
+    public static Filter distance(double lat, double lon, double distance, GeoDistance geoDistance, GeoPointFieldMapper fieldMapper, Filter exactFilter) {
+        GeoDistance.DistanceBoundingCheck boundingCheck = GeoDistance.distanceBoundingCheck(lat, lon, distance, DistanceUnit.MILES);
+        Shape shape = new Distance(lat, lon, distance, geoDistance, new BoundingBox(boundingCheck.topLeft(), boundingCheck.bottomRight()));
+        return create(shape, boundingCheck.topLeft(), boundingCheck.bottomRight(), fieldMapper, exactFilter);
+    }
+
+    public static Filter polygon(GeoPoint[] points, GeoPointFieldMapper fieldMapper, Filter exactFilter) {
+        GeoPoint topLeft = new GeoPoint(-90, 180);
+        GeoPoint bottomRight = new GeoPoint(90, -180);
+        for (GeoPoint point : points) {
+            topLeft.reset(Math.max(topLeft.lat(), point.lat()), Math.min(topLeft.lon(), point.lon()));
+            bottomRight.reset(Math.min(bottomRight.lat(), point.lat()), Math.max(bottomRight.lon(), point.lon()));
+        }
+        return create(new Polygon(points), topLeft, bottomRight, fieldMapper, exactFilter);
+    }
+
+    private static Filter create(Shape shape, GeoPoint topLeft, GeoPoint bottomRight, GeoPointFieldMapper fieldMapper, Filter exactFilter) {
+        if (!fieldMapper.isEnableGeohashPrefix()) {
+            throw new ElasticSearchIllegalArgumentException("geohash_prefix is not enabled for field [" + fieldMapper.name() + "], can't use geohash filter on it");
+        }
+        double width = bottomRight.lon() - topLeft.lon();
+        if (width < 0) {
+            // crosses the 180 meridian
+            width += 360;
+        }
+        double height = topLeft.lat() - bottomRight.lat();
+        int detailLevel = detailLevel(Math.max(width, height) / CELLS_PER_SHAPE, fieldMapper.geoHashPrecision());
+        return new GeohashPrefixTreeFilter(fieldMapper.geoHashStringMapper().names().indexName(), detailLevel, shape, exactFilter);
+    }
+
+    /**
+     * Returns the first geohash level whose cells are no bigger than the given size (in degrees), capped at
+     * the precision the geohashes are indexed with.
+     */
+    static int detailLevel(double size, int precision) {
+        for (int level = 1; level < precision; level++) {
+            int bits = level * 5;
+            double cellWidth = 360.0 / (1L << ((bits + 1) / 2));
+            double cellHeight = 180.0 / (1L << (bits / 2));
+            if (cellWidth <= size && cellHeight <= size) {
+                return level;
+            }
+        }
+        return precision;
+    }
+
+    private final String fieldName;
+
+    private final int detailLevel;
+
+    private final Shape shape;
+
+    private final Filter exactFilter;
+
+    GeohashPrefixTreeFilter(String fieldName, int detailLevel, Shape shape, Filter exactFilter) {
+        this.fieldName = fieldName;
+        this.detailLevel = detailLevel;
+        this.shape = shape;
+        this.exactFilter = exactFilter;
+    }
+
+    public String fieldName() {
+        return fieldName;
+    }
+
+    public int detailLevel() {
+        return detailLevel;
+    }
+
+    public Filter exactFilter() {
+        return exactFilter;
+    }
+
+    @Override
+    public DocIdSet getDocIdSet(AtomicReaderContext context, Bits acceptDocs) throws IOException {
+        AtomicReader reader = context.reader();
+        Terms terms = reader.terms(fieldName);
+        if (terms == null) {
+            return null;
+        }
+        CellCollector collector = new CellCollector(reader.maxDoc(), terms.iterator(null), acceptDocs);
+        collector.collect(new char[detailLevel], 0);
+
+        FixedBitSet matches = collector.matches;
+        FixedBitSet candidates = collector.candidates;
+        if (candidates == null) {
+            return matches;
+        }
+        if (matches != null) {
+            // no need to verify docs that already matched through a cell within the shape
+            candidates.andNot(matches);
+        }
+        // the candidates are passed as accepted docs, so only boundary docs are checked against field data
+        DocIdSet exact = exactFilter.getDocIdSet(context, candidates);
+        if (DocIdSets.isEmpty(exact)) {
+            return matches;
+        }
+        DocIdSetIterator it = exact.iterator();
+        if (it == null) {
+            return matches;
+        }
+        for (int doc = it.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = it.nextDoc()) {
+            if (matches == null) {
+                matches = new FixedBitSet(reader.maxDoc());
+            }
+            matches.set(doc);
+        }
+        return matches;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        GeohashPrefixTreeFilter that = (GeohashPrefixTreeFilter) o;
+
+        if (detailLevel != that.detailLevel) return false;
+        if (!fieldName.equals(that.fieldName)) return false;
+        if (!exactFilter.equals(that.exactFilter)) return false;
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = fieldName.hashCode();
+        result = 31 * result + detailLevel;
+        result = 31 * result + exactFilter.hashCode();
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "GeohashPrefixTreeFilter(" + fieldName + ", " + detailLevel + ", " + exactFilter + ")";
+    }
+
+    private class CellCollector {
+
+        private final int maxDoc;
+        private final TermsEnum termsEnum;
+        private final Bits acceptDocs;
+        private final BytesRef term = new BytesRef();
+        private final GeoPoint northWest = new GeoPoint();
+        private final GeoPoint southEast = new GeoPoint();
+        private DocsEnum docsEnum;
+
+        FixedBitSet matches;
+        FixedBitSet candidates;
+
+        CellCollector(int maxDoc, TermsEnum termsEnum, Bits acceptDocs) {
+            this.maxDoc = maxDoc;
+            this.termsEnum = termsEnum;
+            this.acceptDocs = acceptDocs;
+        }
+
+        void collect(char[] cell, int length) throws IOException {
+            for (char c : BASE_32) {
+                cell[length] = c;
+                String geohash = new String(cell, 0, length + 1);
+                GeoHashUtils.decodeCell(geohash, northWest, southEast);
+                Relation relation = shape.relate(southEast.lat(), northWest.lat(), northWest.lon(), southEast.lon());
+                if (relation == Relation.DISJOINT) {
+                    continue;
+                }
+                term.copyChars(geohash);
+                if (!termsEnum.seekExact(term)) {
+                    // no point in this segment falls into the cell or any of its children
+                    continue;
+                }
+                if (relation == Relation.WITHIN) {
+                    matches = addDocs(matches);
+                } else if (length + 1 >= detailLevel) {
+                    candidates = addDocs(candidates);
+                } else {
+                    collect(cell, length + 1);
+                }
+            }
+        }
+
+        private FixedBitSet addDocs(FixedBitSet bitSet) throws IOException {
+            docsEnum = termsEnum.docs(acceptDocs, docsEnum, DocsEnum.FLAG_NONE);
+            for (int doc = docsEnum.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = docsEnum.nextDoc()) {
+                if (bitSet == null) {
+                    bitSet = new FixedBitSet(maxDoc);
+                }
+                bitSet.set(doc);
+            }
+            return bitSet;
+        }
+    }
+
+    static class BoundingBox implements Shape {
+
+        private final double top;
+        private final double bottom;
+        private final double left;
+        private final double right;
+
+        BoundingBox(GeoPoint topLeft, GeoPoint bottomRight) {
+            this.top = topLeft.lat();
+            this.bottom = bottomRight.lat();
+            this.left = topLeft.lon();
+            this.right = bottomRight.lon();
+        }
+
+        @Override
+        public Relation relate(double minLat, double maxLat, double minLon, double maxLon) {
+            if (minLat > top || maxLat < bottom) {
+                return Relation.DISJOINT;
+            }
+            boolean latWithin = minLat >= bottom && maxLat <= top;
+            if (left > right) {
+                // crosses the 180 meridian, cells never do, so they fall on one side or the other
+                if (minLon >= left || maxLon <= right) {
+                    return latWithin ? Relation.WITHIN : Relation.INTERSECTS;
+                }
+                if (maxLon < left && minLon > right) {
+                    return Relation.DISJOINT;
+                }
+                return Relation.INTERSECTS;
+            }
+            if (minLon > right || maxLon < left) {
+                return Relation.DISJOINT;
+            }
+            if (latWithin && minLon >= left && maxLon <= right) {
+                return Relation.WITHIN;
+            }
+            return Relation.INTERSECTS;
+        }
+    }
+
+    static class Distance implements Shape {
+
+        private final double lon;
+        private final double distance;
+        private final GeoDistance geoDistance;
+        private final GeoDistance.FixedSourceDistance fixedSourceDistance;
+        private final BoundingBox boundingBox;
+
+        Distance(double lat, double lon, double distance, GeoDistance geoDistance, BoundingBox boundingBox) {
+            this.lon = lon;
+            this.distance = distance;
+            this.geoDistance = geoDistance;
+            this.fixedSourceDistance = geoDistance.fixedSourceDistance(lat, lon, DistanceUnit.MILES);
+            this.boundingBox = boundingBox;
+        }
+
+        @Override
+        public Relation relate(double minLat, double maxLat, double minLon, double maxLon) {
+            if (boundingBox.relate(minLat, maxLat, minLon, maxLon) == Relation.DISJOINT) {
+                return Relation.DISJOINT;
+            }
+            if (geoDistance == GeoDistance.ARC) {
+                // on the sphere the corners are only the farthest points of the cell as long as the
+                // whole cell is within 90 degrees of longitude from the origin
+                if (Math.abs(lonDelta(minLon)) > 90 || Math.abs(lonDelta(maxLon)) > 90) {
+                    return Relation.INTERSECTS;
+                }
+            } else if (geoDistance != GeoDistance.PLANE) {
+                return Relation.INTERSECTS;
+            }
+            if (fixedSourceDistance.calculate(minLat, minLon) < distance && fixedSourceDistance.calculate(minLat, maxLon) < distance
+                    && fixedSourceDistance.calculate(maxLat, minLon) < distance && fixedSourceDistance.calculate(maxLat, maxLon) < distance) {
+                return Relation.WITHIN;
+            }
+            return Relation.INTERSECTS;
+        }
+
+        private double lonDelta(double cellLon) {
+            double delta = cellLon - lon;
+            if (delta > 180) {
+                delta -= 360;
+            } else if (delta < -180) {
+                delta += 360;
+            }
+            return delta;
+        }
+    }
+
+    static class Polygon implements Shape {
+
+        // polygon edges are tested against a slightly larger cell, so rounding never turns a boundary cell into a WITHIN one
+        private static final double EPSILON = 1e-9;
+
+        private final GeoPoint[] points;
+
+        Polygon(GeoPoint[] points) {
+            this.points = points;
+        }
+
+        @Override
+        public Relation relate(double minLat, double maxLat, double minLon, double maxLon) {
+            double bottom = minLat - EPSILON;
+            double top = maxLat + EPSILON;
+            double left = minLon - EPSILON;
+            double right = maxLon + EPSILON;
+            int j = points.length - 1;
+            for (int i = 0; i < points.length; i++) {
+                if (segmentIntersects(points[j], points[i], bottom, top, left, right)) {
+                    return Relation.INTERSECTS;
+                }
+                j = i;
+            }
+            // no edge crosses the cell, so it is either entirely inside or entirely outside of the polygon
+            if (GeoPolygonFilter.GeoPolygonDocIdSet.pointInPolygon(points, minLat, minLon)) {
+                return Relation.WITHIN;
+            }
+            return Relation.DISJOINT;
+        }
+
+        /**
+         * Liang-Barsky clipping of the segment against the (inclusive) cell bounds.
+         */
+        private static boolean segmentIntersects(GeoPoint from, GeoPoint to, double bottom, double top, double left, double right) {
+            double dx = to.lon() - from.lon();
+            double dy = to.lat() - from.lat();
+            double[] p = {-dx, dx, -dy, dy};
+            double[] q = {from.lon() - left, right - from.lon(), from.lat() - bottom, top - from.lat()};
+            double t0 = 0;
+            double t1 = 1;
+            for (int i = 0; i < 4; i++) {
+                if (p[i] == 0) {
+                    if (q[i] < 0) {
+                        return false;
+                    }
+                } else {
+                    double r = q[i] / p[i];
+                    if (p[i] < 0) {
+                        if (r > t1) {
+                            return false;
+                        }
+                        t0 = Math.max(t0, r);
+                    } else {
+                        if (r < t0) {
+                            return false;
+                        }
+                        t1 = Math.min(t1, r);
+                    }
+                }
+            }
+            return true;
+        }
+    }
+}
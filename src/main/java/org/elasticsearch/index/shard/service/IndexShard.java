@@ -27,6 +27,8 @@ import org.elasticsearch.index.cache.filter.FilterCacheStats;
 import org.elasticsearch.index.cache.filter.ShardFilterCache;
 import org.elasticsearch.index.cache.id.IdCacheStats;
 import org.elasticsearch.index.cache.id.ShardIdCache;
+import org.elasticsearch.index.cache.query.QueryCacheStats;
+import org.elasticsearch.index.cache.query.ShardQueryCache;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.engine.EngineException;
 import org.elasticsearch.index.fielddata.FieldDataStats;
@@ -71,6 +73,8 @@ public interface IndexShard extends IndexShardComponent {
 
     ShardFilterCache filterCache();
 
+    ShardQueryCache queryCache();
+
     ShardIdCache idCache();
 
     ShardFieldData fieldData();
@@ -97,6 +101,8 @@ public interface IndexShard extends IndexShardComponent {
 
     FilterCacheStats filterCacheStats();
 
+    QueryCacheStats queryCacheStats();
+
     IdCacheStats idCacheStats();
 
     FieldDataStats fieldDataStats(String... fields);
@@ -125,6 +131,12 @@ public interface IndexShard extends IndexShardComponent {
 
     ParsedDocument index(Engine.Index index) throws ElasticSearchException;
 
+    /**
+     * Applies the create and index operations of the bulk to the engine at once, per operation failures are
+     * recorded on the bulk.
+     */
+    void bulk(Engine.Bulk bulk) throws ElasticSearchException;
+
     Engine.Delete prepareDelete(String type, String id, long version) throws ElasticSearchException;
 
     void delete(Engine.Delete delete) throws ElasticSearchException;
@@ -135,6 +147,8 @@ public interface IndexShard extends IndexShardComponent {
 
     Engine.GetResult get(Engine.Get get) throws ElasticSearchException;
 
+    void multiGet(Engine.MultiGet multiGet) throws ElasticSearchException;
+
     void refresh(Engine.Refresh refresh) throws ElasticSearchException;
 
     void flush(Engine.Flush flush) throws ElasticSearchException;
@@ -20,6 +20,7 @@
 package org.elasticsearch.index.shard.service;
 
 import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableSet;
 import org.apache.lucene.codecs.PostingsFormat;
 import org.apache.lucene.index.CheckIndex;
 import org.apache.lucene.search.Filter;
@@ -47,6 +48,8 @@ import org.elasticsearch.index.cache.filter.FilterCacheStats;
 import org.elasticsearch.index.cache.filter.ShardFilterCache;
 import org.elasticsearch.index.cache.id.IdCacheStats;
 import org.elasticsearch.index.cache.id.ShardIdCache;
+import org.elasticsearch.index.cache.query.QueryCacheStats;
+import org.elasticsearch.index.cache.query.ShardQueryCache;
 import org.elasticsearch.index.codec.CodecService;
 import org.elasticsearch.index.engine.*;
 import org.elasticsearch.index.fielddata.FieldDataStats;
@@ -112,6 +115,7 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
     private final ShardGetService getService;
     private final ShardIndexWarmerService shardWarmerService;
     private final ShardFilterCache shardFilterCache;
+    private final ShardQueryCache shardQueryCache;
     private final ShardIdCache shardIdCache;
     private final ShardFieldData shardFieldData;
     private final PercolatorQueriesRegistry percolatorQueriesRegistry;
@@ -126,7 +130,12 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
     private long checkIndexTook = 0;
     private volatile IndexShardState state;
 
-    private TimeValue refreshInterval;
+    private volatile TimeValue refreshInterval;
+
+    private volatile boolean adaptiveRefresh;
+    private volatile TimeValue refreshIdleInterval;
+    private volatile TimeValue searchIdleAfter;
+    private volatile long lastSearchNanos = System.nanoTime();
     private final TimeValue mergeInterval;
 
     private volatile ScheduledFuture refreshScheduledFuture;
@@ -145,7 +154,8 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
                               ThreadPool threadPool, MapperService mapperService, IndexQueryParserService queryParserService, IndexCache indexCache, IndexAliasesService indexAliasesService, ShardIndexingService indexingService, ShardGetService getService, ShardSearchService searchService, ShardIndexWarmerService shardWarmerService,
                               ShardFilterCache shardFilterCache, ShardIdCache shardIdCache, ShardFieldData shardFieldData,
                               PercolatorQueriesRegistry percolatorQueriesRegistry, ShardPercolateService shardPercolateService, CodecService codecService,
-                              ShardTermVectorService termVectorService, IndexFieldDataService indexFieldDataService, IndexService indexService) {
+                              ShardTermVectorService termVectorService, IndexFieldDataService indexFieldDataService, IndexService indexService,
+                              ShardQueryCache shardQueryCache) {
         super(shardId, indexSettings);
         this.indicesLifecycle = (InternalIndicesLifecycle) indicesLifecycle;
         this.indexSettingsService = indexSettingsService;
@@ -164,6 +174,7 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
         this.searchService = searchService;
         this.shardWarmerService = shardWarmerService;
         this.shardFilterCache = shardFilterCache;
+        this.shardQueryCache = shardQueryCache;
         this.shardIdCache = shardIdCache;
         this.shardFieldData = shardFieldData;
         this.percolatorQueriesRegistry = percolatorQueriesRegistry;
@@ -175,6 +186,9 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
 
         this.refreshInterval = indexSettings.getAsTime("engine.robin.refresh_interval", indexSettings.getAsTime(INDEX_REFRESH_INTERVAL, engine.defaultRefreshInterval()));
         this.mergeInterval = indexSettings.getAsTime("index.merge.async_interval", TimeValue.timeValueSeconds(1));
+        this.adaptiveRefresh = indexSettings.getAsBoolean(INDEX_REFRESH_ADAPTIVE, false);
+        this.refreshIdleInterval = indexSettings.getAsTime(INDEX_REFRESH_IDLE_INTERVAL, TimeValue.timeValueSeconds(30));
+        this.searchIdleAfter = indexSettings.getAsTime(INDEX_REFRESH_SEARCH_IDLE_AFTER, TimeValue.timeValueSeconds(30));
 
         indexSettingsService.addListener(applyRefreshSettings);
 
@@ -243,6 +257,11 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
         return this.shardFilterCache;
     }
 
+    @Override
+    public ShardQueryCache queryCache() {
+        return this.shardQueryCache;
+    }
+
     @Override
     public ShardIdCache idCache() {
         return this.shardIdCache;
@@ -356,6 +375,8 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
         engine.create(create);
         create.endTime(System.nanoTime());
         indexingService.postCreate(create);
+        // the document has been indexed, allow its document and fields to be reused by later parsing
+        create.parsedDoc().release();
         return create.parsedDoc();
     }
 
@@ -382,9 +403,62 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
             throw ex;
         }
         indexingService.postIndex(index);
+        index.parsedDoc().release();
         return index.parsedDoc();
     }
 
+    @Override
+    public void bulk(Engine.Bulk bulk) throws ElasticSearchException {
+        Engine.IndexingOperation[] ops = bulk.ops();
+        for (int i = 0; i < ops.length; i++) {
+            if (ops[i] == null) {
+                continue;
+            }
+            writeAllowed(ops[i].origin());
+            if (ops[i].opType() == Engine.Operation.Type.CREATE) {
+                ops[i] = indexingService.preCreate((Engine.Create) ops[i]);
+            } else {
+                ops[i] = indexingService.preIndex((Engine.Index) ops[i]);
+            }
+        }
+        if (logger.isTraceEnabled()) {
+            logger.trace("bulk of {} operations", ops.length);
+        }
+        try {
+            engine.bulk(bulk);
+        } catch (RuntimeException ex) {
+            for (Engine.IndexingOperation op : ops) {
+                if (op != null && op.opType() == Engine.Operation.Type.INDEX) {
+                    indexingService.failedIndex((Engine.Index) op);
+                }
+            }
+            throw ex;
+        }
+        long endTime = System.nanoTime();
+        for (int i = 0; i < ops.length; i++) {
+            if (ops[i] == null) {
+                continue;
+            }
+            if (ops[i].opType() == Engine.Operation.Type.CREATE) {
+                Engine.Create create = (Engine.Create) ops[i];
+                if (bulk.failure(i) == null) {
+                    create.endTime(endTime);
+                    indexingService.postCreate(create);
+                    create.parsedDoc().release();
+                }
+            } else {
+                Engine.Index index = (Engine.Index) ops[i];
+                if (bulk.failure(i) == null) {
+                    index.endTime(endTime);
+                    indexingService.postIndex(index);
+                    index.parsedDoc().release();
+                } else {
+                    indexingService.failedIndex(index);
+                }
+            }
+        }
+    }
+
     @Override
     public Engine.Delete prepareDelete(String type, String id, long version) throws ElasticSearchException {
         long startTime = System.nanoTime();
@@ -441,6 +515,12 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
         return engine.get(get);
     }
 
+    @Override
+    public void multiGet(Engine.MultiGet multiGet) throws ElasticSearchException {
+        readAllowed();
+        engine.multiGet(multiGet);
+    }
+
     @Override
     public void refresh(Engine.Refresh refresh) throws ElasticSearchException {
         verifyNotClosed();
@@ -454,7 +534,7 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
 
     @Override
     public RefreshStats refreshStats() {
-        return new RefreshStats(refreshMetric.count(), TimeUnit.NANOSECONDS.toMillis(refreshMetric.sum()));
+        return new RefreshStats(refreshMetric.count(), TimeUnit.NANOSECONDS.toMillis(refreshMetric.sum()), engine.refreshStaleness().millis(), effectiveRefreshInterval().millis());
     }
 
     @Override
@@ -479,7 +559,7 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
 
     @Override
     public IndexingStats indexingStats(String... types) {
-        return indexingService.stats(types);
+        return indexingService.stats(engine.indexingBufferRamUsed(), types);
     }
 
     @Override
@@ -517,6 +597,11 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
         return shardFilterCache.stats();
     }
 
+    @Override
+    public QueryCacheStats queryCacheStats() {
+        return shardQueryCache.stats();
+    }
+
     @Override
     public FieldDataStats fieldDataStats(String... fields) {
         return shardFieldData.stats(fields);
@@ -606,9 +691,52 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
     @Override
     public Engine.Searcher acquireSearcher(String source, Mode mode) {
         readAllowed(mode);
+        if (SEARCH_DEMAND_SOURCES.contains(source)) {
+            boolean searchIdle = adaptiveRefresh && searchIdle();
+            lastSearchNanos = System.nanoTime();
+            if (searchIdle && engine.refreshNeeded()) {
+                // the refresher backed off while nobody searched, make sure the first search sees recent changes
+                try {
+                    refresh(new Engine.Refresh("search_idle").force(false));
+                } catch (Throwable e) {
+                    logger.debug("failed to refresh on first search after being idle", e);
+                }
+            }
+        }
         return engine.acquireSearcher(source);
     }
 
+    private boolean searchIdle() {
+        return System.nanoTime() - lastSearchNanos > searchIdleAfter.nanos();
+    }
+
+    /**
+     * The interval at which changes are made visible to searches. With adaptive refresh, shards
+     * that haven't been searched for a while refresh at the (longer) idle interval.
+     */
+    public TimeValue effectiveRefreshInterval() {
+        TimeValue refreshInterval = this.refreshInterval;
+        if (!adaptiveRefresh || refreshInterval.millis() <= 0 || !searchIdle()) {
+            return refreshInterval;
+        }
+        TimeValue refreshIdleInterval = this.refreshIdleInterval;
+        return refreshIdleInterval.millis() > refreshInterval.millis() ? refreshIdleInterval : refreshInterval;
+    }
+
+    /**
+     * Is a scheduled refresh due, it is as long as there are changes to refresh, unless the shard is
+     * idle and the changes are more recent than the effective refresh interval.
+     */
+    private boolean scheduledRefreshNeeded() {
+        if (!engine.refreshNeeded()) {
+            return false;
+        }
+        if (!adaptiveRefresh || !searchIdle()) {
+            return true;
+        }
+        return engine.refreshStaleness().millis() >= effectiveRefreshInterval().millis();
+    }
+
     public void close(String reason) {
         synchronized (mutex) {
             indexSettingsService.removeListener(applyRefreshSettings);
@@ -847,6 +975,14 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
     }
 
     public static final String INDEX_REFRESH_INTERVAL = "index.refresh_interval";
+    public static final String INDEX_REFRESH_ADAPTIVE = "index.refresh.adaptive";
+    public static final String INDEX_REFRESH_IDLE_INTERVAL = "index.refresh.idle_interval";
+    public static final String INDEX_REFRESH_SEARCH_IDLE_AFTER = "index.refresh.search_idle_after";
+
+    /**
+     * The searcher sources that count as search demand for adaptive refresh.
+     */
+    private static final ImmutableSet<String> SEARCH_DEMAND_SOURCES = ImmutableSet.of("search", "count", "suggest");
 
     private class ApplyRefreshSettings implements IndexSettingsService.Listener {
         @Override
@@ -855,6 +991,21 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
                 if (state == IndexShardState.CLOSED) {
                     return;
                 }
+                boolean adaptiveRefresh = settings.getAsBoolean(INDEX_REFRESH_ADAPTIVE, InternalIndexShard.this.adaptiveRefresh);
+                if (adaptiveRefresh != InternalIndexShard.this.adaptiveRefresh) {
+                    logger.info("updating adaptive refresh from [{}] to [{}]", InternalIndexShard.this.adaptiveRefresh, adaptiveRefresh);
+                    InternalIndexShard.this.adaptiveRefresh = adaptiveRefresh;
+                }
+                TimeValue refreshIdleInterval = settings.getAsTime(INDEX_REFRESH_IDLE_INTERVAL, InternalIndexShard.this.refreshIdleInterval);
+                if (!refreshIdleInterval.equals(InternalIndexShard.this.refreshIdleInterval)) {
+                    logger.info("updating refresh idle_interval from [{}] to [{}]", InternalIndexShard.this.refreshIdleInterval, refreshIdleInterval);
+                    InternalIndexShard.this.refreshIdleInterval = refreshIdleInterval;
+                }
+                TimeValue searchIdleAfter = settings.getAsTime(INDEX_REFRESH_SEARCH_IDLE_AFTER, InternalIndexShard.this.searchIdleAfter);
+                if (!searchIdleAfter.equals(InternalIndexShard.this.searchIdleAfter)) {
+                    logger.info("updating refresh search_idle_after from [{}] to [{}]", InternalIndexShard.this.searchIdleAfter, searchIdleAfter);
+                    InternalIndexShard.this.searchIdleAfter = searchIdleAfter;
+                }
                 TimeValue refreshInterval = settings.getAsTime("engine.robin.refresh_interval", settings.getAsTime(INDEX_REFRESH_INTERVAL, InternalIndexShard.this.refreshInterval));
                 if (!refreshInterval.equals(InternalIndexShard.this.refreshInterval)) {
                     logger.info("updating refresh_interval from [{}] to [{}]", InternalIndexShard.this.refreshInterval, refreshInterval);
@@ -875,7 +1026,7 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
         @Override
         public void run() {
             // we check before if a refresh is needed, if not, we reschedule, otherwise, we fork, refresh, and then reschedule
-            if (!engine().refreshNeeded()) {
+            if (!scheduledRefreshNeeded()) {
                 synchronized (mutex) {
                     if (state != IndexShardState.CLOSED) {
                         refreshScheduledFuture = threadPool.schedule(refreshInterval, ThreadPool.Names.SAME, this);
@@ -887,7 +1038,7 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
                 @Override
                 public void run() {
                     try {
-                        if (engine.refreshNeeded()) {
+                        if (scheduledRefreshNeeded()) {
                             refresh(new Engine.Refresh("scheduled").force(false));
                         }
                     } catch (EngineClosedException e) {
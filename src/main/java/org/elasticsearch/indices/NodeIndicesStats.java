@@ -29,6 +29,7 @@ import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentBuilderString;
 import org.elasticsearch.index.cache.filter.FilterCacheStats;
 import org.elasticsearch.index.cache.id.IdCacheStats;
+import org.elasticsearch.index.cache.query.QueryCacheStats;
 import org.elasticsearch.index.fielddata.FieldDataStats;
 import org.elasticsearch.index.flush.FlushStats;
 import org.elasticsearch.index.get.GetStats;
@@ -112,6 +113,11 @@ public class NodeIndicesStats implements Streamable, Serializable, ToXContent {
         return stats.getFilterCache();
     }
 
+    @Nullable
+    public QueryCacheStats getQueryCache() {
+        return stats.getQueryCache();
+    }
+
     @Nullable
     public IdCacheStats getIdCache() {
         return stats.getIdCache();
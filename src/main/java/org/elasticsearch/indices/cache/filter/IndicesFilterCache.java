@@ -25,16 +25,23 @@ import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.RemovalListener;
 import com.google.common.cache.RemovalNotification;
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.queries.TermFilter;
 import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.Filter;
 import org.elasticsearch.cache.recycler.CacheRecycler;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.lucene.docset.MatchDocIdSet;
 import org.elasticsearch.common.recycler.Recycler;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.FrequencySketch;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.index.cache.filter.support.FixedBitSetFilter;
 import org.elasticsearch.index.cache.filter.weighted.WeightedFilterCache;
 import org.elasticsearch.monitor.jvm.JvmInfo;
 import org.elasticsearch.node.settings.NodeSettingsService;
@@ -57,6 +64,10 @@ public class IndicesFilterCache extends AbstractComponent implements RemovalList
 
     private final TimeValue cleanInterval;
 
+    private final FrequencySketch frequencySketch;
+    private volatile int admissionMinFrequency;
+    private volatile int admissionTermFilterMinDocs;
+
     private final Set<Object> readersKeysToClean = ConcurrentCollections.newConcurrentSet();
 
     private volatile boolean closed;
@@ -64,6 +75,8 @@ public class IndicesFilterCache extends AbstractComponent implements RemovalList
 
     public static final String INDICES_CACHE_FILTER_SIZE = "indices.cache.filter.size";
     public static final String INDICES_CACHE_FILTER_EXPIRE = "indices.cache.filter.expire";
+    public static final String INDICES_CACHE_FILTER_ADMISSION_MIN_FREQUENCY = "indices.cache.filter.admission.min_frequency";
+    public static final String INDICES_CACHE_FILTER_ADMISSION_TERM_FILTER_MIN_DOCS = "indices.cache.filter.admission.term_filter_min_docs";
 
     class ApplySettings implements NodeSettingsService.Listener {
         @Override
@@ -81,6 +94,16 @@ public class IndicesFilterCache extends AbstractComponent implements RemovalList
                 IndicesFilterCache.this.expire = expire;
                 replace = true;
             }
+            int admissionMinFrequency = settings.getAsInt(INDICES_CACHE_FILTER_ADMISSION_MIN_FREQUENCY, IndicesFilterCache.this.admissionMinFrequency);
+            if (admissionMinFrequency != IndicesFilterCache.this.admissionMinFrequency) {
+                logger.info("updating [indices.cache.filter.admission.min_frequency] from [{}] to [{}]", IndicesFilterCache.this.admissionMinFrequency, admissionMinFrequency);
+                IndicesFilterCache.this.admissionMinFrequency = admissionMinFrequency;
+            }
+            int admissionTermFilterMinDocs = settings.getAsInt(INDICES_CACHE_FILTER_ADMISSION_TERM_FILTER_MIN_DOCS, IndicesFilterCache.this.admissionTermFilterMinDocs);
+            if (admissionTermFilterMinDocs != IndicesFilterCache.this.admissionTermFilterMinDocs) {
+                logger.info("updating [indices.cache.filter.admission.term_filter_min_docs] from [{}] to [{}]", IndicesFilterCache.this.admissionTermFilterMinDocs, admissionTermFilterMinDocs);
+                IndicesFilterCache.this.admissionTermFilterMinDocs = admissionTermFilterMinDocs;
+            }
             if (replace) {
                 Cache<WeightedFilterCache.FilterCacheKey, DocIdSet> oldCache = IndicesFilterCache.this.cache;
                 computeSizeInBytes();
@@ -98,10 +121,13 @@ public class IndicesFilterCache extends AbstractComponent implements RemovalList
         this.size = componentSettings.get("size", "20%");
         this.expire = componentSettings.getAsTime("expire", null);
         this.cleanInterval = componentSettings.getAsTime("clean_interval", TimeValue.timeValueSeconds(60));
+        this.admissionMinFrequency = componentSettings.getAsInt("admission.min_frequency", 2);
+        this.admissionTermFilterMinDocs = componentSettings.getAsInt("admission.term_filter_min_docs", 10000);
+        this.frequencySketch = new FrequencySketch(componentSettings.getAsInt("admission.sketch_size", 100000));
         computeSizeInBytes();
         buildCache();
-        logger.debug("using [node] weighted filter cache with size [{}], actual_size [{}], expire [{}], clean_interval [{}]",
-                size, new ByteSizeValue(sizeInBytes), expire, cleanInterval);
+        logger.debug("using [node] weighted filter cache with size [{}], actual_size [{}], expire [{}], clean_interval [{}], admission min_frequency [{}], term_filter_min_docs [{}]",
+                size, new ByteSizeValue(sizeInBytes), expire, cleanInterval, admissionMinFrequency, admissionTermFilterMinDocs);
 
         nodeSettingsService.addListener(new ApplySettings());
         threadPool.schedule(cleanInterval, ThreadPool.Names.SAME, new ReaderCleaner());
@@ -144,6 +170,30 @@ public class IndicesFilterCache extends AbstractComponent implements RemovalList
         return this.cache;
     }
 
+    /**
+     * Records a cache miss of the filter on the reader, and decides if its doc id set should be cached. Filters
+     * get cached once they have been used often enough recently (as estimated by a frequency sketch), so one off
+     * filters don't evict the hot ones. Filters that are expensive to compute (evaluated doc by doc) are cached
+     * right away, while term filters on small segments are cheap to execute and never cached.
+     */
+    public boolean admit(WeightedFilterCache.FilterCacheKey key, Filter filter, @Nullable DocIdSet docIdSet, AtomicReader reader) {
+        if (filter instanceof FixedBitSetFilter) {
+            // consumers rely on getting back a cached FixedBitSet
+            return true;
+        }
+        if (filter instanceof TermFilter && reader.maxDoc() < admissionTermFilterMinDocs) {
+            return false;
+        }
+        if (docIdSet instanceof MatchDocIdSet) {
+            return true;
+        }
+        int minFrequency = admissionMinFrequency;
+        if (minFrequency <= 1) {
+            return true;
+        }
+        return frequencySketch.incrementAndGet(key.hashCode()) >= minFrequency;
+    }
+
     @Override
     public void onRemoval(RemovalNotification<WeightedFilterCache.FilterCacheKey, DocIdSet> removalNotification) {
         WeightedFilterCache.FilterCacheKey key = removalNotification.getKey();
@@ -24,6 +24,7 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.Weigher;
 import org.apache.lucene.search.Filter;
 import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.RamUsageEstimator;
 import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.action.get.GetRequest;
 import org.elasticsearch.action.get.GetResponse;
@@ -31,13 +32,18 @@ import org.elasticsearch.client.Client;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.lucene.search.PrefixCodedTermsFilter;
 import org.elasticsearch.common.lucene.search.Queries;
+import org.elasticsearch.common.lucene.uid.Versions;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.support.XContentMapValues;
 import org.elasticsearch.index.cache.filter.support.CacheKeyFilter;
+import org.elasticsearch.index.mapper.FieldMapper;
+import org.elasticsearch.index.mapper.InternalMapper;
+import org.elasticsearch.search.fetch.source.FetchSourceContext;
 
 import java.util.List;
 import java.util.concurrent.Callable;
@@ -45,11 +51,13 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 /**
+ * A node level cache of the filters built from terms lookup documents, shared by all the shards and indices on
+ * the node. Each entry remembers the version of the lookup document it was built from: a lookup only fetches the
+ * (cheap) current version of the document, and the terms are only fetched and the filter rebuilt when the
+ * document changed.
  */
 public class IndicesTermsFilterCache extends AbstractComponent {
 
-    private static TermsFilterValue NO_TERMS = new TermsFilterValue(0, Queries.MATCH_NO_FILTER);
-
     private final Client client;
 
     private final Cache<BytesRef, TermsFilterValue> cache;
@@ -89,6 +97,14 @@ public class IndicesTermsFilterCache extends AbstractComponent {
         } else {
             key = new BytesRef(lookup.toString());
         }
+        TermsFilterValue value = cache.getIfPresent(key);
+        if (value != null) {
+            if (value.version == lookupVersion(lookup)) {
+                return value.filter;
+            }
+            // the lookup document changed, only drop the entry if no one replaced it already
+            cache.asMap().remove(key, value);
+        }
         try {
             return cache.get(key, new Callable<TermsFilterValue>() {
                 @Override
@@ -104,17 +120,36 @@ public class IndicesTermsFilterCache extends AbstractComponent {
         }
     }
 
+    /**
+     * The current version of the lookup document, without fetching its source.
+     */
+    long lookupVersion(TermsLookup lookup) {
+        GetResponse getResponse = client.get(new GetRequest(lookup.getIndex(), lookup.getType(), lookup.getId())
+                .preference("_local").routing(lookup.getRouting()).fetchSourceContext(FetchSourceContext.DO_NOT_FETCH_SOURCE)).actionGet();
+        return getResponse.isExists() ? getResponse.getVersion() : Versions.NOT_FOUND;
+    }
+
     TermsFilterValue buildTermsFilterValue(TermsLookup lookup) {
         GetResponse getResponse = client.get(new GetRequest(lookup.getIndex(), lookup.getType(), lookup.getId()).preference("_local").routing(lookup.getRouting())).actionGet();
         if (!getResponse.isExists()) {
-            return NO_TERMS;
+            return new TermsFilterValue(0, Queries.MATCH_NO_FILTER, Versions.NOT_FOUND);
         }
         List<Object> values = XContentMapValues.extractRawValues(lookup.getPath(), getResponse.getSourceAsMap());
         if (values.isEmpty()) {
-            return NO_TERMS;
+            return new TermsFilterValue(0, Queries.MATCH_NO_FILTER, getResponse.getVersion());
+        }
+        FieldMapper fieldMapper = lookup.getFieldMapper();
+        if (fieldMapper instanceof InternalMapper) {
+            // internal mappers (like _id or _parent) resolve the terms against other fields
+            Filter filter = fieldMapper.termsFilter(values, lookup.getQueryParseContext());
+            return new TermsFilterValue(estimateSizeInBytes(values), filter, getResponse.getVersion());
+        }
+        BytesRef[] terms = new BytesRef[values.size()];
+        for (int i = 0; i < terms.length; i++) {
+            terms[i] = fieldMapper.indexedValueForSearch(values.get(i));
         }
-        Filter filter = lookup.getFieldMapper().termsFilter(values, lookup.getQueryParseContext());
-        return new TermsFilterValue(estimateSizeInBytes(values), filter);
+        PrefixCodedTermsFilter filter = new PrefixCodedTermsFilter(fieldMapper.names().indexName(), terms);
+        return new TermsFilterValue(RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + filter.sizeInBytes(), filter, getResponse.getVersion());
     }
 
     long estimateSizeInBytes(List<Object> terms) {
@@ -153,10 +188,12 @@ public class IndicesTermsFilterCache extends AbstractComponent {
     static class TermsFilterValue {
         public final long sizeInBytes;
         public final Filter filter;
+        public final long version;
 
-        TermsFilterValue(long sizeInBytes, Filter filter) {
+        TermsFilterValue(long sizeInBytes, Filter filter, long version) {
             this.sizeInBytes = sizeInBytes;
             this.filter = filter;
+            this.version = version;
         }
     }
 }
@@ -0,0 +1,313 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.cache.query;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.index.cache.query.ShardQueryCache;
+import org.elasticsearch.monitor.jvm.JvmInfo;
+import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.search.internal.ShardSearchRequest;
+import org.elasticsearch.search.query.QueryPhase;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A node level cache of the serialized shard level query results of <tt>count</tt> search requests (hits count and
+ * facets), for requests that opted in using <tt>query_cache</tt>. Results are keyed by the shard, the version of the
+ * shard reader and the request source, so a refresh that changes the shard automatically invalidates them. Entries
+ * of closed readers are removed periodically, and the cache is bounded by <tt>indices.cache.query.size</tt>.
+ */
+public class IndicesQueryCache extends AbstractComponent implements RemovalListener<IndicesQueryCache.Key, BytesReference> {
+
+    private final ThreadPool threadPool;
+
+    private final String size;
+    private final long sizeInBytes;
+    private final TimeValue expire;
+    private final TimeValue cleanInterval;
+
+    private final Cache<Key, BytesReference> cache;
+
+    private final Set<CleanupKey> registeredClosedListeners = ConcurrentCollections.newConcurrentSet();
+    private final Set<CleanupKey> keysToClean = ConcurrentCollections.newConcurrentSet();
+
+    private volatile boolean closed;
+
+    @Inject
+    public IndicesQueryCache(Settings settings, ThreadPool threadPool) {
+        super(settings);
+        this.threadPool = threadPool;
+        this.size = componentSettings.get("size", "1%");
+        this.expire = componentSettings.getAsTime("expire", null);
+        this.cleanInterval = componentSettings.getAsTime("clean_interval", TimeValue.timeValueSeconds(60));
+        if (size.endsWith("%")) {
+            double percent = Double.parseDouble(size.substring(0, size.length() - 1));
+            sizeInBytes = (long) ((percent / 100) * JvmInfo.jvmInfo().getMem().getHeapMax().bytes());
+        } else {
+            sizeInBytes = ByteSizeValue.parseBytesSizeValue(size).bytes();
+        }
+
+        CacheBuilder<Key, BytesReference> cacheBuilder = CacheBuilder.newBuilder()
+                .maximumWeight(sizeInBytes).weigher(new QueryCacheWeigher()).removalListener(this);
+        cacheBuilder.concurrencyLevel(16);
+        if (expire != null) {
+            cacheBuilder.expireAfterAccess(expire.millis(), TimeUnit.MILLISECONDS);
+        }
+        this.cache = cacheBuilder.build();
+        logger.debug("using [node] query cache with size [{}], actual_size [{}], expire [{}], clean_interval [{}]",
+                size, new ByteSizeValue(sizeInBytes), expire, cleanInterval);
+
+        threadPool.schedule(cleanInterval, ThreadPool.Names.SAME, new Reaper());
+    }
+
+    public void close() {
+        closed = true;
+        cache.invalidateAll();
+    }
+
+    @Override
+    public void onRemoval(RemovalNotification<Key, BytesReference> notification) {
+        if (notification.getKey() == null) {
+            return;
+        }
+        notification.getKey().shardQueryCache.onRemoval(notification);
+    }
+
+    /**
+     * Can the result of the shard request be cached? Only <tt>count</tt> requests that opted in, that
+     * are not scrolled, and whose result doesn't depend on the time they were issued (<tt>now</tt>), are cached.
+     */
+    public boolean canCache(ShardSearchRequest request, SearchContext context) {
+        if (!request.queryCache()) {
+            return false;
+        }
+        if (context.searchType() != SearchType.COUNT || request.scroll() != null) {
+            return false;
+        }
+        // parsing the request (e.g. date math) used now, the result would be stale on the next request
+        if (context.nowInMillisUsed()) {
+            return false;
+        }
+        // we need the reader version to know when the cached result becomes stale
+        return context.searcher().getIndexReader() instanceof DirectoryReader;
+    }
+
+    /**
+     * Loads the result of the request into the context from the cache, executing the query phase and caching
+     * its result if it is not there yet.
+     */
+    public void loadIntoContext(final ShardSearchRequest request, final SearchContext context, final QueryPhase queryPhase) throws Exception {
+        DirectoryReader reader = (DirectoryReader) context.searcher().getIndexReader();
+        final ShardQueryCache shardQueryCache = context.indexShard().queryCache();
+        final Key key = new Key(shardQueryCache, reader.getVersion(), requestBytes(request));
+        final boolean[] loaded = new boolean[1];
+        BytesReference value;
+        try {
+            value = cache.get(key, new Callable<BytesReference>() {
+                @Override
+                public BytesReference call() throws Exception {
+                    queryPhase.execute(context);
+                    BytesStreamOutput out = new BytesStreamOutput();
+                    context.queryResult().writeToNoId(out);
+                    BytesReference value = out.bytes().copyBytesArray();
+                    shardQueryCache.onCached(key, value);
+                    loaded[0] = true;
+                    return value;
+                }
+            });
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+        if (loaded[0]) {
+            shardQueryCache.onMiss();
+            CleanupKey cleanupKey = new CleanupKey(shardQueryCache, reader.getVersion());
+            if (registeredClosedListeners.add(cleanupKey)) {
+                reader.addReaderClosedListener(cleanupKey);
+            }
+        } else {
+            shardQueryCache.onHit();
+            // restore the result, the context id differs from the one it was computed with
+            context.queryResult().readFromWithId(context.id(), value.streamInput());
+        }
+    }
+
+    private static BytesReference requestBytes(ShardSearchRequest request) throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeBytesReference(request.source());
+        out.writeBytesReference(request.extraSource());
+        out.writeStringArray(request.types());
+        out.writeStringArrayNullable(request.filteringAliases());
+        return out.bytes().copyBytesArray();
+    }
+
+    static class QueryCacheWeigher implements Weigher<Key, BytesReference> {
+
+        @Override
+        public int weigh(Key key, BytesReference value) {
+            return (int) Math.min(key.sizeInBytes() + value.length(), Integer.MAX_VALUE);
+        }
+    }
+
+    public static class Key {
+
+        final ShardQueryCache shardQueryCache;
+        final long readerVersion;
+        final BytesReference value;
+
+        Key(ShardQueryCache shardQueryCache, long readerVersion, BytesReference value) {
+            this.shardQueryCache = shardQueryCache;
+            this.readerVersion = readerVersion;
+            this.value = value;
+        }
+
+        public long sizeInBytes() {
+            return 32 + value.length();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            Key key = (Key) o;
+            if (readerVersion != key.readerVersion) return false;
+            if (shardQueryCache != key.shardQueryCache) return false;
+            if (!value.equals(key.value)) return false;
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = shardQueryCache.hashCode();
+            result = 31 * result + (int) (readerVersion ^ (readerVersion >>> 32));
+            result = 31 * result + value.hashCode();
+            return result;
+        }
+    }
+
+    /**
+     * Identifies the entries of a shard reader, and marks them for cleanup once that reader is closed.
+     */
+    private class CleanupKey implements IndexReader.ReaderClosedListener {
+
+        final ShardQueryCache shardQueryCache;
+        final long readerVersion;
+
+        private CleanupKey(ShardQueryCache shardQueryCache, long readerVersion) {
+            this.shardQueryCache = shardQueryCache;
+            this.readerVersion = readerVersion;
+        }
+
+        @Override
+        public void onClose(IndexReader reader) {
+            registeredClosedListeners.remove(this);
+            keysToClean.add(this);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            CleanupKey that = (CleanupKey) o;
+            return readerVersion == that.readerVersion && shardQueryCache == that.shardQueryCache;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = shardQueryCache.hashCode();
+            result = 31 * result + (int) (readerVersion ^ (readerVersion >>> 32));
+            return result;
+        }
+    }
+
+    /**
+     * Removes the entries of closed readers in the background, iterating over the cache only once for all
+     * the readers closed since the last run.
+     */
+    private class Reaper implements Runnable {
+
+        @Override
+        public void run() {
+            if (closed) {
+                return;
+            }
+            if (keysToClean.isEmpty()) {
+                schedule();
+                return;
+            }
+            try {
+                threadPool.executor(ThreadPool.Names.GENERIC).execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        Set<CleanupKey> toClean = new HashSet<CleanupKey>();
+                        for (Iterator<CleanupKey> it = keysToClean.iterator(); it.hasNext(); ) {
+                            toClean.add(it.next());
+                            it.remove();
+                        }
+                        cache.cleanUp();
+                        if (!toClean.isEmpty()) {
+                            for (Iterator<Key> it = cache.asMap().keySet().iterator(); it.hasNext(); ) {
+                                Key key = it.next();
+                                if (toClean.contains(new CleanupKey(key.shardQueryCache, key.readerVersion))) {
+                                    // same as invalidate
+                                    it.remove();
+                                }
+                            }
+                        }
+                        schedule();
+                    }
+                });
+            } catch (EsRejectedExecutionException ex) {
+                logger.debug("Can not run Reaper - execution rejected", ex);
+            }
+        }
+
+        private void schedule() {
+            try {
+                threadPool.schedule(cleanInterval, ThreadPool.Names.SAME, this);
+            } catch (EsRejectedExecutionException ex) {
+                logger.debug("Can not schedule Reaper - execution rejected", ex);
+            }
+        }
+    }
+}
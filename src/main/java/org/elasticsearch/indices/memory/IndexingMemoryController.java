@@ -21,13 +21,16 @@ package org.elasticsearch.indices.memory;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import org.apache.lucene.util.CollectionUtil;
 import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.engine.EngineClosedException;
 import org.elasticsearch.index.engine.FlushNotAllowedEngineException;
@@ -41,16 +44,38 @@ import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.monitor.jvm.JvmInfo;
 import org.elasticsearch.threadpool.ThreadPool;
 
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- *
+ * Divides the node wide indexing buffer (<tt>indices.memory.index_buffer_size</tt>) between the shards that
+ * are actively indexing. With the <tt>even</tt> allocation (the default) each active shard gets the same
+ * share. With the <tt>demand</tt> allocation each shard may grow its buffer up to
+ * <tt>max_shard_index_buffer_size</tt>, and once the buffers of all the shards together exceed the node
+ * budget, the largest ones are written to segments first.
  */
 public class IndexingMemoryController extends AbstractLifecycleComponent<IndexingMemoryController> {
 
+    /**
+     * The cause recorded when a buffer is written because the node wide budget was exceeded.
+     */
+    public static final String PRESSURE_WRITE = "pressure";
+
+    /**
+     * The cause recorded when a buffer is written because the shard became inactive.
+     */
+    public static final String INACTIVE_WRITE = "inactive";
+
+    private static final Comparator<ShardIndexBuffer> LARGEST_FIRST = new Comparator<ShardIndexBuffer>() {
+        @Override
+        public int compare(ShardIndexBuffer o1, ShardIndexBuffer o2) {
+            return o1.bytes < o2.bytes ? 1 : (o1.bytes == o2.bytes ? 0 : -1);
+        }
+    };
+
     private final ThreadPool threadPool;
     private final IndicesService indicesService;
 
@@ -62,6 +87,10 @@ public class IndexingMemoryController extends AbstractLifecycleComponent<Indexin
     private final ByteSizeValue minShardTranslogBufferSize;
     private final ByteSizeValue maxShardTranslogBufferSize;
 
+    private final boolean demandAllocation;
+    private final TimeValue pressureInterval;
+    private final AtomicBoolean writingIndexBuffers = new AtomicBoolean();
+
     private final TimeValue inactiveTime;
     private final TimeValue interval;
     private final AtomicBoolean shardsCreatedOrDeleted = new AtomicBoolean();
@@ -72,6 +101,8 @@ public class IndexingMemoryController extends AbstractLifecycleComponent<Indexin
 
     private volatile ScheduledFuture scheduler;
 
+    private volatile ScheduledFuture pressureScheduler;
+
     private final Object mutex = new Object();
 
     @Inject
@@ -127,7 +158,18 @@ public class IndexingMemoryController extends AbstractLifecycleComponent<Indexin
         // we need to have this relatively small to move a shard from inactive to active fast (enough)
         this.interval = componentSettings.getAsTime("interval", TimeValue.timeValueSeconds(30));
 
-        logger.debug("using index_buffer_size [{}], with min_shard_index_buffer_size [{}], max_shard_index_buffer_size [{}], shard_inactive_time [{}]", this.indexingBuffer, this.minShardIndexBufferSize, this.maxShardIndexBufferSize, this.inactiveTime);
+        String allocation = componentSettings.get("index_buffer_allocation", "even");
+        if ("even".equals(allocation)) {
+            this.demandAllocation = false;
+        } else if ("demand".equals(allocation)) {
+            this.demandAllocation = true;
+        } else {
+            throw new ElasticSearchIllegalArgumentException("index_buffer_allocation should be one of [even, demand], got [" + allocation + "]");
+        }
+        // checking is cheap (it only sums the buffer sizes), we want to react to pressure before the heap fills up
+        this.pressureInterval = componentSettings.getAsTime("pressure_interval", TimeValue.timeValueSeconds(1));
+
+        logger.debug("using index_buffer_size [{}], with min_shard_index_buffer_size [{}], max_shard_index_buffer_size [{}], shard_inactive_time [{}], index_buffer_allocation [{}]", this.indexingBuffer, this.minShardIndexBufferSize, this.maxShardIndexBufferSize, this.inactiveTime, allocation);
 
     }
 
@@ -136,6 +178,9 @@ public class IndexingMemoryController extends AbstractLifecycleComponent<Indexin
         indicesService.indicesLifecycle().addListener(listener);
         // its fine to run it on the scheduler thread, no busy work
         this.scheduler = threadPool.scheduleWithFixedDelay(new ShardsIndicesStatusChecker(), interval);
+        if (demandAllocation) {
+            this.pressureScheduler = threadPool.scheduleWithFixedDelay(new IndexBufferPressureChecker(), pressureInterval);
+        }
     }
 
     @Override
@@ -145,6 +190,10 @@ public class IndexingMemoryController extends AbstractLifecycleComponent<Indexin
             scheduler.cancel(false);
             scheduler = null;
         }
+        if (pressureScheduler != null) {
+            pressureScheduler.cancel(false);
+            pressureScheduler = null;
+        }
     }
 
     @Override
@@ -198,6 +247,9 @@ public class IndexingMemoryController extends AbstractLifecycleComponent<Indexin
                 for (IndexShard indexShard : activeToInactiveIndexingShards) {
                     // update inactive indexing buffer size
                     try {
+                        if (((InternalIndexShard) indexShard).engine().indexingBufferRamUsed() > 0) {
+                            indexShard.indexingService().indexBufferWritten(INACTIVE_WRITE);
+                        }
                         ((InternalIndexShard) indexShard).engine().updateIndexingBufferSize(Engine.INACTIVE_SHARD_INDEXING_BUFFER);
                         ((InternalIndexShard) indexShard).translog().updateBuffer(Translog.INACTIVE_SHARD_TRANSLOG_BUFFER);
                     } catch (EngineClosedException e) {
@@ -214,6 +266,79 @@ public class IndexingMemoryController extends AbstractLifecycleComponent<Indexin
         }
     }
 
+    /**
+     * Sums the indexing buffers of all the shards, and when they exceed the node wide budget, forks writing
+     * the largest ones to segments until the buffers fit again.
+     */
+    class IndexBufferPressureChecker implements Runnable {
+        @Override
+        public void run() {
+            if (writingIndexBuffers.get()) {
+                // still writing the buffers we found last time
+                return;
+            }
+            final List<ShardIndexBuffer> buffers = Lists.newArrayList();
+            long totalBytes = 0;
+            for (IndexService indexService : indicesService) {
+                for (IndexShard indexShard : indexService) {
+                    long bytes;
+                    try {
+                        bytes = ((InternalIndexShard) indexShard).engine().indexingBufferRamUsed();
+                    } catch (EngineClosedException e) {
+                        continue;
+                    }
+                    if (bytes > 0) {
+                        buffers.add(new ShardIndexBuffer(indexShard, bytes));
+                        totalBytes += bytes;
+                    }
+                }
+            }
+            if (totalBytes <= indexingBuffer.bytes()) {
+                return;
+            }
+            if (!writingIndexBuffers.compareAndSet(false, true)) {
+                return;
+            }
+            final long finalTotalBytes = totalBytes;
+            try {
+                threadPool.executor(ThreadPool.Names.REFRESH).execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            writeLargestIndexBuffers(buffers, finalTotalBytes);
+                        } finally {
+                            writingIndexBuffers.set(false);
+                        }
+                    }
+                });
+            } catch (EsRejectedExecutionException e) {
+                writingIndexBuffers.set(false);
+            }
+        }
+    }
+
+    private void writeLargestIndexBuffers(List<ShardIndexBuffer> buffers, long totalBytes) {
+        logger.debug("indexing buffers use [{}] across [{}] shards, above index_buffer_size [{}], writing the largest ones", new ByteSizeValue(totalBytes), buffers.size(), indexingBuffer);
+        CollectionUtil.timSort(buffers, LARGEST_FIRST);
+        for (ShardIndexBuffer buffer : buffers) {
+            if (totalBytes <= indexingBuffer.bytes()) {
+                break;
+            }
+            IndexShard indexShard = buffer.indexShard;
+            try {
+                logger.trace("writing indexing buffer [{}] of shard [{}][{}]", new ByteSizeValue(buffer.bytes), indexShard.shardId().index().name(), indexShard.shardId().id());
+                // writes the buffered documents to new segments without making them visible, so refresh_interval still holds
+                ((InternalIndexShard) indexShard).engine().writeIndexingBuffer();
+                indexShard.indexingService().indexBufferWritten(PRESSURE_WRITE);
+            } catch (EngineClosedException e) {
+                // ignore
+            } catch (Throwable e) {
+                logger.warn("failed to write indexing buffer of shard [{}][{}]", e, indexShard.shardId().index().name(), indexShard.shardId().id());
+            }
+            totalBytes -= buffer.bytes;
+        }
+    }
+
     class Listener extends IndicesLifecycle.Listener {
 
         @Override
@@ -239,13 +364,7 @@ public class IndexingMemoryController extends AbstractLifecycleComponent<Indexin
         if (shardsCount == 0) {
             return;
         }
-        ByteSizeValue shardIndexingBufferSize = new ByteSizeValue(indexingBuffer.bytes() / shardsCount);
-        if (shardIndexingBufferSize.bytes() < minShardIndexBufferSize.bytes()) {
-            shardIndexingBufferSize = minShardIndexBufferSize;
-        }
-        if (shardIndexingBufferSize.bytes() > maxShardIndexBufferSize.bytes()) {
-            shardIndexingBufferSize = maxShardIndexBufferSize;
-        }
+        ByteSizeValue shardIndexingBufferSize = shardIndexingBufferSize(shardsCount);
 
         ByteSizeValue shardTranslogBufferSize = new ByteSizeValue(translogBuffer.bytes() / shardsCount);
         if (shardTranslogBufferSize.bytes() < minShardTranslogBufferSize.bytes()) {
@@ -277,6 +396,24 @@ public class IndexingMemoryController extends AbstractLifecycleComponent<Indexin
         }
     }
 
+    /**
+     * The indexing buffer each of the given number of active shards may use.
+     */
+    ByteSizeValue shardIndexingBufferSize(int shardsCount) {
+        if (demandAllocation) {
+            // shards grow as much as they need, the pressure checker keeps the sum within the budget
+            return indexingBuffer.bytes() < maxShardIndexBufferSize.bytes() ? indexingBuffer : maxShardIndexBufferSize;
+        }
+        ByteSizeValue shardIndexingBufferSize = new ByteSizeValue(indexingBuffer.bytes() / shardsCount);
+        if (shardIndexingBufferSize.bytes() < minShardIndexBufferSize.bytes()) {
+            shardIndexingBufferSize = minShardIndexBufferSize;
+        }
+        if (shardIndexingBufferSize.bytes() > maxShardIndexBufferSize.bytes()) {
+            shardIndexingBufferSize = maxShardIndexBufferSize;
+        }
+        return shardIndexingBufferSize;
+    }
+
     private int countShards() {
         int shardsCount = 0;
         for (IndexService indexService : indicesService) {
@@ -290,6 +427,16 @@ public class IndexingMemoryController extends AbstractLifecycleComponent<Indexin
         return shardsCount;
     }
 
+    static class ShardIndexBuffer {
+        final IndexShard indexShard;
+        final long bytes;
+
+        ShardIndexBuffer(IndexShard indexShard, long bytes) {
+            this.indexShard = indexShard;
+            this.bytes = bytes;
+        }
+    }
+
     static class ShardIndexingStatus {
         long translogId = -1;
         int translogNumberOfOperations = -1;
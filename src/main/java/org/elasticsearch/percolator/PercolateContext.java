@@ -74,7 +74,6 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentMap;
 
 /**
  */
@@ -91,7 +90,7 @@ public class PercolateContext extends SearchContext {
     private final IndexService indexService;
     private final IndexFieldDataService fieldDataService;
     private final IndexShard indexShard;
-    private final ConcurrentMap<HashedBytesRef, Query> percolateQueries;
+    private Map<HashedBytesRef, Query> percolateQueries;
     private String[] types;
 
     private Engine.Searcher docEngineSearcher;
@@ -168,10 +167,17 @@ public class PercolateContext extends SearchContext {
         return indexService;
     }
 
-    public ConcurrentMap<HashedBytesRef, Query> percolateQueries() {
+    public Map<HashedBytesRef, Query> percolateQueries() {
         return percolateQueries;
     }
 
+    /**
+     * Narrows the queries to percolate to the provided candidates.
+     */
+    public void percolateQueries(Map<HashedBytesRef, Query> percolateQueries) {
+        this.percolateQueries = percolateQueries;
+    }
+
     public Query percolateQuery() {
         return percolateQuery;
     }
@@ -335,6 +341,11 @@ public class PercolateContext extends SearchContext {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public boolean nowInMillisUsed() {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public Scroll scroll() {
         throw new UnsupportedOperationException();
@@ -19,10 +19,13 @@
 package org.elasticsearch.percolator;
 
 import com.carrotsearch.hppc.ByteObjectOpenHashMap;
+import com.carrotsearch.hppc.FloatArrayList;
 import com.google.common.collect.ImmutableMap;
 import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.index.AtomicReader;
 import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.MultiReader;
 import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.index.memory.ExtendedMemoryIndex;
 import org.apache.lucene.index.memory.MemoryIndex;
@@ -51,6 +54,7 @@ import org.elasticsearch.common.text.StringText;
 import org.elasticsearch.common.text.Text;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentParser;
@@ -79,11 +83,16 @@ import org.elasticsearch.search.SearchShardTarget;
 import org.elasticsearch.search.highlight.HighlightField;
 import org.elasticsearch.search.highlight.HighlightPhase;
 import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.elasticsearch.index.mapper.SourceToParse.source;
 import static org.elasticsearch.percolator.QueryCollector.*;
@@ -102,12 +111,19 @@ public class PercolatorService extends AbstractComponent {
 
     private final HighlightPhase highlightPhase;
 
+    private final ThreadPool threadPool;
+    private final int partitions;
+    private final int partitionMinQueries;
+
     @Inject
-    public PercolatorService(Settings settings, IndicesService indicesService, HighlightPhase highlightPhase, ClusterService clusterService) {
+    public PercolatorService(Settings settings, IndicesService indicesService, HighlightPhase highlightPhase, ClusterService clusterService, ThreadPool threadPool) {
         super(settings);
         this.indicesService = indicesService;
         this.clusterService = clusterService;
         this.highlightPhase = highlightPhase;
+        this.threadPool = threadPool;
+        this.partitions = settings.getAsInt("percolator.partitions", 1);
+        this.partitionMinQueries = Math.max(1, settings.getAsInt("percolator.partition_min_queries", 1000));
 
         final long maxReuseBytes = settings.getAsBytesSize("indices.memory.memory_index.size_per_thread", new ByteSizeValue(1, ByteSizeUnit.MB)).bytes();
         cache = new CloseableThreadLocal<MemoryIndex>() {
@@ -147,77 +163,264 @@ public class PercolatorService extends AbstractComponent {
             );
 
             ParsedDocument parsedDocument = parseRequest(percolateIndexService, request, context);
-            if (context.percolateQueries().isEmpty()) {
-                return new PercolateShardResponse(context, request.index(), request.shardId());
-            }
+            return percolate(request, context, parsedDocument);
+        } finally {
+            shardPercolateService.postPercolate(System.nanoTime() - startTime);
+        }
+    }
 
-            if (request.docSource() != null && request.docSource().length() != 0) {
-                parsedDocument = parseFetchedDoc(request.docSource(), percolateIndexService, request.documentType());
-            } else if (parsedDocument == null) {
-                throw new ElasticSearchIllegalArgumentException("Nothing to percolate");
+    /**
+     * Percolates several documents against the same shard. The documents that are percolated without a query, sorting,
+     * scoring or highlighting are indexed together into one in-memory reader, so each registered query is executed
+     * once for all of them instead of once per document. The other documents are percolated one by one.
+     * <p/>
+     * Failures are reported per request in the provided <tt>failures</tt> array, the responses of failed requests are
+     * <tt>null</tt>.
+     */
+    public PercolateShardResponse[] percolate(List<PercolateShardRequest> requests, Throwable[] failures) {
+        PercolateShardResponse[] responses = new PercolateShardResponse[requests.size()];
+        if (requests.isEmpty()) {
+            return responses;
+        }
+        PercolateShardRequest firstRequest = requests.get(0);
+        IndexService percolateIndexService = indicesService.indexServiceSafe(firstRequest.index());
+        IndexShard indexShard = percolateIndexService.shardSafe(firstRequest.shardId());
+        ShardPercolateService shardPercolateService = indexShard.shardPercolateService();
+        SearchShardTarget searchShardTarget = new SearchShardTarget(clusterService.localNode().id(), firstRequest.index(), firstRequest.shardId());
+
+        List<BatchItem> batch = new ArrayList<BatchItem>(requests.size());
+        for (int slot = 0; slot < requests.size(); slot++) {
+            PercolateShardRequest request = requests.get(slot);
+            shardPercolateService.prePercolate();
+            long startTime = System.nanoTime();
+            boolean batched = false;
+            try {
+                PercolateContext context = new PercolateContext(request, searchShardTarget, indexShard, percolateIndexService);
+                ParsedDocument parsedDocument = parseRequest(percolateIndexService, request, context);
+                if (context.percolateQuery() != null || context.score || context.sort || context.highlight() != null) {
+                    responses[slot] = percolate(request, context, parsedDocument);
+                } else if (context.percolateQueries().isEmpty()) {
+                    responses[slot] = new PercolateShardResponse(context, request.index(), request.shardId());
+                } else {
+                    parsedDocument = resolveDocument(percolateIndexService, request, context, parsedDocument);
+                    batch.add(new BatchItem(slot, request, context, parsedDocument));
+                    batched = true;
+                }
+            } catch (Throwable t) {
+                failures[slot] = t;
+            } finally {
+                if (!batched) {
+                    shardPercolateService.postPercolate(System.nanoTime() - startTime);
+                }
             }
+        }
 
-            if (context.percolateQuery() == null && (context.score || context.sort)) {
-                throw new ElasticSearchIllegalArgumentException("Can't sort or score if query isn't specified");
+        if (!batch.isEmpty()) {
+            long startTime = System.nanoTime();
+            try {
+                percolateBatch(indexShard, percolateIndexService, batch, responses);
+            } catch (Throwable t) {
+                for (BatchItem item : batch) {
+                    failures[item.slot] = t;
+                }
+            } finally {
+                long tookPerItem = (System.nanoTime() - startTime) / batch.size();
+                for (int i = 0; i < batch.size(); i++) {
+                    shardPercolateService.postPercolate(tookPerItem);
+                }
             }
+        }
+        return responses;
+    }
 
-            if (context.sort && !context.limit) {
-                throw new ElasticSearchIllegalArgumentException("Can't sort if size isn't specified");
-            }
+    private PercolateShardResponse percolate(PercolateShardRequest request, PercolateContext context, ParsedDocument parsedDocument) {
+        if (context.percolateQueries().isEmpty()) {
+            return new PercolateShardResponse(context, request.index(), request.shardId());
+        }
 
-            if (context.highlight() != null && !context.limit) {
-                throw new ElasticSearchIllegalArgumentException("Can't highlight if size isn't specified");
-            }
+        parsedDocument = resolveDocument(context.indexService(), request, context, parsedDocument);
+
+        if (context.percolateQuery() == null && (context.score || context.sort)) {
+            throw new ElasticSearchIllegalArgumentException("Can't sort or score if query isn't specified");
+        }
 
-            if (context.size < 0) {
-                context.size = 0;
+        if (context.sort && !context.limit) {
+            throw new ElasticSearchIllegalArgumentException("Can't sort if size isn't specified");
+        }
+
+        if (context.highlight() != null && !context.limit) {
+            throw new ElasticSearchIllegalArgumentException("Can't highlight if size isn't specified");
+        }
+
+        // first, parse the source doc into a MemoryIndex
+        final MemoryIndex memoryIndex = cache.get();
+        try {
+            indexDocument(memoryIndex, parsedDocument);
+
+            PercolatorType action;
+            if (request.onlyCount()) {
+                action = context.percolateQuery() != null ? queryCountPercolator : countPercolator;
+            } else {
+                if (context.sort) {
+                    action = topMatchingPercolator;
+                } else if (context.percolateQuery() != null) {
+                    action = context.score ? scoringPercolator : queryPercolator;
+                } else {
+                    action = matchPercolator;
+                }
             }
+            context.percolatorTypeId = action.id();
+
+            context.initialize(memoryIndex, parsedDocument);
+            int registeredQueries = context.percolateQueries().size();
+            context.percolateQueries(context.indexShard().percolateRegistry().candidateQueries(context.docSearcher().getIndexReader()));
+            context.indexShard().shardPercolateService().candidateQueries(registeredQueries, context.percolateQueries().size());
+            return action.doPercolate(request, context);
+        } finally {
+            context.release();
+        }
+    }
 
-            // first, parse the source doc into a MemoryIndex
-            final MemoryIndex memoryIndex = cache.get();
+    /**
+     * Returns the document to percolate, either the one from the request body or the one fetched by the get api.
+     */
+    private ParsedDocument resolveDocument(IndexService percolateIndexService, PercolateShardRequest request, PercolateContext context, ParsedDocument parsedDocument) {
+        if (request.docSource() != null && request.docSource().length() != 0) {
+            parsedDocument = parseFetchedDoc(request.docSource(), percolateIndexService, request.documentType());
+        } else if (parsedDocument == null) {
+            throw new ElasticSearchIllegalArgumentException("Nothing to percolate");
+        }
+        if (context.size < 0) {
+            context.size = 0;
+        }
+        return parsedDocument;
+    }
+
+    private void indexDocument(MemoryIndex memoryIndex, ParsedDocument parsedDocument) {
+        // TODO: This means percolation does not support nested docs...
+        // So look into: ByteBufferDirectory
+        for (IndexableField field : parsedDocument.rootDoc().getFields()) {
+            if (!field.fieldType().indexed()) {
+                continue;
+            }
+            // no need to index the UID field
+            if (field.name().equals(UidFieldMapper.NAME)) {
+                continue;
+            }
+            TokenStream tokenStream;
             try {
-                // TODO: This means percolation does not support nested docs...
-                // So look into: ByteBufferDirectory
-                for (IndexableField field : parsedDocument.rootDoc().getFields()) {
-                    if (!field.fieldType().indexed()) {
-                        continue;
-                    }
-                    // no need to index the UID field
-                    if (field.name().equals(UidFieldMapper.NAME)) {
-                        continue;
-                    }
-                    TokenStream tokenStream;
-                    try {
-                        tokenStream = field.tokenStream(parsedDocument.analyzer());
-                        if (tokenStream != null) {
-                            memoryIndex.addField(field.name(), tokenStream, field.boost());
-                        }
-                    } catch (IOException e) {
-                        throw new ElasticSearchException("Failed to create token stream", e);
-                    }
+                tokenStream = field.tokenStream(parsedDocument.analyzer());
+                if (tokenStream != null) {
+                    memoryIndex.addField(field.name(), tokenStream, field.boost());
                 }
+            } catch (IOException e) {
+                throw new ElasticSearchException("Failed to create token stream", e);
+            }
+        }
+    }
 
-                PercolatorType action;
-                if (request.onlyCount()) {
-                    action = context.percolateQuery() != null ? queryCountPercolator : countPercolator;
-                } else {
-                    if (context.sort) {
-                        action = topMatchingPercolator;
-                    } else if (context.percolateQuery() != null) {
-                        action = context.score ? scoringPercolator : queryPercolator;
-                    } else {
-                        action = matchPercolator;
-                    }
+    private void percolateBatch(IndexShard indexShard, IndexService percolateIndexService, List<BatchItem> batch, PercolateShardResponse[] responses) throws IOException {
+        // each document gets its own single document in-memory index, and a multi reader over them makes up the batch
+        AtomicReader[] docReaders = new AtomicReader[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            MemoryIndex memoryIndex = new MemoryIndex(true);
+            indexDocument(memoryIndex, batch.get(i).parsedDocument);
+            docReaders[i] = (AtomicReader) memoryIndex.createSearcher().getIndexReader();
+        }
+        MultiReader batchReader = new MultiReader(docReaders, true);
+        try {
+            Map<HashedBytesRef, Query> queries = indexShard.percolateRegistry().candidateQueries(batchReader);
+            indexShard.shardPercolateService().candidateQueries(indexShard.percolateRegistry().percolateQueries().size(), queries.size());
+
+            IndexSearcher batchSearcher = new IndexSearcher(batchReader);
+            BatchCollector collector = new BatchCollector(batch);
+            for (Map.Entry<HashedBytesRef, Query> entry : queries.entrySet()) {
+                collector.reset(entry.getKey());
+                try {
+                    batchSearcher.search(entry.getValue(), collector);
+                } catch (Throwable e) {
+                    logger.warn("[" + entry.getKey() + "] failed to execute query", e);
                 }
-                context.percolatorTypeId = action.id();
+            }
 
-                context.initialize(memoryIndex, parsedDocument);
-                return action.doPercolate(request, context);
-            } finally {
-                context.release();
+            for (BatchItem item : batch) {
+                PercolateContext context = item.context;
+                if (item.request.onlyCount()) {
+                    context.percolatorTypeId = countPercolator.id();
+                    responses[item.slot] = new PercolateShardResponse(item.count, context, item.request.index(), item.request.shardId());
+                } else {
+                    context.percolatorTypeId = matchPercolator.id();
+                    BytesRef[] matches = item.matches.toArray(new BytesRef[item.matches.size()]);
+                    responses[item.slot] = new PercolateShardResponse(matches, new ArrayList<Map<String, HighlightField>>(), item.count, context, item.request.index(), item.request.shardId());
+                }
             }
         } finally {
-            shardPercolateService.postPercolate(System.nanoTime() - startTime);
+            for (AtomicReader docReader : docReaders) {
+                percolateIndexService.fieldData().clear(docReader);
+                percolateIndexService.cache().clear(docReader);
+            }
+            batchReader.close();
+        }
+    }
+
+    private static final class BatchItem {
+
+        final int slot;
+        final PercolateShardRequest request;
+        final PercolateContext context;
+        final ParsedDocument parsedDocument;
+        final List<BytesRef> matches = new ArrayList<BytesRef>();
+        long count;
+
+        BatchItem(int slot, PercolateShardRequest request, PercolateContext context, ParsedDocument parsedDocument) {
+            this.slot = slot;
+            this.request = request;
+            this.context = context;
+            this.parsedDocument = parsedDocument;
+        }
+
+        void matched(HashedBytesRef id) {
+            if (!request.onlyCount() && (!context.limit || count < context.size)) {
+                matches.add(id.bytes);
+            }
+            count++;
+        }
+    }
+
+    /**
+     * Collects which documents of a batch the current query matches, each document is a segment of the batch reader.
+     */
+    private static final class BatchCollector extends Collector {
+
+        private final List<BatchItem> batch;
+        private HashedBytesRef id;
+        private int docBase;
+
+        BatchCollector(List<BatchItem> batch) {
+            this.batch = batch;
+        }
+
+        void reset(HashedBytesRef id) {
+            this.id = id;
+        }
+
+        @Override
+        public void setScorer(Scorer scorer) throws IOException {
+        }
+
+        @Override
+        public void collect(int doc) throws IOException {
+            batch.get(docBase + doc).matched(id);
+        }
+
+        @Override
+        public void setNextReader(AtomicReaderContext context) throws IOException {
+            docBase = context.docBase;
+        }
+
+        @Override
+        public boolean acceptsDocsOutOfOrder() {
+            return true;
         }
     }
 
@@ -385,20 +588,30 @@ public class PercolatorService extends AbstractComponent {
         }
 
         @Override
-        public PercolateShardResponse doPercolate(PercolateShardRequest request, PercolateContext context) {
+        public PercolateShardResponse doPercolate(PercolateShardRequest request, final PercolateContext context) {
             long count = 0;
-            Lucene.ExistsCollector collector = new Lucene.ExistsCollector();
-            for (Map.Entry<HashedBytesRef, Query> entry : context.percolateQueries().entrySet()) {
-                collector.reset();
-                try {
-                    context.docSearcher().search(entry.getValue(), collector);
-                } catch (IOException e) {
-                    logger.warn("[" + entry.getKey() + "] failed to execute query", e);
-                }
+            List<Long> partitionCounts = percolatePartitions(context, new QueriesPercolator<Long>() {
+                @Override
+                public Long percolate(Iterable<Map.Entry<HashedBytesRef, Query>> queries) {
+                    long count = 0;
+                    Lucene.ExistsCollector collector = new Lucene.ExistsCollector();
+                    for (Map.Entry<HashedBytesRef, Query> entry : queries) {
+                        collector.reset();
+                        try {
+                            context.docSearcher().search(entry.getValue(), collector);
+                        } catch (IOException e) {
+                            logger.warn("[" + entry.getKey() + "] failed to execute query", e);
+                        }
 
-                if (collector.exists()) {
-                    count++;
+                        if (collector.exists()) {
+                            count++;
+                        }
+                    }
+                    return count;
                 }
+            });
+            for (long partitionCount : partitionCounts) {
+                count += partitionCount;
             }
             return new PercolateShardResponse(count, context, request.index(), request.shardId());
         }
@@ -422,9 +635,14 @@ public class PercolatorService extends AbstractComponent {
             long count = 0;
             Engine.Searcher percolatorSearcher = context.indexShard().acquireSearcher("percolate");
             try {
-                Count countCollector = count(logger, context);
-                queryBasedPercolating(percolatorSearcher, context, countCollector);
-                count = countCollector.counter();
+                List<Count> countCollectors = new ArrayList<Count>();
+                for (int partition = 0, partitions = partitions(context); partition < partitions; partition++) {
+                    countCollectors.add(count(logger, context, partition, partitions));
+                }
+                queryBasedPercolating(percolatorSearcher, context, countCollectors);
+                for (Count countCollector : countCollectors) {
+                    count += countCollector.counter();
+                }
             } catch (Throwable e) {
                 logger.warn("failed to execute", e);
             } finally {
@@ -470,34 +688,50 @@ public class PercolatorService extends AbstractComponent {
         }
 
         @Override
-        public PercolateShardResponse doPercolate(PercolateShardRequest request, PercolateContext context) {
-            long count = 0;
-            List<BytesRef> matches = new ArrayList<BytesRef>();
-            List<Map<String, HighlightField>> hls = new ArrayList<Map<String, HighlightField>>();
-            Lucene.ExistsCollector collector = new Lucene.ExistsCollector();
-
-            for (Map.Entry<HashedBytesRef, Query> entry : context.percolateQueries().entrySet()) {
-                collector.reset();
-                if (context.highlight() != null) {
-                    context.parsedQuery(new ParsedQuery(entry.getValue(), ImmutableMap.<String, Filter>of()));
-                    context.hitContext().cache().clear();
-                }
-                try {
-                    context.docSearcher().search(entry.getValue(), collector);
-                } catch (Throwable e) {
-                    logger.warn("[" + entry.getKey() + "] failed to execute query", e);
-                }
-
-                if (collector.exists()) {
-                    if (!context.limit || count < context.size) {
-                        matches.add(entry.getKey().bytes);
+        public PercolateShardResponse doPercolate(PercolateShardRequest request, final PercolateContext context) {
+            List<MatchedQueries> partitionMatches = percolatePartitions(context, new QueriesPercolator<MatchedQueries>() {
+                @Override
+                public MatchedQueries percolate(Iterable<Map.Entry<HashedBytesRef, Query>> queries) {
+                    MatchedQueries matched = new MatchedQueries();
+                    Lucene.ExistsCollector collector = new Lucene.ExistsCollector();
+
+                    for (Map.Entry<HashedBytesRef, Query> entry : queries) {
+                        collector.reset();
                         if (context.highlight() != null) {
-                            highlightPhase.hitExecute(context, context.hitContext());
-                            hls.add(context.hitContext().hit().getHighlightFields());
+                            context.parsedQuery(new ParsedQuery(entry.getValue(), ImmutableMap.<String, Filter>of()));
+                            context.hitContext().cache().clear();
+                        }
+                        try {
+                            context.docSearcher().search(entry.getValue(), collector);
+                        } catch (Throwable e) {
+                            logger.warn("[" + entry.getKey() + "] failed to execute query", e);
+                        }
+
+                        if (collector.exists()) {
+                            if (!context.limit || matched.count < context.size) {
+                                matched.matches.add(entry.getKey().bytes);
+                                if (context.highlight() != null) {
+                                    highlightPhase.hitExecute(context, context.hitContext());
+                                    matched.hls.add(context.hitContext().hit().getHighlightFields());
+                                }
+                            }
+                            matched.count++;
                         }
                     }
-                    count++;
+                    return matched;
+                }
+            });
+
+            long count = 0;
+            List<BytesRef> matches = new ArrayList<BytesRef>();
+            List<Map<String, HighlightField>> hls = new ArrayList<Map<String, HighlightField>>();
+            for (MatchedQueries matched : partitionMatches) {
+                count += matched.count;
+                for (int i = 0; i < matched.matches.size() && (!context.limit || matches.size() < context.size); i++) {
+                    matches.add(matched.matches.get(i));
                 }
+                // highlighting is never partitioned
+                hls.addAll(matched.hls);
             }
 
             BytesRef[] finalMatches = matches.toArray(new BytesRef[matches.size()]);
@@ -521,11 +755,22 @@ public class PercolatorService extends AbstractComponent {
         public PercolateShardResponse doPercolate(PercolateShardRequest request, PercolateContext context) {
             Engine.Searcher percolatorSearcher = context.indexShard().acquireSearcher("percolate");
             try {
-                Match match = match(logger, context, highlightPhase);
-                queryBasedPercolating(percolatorSearcher, context, match);
-                List<BytesRef> matches = match.matches();
-                List<Map<String, HighlightField>> hls = match.hls();
-                long count = match.counter();
+                List<Match> matchCollectors = new ArrayList<Match>();
+                for (int partition = 0, partitions = partitions(context); partition < partitions; partition++) {
+                    matchCollectors.add(match(logger, context, highlightPhase, partition, partitions));
+                }
+                queryBasedPercolating(percolatorSearcher, context, matchCollectors);
+                List<BytesRef> matches = new ArrayList<BytesRef>();
+                List<Map<String, HighlightField>> hls = new ArrayList<Map<String, HighlightField>>();
+                long count = 0;
+                for (Match match : matchCollectors) {
+                    count += match.counter();
+                    for (int i = 0; i < match.matches().size() && (!context.limit || matches.size() < context.size); i++) {
+                        matches.add(match.matches().get(i));
+                    }
+                    // highlighting is never partitioned
+                    hls.addAll(match.hls());
+                }
 
                 BytesRef[] finalMatches = matches.toArray(new BytesRef[matches.size()]);
                 return new PercolateShardResponse(finalMatches, hls, count, context, request.index(), request.shardId());
@@ -554,12 +799,25 @@ public class PercolatorService extends AbstractComponent {
         public PercolateShardResponse doPercolate(PercolateShardRequest request, PercolateContext context) {
             Engine.Searcher percolatorSearcher = context.indexShard().acquireSearcher("percolate");
             try {
-                MatchAndScore matchAndScore = matchAndScore(logger, context, highlightPhase);
-                queryBasedPercolating(percolatorSearcher, context, matchAndScore);
-                List<BytesRef> matches = matchAndScore.matches();
-                List<Map<String, HighlightField>> hls = matchAndScore.hls();
-                float[] scores = matchAndScore.scores().toArray();
-                long count = matchAndScore.counter();
+                List<MatchAndScore> matchAndScoreCollectors = new ArrayList<MatchAndScore>();
+                for (int partition = 0, partitions = partitions(context); partition < partitions; partition++) {
+                    matchAndScoreCollectors.add(matchAndScore(logger, context, highlightPhase, partition, partitions));
+                }
+                queryBasedPercolating(percolatorSearcher, context, matchAndScoreCollectors);
+                List<BytesRef> matches = new ArrayList<BytesRef>();
+                List<Map<String, HighlightField>> hls = new ArrayList<Map<String, HighlightField>>();
+                FloatArrayList scoresList = new FloatArrayList();
+                long count = 0;
+                for (MatchAndScore matchAndScore : matchAndScoreCollectors) {
+                    count += matchAndScore.counter();
+                    for (int i = 0; i < matchAndScore.matches().size() && (!context.limit || matches.size() < context.size); i++) {
+                        matches.add(matchAndScore.matches().get(i));
+                        scoresList.add(matchAndScore.scores().get(i));
+                    }
+                    // highlighting is never partitioned
+                    hls.addAll(matchAndScore.hls());
+                }
+                float[] scores = scoresList.toArray();
 
                 BytesRef[] finalMatches = matches.toArray(new BytesRef[matches.size()]);
                 return new PercolateShardResponse(finalMatches, hls, count, scores, context, request.index(), request.shardId());
@@ -719,6 +977,145 @@ public class PercolatorService extends AbstractComponent {
         percolatorSearcher.searcher().search(query, collector);
     }
 
+    /**
+     * Percolates with a collector per partition of the registered queries, concurrently if there are several.
+     */
+    private void queryBasedPercolating(final Engine.Searcher percolatorSearcher, final PercolateContext context, List<? extends QueryCollector> collectors) throws Exception {
+        if (collectors.size() == 1) {
+            queryBasedPercolating(percolatorSearcher, context, collectors.get(0));
+            return;
+        }
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(collectors.size());
+        for (final QueryCollector collector : collectors) {
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    queryBasedPercolating(percolatorSearcher, context, collector);
+                    return null;
+                }
+            });
+        }
+        executePartitions(tasks);
+    }
+
+    /**
+     * Returns in how many partitions the queries to percolate are split. Highlighting changes the state of the
+     * context for each query, so it is never partitioned.
+     */
+    private int partitions(PercolateContext context) {
+        if (partitions <= 1 || context.highlight() != null) {
+            return 1;
+        }
+        return Math.max(1, Math.min(partitions, context.percolateQueries().size() / partitionMinQueries));
+    }
+
+    interface QueriesPercolator<T> {
+
+        T percolate(Iterable<Map.Entry<HashedBytesRef, Query>> queries);
+
+    }
+
+    /**
+     * Splits the queries to percolate into partitions, percolates them concurrently against the in-memory index
+     * and returns the results of the partitions.
+     */
+    private <T> List<T> percolatePartitions(PercolateContext context, final QueriesPercolator<T> percolator) {
+        int partitions = partitions(context);
+        if (partitions == 1) {
+            return Collections.singletonList(percolator.percolate(context.percolateQueries().entrySet()));
+        }
+        List<List<Map.Entry<HashedBytesRef, Query>>> slices = new ArrayList<List<Map.Entry<HashedBytesRef, Query>>>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            slices.add(new ArrayList<Map.Entry<HashedBytesRef, Query>>(context.percolateQueries().size() / partitions + 1));
+        }
+        int i = 0;
+        for (Map.Entry<HashedBytesRef, Query> entry : context.percolateQueries().entrySet()) {
+            slices.get(i++ % partitions).add(entry);
+        }
+        List<Callable<T>> tasks = new ArrayList<Callable<T>>(partitions);
+        for (final List<Map.Entry<HashedBytesRef, Query>> slice : slices) {
+            tasks.add(new Callable<T>() {
+                @Override
+                public T call() throws Exception {
+                    return percolator.percolate(slice);
+                }
+            });
+        }
+        try {
+            return executePartitions(tasks);
+        } catch (Exception e) {
+            throw new PercolateException(context.indexShard().shardId(), "failed to execute", e);
+        }
+    }
+
+    /**
+     * Executes the tasks on the percolate pool and returns their results. The calling thread executes the first task,
+     * and then every task that no pool thread has picked up yet, so waiting for the partitions never blocks on a full
+     * pool.
+     */
+    private <T> List<T> executePartitions(List<Callable<T>> tasks) throws Exception {
+        List<PartitionTask<T>> partitionTasks = new ArrayList<PartitionTask<T>>(tasks.size() - 1);
+        for (int i = 1; i < tasks.size(); i++) {
+            PartitionTask<T> partitionTask = new PartitionTask<T>(tasks.get(i));
+            partitionTasks.add(partitionTask);
+            try {
+                threadPool.executor(ThreadPool.Names.PERCOLATE).execute(partitionTask);
+            } catch (EsRejectedExecutionException e) {
+                // the calling thread executes it below
+            }
+        }
+        List<T> results = new ArrayList<T>(tasks.size());
+        results.add(tasks.get(0).call());
+        for (PartitionTask<T> partitionTask : partitionTasks) {
+            partitionTask.run();
+            results.add(partitionTask.get());
+        }
+        return results;
+    }
+
+    private static final class PartitionTask<T> implements Runnable {
+
+        private final Callable<T> callable;
+        private final AtomicBoolean started = new AtomicBoolean();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile T result;
+        private volatile Throwable failure;
+
+        PartitionTask(Callable<T> callable) {
+            this.callable = callable;
+        }
+
+        @Override
+        public void run() {
+            if (!started.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                result = callable.call();
+            } catch (Throwable t) {
+                failure = t;
+            } finally {
+                done.countDown();
+            }
+        }
+
+        T get() throws Exception {
+            done.await();
+            if (failure != null) {
+                throw new ElasticSearchException("failed to percolate partition", failure);
+            }
+            return result;
+        }
+    }
+
+    private static final class MatchedQueries {
+
+        final List<BytesRef> matches = new ArrayList<BytesRef>();
+        final List<Map<String, HighlightField>> hls = new ArrayList<Map<String, HighlightField>>();
+        long count;
+
+    }
+
     public final static class ReduceResult {
 
         private final long count;
@@ -41,7 +41,6 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentMap;
 
 /**
  */
@@ -49,7 +48,7 @@ abstract class QueryCollector extends Collector {
 
     final IndexFieldData idFieldData;
     final IndexSearcher searcher;
-    final ConcurrentMap<HashedBytesRef, Query> queries;
+    final Map<HashedBytesRef, Query> queries;
     final ESLogger logger;
 
     final Lucene.ExistsCollector collector = new Lucene.ExistsCollector();
@@ -57,6 +56,9 @@ abstract class QueryCollector extends Collector {
 
     BytesValues values;
 
+    int partition = 0;
+    int partitions = 1;
+
     QueryCollector(ESLogger logger, PercolateContext context) {
         this.logger = logger;
         this.queries = context.percolateQueries();
@@ -83,19 +85,58 @@ abstract class QueryCollector extends Collector {
         return true;
     }
 
+    /**
+     * Makes this collector only execute the queries that hash into the given partition.
+     */
+    QueryCollector partition(int partition, int partitions) {
+        this.partition = partition;
+        this.partitions = partitions;
+        return this;
+    }
+
+    /**
+     * Returns the query registered for the given percolator doc, or <tt>null</tt> if the query isn't
+     * to be percolated or belongs to another partition.
+     */
+    Query query(int doc) {
+        spare.hash = values.getValueHashed(doc, spare.bytes);
+        if (partitions > 1 && (spare.hash & Integer.MAX_VALUE) % partitions != partition) {
+            return null;
+        }
+        return queries.get(spare);
+    }
+
 
     static Match match(ESLogger logger, PercolateContext context, HighlightPhase highlightPhase) {
         return new Match(logger, context, highlightPhase);
     }
 
+    static Match match(ESLogger logger, PercolateContext context, HighlightPhase highlightPhase, int partition, int partitions) {
+        Match match = new Match(logger, context, highlightPhase);
+        match.partition(partition, partitions);
+        return match;
+    }
+
     static Count count(ESLogger logger, PercolateContext context) {
         return new Count(logger, context);
     }
 
+    static Count count(ESLogger logger, PercolateContext context, int partition, int partitions) {
+        Count count = new Count(logger, context);
+        count.partition(partition, partitions);
+        return count;
+    }
+
     static MatchAndScore matchAndScore(ESLogger logger, PercolateContext context, HighlightPhase highlightPhase) {
         return new MatchAndScore(logger, context, highlightPhase);
     }
 
+    static MatchAndScore matchAndScore(ESLogger logger, PercolateContext context, HighlightPhase highlightPhase, int partition, int partitions) {
+        MatchAndScore matchAndScore = new MatchAndScore(logger, context, highlightPhase);
+        matchAndScore.partition(partition, partitions);
+        return matchAndScore;
+    }
+
     static MatchAndSort matchAndSort(ESLogger logger, PercolateContext context) {
         return new MatchAndSort(logger, context);
     }
@@ -121,8 +162,7 @@ abstract class QueryCollector extends Collector {
 
         @Override
         public void collect(int doc) throws IOException {
-            spare.hash = values.getValueHashed(doc, spare.bytes);
-            Query query = queries.get(spare);
+            Query query = query(doc);
             if (query == null) {
                 // log???
                 return;
@@ -176,8 +216,7 @@ abstract class QueryCollector extends Collector {
 
         @Override
         public void collect(int doc) throws IOException {
-            spare.hash = values.getValueHashed(doc, spare.bytes);
-            Query query = queries.get(spare);
+            Query query = query(doc);
             if (query == null) {
                 // log???
                 return;
@@ -236,8 +275,7 @@ abstract class QueryCollector extends Collector {
 
         @Override
         public void collect(int doc) throws IOException {
-            spare.hash = values.getValueHashed(doc, spare.bytes);
-            Query query = queries.get(spare);
+            Query query = query(doc);
             if (query == null) {
                 // log???
                 return;
@@ -298,8 +336,7 @@ abstract class QueryCollector extends Collector {
 
         @Override
         public void collect(int doc) throws IOException {
-            spare.hash = values.getValueHashed(doc, spare.bytes);
-            Query query = queries.get(spare);
+            Query query = query(doc);
             if (query == null) {
                 // log???
                 return;
@@ -0,0 +1,56 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest;
+
+import org.elasticsearch.common.bytes.BytesReference;
+
+/**
+ * A {@link RestChannel} that can stream its response in chunks instead of sending it as a whole, for responses
+ * that are too large to be built in memory.
+ */
+public interface ChunkedRestChannel extends RestChannel {
+
+    /**
+     * Starts the response, must be called once before sending chunks and instead of {@link #sendResponse(RestResponse)}.
+     */
+    void startChunkedResponse(RestStatus status, String contentType);
+
+    /**
+     * Sends the next chunk of the response. The listener is notified once the channel is ready to accept more
+     * data, right away unless the client reads slower than the response is produced, so producers should wait
+     * for it before sending the next chunk.
+     */
+    void sendChunk(BytesReference content, Listener listener);
+
+    /**
+     * Ends the response.
+     */
+    void endChunkedResponse();
+
+    static interface Listener {
+
+        void onReady();
+
+        /**
+         * The chunk could not be written, typically because the client closed the connection.
+         */
+        void onFailure(Throwable t);
+    }
+}
@@ -86,7 +86,11 @@ public class RestBulkAction extends BaseRestHandler {
         }
         bulkRequest.refresh(request.paramAsBoolean("refresh", bulkRequest.refresh()));
         try {
-            bulkRequest.add(request.content(), request.contentUnsafe(), defaultIndex, defaultType, allowExplicitIndex);
+            if ("columnar".equals(request.param("format"))) {
+                bulkRequest.addColumnar(request.content(), defaultIndex, defaultType, allowExplicitIndex);
+            } else {
+                bulkRequest.add(request.content(), request.contentUnsafe(), defaultIndex, defaultType, allowExplicitIndex);
+            }
         } catch (Exception e) {
             try {
                 XContentBuilder builder = restContentBuilder(request);
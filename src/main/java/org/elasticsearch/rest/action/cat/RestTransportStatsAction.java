@@ -0,0 +1,122 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest.action.cat;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.admin.cluster.node.stats.NodeStats;
+import org.elasticsearch.action.admin.cluster.node.stats.NodesStatsRequest;
+import org.elasticsearch.action.admin.cluster.node.stats.NodesStatsResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.Table;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.regex.Regex;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.rest.*;
+import org.elasticsearch.rest.action.support.RestTable;
+import org.elasticsearch.transport.TransportStats;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.elasticsearch.rest.RestRequest.Method.GET;
+
+/**
+ * Per node and action transport statistics, optionally filtered by an action name pattern (the <tt>action</tt> parameter).
+ */
+public class RestTransportStatsAction extends BaseRestHandler {
+
+    @Inject
+    public RestTransportStatsAction(Settings settings, Client client, RestController controller) {
+        super(settings, client);
+        controller.registerHandler(GET, "/_cat/transport", this);
+    }
+
+    @Override
+    public void handleRequest(final RestRequest request, final RestChannel channel) {
+        final String action = request.param("action");
+        NodesStatsRequest nodesStatsRequest = new NodesStatsRequest();
+        nodesStatsRequest.clear().transport(true);
+        client.admin().cluster().nodesStats(nodesStatsRequest, new ActionListener<NodesStatsResponse>() {
+            @Override
+            public void onResponse(NodesStatsResponse nodesStatsResponse) {
+                try {
+                    channel.sendResponse(RestTable.buildResponse(buildTable(nodesStatsResponse, action), request, channel));
+                } catch (Throwable e) {
+                    onFailure(e);
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                try {
+                    channel.sendResponse(new XContentThrowableRestResponse(request, e));
+                } catch (IOException e1) {
+                    logger.error("Failed to send failure response", e1);
+                }
+            }
+        });
+    }
+
+    private Table buildTable(NodesStatsResponse nodesStats, String actionPattern) {
+        Table table = new Table();
+        table.startHeaders();
+        table.addCell("node");
+        table.addCell("action");
+        table.addCell("rx", "text-align:right;");
+        table.addCell("rx_size", "text-align:right;");
+        table.addCell("tx", "text-align:right;");
+        table.addCell("tx_size", "text-align:right;");
+        table.addCell("queue_avg", "text-align:right;");
+        table.addCell("handler_avg", "text-align:right;");
+        table.addCell("p50", "text-align:right;");
+        table.addCell("p90", "text-align:right;");
+        table.addCell("p99", "text-align:right;");
+        table.endHeaders();
+
+        for (NodeStats stats : nodesStats.getNodes()) {
+            if (stats.getTransport() == null) {
+                continue;
+            }
+            for (TransportStats.ActionStats actionStats : stats.getTransport().getActions()) {
+                if (actionPattern != null && !Regex.simpleMatch(actionPattern, actionStats.getAction())) {
+                    continue;
+                }
+                long handled = actionStats.getHandledCount();
+
+                table.startRow();
+                table.addCell(stats.getNode().name());
+                table.addCell(actionStats.getAction());
+                table.addCell(actionStats.getRxCount());
+                table.addCell(actionStats.getRxSize());
+                table.addCell(actionStats.getTxCount());
+                table.addCell(actionStats.getTxSize());
+                table.addCell(handled == 0 ? null : new TimeValue(actionStats.getQueueTime().nanos() / handled, TimeUnit.NANOSECONDS));
+                table.addCell(handled == 0 ? null : new TimeValue(actionStats.getHandlerTime().nanos() / handled, TimeUnit.NANOSECONDS));
+                table.addCell(actionStats.getLatency(50));
+                table.addCell(actionStats.getLatency(90));
+                table.addCell(actionStats.getLatency(99));
+                table.endRow();
+            }
+        }
+
+        return table;
+    }
+}
@@ -138,6 +138,7 @@ public class RestSearchAction extends BaseRestHandler {
         if (scroll != null) {
             searchRequest.scroll(new Scroll(parseTimeValue(scroll, null)));
         }
+        searchRequest.queryCache(request.paramAsBoolean("query_cache", searchRequest.queryCache()));
 
         searchRequest.types(Strings.splitStringByCommaToArray(request.param("type")));
         searchRequest.routing(request.param("routing"));
@@ -0,0 +1,234 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest.action.search;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.*;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.rest.*;
+import org.elasticsearch.search.Scroll;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.io.IOException;
+
+import static org.elasticsearch.common.unit.TimeValue.parseTimeValue;
+import static org.elasticsearch.rest.RestRequest.Method.GET;
+import static org.elasticsearch.rest.RestRequest.Method.POST;
+import static org.elasticsearch.rest.RestStatus.BAD_REQUEST;
+import static org.elasticsearch.rest.RestStatus.OK;
+import static org.elasticsearch.rest.action.support.RestXContentBuilder.restContentBuilder;
+
+/**
+ * Exports all the hits of a search in a single streamed response. The search is executed as a scan, and the hits
+ * of each scroll batch are written as they come, one document per line (or separated by the format's stream
+ * separator for binary formats). The next batch is only requested once the client has read enough of the previous
+ * one, so a slow client slows down the export instead of piling up the hits in memory. Scroll responses are
+ * serialized, and the next batches requested, on the generic thread pool, never on the network threads.
+ */
+public class RestSearchExportAction extends BaseRestHandler {
+
+    private final ThreadPool threadPool;
+
+    @Inject
+    public RestSearchExportAction(Settings settings, Client client, RestController controller, ThreadPool threadPool) {
+        super(settings, client);
+        this.threadPool = threadPool;
+        controller.registerHandler(GET, "/_search/export", this);
+        controller.registerHandler(POST, "/_search/export", this);
+        controller.registerHandler(GET, "/{index}/_search/export", this);
+        controller.registerHandler(POST, "/{index}/_search/export", this);
+        controller.registerHandler(GET, "/{index}/{type}/_search/export", this);
+        controller.registerHandler(POST, "/{index}/{type}/_search/export", this);
+    }
+
+    @Override
+    public void handleRequest(final RestRequest request, final RestChannel channel) {
+        if (!(channel instanceof ChunkedRestChannel)) {
+            sendFailure(request, channel, BAD_REQUEST, "streaming responses are not supported by this transport");
+            return;
+        }
+        final SearchRequest searchRequest;
+        final XContentType contentType;
+        try {
+            searchRequest = RestSearchAction.parseSearchRequest(request);
+            searchRequest.searchType(SearchType.SCAN);
+            if (searchRequest.scroll() == null) {
+                searchRequest.scroll(new Scroll(TimeValue.timeValueMinutes(1)));
+            }
+            searchRequest.listenerThreaded(false);
+            contentType = restContentBuilder(request).contentType();
+        } catch (Exception e) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("failed to parse search request parameters", e);
+            }
+            sendFailure(request, channel, BAD_REQUEST, e.getMessage());
+            return;
+        }
+        client.search(searchRequest, new ActionListener<SearchResponse>() {
+            @Override
+            public void onResponse(SearchResponse response) {
+                ((ChunkedRestChannel) channel).startChunkedResponse(OK, contentType.restContentType());
+                new Export(request, (ChunkedRestChannel) channel, contentType, searchRequest.scroll()).next(response.getScrollId());
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                try {
+                    channel.sendResponse(new XContentThrowableRestResponse(request, e));
+                } catch (IOException e1) {
+                    logger.error("Failed to send failure response", e1);
+                }
+            }
+        });
+    }
+
+    private void sendFailure(RestRequest request, RestChannel channel, RestStatus status, String message) {
+        try {
+            XContentBuilder builder = restContentBuilder(request);
+            channel.sendResponse(new XContentRestResponse(request, status, builder.startObject().field("error", message).endObject()));
+        } catch (IOException e1) {
+            logger.error("Failed to send failure response", e1);
+        }
+    }
+
+    /**
+     * Scrolls through the scan and writes each batch, the next batch is requested once the channel is ready.
+     */
+    private class Export implements ActionListener<SearchResponse>, ChunkedRestChannel.Listener {
+
+        private final RestRequest request;
+
+        private final ChunkedRestChannel channel;
+
+        private final XContentType contentType;
+
+        private final Scroll scroll;
+
+        private volatile String scrollId;
+
+        Export(RestRequest request, ChunkedRestChannel channel, XContentType contentType, Scroll scroll) {
+            this.request = request;
+            this.channel = channel;
+            this.contentType = contentType;
+            this.scroll = scroll;
+        }
+
+        void next(String scrollId) {
+            this.scrollId = scrollId;
+            SearchScrollRequest scrollRequest = new SearchScrollRequest(scrollId).scroll(scroll);
+            // the hits are serialized in the listener, keep that off the transport threads
+            scrollRequest.listenerThreaded(true);
+            client.searchScroll(scrollRequest, this);
+        }
+
+        @Override
+        public void onResponse(SearchResponse response) {
+            SearchHit[] hits = response.getHits().getHits();
+            if (hits.length == 0) {
+                // the scan is exhausted and its contexts already freed
+                channel.endChunkedResponse();
+                return;
+            }
+            scrollId = response.getScrollId();
+            BytesStreamOutput chunk = new BytesStreamOutput();
+            try {
+                for (SearchHit hit : hits) {
+                    XContentBuilder builder = XContentFactory.contentBuilder(contentType);
+                    hit.toXContent(builder, request);
+                    builder.bytes().writeTo(chunk);
+                    chunk.write(contentType.xContent().streamSeparator());
+                }
+            } catch (Throwable e) {
+                onFailure(e);
+                return;
+            }
+            channel.sendChunk(chunk.bytes(), this);
+        }
+
+        @Override
+        public void onReady() {
+            // called by the http channel, possibly from a network thread once the pending chunks are flushed
+            try {
+                threadPool.generic().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        next(scrollId);
+                    }
+                });
+            } catch (EsRejectedExecutionException e) {
+                onFailure(e);
+            }
+        }
+
+        @Override
+        public void onFailure(Throwable e) {
+            // the status was already sent, the best we can do is to add the error at the end of the stream
+            logger.debug("failed to export search hits", e);
+            try {
+                XContentBuilder builder = XContentFactory.contentBuilder(contentType);
+                builder.startObject().field("error", e.getMessage()).endObject();
+                BytesStreamOutput chunk = new BytesStreamOutput();
+                builder.bytes().writeTo(chunk);
+                chunk.write(contentType.xContent().streamSeparator());
+                channel.sendChunk(chunk.bytes(), new ChunkedRestChannel.Listener() {
+                    @Override
+                    public void onReady() {
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                    }
+                });
+            } catch (Throwable t) {
+                logger.debug("failed to write export failure", t);
+            } finally {
+                channel.endChunkedResponse();
+                clearScroll();
+            }
+        }
+
+        private void clearScroll() {
+            if (scrollId == null) {
+                return;
+            }
+            ClearScrollRequest clearScrollRequest = new ClearScrollRequest();
+            clearScrollRequest.addScrollId(scrollId);
+            client.clearScroll(clearScrollRequest, new ActionListener<ClearScrollResponse>() {
+                @Override
+                public void onResponse(ClearScrollResponse response) {
+                }
+
+                @Override
+                public void onFailure(Throwable e) {
+                    logger.debug("failed to clear scroll after failed export", e);
+                }
+            });
+        }
+    }
+}
@@ -54,6 +54,7 @@ import org.elasticsearch.index.service.IndexService;
 import org.elasticsearch.index.shard.service.IndexShard;
 import org.elasticsearch.indices.IndicesLifecycle;
 import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.indices.cache.query.IndicesQueryCache;
 import org.elasticsearch.indices.warmer.IndicesWarmer;
 import org.elasticsearch.indices.warmer.IndicesWarmer.WarmerContext;
 import org.elasticsearch.script.ScriptService;
@@ -72,7 +73,9 @@ import org.elasticsearch.threadpool.ThreadPool;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static org.elasticsearch.common.unit.TimeValue.timeValueMinutes;
@@ -90,6 +93,8 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
 
     private final IndicesWarmer indicesWarmer;
 
+    private final IndicesQueryCache indicesQueryCache;
+
     private final ScriptService scriptService;
 
     private final CacheRecycler cacheRecycler;
@@ -112,12 +117,14 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
 
     @Inject
     public SearchService(Settings settings, ClusterService clusterService, IndicesService indicesService, IndicesLifecycle indicesLifecycle, IndicesWarmer indicesWarmer, ThreadPool threadPool,
-                         ScriptService scriptService, CacheRecycler cacheRecycler, DfsPhase dfsPhase, QueryPhase queryPhase, FetchPhase fetchPhase) {
+                         ScriptService scriptService, CacheRecycler cacheRecycler, DfsPhase dfsPhase, QueryPhase queryPhase, FetchPhase fetchPhase,
+                         IndicesQueryCache indicesQueryCache) {
         super(settings);
         this.threadPool = threadPool;
         this.clusterService = clusterService;
         this.indicesService = indicesService;
         this.indicesWarmer = indicesWarmer;
+        this.indicesQueryCache = indicesQueryCache;
         this.scriptService = scriptService;
         this.cacheRecycler = cacheRecycler;
         this.dfsPhase = dfsPhase;
@@ -159,6 +166,18 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
         keepAliveReaper.cancel(false);
     }
 
+    /**
+     * Reports the time spent on the shard request and the current search queue size back to the coordinating
+     * node, which uses them to rank the nodes for adaptive replica selection.
+     */
+    private void serviceStats(QuerySearchResult result, long startTime) {
+        result.serviceTimeNanos(System.nanoTime() - startTime);
+        Executor executor = threadPool.executor(ThreadPool.Names.SEARCH);
+        if (executor instanceof ThreadPoolExecutor) {
+            result.nodeQueueSize(((ThreadPoolExecutor) executor).getQueue().size());
+        }
+    }
+
     public DfsSearchResult executeDfsPhase(ShardSearchRequest request) throws ElasticSearchException {
         SearchContext context = createAndPutContext(request);
         try {
@@ -176,6 +195,7 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
     }
 
     public QuerySearchResult executeScan(ShardSearchRequest request) throws ElasticSearchException {
+        final long startTime = System.nanoTime();
         SearchContext context = createAndPutContext(request);
         assert context.searchType() == SearchType.SCAN;
         context.searchType(SearchType.COUNT); // move to COUNT, and then, when scrolling, move to SCAN
@@ -187,6 +207,7 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
             contextProcessing(context);
             queryPhase.execute(context);
             contextProcessedSuccessfully(context);
+            serviceStats(context.queryResult(), startTime);
             return context.queryResult();
         } catch (Throwable e) {
             logger.trace("Scan phase failed", e);
@@ -226,18 +247,24 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
     }
 
     public QuerySearchResult executeQueryPhase(ShardSearchRequest request) throws ElasticSearchException {
+        final long startTime = System.nanoTime();
         SearchContext context = createAndPutContext(request);
         try {
             context.indexShard().searchService().onPreQueryPhase(context);
             long time = System.nanoTime();
             contextProcessing(context);
-            queryPhase.execute(context);
+            if (indicesQueryCache.canCache(request, context)) {
+                indicesQueryCache.loadIntoContext(request, context, queryPhase);
+            } else {
+                queryPhase.execute(context);
+            }
             if (context.searchType() == SearchType.COUNT) {
                 freeContext(context.id());
             } else {
                 contextProcessedSuccessfully(context);
             }
             context.indexShard().searchService().onQueryPhase(context, System.nanoTime() - time);
+            serviceStats(context.queryResult(), startTime);
             return context.queryResult();
         } catch (Throwable e) {
             context.indexShard().searchService().onFailedQueryPhase(context);
@@ -298,6 +325,7 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
     }
 
     public QueryFetchSearchResult executeFetchPhase(ShardSearchRequest request) throws ElasticSearchException {
+        final long startTime = System.nanoTime();
         SearchContext context = createAndPutContext(request);
         contextProcessing(context);
         try {
@@ -325,6 +353,7 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
                 throw ExceptionsHelper.convertToRuntime(e);
             }
             context.indexShard().searchService().onFetchPhase(context, System.nanoTime() - time2);
+            serviceStats(context.queryResult(), startTime);
             return new QueryFetchSearchResult(context.queryResult(), context.fetchResult());
         } catch (Throwable e) {
             logger.trace("Fetch phase failed", e);
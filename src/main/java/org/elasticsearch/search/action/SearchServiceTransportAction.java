@@ -19,11 +19,13 @@
 
 package org.elasticsearch.search.action;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.search.ClearScrollRequest;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.routing.operation.ResponseCollectorService;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.stream.StreamInput;
@@ -37,14 +39,21 @@ import org.elasticsearch.search.fetch.FetchSearchResult;
 import org.elasticsearch.search.fetch.QueryFetchSearchResult;
 import org.elasticsearch.search.fetch.ScrollQueryFetchSearchResult;
 import org.elasticsearch.search.internal.InternalScrollSearchRequest;
+import org.elasticsearch.search.internal.ShardSearchBatchRequest;
 import org.elasticsearch.search.internal.ShardSearchRequest;
+import org.elasticsearch.search.query.QuerySearchBatchResult;
 import org.elasticsearch.search.query.QuerySearchRequest;
 import org.elasticsearch.search.query.QuerySearchResult;
+import org.elasticsearch.search.query.QuerySearchResultProvider;
 import org.elasticsearch.search.query.ScrollQuerySearchResult;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.*;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * An encapsulation of {@link org.elasticsearch.search.SearchService} operations exposed through
@@ -73,19 +82,30 @@ public class SearchServiceTransportAction extends AbstractComponent {
 
     private final SearchService searchService;
 
+    private final ResponseCollectorService responseCollectorService;
+
+    private final ThreadPool threadPool;
+
+    private final boolean batchShardRequests;
+
     private final FreeContextResponseHandler freeContextResponseHandler = new FreeContextResponseHandler(logger);
 
     @Inject
-    public SearchServiceTransportAction(Settings settings, TransportService transportService, ClusterService clusterService, SearchService searchService) {
+    public SearchServiceTransportAction(Settings settings, TransportService transportService, ClusterService clusterService, SearchService searchService,
+                                        ResponseCollectorService responseCollectorService, ThreadPool threadPool) {
         super(settings);
         this.transportService = transportService;
         this.clusterService = clusterService;
         this.searchService = searchService;
+        this.responseCollectorService = responseCollectorService;
+        this.threadPool = threadPool;
+        this.batchShardRequests = settings.getAsBoolean("search.batch_shard_requests", true);
 
         transportService.registerHandler(SearchFreeContextTransportHandler.ACTION, new SearchFreeContextTransportHandler());
         transportService.registerHandler(ClearScrollContextsTransportHandler.ACTION, new ClearScrollContextsTransportHandler());
         transportService.registerHandler(SearchDfsTransportHandler.ACTION, new SearchDfsTransportHandler());
         transportService.registerHandler(SearchQueryTransportHandler.ACTION, new SearchQueryTransportHandler());
+        transportService.registerHandler(SearchQueryBatchTransportHandler.ACTION, new SearchQueryBatchTransportHandler());
         transportService.registerHandler(SearchQueryByIdTransportHandler.ACTION, new SearchQueryByIdTransportHandler());
         transportService.registerHandler(SearchQueryScrollTransportHandler.ACTION, new SearchQueryScrollTransportHandler());
         transportService.registerHandler(SearchQueryFetchTransportHandler.ACTION, new SearchQueryFetchTransportHandler());
@@ -162,7 +182,42 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
-    public void sendExecuteDfs(DiscoveryNode node, final ShardSearchRequest request, final SearchServiceListener<DfsSearchResult> listener) {
+    /**
+     * Wraps the listener of a request starting a search on a shard, to collect the response time, service time and
+     * search queue size of the node executing it for adaptive replica selection.
+     */
+    private <T> SearchServiceListener<T> collectResponseStats(final DiscoveryNode node, final SearchServiceListener<T> listener) {
+        final long startTime = System.nanoTime();
+        final AtomicBoolean done = new AtomicBoolean();
+        responseCollectorService.requestSent(node.id());
+        return new SearchServiceListener<T>() {
+            @Override
+            public void onResult(T result) {
+                if (done.compareAndSet(false, true)) {
+                    long serviceTime = -1;
+                    int queueSize = -1;
+                    if (result instanceof QuerySearchResultProvider) {
+                        QuerySearchResult queryResult = ((QuerySearchResultProvider) result).queryResult();
+                        serviceTime = queryResult.serviceTimeNanos();
+                        queueSize = queryResult.nodeQueueSize();
+                    }
+                    responseCollectorService.addNodeStatistics(node.id(), queueSize, System.nanoTime() - startTime, serviceTime);
+                }
+                listener.onResult(result);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                if (done.compareAndSet(false, true)) {
+                    responseCollectorService.requestFailed(node.id());
+                }
+                listener.onFailure(t);
+            }
+        };
+    }
+
+    public void sendExecuteDfs(DiscoveryNode node, final ShardSearchRequest request, SearchServiceListener<DfsSearchResult> originalListener) {
+        final SearchServiceListener<DfsSearchResult> listener = collectResponseStats(node, originalListener);
         if (clusterService.state().nodes().localNodeId().equals(node.id())) {
             try {
                 DfsSearchResult result = searchService.executeDfsPhase(request);
@@ -196,7 +251,8 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
-    public void sendExecuteQuery(DiscoveryNode node, final ShardSearchRequest request, final SearchServiceListener<QuerySearchResult> listener) {
+    public void sendExecuteQuery(DiscoveryNode node, final ShardSearchRequest request, SearchServiceListener<QuerySearchResult> originalListener) {
+        final SearchServiceListener<QuerySearchResult> listener = collectResponseStats(node, originalListener);
         if (clusterService.state().nodes().localNodeId().equals(node.id())) {
             try {
                 QuerySearchResult result = searchService.executeQueryPhase(request);
@@ -230,6 +286,54 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
+    /**
+     * Executes the query phase of several shards of the same search allocated on the given node. Remote shards are
+     * sent in a single request, listeners are notified per shard.
+     */
+    public void sendExecuteQuery(DiscoveryNode node, final List<ShardSearchRequest> requests, final List<SearchServiceListener<QuerySearchResult>> listeners) {
+        if (requests.size() == 1 || !batchShardRequests || clusterService.state().nodes().localNodeId().equals(node.id())
+                || node.version().before(Version.V_1_0_0_Beta1)) {
+            for (int i = 0; i < requests.size(); i++) {
+                sendExecuteQuery(node, requests.get(i), listeners.get(i));
+            }
+            return;
+        }
+        final List<SearchServiceListener<QuerySearchResult>> wrappedListeners = new ArrayList<SearchServiceListener<QuerySearchResult>>(listeners.size());
+        for (SearchServiceListener<QuerySearchResult> listener : listeners) {
+            wrappedListeners.add(collectResponseStats(node, listener));
+        }
+        transportService.sendRequest(node, SearchQueryBatchTransportHandler.ACTION, new ShardSearchBatchRequest(requests), new BaseTransportResponseHandler<QuerySearchBatchResult>() {
+
+            @Override
+            public QuerySearchBatchResult newInstance() {
+                return new QuerySearchBatchResult();
+            }
+
+            @Override
+            public void handleResponse(QuerySearchBatchResult response) {
+                for (int i = 0; i < response.size(); i++) {
+                    if (response.result(i) != null) {
+                        wrappedListeners.get(i).onResult(response.result(i));
+                    } else {
+                        wrappedListeners.get(i).onFailure(response.failure(i));
+                    }
+                }
+            }
+
+            @Override
+            public void handleException(TransportException exp) {
+                for (SearchServiceListener<QuerySearchResult> listener : wrappedListeners) {
+                    listener.onFailure(exp);
+                }
+            }
+
+            @Override
+            public String executor() {
+                return ThreadPool.Names.SAME;
+            }
+        });
+    }
+
     public void sendExecuteQuery(DiscoveryNode node, final QuerySearchRequest request, final SearchServiceListener<QuerySearchResult> listener) {
         if (clusterService.state().nodes().localNodeId().equals(node.id())) {
             try {
@@ -298,7 +402,8 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
-    public void sendExecuteFetch(DiscoveryNode node, final ShardSearchRequest request, final SearchServiceListener<QueryFetchSearchResult> listener) {
+    public void sendExecuteFetch(DiscoveryNode node, final ShardSearchRequest request, SearchServiceListener<QueryFetchSearchResult> originalListener) {
+        final SearchServiceListener<QueryFetchSearchResult> listener = collectResponseStats(node, originalListener);
         if (clusterService.state().nodes().localNodeId().equals(node.id())) {
             try {
                 QueryFetchSearchResult result = searchService.executeFetchPhase(request);
@@ -434,7 +539,8 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
-    public void sendExecuteScan(DiscoveryNode node, final ShardSearchRequest request, final SearchServiceListener<QuerySearchResult> listener) {
+    public void sendExecuteScan(DiscoveryNode node, final ShardSearchRequest request, SearchServiceListener<QuerySearchResult> originalListener) {
+        final SearchServiceListener<QuerySearchResult> listener = collectResponseStats(node, originalListener);
         if (clusterService.state().nodes().localNodeId().equals(node.id())) {
             try {
                 QuerySearchResult result = searchService.executeScan(request);
@@ -630,6 +736,68 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
+    private class SearchQueryBatchTransportHandler extends BaseTransportRequestHandler<ShardSearchBatchRequest> {
+
+        static final String ACTION = "search/phase/query/batch";
+
+        @Override
+        public ShardSearchBatchRequest newInstance() {
+            return new ShardSearchBatchRequest();
+        }
+
+        @Override
+        public void messageReceived(ShardSearchBatchRequest request, final TransportChannel channel) throws Exception {
+            final List<ShardSearchRequest> requests = request.requests();
+            final QuerySearchBatchResult result = new QuerySearchBatchResult(requests.size());
+            final AtomicInteger counter = new AtomicInteger(requests.size());
+            // fork all but the first shard on the search pool, and execute the first one on this (search) thread
+            for (int i = 1; i < requests.size(); i++) {
+                final int index = i;
+                try {
+                    threadPool.executor(ThreadPool.Names.SEARCH).execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            executeBatchedQuery(requests.get(index), index, result, counter, channel);
+                        }
+                    });
+                } catch (Throwable t) {
+                    result.failure(index, t);
+                    onBatchedQueryDone(result, counter, channel);
+                }
+            }
+            executeBatchedQuery(requests.get(0), 0, result, counter, channel);
+        }
+
+        private void executeBatchedQuery(ShardSearchRequest request, int index, QuerySearchBatchResult result, AtomicInteger counter, TransportChannel channel) {
+            try {
+                result.result(index, searchService.executeQueryPhase(request));
+            } catch (Throwable t) {
+                result.failure(index, t);
+            }
+            onBatchedQueryDone(result, counter, channel);
+        }
+
+        private void onBatchedQueryDone(QuerySearchBatchResult result, AtomicInteger counter, TransportChannel channel) {
+            if (counter.decrementAndGet() == 0) {
+                try {
+                    channel.sendResponse(result);
+                } catch (Throwable t) {
+                    logger.warn("Failed to send batched query response", t);
+                    try {
+                        channel.sendResponse(t);
+                    } catch (Throwable t1) {
+                        logger.warn("Failed to send error response for batched query", t1);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public String executor() {
+            return ThreadPool.Names.SEARCH;
+        }
+    }
+
     private class SearchQueryByIdTransportHandler extends BaseTransportRequestHandler<QuerySearchRequest> {
 
         static final String ACTION = "search/phase/query/id";
@@ -24,6 +24,7 @@ import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.search.facet.datehistogram.DateHistogramFacetBuilder;
 import org.elasticsearch.search.facet.filter.FilterFacetBuilder;
 import org.elasticsearch.search.facet.geodistance.GeoDistanceFacetBuilder;
+import org.elasticsearch.search.facet.geohashgrid.GeoHashGridFacetBuilder;
 import org.elasticsearch.search.facet.histogram.HistogramFacetBuilder;
 import org.elasticsearch.search.facet.histogram.HistogramScriptFacetBuilder;
 import org.elasticsearch.search.facet.query.QueryFacetBuilder;
@@ -94,4 +95,8 @@ public class FacetBuilders {
     public static GeoDistanceFacetBuilder geoDistanceFacet(String facetName) {
         return new GeoDistanceFacetBuilder(facetName);
     }
+
+    public static GeoHashGridFacetBuilder geoHashGridFacet(String facetName) {
+        return new GeoHashGridFacetBuilder(facetName);
+    }
 }
@@ -25,6 +25,7 @@ import org.elasticsearch.common.inject.multibindings.Multibinder;
 import org.elasticsearch.search.facet.datehistogram.DateHistogramFacetParser;
 import org.elasticsearch.search.facet.filter.FilterFacetParser;
 import org.elasticsearch.search.facet.geodistance.GeoDistanceFacetParser;
+import org.elasticsearch.search.facet.geohashgrid.GeoHashGridFacetParser;
 import org.elasticsearch.search.facet.histogram.HistogramFacetParser;
 import org.elasticsearch.search.facet.query.QueryFacetParser;
 import org.elasticsearch.search.facet.range.RangeFacetParser;
@@ -45,6 +46,7 @@ public class FacetModule extends AbstractModule {
         processors.add(FilterFacetParser.class);
         processors.add(QueryFacetParser.class);
         processors.add(GeoDistanceFacetParser.class);
+        processors.add(GeoHashGridFacetParser.class);
         processors.add(HistogramFacetParser.class);
         processors.add(DateHistogramFacetParser.class);
         processors.add(RangeFacetParser.class);
@@ -23,6 +23,7 @@ import org.elasticsearch.common.inject.AbstractModule;
 import org.elasticsearch.search.facet.datehistogram.InternalDateHistogramFacet;
 import org.elasticsearch.search.facet.filter.InternalFilterFacet;
 import org.elasticsearch.search.facet.geodistance.InternalGeoDistanceFacet;
+import org.elasticsearch.search.facet.geohashgrid.InternalGeoHashGridFacet;
 import org.elasticsearch.search.facet.histogram.InternalHistogramFacet;
 import org.elasticsearch.search.facet.query.InternalQueryFacet;
 import org.elasticsearch.search.facet.range.InternalRangeFacet;
@@ -40,6 +41,7 @@ public class TransportFacetModule extends AbstractModule {
         InternalFilterFacet.registerStreams();
         InternalQueryFacet.registerStreams();
         InternalGeoDistanceFacet.registerStreams();
+        InternalGeoHashGridFacet.registerStreams();
         InternalHistogramFacet.registerStreams();
         InternalDateHistogramFacet.registerStreams();
         InternalRangeFacet.registerStreams();
@@ -0,0 +1,81 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.geohashgrid;
+
+import org.elasticsearch.common.geo.GeoHashUtils;
+import org.elasticsearch.common.geo.GeoPoint;
+import org.elasticsearch.search.facet.Facet;
+
+import java.util.List;
+
+/**
+ * A facet that buckets geo points into the cells of a geohash grid.
+ */
+public interface GeoHashGridFacet extends Facet, Iterable<GeoHashGridFacet.Cell> {
+
+    /**
+     * The type of the filter facet.
+     */
+    public static final String TYPE = "geohash_grid";
+
+    /**
+     * The precision (geohash length) of the cells.
+     */
+    int getPrecision();
+
+    /**
+     * The cells of the grid, ordered by descending count.
+     */
+    List<Cell> getCells();
+
+    public class Cell {
+
+        final long bits;
+        final int precision;
+        long count;
+
+        public Cell(long bits, int precision, long count) {
+            this.bits = bits;
+            this.precision = precision;
+            this.count = count;
+        }
+
+        /**
+         * The geohash of the cell.
+         */
+        public String getGeoHash() {
+            return GeoHashUtils.toString(bits, precision);
+        }
+
+        /**
+         * The center of the cell.
+         */
+        public GeoPoint getCenter() {
+            return GeoHashUtils.decode(getGeoHash());
+        }
+
+        /**
+         * The number of documents with a point in the cell.
+         */
+        public long getCount() {
+            return count;
+        }
+    }
+}
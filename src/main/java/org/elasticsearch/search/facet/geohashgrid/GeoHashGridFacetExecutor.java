@@ -0,0 +1,150 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.geohashgrid;
+
+import com.carrotsearch.hppc.LongLongOpenHashMap;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.util.ArrayUtil;
+import org.elasticsearch.cache.recycler.CacheRecycler;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.geo.GeoHashUtils;
+import org.elasticsearch.common.geo.GeoPoint;
+import org.elasticsearch.common.recycler.Recycler;
+import org.elasticsearch.index.fielddata.GeoPointValues;
+import org.elasticsearch.index.fielddata.IndexGeoPointFieldData;
+import org.elasticsearch.search.facet.FacetExecutor;
+import org.elasticsearch.search.facet.InternalFacet;
+
+import java.io.IOException;
+
+/**
+ * Counts the documents per geohash cell, the cells being keyed by their geohash bits. Points out of the optional
+ * bounding box are skipped before their geohash is computed.
+ */
+public class GeoHashGridFacetExecutor extends FacetExecutor {
+
+    final IndexGeoPointFieldData indexFieldData;
+    final int precision;
+    final int size;
+    final int shardSize;
+    @Nullable
+    final BoundingBox boundingBox;
+
+    final Recycler.V<LongLongOpenHashMap> counts;
+
+    public GeoHashGridFacetExecutor(IndexGeoPointFieldData indexFieldData, int precision, int size, int shardSize,
+                                    @Nullable BoundingBox boundingBox, CacheRecycler cacheRecycler) {
+        this.indexFieldData = indexFieldData;
+        this.precision = precision;
+        this.size = size;
+        this.shardSize = shardSize;
+        this.boundingBox = boundingBox;
+        this.counts = cacheRecycler.longLongMap(-1);
+    }
+
+    @Override
+    public Collector collector() {
+        return new Collector();
+    }
+
+    @Override
+    public InternalFacet buildFacet(String facetName) {
+        InternalGeoHashGridFacet facet = new InternalGeoHashGridFacet(facetName, precision, size, InternalGeoHashGridFacet.topCells(counts.v(), precision, shardSize));
+        counts.release();
+        return facet;
+    }
+
+    class Collector extends FacetExecutor.Collector {
+
+        private final LongLongOpenHashMap counts = GeoHashGridFacetExecutor.this.counts.v();
+        private GeoPointValues values;
+        private long[] docCells = new long[8];
+
+        @Override
+        public void setNextReader(AtomicReaderContext context) throws IOException {
+            values = indexFieldData.load(context).getGeoPointValues();
+        }
+
+        @Override
+        public void collect(int doc) throws IOException {
+            if (!values.isMultiValued()) {
+                if (!values.hasValue(doc)) {
+                    return;
+                }
+                final GeoPoint point = values.getValue(doc);
+                if (boundingBox == null || boundingBox.contains(point.lat(), point.lon())) {
+                    counts.addTo(GeoHashUtils.encodeAsLong(point.lat(), point.lon(), precision), 1);
+                }
+                return;
+            }
+            // count the document once per cell, even if several of its points fall into it
+            int numCells = 0;
+            final GeoPointValues.Iter iter = values.getIter(doc);
+            outer:
+            while (iter.hasNext()) {
+                final GeoPoint point = iter.next();
+                if (boundingBox != null && !boundingBox.contains(point.lat(), point.lon())) {
+                    continue;
+                }
+                final long cell = GeoHashUtils.encodeAsLong(point.lat(), point.lon(), precision);
+                for (int i = 0; i < numCells; i++) {
+                    if (docCells[i] == cell) {
+                        continue outer;
+                    }
+                }
+                docCells = ArrayUtil.grow(docCells, numCells + 1);
+                docCells[numCells++] = cell;
+                counts.addTo(cell, 1);
+            }
+        }
+
+        @Override
+        public void postCollection() {
+        }
+    }
+
+    /**
+     * An inclusive bounding box, which may cross the date line (when its left longitude is greater than its right one).
+     */
+    public static class BoundingBox {
+
+        final double top;
+        final double left;
+        final double bottom;
+        final double right;
+
+        public BoundingBox(GeoPoint topLeft, GeoPoint bottomRight) {
+            this.top = topLeft.lat();
+            this.left = topLeft.lon();
+            this.bottom = bottomRight.lat();
+            this.right = bottomRight.lon();
+        }
+
+        public boolean contains(double lat, double lon) {
+            if (lat > top || lat < bottom) {
+                return false;
+            }
+            if (left <= right) {
+                return lon >= left && lon <= right;
+            }
+            return lon >= left || lon <= right;
+        }
+    }
+}
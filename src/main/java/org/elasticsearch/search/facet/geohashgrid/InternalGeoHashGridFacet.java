@@ -0,0 +1,234 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.geohashgrid;
+
+import com.carrotsearch.hppc.LongLongOpenHashMap;
+import com.google.common.collect.ImmutableList;
+import org.apache.lucene.util.PriorityQueue;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.HashedBytesArray;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.recycler.Recycler;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+import org.elasticsearch.search.facet.Facet;
+import org.elasticsearch.search.facet.InternalFacet;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ *
+ */
+public class InternalGeoHashGridFacet extends InternalFacet implements GeoHashGridFacet {
+
+    private static final BytesReference STREAM_TYPE = new HashedBytesArray(Strings.toUTF8Bytes("geohashGrid"));
+
+    public static void registerStreams() {
+        Streams.registerStream(STREAM, STREAM_TYPE);
+    }
+
+    static Stream STREAM = new Stream() {
+        @Override
+        public Facet readFacet(StreamInput in) throws IOException {
+            return readGeoHashGridFacet(in);
+        }
+    };
+
+    @Override
+    public BytesReference streamType() {
+        return STREAM_TYPE;
+    }
+
+    int precision;
+    int requiredSize;
+    Cell[] cells;
+
+    InternalGeoHashGridFacet() {
+    }
+
+    public InternalGeoHashGridFacet(String name, int precision, int requiredSize, Cell[] cells) {
+        super(name);
+        this.precision = precision;
+        this.requiredSize = requiredSize;
+        this.cells = cells;
+    }
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+
+    @Override
+    public int getPrecision() {
+        return precision;
+    }
+
+    @Override
+    public List<Cell> getCells() {
+        return ImmutableList.copyOf(cells);
+    }
+
+    @Override
+    public Iterator<Cell> iterator() {
+        return getCells().iterator();
+    }
+
+    @Override
+    public Facet reduce(ReduceContext context) {
+        List<Facet> facets = context.facets();
+        if (facets.size() == 1) {
+            InternalGeoHashGridFacet facet = (InternalGeoHashGridFacet) facets.get(0);
+            if (facet.cells.length > facet.requiredSize) {
+                facet.cells = Arrays.copyOf(facet.cells, facet.requiredSize);
+            }
+            return facet;
+        }
+        InternalGeoHashGridFacet first = (InternalGeoHashGridFacet) facets.get(0);
+        Recycler.V<LongLongOpenHashMap> aggregated = context.cacheRecycler().longLongMap(-1);
+        for (Facet facet : facets) {
+            for (Cell cell : ((InternalGeoHashGridFacet) facet).cells) {
+                aggregated.v().addTo(cell.bits, cell.count);
+            }
+        }
+        first.cells = topCells(aggregated.v(), first.precision, first.requiredSize);
+        aggregated.release();
+        return first;
+    }
+
+    /**
+     * The (at most) size cells with the highest counts, ordered by descending count.
+     */
+    static Cell[] topCells(LongLongOpenHashMap counts, int precision, int size) {
+        final boolean[] states = counts.allocated;
+        final long[] keys = counts.keys;
+        final long[] values = counts.values;
+        CellQueue queue = new CellQueue(Math.min(size, counts.size()));
+        for (int i = 0; i < states.length; i++) {
+            if (states[i]) {
+                queue.insertWithOverflow(new Cell(keys[i], precision, values[i]));
+            }
+        }
+        Cell[] cells = new Cell[queue.size()];
+        for (int i = cells.length - 1; i >= 0; i--) {
+            cells[i] = queue.pop();
+        }
+        return cells;
+    }
+
+    static final class CellQueue extends PriorityQueue<Cell> {
+
+        CellQueue(int size) {
+            super(size);
+        }
+
+        @Override
+        protected boolean lessThan(Cell a, Cell b) {
+            return COUNT_ORDER.compare(a, b) > 0;
+        }
+    }
+
+    /**
+     * Descending count, ties broken on the geohash so that all shards agree on which cells to return.
+     */
+    static final Comparator<Cell> COUNT_ORDER = new Comparator<Cell>() {
+        @Override
+        public int compare(Cell o1, Cell o2) {
+            if (o1.count != o2.count) {
+                return o1.count > o2.count ? -1 : 1;
+            }
+            return GEOHASH_ORDER.compare(o1, o2);
+        }
+    };
+
+    static final Comparator<Cell> GEOHASH_ORDER = new Comparator<Cell>() {
+        @Override
+        public int compare(Cell o1, Cell o2) {
+            return o1.bits < o2.bits ? -1 : (o1.bits == o2.bits ? 0 : 1);
+        }
+    };
+
+    static final class Fields {
+        static final XContentBuilderString _TYPE = new XContentBuilderString("_type");
+        static final XContentBuilderString PRECISION = new XContentBuilderString("precision");
+        static final XContentBuilderString CELLS = new XContentBuilderString("cells");
+        static final XContentBuilderString GEOHASH = new XContentBuilderString("geohash");
+        static final XContentBuilderString COUNT = new XContentBuilderString("count");
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(getName());
+        builder.field(Fields._TYPE, GeoHashGridFacet.TYPE);
+        builder.field(Fields.PRECISION, precision);
+        builder.startArray(Fields.CELLS);
+        for (Cell cell : cells) {
+            builder.startObject();
+            builder.field(Fields.GEOHASH, cell.getGeoHash());
+            builder.field(Fields.COUNT, cell.getCount());
+            builder.endObject();
+        }
+        builder.endArray();
+        builder.endObject();
+        return builder;
+    }
+
+    public static InternalGeoHashGridFacet readGeoHashGridFacet(StreamInput in) throws IOException {
+        InternalGeoHashGridFacet facet = new InternalGeoHashGridFacet();
+        facet.readFrom(in);
+        return facet;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        precision = in.readVInt();
+        requiredSize = in.readVInt();
+        // cells are written in geohash order, each one as the delta from the previous cell
+        cells = new Cell[in.readVInt()];
+        long bits = 0;
+        for (int i = 0; i < cells.length; i++) {
+            bits += in.readVLong();
+            cells[i] = new Cell(bits, precision, in.readVLong());
+        }
+        Arrays.sort(cells, COUNT_ORDER);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeVInt(precision);
+        out.writeVInt(requiredSize);
+        Cell[] sorted = cells.clone();
+        Arrays.sort(sorted, GEOHASH_ORDER);
+        out.writeVInt(sorted.length);
+        long previous = 0;
+        for (Cell cell : sorted) {
+            out.writeVLong(cell.bits - previous);
+            out.writeVLong(cell.count);
+            previous = cell.bits;
+        }
+    }
+}
@@ -21,15 +21,13 @@ package org.elasticsearch.search.fetch.source;
 
 import com.google.common.collect.ImmutableMap;
 import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.inject.Inject;
-import org.elasticsearch.common.xcontent.XContentBuilder;
-import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.search.SearchParseElement;
 import org.elasticsearch.search.fetch.FetchSubPhase;
 import org.elasticsearch.search.internal.InternalSearchHit;
 import org.elasticsearch.search.internal.SearchContext;
 
-import java.io.IOException;
 import java.util.Map;
 
 /**
@@ -71,14 +69,9 @@ public class FetchSourceSubPhase implements FetchSubPhase {
             return;
         }
 
-        Object value = context.lookup().source().filter(fetchSourceContext.includes(), fetchSourceContext.excludes());
-        try {
-            XContentBuilder builder = XContentFactory.contentBuilder(context.lookup().source().sourceContentType());
-            builder.value(value);
-            hitContext.hit().sourceRef(builder.bytes());
-        } catch (IOException e) {
-            throw new ElasticSearchException("Error filtering source", e);
+        BytesReference filtered = context.lookup().source().filterAsBytes(fetchSourceContext.includes(), fetchSourceContext.excludes());
+        if (filtered != null) {
+            hitContext.hit().sourceRef(filtered);
         }
-
     }
 }
@@ -158,6 +158,8 @@ public class DefaultSearchContext extends SearchContext {
 
     private boolean queryRewritten;
 
+    private boolean nowInMillisUsed;
+
     private volatile long keepAlive;
 
     private volatile long lastAccessTime;
@@ -285,9 +287,14 @@ public class DefaultSearchContext extends SearchContext {
     }
 
     public long nowInMillis() {
+        nowInMillisUsed = true;
         return request.nowInMillis();
     }
 
+    public boolean nowInMillisUsed() {
+        return nowInMillisUsed;
+    }
+
     public Scroll scroll() {
         return this.scroll;
     }
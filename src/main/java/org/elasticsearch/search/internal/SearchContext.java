@@ -110,6 +110,12 @@ public abstract class SearchContext implements Releasable {
 
     public abstract long nowInMillis();
 
+    /**
+     * Has {@link #nowInMillis()} been used while parsing or executing the request? If so, the
+     * result depends on the time the request was issued.
+     */
+    public abstract boolean nowInMillisUsed();
+
     public abstract Scroll scroll();
 
     public abstract SearchContext scroll(Scroll scroll);
@@ -0,0 +1,124 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.internal;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.search.Scroll;
+import org.elasticsearch.transport.TransportRequest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.elasticsearch.search.Scroll.readScroll;
+
+/**
+ * Several {@link ShardSearchRequest}s of the same search, targeting shards allocated on the same node. The search
+ * source and the other request level options are the same for all shards and serialized only once.
+ */
+public class ShardSearchBatchRequest extends TransportRequest {
+
+    private List<ShardSearchRequest> requests;
+
+    public ShardSearchBatchRequest() {
+    }
+
+    public ShardSearchBatchRequest(List<ShardSearchRequest> requests) {
+        super(requests.get(0));
+        assert sameSearch(requests) : "batched shard requests must belong to the same search";
+        this.requests = requests;
+    }
+
+    public List<ShardSearchRequest> requests() {
+        return requests;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        SearchType searchType = SearchType.fromId(in.readByte());
+        int numberOfShards = in.readVInt();
+        Scroll scroll = null;
+        if (in.readBoolean()) {
+            scroll = readScroll(in);
+        }
+        BytesReference source = in.readBytesReference();
+        BytesReference extraSource = in.readBytesReference();
+        String[] types = in.readStringArray();
+        long nowInMillis = in.readVLong();
+        boolean queryCache = false;
+        if (in.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            queryCache = in.readBoolean();
+        }
+
+        int size = in.readVInt();
+        requests = new ArrayList<ShardSearchRequest>(size);
+        for (int i = 0; i < size; i++) {
+            ShardSearchRequest request = new ShardSearchRequest(this, in.readString(), in.readVInt(), numberOfShards, searchType);
+            request.filteringAliases(in.readStringArray());
+            request.scroll(scroll).source(source).extraSource(extraSource).types(types).nowInMillis(nowInMillis).queryCache(queryCache);
+            requests.add(request);
+        }
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        ShardSearchRequest first = requests.get(0);
+        out.writeByte(first.searchType().id());
+        out.writeVInt(first.numberOfShards());
+        if (first.scroll() == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            first.scroll().writeTo(out);
+        }
+        out.writeBytesReference(first.source());
+        out.writeBytesReference(first.extraSource());
+        out.writeStringArray(first.types());
+        out.writeVLong(first.nowInMillis());
+        if (out.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            out.writeBoolean(first.queryCache());
+        }
+
+        out.writeVInt(requests.size());
+        for (ShardSearchRequest request : requests) {
+            out.writeString(request.index());
+            out.writeVInt(request.shardId());
+            out.writeStringArrayNullable(request.filteringAliases());
+        }
+    }
+
+    private static boolean sameSearch(List<ShardSearchRequest> requests) {
+        ShardSearchRequest first = requests.get(0);
+        for (ShardSearchRequest request : requests) {
+            if (request.source() != first.source() || request.extraSource() != first.extraSource() || request.searchType() != first.searchType()
+                    || request.nowInMillis() != first.nowInMillis() || request.numberOfShards() != first.numberOfShards()
+                    || request.queryCache() != first.queryCache()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.search.internal;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.cluster.routing.ShardRouting;
@@ -71,6 +72,8 @@ public class ShardSearchRequest extends TransportRequest {
 
     private long nowInMillis;
 
+    private boolean queryCache;
+
     public ShardSearchRequest() {
     }
 
@@ -84,13 +87,21 @@ public class ShardSearchRequest extends TransportRequest {
         this.extraSource = searchRequest.extraSource();
         this.scroll = searchRequest.scroll();
         this.types = searchRequest.types();
-
+        this.queryCache = searchRequest.queryCache();
     }
 
     public ShardSearchRequest(ShardRouting shardRouting, int numberOfShards, SearchType searchType) {
         this(shardRouting.index(), shardRouting.id(), numberOfShards, searchType);
     }
 
+    public ShardSearchRequest(TransportRequest request, String index, int shardId, int numberOfShards, SearchType searchType) {
+        super(request);
+        this.index = index;
+        this.shardId = shardId;
+        this.numberOfShards = numberOfShards;
+        this.searchType = searchType;
+    }
+
     public ShardSearchRequest(String index, int shardId, int numberOfShards, SearchType searchType) {
         this.index = index;
         this.shardId = shardId;
@@ -163,6 +174,18 @@ public class ShardSearchRequest extends TransportRequest {
         return types;
     }
 
+    /**
+     * Can the result of this request be cached in the shard query cache?
+     */
+    public boolean queryCache() {
+        return queryCache;
+    }
+
+    public ShardSearchRequest queryCache(boolean queryCache) {
+        this.queryCache = queryCache;
+        return this;
+    }
+
     public ShardSearchRequest types(String[] types) {
         this.types = types;
         return this;
@@ -185,6 +208,9 @@ public class ShardSearchRequest extends TransportRequest {
         types = in.readStringArray();
         filteringAliases = in.readStringArray();
         nowInMillis = in.readVLong();
+        if (in.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            queryCache = in.readBoolean();
+        }
     }
 
     @Override
@@ -205,5 +231,8 @@ public class ShardSearchRequest extends TransportRequest {
         out.writeStringArray(types);
         out.writeStringArrayNullable(filteringAliases);
         out.writeVLong(nowInMillis);
+        if (out.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            out.writeBoolean(queryCache);
+        }
     }
 }
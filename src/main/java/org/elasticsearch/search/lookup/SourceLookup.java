@@ -25,11 +25,15 @@ import org.apache.lucene.index.AtomicReaderContext;
 import org.elasticsearch.ElasticSearchParseException;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.Tuple;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.common.xcontent.support.XContentMapValues;
 import org.elasticsearch.index.fieldvisitor.JustSourceFieldsVisitor;
 
+import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -40,6 +44,12 @@ import java.util.Set;
  */
 public class SourceLookup implements Map {
 
+    /**
+     * The number of path extractions or filters of a document's source that walk its bytes, only materializing
+     * the values they need, before the whole source is loaded as a map and reused by the following ones.
+     */
+    static final int MAX_STREAMED_EXTRACTIONS = 2;
+
     private AtomicReader reader;
 
     private int docId = -1;
@@ -48,6 +58,8 @@ public class SourceLookup implements Map {
     private Map<String, Object> source;
     private XContentType sourceContentType;
 
+    private int streamedExtractions;
+
     public Map<String, Object> source() {
         return source;
     }
@@ -84,6 +96,40 @@ public class SourceLookup implements Map {
         return this.source;
     }
 
+    private BytesReference loadSourceBytesIfNeeded() {
+        if (sourceAsBytes != null) {
+            return sourceAsBytes;
+        }
+        try {
+            JustSourceFieldsVisitor sourceFieldVisitor = new JustSourceFieldsVisitor();
+            reader.document(docId, sourceFieldVisitor);
+            sourceAsBytes = sourceFieldVisitor.source();
+        } catch (Exception e) {
+            throw new ElasticSearchParseException("failed to parse / load source", e);
+        }
+        return sourceAsBytes;
+    }
+
+    /**
+     * Should the next extraction walk the source bytes instead of loading the source as a map.
+     */
+    private boolean streamNextExtraction() {
+        return source == null && streamedExtractions++ < MAX_STREAMED_EXTRACTIONS;
+    }
+
+    /**
+     * Returns a parser over the source, or <tt>null</tt> if the document has no source.
+     */
+    private XContentParser sourceParser() throws IOException {
+        BytesReference sourceAsBytes = loadSourceBytesIfNeeded();
+        if (sourceAsBytes == null) {
+            return null;
+        }
+        XContentParser parser = XContentHelper.createParser(sourceAsBytes);
+        sourceContentType = parser.contentType();
+        return parser;
+    }
+
     public static Tuple<XContentType, Map<String, Object>> sourceAsMapAndType(BytesReference source) throws ElasticSearchParseException {
         return XContentHelper.convertToMap(source, false);
     }
@@ -108,6 +154,7 @@ public class SourceLookup implements Map {
         this.source = null;
         this.sourceAsBytes = null;
         this.docId = -1;
+        this.streamedExtractions = 0;
     }
 
     public void setNextDocId(int docId) {
@@ -117,10 +164,12 @@ public class SourceLookup implements Map {
         this.docId = docId;
         this.sourceAsBytes = null;
         this.source = null;
+        this.streamedExtractions = 0;
     }
 
     public void setNextSource(BytesReference source) {
         this.sourceAsBytes = source;
+        this.streamedExtractions = 0;
     }
 
     public void setNextSource(Map<String, Object> source) {
@@ -139,14 +188,81 @@ public class SourceLookup implements Map {
      * handle path expression where an array/list is navigated within.
      */
     public List<Object> extractRawValues(String path) {
+        if (streamNextExtraction()) {
+            XContentParser parser = null;
+            try {
+                parser = sourceParser();
+                if (parser == null) {
+                    return XContentMapValues.extractRawValues(path, ImmutableMap.<String, Object>of());
+                }
+                return XContentMapValues.extractRawValues(path, parser);
+            } catch (IOException e) {
+                throw new ElasticSearchParseException("failed to parse / load source", e);
+            } finally {
+                if (parser != null) {
+                    parser.close();
+                }
+            }
+        }
         return XContentMapValues.extractRawValues(path, loadSourceIfNeeded());
     }
 
     public Object filter(String[] includes, String[] excludes) {
+        if (streamNextExtraction()) {
+            BytesReference filtered = filterAsBytes(includes, excludes);
+            if (filtered == null) {
+                return ImmutableMap.of();
+            }
+            return sourceAsMap(filtered);
+        }
         return XContentMapValues.filter(loadSourceIfNeeded(), includes, excludes);
     }
 
+    /**
+     * Filters the source like {@link #filter(String[], String[])}, returning the filtered source encoded with
+     * the content type of the source. As long as the source hasn't been loaded as a map, the included parts are
+     * copied directly from the source bytes.
+     */
+    public BytesReference filterAsBytes(String[] includes, String[] excludes) {
+        try {
+            if (source == null) {
+                XContentParser parser = sourceParser();
+                if (parser == null) {
+                    return null;
+                }
+                try {
+                    XContentBuilder builder = XContentFactory.contentBuilder(parser.contentType());
+                    XContentMapValues.filter(parser, builder, includes, excludes);
+                    return builder.bytes();
+                } finally {
+                    parser.close();
+                }
+            }
+            XContentBuilder builder = XContentFactory.contentBuilder(sourceContentType == null ? XContentType.JSON : sourceContentType);
+            builder.value(XContentMapValues.filter(source, includes, excludes));
+            return builder.bytes();
+        } catch (IOException e) {
+            throw new ElasticSearchParseException("failed to filter source", e);
+        }
+    }
+
     public Object extractValue(String path) {
+        if (streamNextExtraction()) {
+            XContentParser parser = null;
+            try {
+                parser = sourceParser();
+                if (parser == null) {
+                    return null;
+                }
+                return XContentMapValues.extractValue(path, parser);
+            } catch (IOException e) {
+                throw new ElasticSearchParseException("failed to parse / load source", e);
+            } finally {
+                if (parser != null) {
+                    parser.close();
+                }
+            }
+        }
         return XContentMapValues.extractValue(path, loadSourceIfNeeded());
     }
 
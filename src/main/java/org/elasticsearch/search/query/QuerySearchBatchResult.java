@@ -0,0 +1,130 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.query;
+
+import org.elasticsearch.common.Classes;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.ThrowableObjectInputStream;
+import org.elasticsearch.common.io.ThrowableObjectOutputStream;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.transport.NotSerializableTransportException;
+import org.elasticsearch.transport.TransportResponse;
+import org.elasticsearch.transport.TransportSerializationException;
+
+import java.io.IOException;
+import java.io.NotSerializableException;
+
+import static org.elasticsearch.search.query.QuerySearchResult.readQuerySearchResult;
+
+/**
+ * The per shard results of a {@link org.elasticsearch.search.internal.ShardSearchBatchRequest}, in the order of
+ * the batched requests. Each shard either has a result or a failure.
+ */
+public class QuerySearchBatchResult extends TransportResponse {
+
+    private QuerySearchResult[] results;
+
+    private Throwable[] failures;
+
+    public QuerySearchBatchResult() {
+    }
+
+    public QuerySearchBatchResult(int size) {
+        this.results = new QuerySearchResult[size];
+        this.failures = new Throwable[size];
+    }
+
+    public int size() {
+        return results.length;
+    }
+
+    public QuerySearchResult result(int index) {
+        return results[index];
+    }
+
+    public void result(int index, QuerySearchResult result) {
+        results[index] = result;
+    }
+
+    public Throwable failure(int index) {
+        return failures[index];
+    }
+
+    public void failure(int index, Throwable failure) {
+        failures[index] = failure;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        int size = in.readVInt();
+        results = new QuerySearchResult[size];
+        failures = new Throwable[size];
+        for (int i = 0; i < size; i++) {
+            if (in.readBoolean()) {
+                results[i] = readQuerySearchResult(in);
+            } else {
+                failures[i] = readFailure(in.readBytesReference());
+            }
+        }
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeVInt(results.length);
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] != null) {
+                out.writeBoolean(true);
+                results[i].writeTo(out);
+            } else {
+                out.writeBoolean(false);
+                out.writeBytesReference(writeFailure(failures[i]));
+            }
+        }
+    }
+
+    // failures are written as their own blob, so one that can't be deserialized doesn't fail the other shards
+    private static BytesReference writeFailure(Throwable failure) throws IOException {
+        BytesStreamOutput bStream = new BytesStreamOutput();
+        try {
+            ThrowableObjectOutputStream too = new ThrowableObjectOutputStream(bStream);
+            too.writeObject(failure);
+            too.close();
+        } catch (NotSerializableException e) {
+            bStream.reset();
+            ThrowableObjectOutputStream too = new ThrowableObjectOutputStream(bStream);
+            too.writeObject(new NotSerializableTransportException(failure));
+            too.close();
+        }
+        return bStream.bytes();
+    }
+
+    private static Throwable readFailure(BytesReference bytes) {
+        try {
+            ThrowableObjectInputStream ois = new ThrowableObjectInputStream(bytes.streamInput(), Classes.getDefaultClassLoader());
+            return (Throwable) ois.readObject();
+        } catch (Throwable e) {
+            return new TransportSerializationException("Failed to deserialize shard failure", e);
+        }
+    }
+}
@@ -20,6 +20,7 @@
 package org.elasticsearch.search.query;
 
 import org.apache.lucene.search.TopDocs;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.search.SearchShardTarget;
@@ -46,6 +47,8 @@ public class QuerySearchResult extends TransportResponse implements QuerySearchR
     private InternalFacets facets;
     private Suggest suggest;
     private boolean searchTimedOut;
+    private long serviceTimeNanos = -1;
+    private int nodeQueueSize = -1;
 
     public QuerySearchResult() {
 
@@ -87,6 +90,28 @@ public class QuerySearchResult extends TransportResponse implements QuerySearchR
         return searchTimedOut;
     }
 
+    /**
+     * The time the shard spent executing the request, or <tt>-1</tt> if unknown.
+     */
+    public long serviceTimeNanos() {
+        return serviceTimeNanos;
+    }
+
+    public void serviceTimeNanos(long serviceTimeNanos) {
+        this.serviceTimeNanos = serviceTimeNanos;
+    }
+
+    /**
+     * The search queue size of the node that executed the request, or <tt>-1</tt> if unknown.
+     */
+    public int nodeQueueSize() {
+        return nodeQueueSize;
+    }
+
+    public void nodeQueueSize(int nodeQueueSize) {
+        this.nodeQueueSize = nodeQueueSize;
+    }
+
     public TopDocs topDocs() {
         return topDocs;
     }
@@ -138,7 +163,15 @@ public class QuerySearchResult extends TransportResponse implements QuerySearchR
     @Override
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
-        id = in.readLong();
+        readFromWithId(in.readLong(), in);
+    }
+
+    /**
+     * Reads the result written by {@link #writeToNoId(StreamOutput)} with the provided id, used
+     * when restoring a cached result into a new search context.
+     */
+    public void readFromWithId(long id, StreamInput in) throws IOException {
+        this.id = id;
 //        shardTarget = readSearchShardTarget(in);
         from = in.readVInt();
         size = in.readVInt();
@@ -150,12 +183,20 @@ public class QuerySearchResult extends TransportResponse implements QuerySearchR
             suggest = Suggest.readSuggest(Suggest.Fields.SUGGEST, in);
         }
         searchTimedOut = in.readBoolean();
+        if (in.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            serviceTimeNanos = in.readLong();
+            nodeQueueSize = in.readInt();
+        }
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         super.writeTo(out);
         out.writeLong(id);
+        writeToNoId(out);
+    }
+
+    public void writeToNoId(StreamOutput out) throws IOException {
 //        shardTarget.writeTo(out);
         out.writeVInt(from);
         out.writeVInt(size);
@@ -173,5 +214,9 @@ public class QuerySearchResult extends TransportResponse implements QuerySearchR
             suggest.writeTo(out);
         }
         out.writeBoolean(searchTimedOut);
+        if (out.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            out.writeLong(serviceTimeNanos);
+            out.writeInt(nodeQueueSize);
+        }
     }
 }
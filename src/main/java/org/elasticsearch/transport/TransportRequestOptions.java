@@ -20,6 +20,8 @@
 package org.elasticsearch.transport;
 
 import org.elasticsearch.ElasticSearchIllegalArgumentException;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.unit.TimeValue;
 
 /**
@@ -58,6 +60,8 @@ public class TransportRequestOptions {
 
     private boolean compress;
 
+    private String compressorType;
+
     private Type type = Type.MED;
 
     public TransportRequestOptions withTimeout(long timeout) {
@@ -74,6 +78,21 @@ public class TransportRequestOptions {
         return this;
     }
 
+    /**
+     * Compresses the request using the compressor of the provided type (<tt>lzf</tt>, <tt>lz4</tt>). A <tt>null</tt>
+     * type leaves the compression setting as is and uses the transport level compressor, an unknown type is rejected.
+     */
+    public TransportRequestOptions withCompressorType(@Nullable String compressorType) {
+        if (compressorType != null) {
+            if (CompressorFactory.compressor(compressorType) == null) {
+                throw new ElasticSearchIllegalArgumentException("unknown compressor type [" + compressorType + "]");
+            }
+            this.compress = true;
+        }
+        this.compressorType = compressorType;
+        return this;
+    }
+
     public TransportRequestOptions withType(Type type) {
         this.type = type;
         return this;
@@ -120,6 +139,11 @@ public class TransportRequestOptions {
         return this.compress;
     }
 
+    @Nullable
+    public String compressorType() {
+        return this.compressorType;
+    }
+
     public Type type() {
         return this.type;
     }
@@ -19,6 +19,10 @@
 
 package org.elasticsearch.transport;
 
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.compress.CompressorFactory;
+
 /**
  *
  */
@@ -32,12 +36,34 @@ public class TransportResponseOptions {
 
     private boolean compress;
 
+    private String compressorType;
+
     public TransportResponseOptions withCompress(boolean compress) {
         this.compress = compress;
         return this;
     }
 
+    /**
+     * Compresses the response using the compressor of the provided type (<tt>lzf</tt>, <tt>lz4</tt>). A <tt>null</tt>
+     * type leaves the compression setting as is and uses the transport level compressor, an unknown type is rejected.
+     */
+    public TransportResponseOptions withCompressorType(@Nullable String compressorType) {
+        if (compressorType != null) {
+            if (CompressorFactory.compressor(compressorType) == null) {
+                throw new ElasticSearchIllegalArgumentException("unknown compressor type [" + compressorType + "]");
+            }
+            this.compress = true;
+        }
+        this.compressorType = compressorType;
+        return this;
+    }
+
     public boolean compress() {
         return this.compress;
     }
+
+    @Nullable
+    public String compressorType() {
+        return this.compressorType;
+    }
 }
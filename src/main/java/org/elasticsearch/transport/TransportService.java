@@ -26,6 +26,8 @@ import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.collect.MapBuilder;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.metrics.HistogramMetric;
 import org.elasticsearch.common.metrics.MeanMetric;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.transport.BoundTransportAddress;
@@ -35,11 +37,11 @@ import org.elasticsearch.common.util.concurrent.ConcurrentMapLong;
 import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.threadpool.ThreadPool;
 
-import java.util.Collections;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static org.elasticsearch.common.settings.ImmutableSettings.Builder.EMPTY_SETTINGS;
@@ -88,6 +90,8 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
     protected void doStart() throws ElasticSearchException {
         adapter.rxMetric.clear();
         adapter.txMetric.clear();
+        adapter.compressionMetrics.clear();
+        adapter.actionMetrics.clear();
         transport.transportServiceAdapter(adapter);
         transport.start();
         if (transport.boundAddress() != null && logger.isInfoEnabled()) {
@@ -114,7 +118,18 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
     }
 
     public TransportStats stats() {
-        return new TransportStats(transport.serverOpen(), adapter.rxMetric.count(), adapter.rxMetric.sum(), adapter.txMetric.count(), adapter.txMetric.sum());
+        List<TransportStats.CompressionStats> compression = new ArrayList<TransportStats.CompressionStats>(adapter.compressionMetrics.size());
+        for (Map.Entry<String, CompressionMetric> entry : adapter.compressionMetrics.entrySet()) {
+            CompressionMetric metric = entry.getValue();
+            compression.add(new TransportStats.CompressionStats(entry.getKey(), metric.uncompressed.count(), metric.uncompressed.sum(), metric.compressed.count()));
+        }
+        List<TransportStats.ActionStats> actions = new ArrayList<TransportStats.ActionStats>(adapter.actionMetrics.size());
+        for (Map.Entry<String, ActionMetric> entry : adapter.actionMetrics.entrySet()) {
+            ActionMetric metric = entry.getValue();
+            actions.add(new TransportStats.ActionStats(entry.getKey(), metric.rx.count(), metric.rx.sum(), metric.tx.count(), metric.tx.sum(),
+                    metric.queueTime.count(), metric.queueTime.sum(), metric.handlerTime.count(), metric.latency.counts(), metric.latency.sum()));
+        }
+        return new TransportStats(transport.serverOpen(), adapter.rxMetric.count(), adapter.rxMetric.sum(), adapter.txMetric.count(), adapter.txMetric.sum(), compression, actions);
     }
 
     public BoundTransportAddress boundAddress() {
@@ -244,6 +259,8 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
 
         final MeanMetric rxMetric = new MeanMetric();
         final MeanMetric txMetric = new MeanMetric();
+        final ConcurrentMap<String, CompressionMetric> compressionMetrics = ConcurrentCollections.newConcurrentMap();
+        final ConcurrentMap<String, ActionMetric> actionMetrics = ConcurrentCollections.newConcurrentMap();
 
         @Override
         public void received(long size) {
@@ -255,6 +272,49 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
             txMetric.inc(size);
         }
 
+        @Override
+        public void compressed(String action, long uncompressedSize, long compressedSize) {
+            CompressionMetric metric = compressionMetrics.get(action);
+            if (metric == null) {
+                metric = new CompressionMetric();
+                CompressionMetric existing = compressionMetrics.putIfAbsent(action, metric);
+                if (existing != null) {
+                    metric = existing;
+                }
+            }
+            metric.uncompressed.inc(uncompressedSize);
+            metric.compressed.inc(compressedSize);
+        }
+
+        @Override
+        public void requestSent(String action, long size) {
+            actionMetric(action).tx.inc(size);
+        }
+
+        @Override
+        public void requestReceived(String action, long size) {
+            actionMetric(action).rx.inc(size);
+        }
+
+        @Override
+        public void requestHandled(String action, long queueTimeNanos, long handlerTimeNanos) {
+            ActionMetric metric = actionMetric(action);
+            metric.queueTime.inc(queueTimeNanos);
+            metric.handlerTime.inc(handlerTimeNanos);
+        }
+
+        private ActionMetric actionMetric(String action) {
+            ActionMetric metric = actionMetrics.get(action);
+            if (metric == null) {
+                metric = new ActionMetric();
+                ActionMetric existing = actionMetrics.putIfAbsent(action, metric);
+                if (existing != null) {
+                    metric = existing;
+                }
+            }
+            return metric;
+        }
+
         @Override
         public TransportRequestHandler handler(String action) {
             return serverHandlers.get(action);
@@ -275,6 +335,7 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
                 return null;
             }
             holder.cancel();
+            actionMetric(holder.action()).latency.inc(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - holder.startTime()));
             return holder.handler();
         }
 
@@ -327,6 +388,21 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
         }
     }
 
+    static class CompressionMetric {
+        final MeanMetric uncompressed = new MeanMetric();
+        final CounterMetric compressed = new CounterMetric();
+    }
+
+    static class ActionMetric {
+        final MeanMetric rx = new MeanMetric();
+        final MeanMetric tx = new MeanMetric();
+        // in nanos, the count is the number of handled requests
+        final MeanMetric queueTime = new MeanMetric();
+        final CounterMetric handlerTime = new CounterMetric();
+        // in millis
+        final HistogramMetric latency = new HistogramMetric();
+    }
+
     class TimeoutHandler implements Runnable {
 
         private final long requestId;
@@ -403,6 +479,8 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
 
         private final TimeoutHandler timeout;
 
+        private final long startTime = System.nanoTime();
+
         RequestHolder(TransportResponseHandler<T> handler, DiscoveryNode node, String action, TimeoutHandler timeout) {
             this.handler = handler;
             this.node = node;
@@ -410,6 +488,10 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
             this.timeout = timeout;
         }
 
+        public long startTime() {
+            return this.startTime;
+        }
+
         public TransportResponseHandler<T> handler() {
             return handler;
         }
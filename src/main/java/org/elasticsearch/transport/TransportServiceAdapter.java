@@ -30,6 +30,27 @@ public interface TransportServiceAdapter {
 
     void sent(long size);
 
+    /**
+     * Called when a message for the given action was sent compressed, with its serialized size before and after compression.
+     */
+    void compressed(String action, long uncompressedSize, long compressedSize);
+
+    /**
+     * Called when a request for the given action was sent, with its serialized size.
+     */
+    void requestSent(String action, long size);
+
+    /**
+     * Called when a request for the given action was received, with its serialized size.
+     */
+    void requestReceived(String action, long size);
+
+    /**
+     * Called once the handler of a received request was executed, with the time (in nanos) the request waited in the
+     * executor queue and the time it took the handler to execute.
+     */
+    void requestHandled(String action, long queueTimeNanos, long handlerTimeNanos);
+
     TransportRequestHandler handler(String action);
 
     TransportResponseHandler remove(long requestId);
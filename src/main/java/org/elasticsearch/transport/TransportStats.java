@@ -19,34 +19,293 @@
 
 package org.elasticsearch.transport;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.metrics.HistogramMetric;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentBuilderString;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class TransportStats implements Streamable, ToXContent {
 
+    /**
+     * Compression statistics of the messages sent for a single action.
+     */
+    public static class CompressionStats implements Streamable, ToXContent {
+
+        private String action;
+        private long count;
+        private long uncompressedSize;
+        private long compressedSize;
+
+        CompressionStats() {
+
+        }
+
+        public CompressionStats(String action, long count, long uncompressedSize, long compressedSize) {
+            this.action = action;
+            this.count = count;
+            this.uncompressedSize = uncompressedSize;
+            this.compressedSize = compressedSize;
+        }
+
+        public String getAction() {
+            return this.action;
+        }
+
+        /**
+         * The number of compressed messages sent.
+         */
+        public long getCount() {
+            return this.count;
+        }
+
+        /**
+         * The size of the sent messages before compression.
+         */
+        public ByteSizeValue getUncompressedSize() {
+            return new ByteSizeValue(uncompressedSize);
+        }
+
+        /**
+         * The size of the sent messages after compression.
+         */
+        public ByteSizeValue getCompressedSize() {
+            return new ByteSizeValue(compressedSize);
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            action = in.readString();
+            count = in.readVLong();
+            uncompressedSize = in.readVLong();
+            compressedSize = in.readVLong();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeString(action);
+            out.writeVLong(count);
+            out.writeVLong(uncompressedSize);
+            out.writeVLong(compressedSize);
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.startObject(action, XContentBuilder.FieldCaseConversion.NONE);
+            builder.field(Fields.COUNT, count);
+            builder.byteSizeField(Fields.UNCOMPRESSED_SIZE_IN_BYTES, Fields.UNCOMPRESSED_SIZE, uncompressedSize);
+            builder.byteSizeField(Fields.COMPRESSED_SIZE_IN_BYTES, Fields.COMPRESSED_SIZE, compressedSize);
+            builder.endObject();
+            return builder;
+        }
+    }
+
+    /**
+     * Statistics of the requests of a single action, both the ones this node sent and the ones it handled.
+     */
+    public static class ActionStats implements Streamable, ToXContent {
+
+        private String action;
+        private long rxCount;
+        private long rxSize;
+        private long txCount;
+        private long txSize;
+        private long handledCount;
+        private long queueTime;
+        private long handlerTime;
+        private long[] latencyCounts;
+        private long latencyTime;
+
+        ActionStats() {
+
+        }
+
+        public ActionStats(String action, long rxCount, long rxSize, long txCount, long txSize, long handledCount, long queueTime, long handlerTime, long[] latencyCounts, long latencyTime) {
+            this.action = action;
+            this.rxCount = rxCount;
+            this.rxSize = rxSize;
+            this.txCount = txCount;
+            this.txSize = txSize;
+            this.handledCount = handledCount;
+            this.queueTime = queueTime;
+            this.handlerTime = handlerTime;
+            this.latencyCounts = latencyCounts;
+            this.latencyTime = latencyTime;
+        }
+
+        public String getAction() {
+            return this.action;
+        }
+
+        /**
+         * The number of requests received (and handled) by this node.
+         */
+        public long getRxCount() {
+            return this.rxCount;
+        }
+
+        /**
+         * The serialized size of the requests received by this node.
+         */
+        public ByteSizeValue getRxSize() {
+            return new ByteSizeValue(rxSize);
+        }
+
+        /**
+         * The number of requests sent by this node.
+         */
+        public long getTxCount() {
+            return this.txCount;
+        }
+
+        /**
+         * The serialized size of the requests sent by this node.
+         */
+        public ByteSizeValue getTxSize() {
+            return new ByteSizeValue(txSize);
+        }
+
+        /**
+         * The number of received requests the handler was executed for.
+         */
+        public long getHandledCount() {
+            return this.handledCount;
+        }
+
+        /**
+         * The total time the received requests waited in the executor queue before being handled.
+         */
+        public TimeValue getQueueTime() {
+            return new TimeValue(queueTime, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * The total time spent executing the handler of the received requests.
+         */
+        public TimeValue getHandlerTime() {
+            return new TimeValue(handlerTime, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * The number of responses received for the requests sent by this node.
+         */
+        public long getLatencyCount() {
+            long count = 0;
+            for (long bucketCount : latencyCounts) {
+                count += bucketCount;
+            }
+            return count;
+        }
+
+        /**
+         * The total time it took for the responses of the requests sent by this node to arrive.
+         */
+        public TimeValue getLatencyTime() {
+            return new TimeValue(latencyTime);
+        }
+
+        /**
+         * Estimates the provided percentile (between <tt>0</tt> and <tt>100</tt>) of the response latency, or
+         * <tt>null</tt> if no response was received yet.
+         */
+        public TimeValue getLatency(double percentile) {
+            long latency = HistogramMetric.percentile(latencyCounts, percentile);
+            return latency < 0 ? null : new TimeValue(latency);
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            action = in.readString();
+            rxCount = in.readVLong();
+            rxSize = in.readVLong();
+            txCount = in.readVLong();
+            txSize = in.readVLong();
+            handledCount = in.readVLong();
+            queueTime = in.readVLong();
+            handlerTime = in.readVLong();
+            latencyCounts = new long[in.readVInt()];
+            for (int i = 0; i < latencyCounts.length; i++) {
+                latencyCounts[i] = in.readVLong();
+            }
+            latencyTime = in.readVLong();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeString(action);
+            out.writeVLong(rxCount);
+            out.writeVLong(rxSize);
+            out.writeVLong(txCount);
+            out.writeVLong(txSize);
+            out.writeVLong(handledCount);
+            out.writeVLong(queueTime);
+            out.writeVLong(handlerTime);
+            out.writeVInt(latencyCounts.length);
+            for (long count : latencyCounts) {
+                out.writeVLong(count);
+            }
+            out.writeVLong(latencyTime);
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.startObject(action, XContentBuilder.FieldCaseConversion.NONE);
+            builder.field(Fields.RX_COUNT, rxCount);
+            builder.byteSizeField(Fields.RX_SIZE_IN_BYTES, Fields.RX_SIZE, rxSize);
+            builder.field(Fields.TX_COUNT, txCount);
+            builder.byteSizeField(Fields.TX_SIZE_IN_BYTES, Fields.TX_SIZE, txSize);
+            builder.field(Fields.HANDLED, handledCount);
+            builder.timeValueField(Fields.QUEUE_TIME_IN_MILLIS, Fields.QUEUE_TIME, getQueueTime());
+            builder.timeValueField(Fields.HANDLER_TIME_IN_MILLIS, Fields.HANDLER_TIME, getHandlerTime());
+            long latencyCount = getLatencyCount();
+            if (latencyCount > 0) {
+                builder.startObject(Fields.LATENCY);
+                builder.field(Fields.COUNT, latencyCount);
+                builder.timeValueField(Fields.TIME_IN_MILLIS, Fields.TIME, latencyTime);
+                builder.timeValueField(Fields.P50_IN_MILLIS, Fields.P50, getLatency(50));
+                builder.timeValueField(Fields.P90_IN_MILLIS, Fields.P90, getLatency(90));
+                builder.timeValueField(Fields.P99_IN_MILLIS, Fields.P99, getLatency(99));
+                builder.endObject();
+            }
+            builder.endObject();
+            return builder;
+        }
+    }
+
     private long serverOpen;
     private long rxCount;
     private long rxSize;
     private long txCount;
     private long txSize;
+    private List<CompressionStats> compression;
+    private List<ActionStats> actions;
 
     TransportStats() {
 
     }
 
     public TransportStats(long serverOpen, long rxCount, long rxSize, long txCount, long txSize) {
+        this(serverOpen, rxCount, rxSize, txCount, txSize, new ArrayList<CompressionStats>(), new ArrayList<ActionStats>());
+    }
+
+    public TransportStats(long serverOpen, long rxCount, long rxSize, long txCount, long txSize, List<CompressionStats> compression, List<ActionStats> actions) {
         this.serverOpen = serverOpen;
         this.rxCount = rxCount;
         this.rxSize = rxSize;
         this.txCount = txCount;
         this.txSize = txSize;
+        this.compression = compression;
+        this.actions = actions;
     }
 
     public long serverOpen() {
@@ -89,6 +348,20 @@ public class TransportStats implements Streamable, ToXContent {
         return txSize();
     }
 
+    /**
+     * Per action compression statistics of the sent messages.
+     */
+    public List<CompressionStats> getCompression() {
+        return this.compression;
+    }
+
+    /**
+     * Per action request statistics.
+     */
+    public List<ActionStats> getActions() {
+        return this.actions;
+    }
+
     public static TransportStats readTransportStats(StreamInput in) throws IOException {
         TransportStats stats = new TransportStats();
         stats.readFrom(in);
@@ -102,6 +375,25 @@ public class TransportStats implements Streamable, ToXContent {
         rxSize = in.readVLong();
         txCount = in.readVLong();
         txSize = in.readVLong();
+        if (in.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            int size = in.readVInt();
+            compression = new ArrayList<CompressionStats>(size);
+            for (int i = 0; i < size; i++) {
+                CompressionStats stats = new CompressionStats();
+                stats.readFrom(in);
+                compression.add(stats);
+            }
+            size = in.readVInt();
+            actions = new ArrayList<ActionStats>(size);
+            for (int i = 0; i < size; i++) {
+                ActionStats stats = new ActionStats();
+                stats.readFrom(in);
+                actions.add(stats);
+            }
+        } else {
+            compression = new ArrayList<CompressionStats>();
+            actions = new ArrayList<ActionStats>();
+        }
     }
 
     @Override
@@ -111,6 +403,16 @@ public class TransportStats implements Streamable, ToXContent {
         out.writeVLong(rxSize);
         out.writeVLong(txCount);
         out.writeVLong(txSize);
+        if (out.getVersion().onOrAfter(Version.V_1_0_0_Beta1)) {
+            out.writeVInt(compression.size());
+            for (CompressionStats stats : compression) {
+                stats.writeTo(out);
+            }
+            out.writeVInt(actions.size());
+            for (ActionStats stats : actions) {
+                stats.writeTo(out);
+            }
+        }
     }
 
     @Override
@@ -121,6 +423,20 @@ public class TransportStats implements Streamable, ToXContent {
         builder.byteSizeField(Fields.RX_SIZE_IN_BYTES, Fields.RX_SIZE, rxSize);
         builder.field(Fields.TX_COUNT, txCount);
         builder.byteSizeField(Fields.TX_SIZE_IN_BYTES, Fields.TX_SIZE, txSize);
+        if (!compression.isEmpty()) {
+            builder.startObject(Fields.COMPRESSION);
+            for (CompressionStats stats : compression) {
+                stats.toXContent(builder, params);
+            }
+            builder.endObject();
+        }
+        if (!actions.isEmpty()) {
+            builder.startObject(Fields.ACTIONS);
+            for (ActionStats stats : actions) {
+                stats.toXContent(builder, params);
+            }
+            builder.endObject();
+        }
         builder.endObject();
         return builder;
     }
@@ -134,5 +450,26 @@ public class TransportStats implements Streamable, ToXContent {
         static final XContentBuilderString TX_COUNT = new XContentBuilderString("tx_count");
         static final XContentBuilderString TX_SIZE = new XContentBuilderString("tx_size");
         static final XContentBuilderString TX_SIZE_IN_BYTES = new XContentBuilderString("tx_size_in_bytes");
+        static final XContentBuilderString COMPRESSION = new XContentBuilderString("compression");
+        static final XContentBuilderString COUNT = new XContentBuilderString("count");
+        static final XContentBuilderString UNCOMPRESSED_SIZE = new XContentBuilderString("uncompressed_size");
+        static final XContentBuilderString UNCOMPRESSED_SIZE_IN_BYTES = new XContentBuilderString("uncompressed_size_in_bytes");
+        static final XContentBuilderString COMPRESSED_SIZE = new XContentBuilderString("compressed_size");
+        static final XContentBuilderString COMPRESSED_SIZE_IN_BYTES = new XContentBuilderString("compressed_size_in_bytes");
+        static final XContentBuilderString ACTIONS = new XContentBuilderString("actions");
+        static final XContentBuilderString HANDLED = new XContentBuilderString("handled");
+        static final XContentBuilderString QUEUE_TIME = new XContentBuilderString("queue_time");
+        static final XContentBuilderString QUEUE_TIME_IN_MILLIS = new XContentBuilderString("queue_time_in_millis");
+        static final XContentBuilderString HANDLER_TIME = new XContentBuilderString("handler_time");
+        static final XContentBuilderString HANDLER_TIME_IN_MILLIS = new XContentBuilderString("handler_time_in_millis");
+        static final XContentBuilderString LATENCY = new XContentBuilderString("latency");
+        static final XContentBuilderString TIME = new XContentBuilderString("time");
+        static final XContentBuilderString TIME_IN_MILLIS = new XContentBuilderString("time_in_millis");
+        static final XContentBuilderString P50 = new XContentBuilderString("p50");
+        static final XContentBuilderString P50_IN_MILLIS = new XContentBuilderString("p50_in_millis");
+        static final XContentBuilderString P90 = new XContentBuilderString("p90");
+        static final XContentBuilderString P90_IN_MILLIS = new XContentBuilderString("p90_in_millis");
+        static final XContentBuilderString P99 = new XContentBuilderString("p99");
+        static final XContentBuilderString P99_IN_MILLIS = new XContentBuilderString("p99_in_millis");
     }
 }
\ No newline at end of file
@@ -175,6 +175,7 @@ public class LocalTransport extends AbstractLifecycleComponent<Transport> implem
         final byte[] data = bStream.bytes().toBytes();
 
         transportServiceAdapter.sent(data.length);
+        transportServiceAdapter.requestSent(action, data.length);
 
         threadPool.generic().execute(new Runnable() {
             @Override
@@ -200,7 +201,7 @@ public class LocalTransport extends AbstractLifecycleComponent<Transport> implem
             boolean isRequest = TransportStatus.isRequest(status);
 
             if (isRequest) {
-                handleRequest(stream, requestId, sourceTransport, version);
+                handleRequest(stream, requestId, sourceTransport, version, data.length);
             } else {
                 final TransportResponseHandler handler = transportServiceAdapter.remove(requestId);
                 // ignore if its null, the adapter logs it
@@ -224,8 +225,9 @@ public class LocalTransport extends AbstractLifecycleComponent<Transport> implem
         }
     }
 
-    private void handleRequest(StreamInput stream, long requestId, LocalTransport sourceTransport, Version version) throws Exception {
+    private void handleRequest(StreamInput stream, long requestId, LocalTransport sourceTransport, Version version, int messageSize) throws Exception {
         final String action = stream.readString();
+        transportServiceAdapter.requestReceived(action, messageSize);
         final LocalTransportChannel transportChannel = new LocalTransportChannel(this, sourceTransport, action, requestId, version);
         try {
             final TransportRequestHandler handler = transportServiceAdapter.handler(action);
@@ -235,12 +237,19 @@ public class LocalTransport extends AbstractLifecycleComponent<Transport> implem
             final TransportRequest request = handler.newInstance();
             request.readFrom(stream);
             if (handler.executor() == ThreadPool.Names.SAME) {
-                //noinspection unchecked
-                handler.messageReceived(request, transportChannel);
+                long startTime = System.nanoTime();
+                try {
+                    //noinspection unchecked
+                    handler.messageReceived(request, transportChannel);
+                } finally {
+                    transportServiceAdapter.requestHandled(action, 0, System.nanoTime() - startTime);
+                }
             } else {
+                final long queuedTime = System.nanoTime();
                 threadPool.executor(handler.executor()).execute(new AbstractRunnable() {
                     @Override
                     public void run() {
+                        long startTime = System.nanoTime();
                         try {
                             //noinspection unchecked
                             handler.messageReceived(request, transportChannel);
@@ -254,6 +263,8 @@ public class LocalTransport extends AbstractLifecycleComponent<Transport> implem
                                     logger.warn("Actual Exception", e);
                                 }
                             }
+                        } finally {
+                            transportServiceAdapter.requestHandled(action, startTime - queuedTime, System.nanoTime() - startTime);
                         }
                     }
 
@@ -106,7 +106,7 @@ public class MessageChannelHandler extends SimpleChannelUpstreamHandler {
         wrappedStream.setVersion(version);
 
         if (TransportStatus.isRequest(status)) {
-            String action = handleRequest(ctx.getChannel(), wrappedStream, requestId, version);
+            String action = handleRequest(ctx.getChannel(), wrappedStream, requestId, version, size + 6);
             if (buffer.readerIndex() != expectedIndexReader) {
                 if (buffer.readerIndex() < expectedIndexReader) {
                     logger.warn("Message not fully read (request) for [{}] and action [{}], resetting", requestId, action);
@@ -196,8 +196,9 @@ public class MessageChannelHandler extends SimpleChannelUpstreamHandler {
         }
     }
 
-    private String handleRequest(Channel channel, StreamInput buffer, long requestId, Version version) throws IOException {
+    private String handleRequest(Channel channel, StreamInput buffer, long requestId, Version version, int messageSize) throws IOException {
         final String action = buffer.readString();
+        transportServiceAdapter.requestReceived(action, messageSize);
 
         final NettyTransportChannel transportChannel = new NettyTransportChannel(transport, action, channel, requestId, version);
         try {
@@ -208,8 +209,13 @@ public class MessageChannelHandler extends SimpleChannelUpstreamHandler {
             final TransportRequest request = handler.newInstance();
             request.readFrom(buffer);
             if (handler.executor() == ThreadPool.Names.SAME) {
-                //noinspection unchecked
-                handler.messageReceived(request, transportChannel);
+                long startTime = System.nanoTime();
+                try {
+                    //noinspection unchecked
+                    handler.messageReceived(request, transportChannel);
+                } finally {
+                    transportServiceAdapter.requestHandled(action, 0, System.nanoTime() - startTime);
+                }
             } else {
                 threadPool.executor(handler.executor()).execute(new RequestHandler(handler, request, transportChannel, action));
             }
@@ -255,6 +261,7 @@ public class MessageChannelHandler extends SimpleChannelUpstreamHandler {
         private final TransportRequest request;
         private final NettyTransportChannel transportChannel;
         private final String action;
+        private final long queuedTime = System.nanoTime();
 
         public RequestHandler(TransportRequestHandler handler, TransportRequest request, NettyTransportChannel transportChannel, String action) {
             this.handler = handler;
@@ -266,6 +273,7 @@ public class MessageChannelHandler extends SimpleChannelUpstreamHandler {
         @SuppressWarnings({"unchecked"})
         @Override
         public void run() {
+            long startTime = System.nanoTime();
             try {
                 handler.messageReceived(request, transportChannel);
             } catch (Throwable e) {
@@ -278,6 +286,8 @@ public class MessageChannelHandler extends SimpleChannelUpstreamHandler {
                         logger.warn("Actual Exception", e);
                     }
                 }
+            } finally {
+                transportServiceAdapter.requestHandled(action, startTime - queuedTime, System.nanoTime() - startTime);
             }
         }
 
@@ -22,12 +22,17 @@ package org.elasticsearch.transport.netty;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
 import org.elasticsearch.ElasticSearchIllegalStateException;
 import org.elasticsearch.Version;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
+import org.elasticsearch.common.compress.CompressedStreamOutput;
+import org.elasticsearch.common.compress.Compressor;
 import org.elasticsearch.common.compress.CompressorFactory;
+import org.elasticsearch.common.compress.lzf.LZFCompressor;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.HandlesStreamOutput;
@@ -36,6 +41,7 @@ import org.elasticsearch.common.netty.NettyStaticSetup;
 import org.elasticsearch.common.netty.OpenChannelsHandler;
 import org.elasticsearch.common.network.NetworkService;
 import org.elasticsearch.common.network.NetworkUtils;
+import org.elasticsearch.common.regex.Regex;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.transport.BoundTransportAddress;
 import org.elasticsearch.common.transport.InetSocketTransportAddress;
@@ -68,6 +74,7 @@ import java.nio.channels.CancelledKeyException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
@@ -114,6 +121,13 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
 
     final boolean compress;
 
+    @Nullable
+    final String compressType;
+
+    // action name patterns with the compressor type to use for them, a null type means no compression
+    final String[] compressActionPatterns;
+    final String[] compressActionTypes;
+
     final TimeValue connectTimeout;
 
     final Boolean tcpNoDelay;
@@ -177,6 +191,25 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
         this.bindHost = componentSettings.get("bind_host", settings.get("transport.bind_host", settings.get("transport.host")));
         this.publishHost = componentSettings.get("publish_host", settings.get("transport.publish_host", settings.get("transport.host")));
         this.compress = settings.getAsBoolean("transport.tcp.compress", false);
+        this.compressType = settings.get("transport.tcp.compress_type");
+        if (compressType != null && CompressorFactory.compressor(compressType) == null) {
+            throw new ElasticSearchIllegalArgumentException("unknown compressor type [" + compressType + "] for [transport.tcp.compress_type]");
+        }
+        Map<String, String> compressActions = settings.getByPrefix("transport.tcp.compress_actions.").getAsMap();
+        this.compressActionPatterns = new String[compressActions.size()];
+        this.compressActionTypes = new String[compressActions.size()];
+        int i = 0;
+        for (Map.Entry<String, String> entry : compressActions.entrySet()) {
+            String type = entry.getValue();
+            if ("none".equalsIgnoreCase(type) || "false".equalsIgnoreCase(type)) {
+                type = null;
+            } else if (CompressorFactory.compressor(type) == null) {
+                throw new ElasticSearchIllegalArgumentException("unknown compressor type [" + type + "] for action [" + entry.getKey() + "]");
+            }
+            compressActionPatterns[i] = entry.getKey();
+            compressActionTypes[i] = type;
+            i++;
+        }
         this.connectTimeout = componentSettings.getAsTime("connect_timeout", settings.getAsTime("transport.tcp.connect_timeout", settings.getAsTime(TCP_CONNECT_TIMEOUT, TCP_DEFAULT_CONNECT_TIMEOUT)));
         this.tcpNoDelay = componentSettings.getAsBoolean("tcp_no_delay", settings.getAsBoolean(TCP_NO_DELAY, true));
         this.tcpKeepAlive = componentSettings.getAsBoolean("tcp_keep_alive", settings.getAsBoolean(TCP_KEEP_ALIVE, true));
@@ -207,8 +240,8 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
             receiveBufferSizePredictorFactory = new AdaptiveReceiveBufferSizePredictorFactory((int) receivePredictorMin.bytes(), (int) receivePredictorMin.bytes(), (int) receivePredictorMax.bytes());
         }
 
-        logger.debug("using worker_count[{}], port[{}], bind_host[{}], publish_host[{}], compress[{}], connect_timeout[{}], connections_per_node[{}/{}/{}/{}], receive_predictor[{}->{}]",
-                workerCount, port, bindHost, publishHost, compress, connectTimeout, connectionsPerNodeLow, connectionsPerNodeMed, connectionsPerNodeHigh, connectionsPerNodePing, receivePredictorMin, receivePredictorMax);
+        logger.debug("using worker_count[{}], port[{}], bind_host[{}], publish_host[{}], compress[{}], compress_type[{}], compress_actions[{}], connect_timeout[{}], connections_per_node[{}/{}/{}/{}], receive_predictor[{}->{}]",
+                workerCount, port, bindHost, publishHost, compress, compressType, compressActions, connectTimeout, connectionsPerNodeLow, connectionsPerNodeMed, connectionsPerNodeHigh, connectionsPerNodePing, receivePredictorMin, receivePredictorMax);
     }
 
     public Settings settings() {
@@ -228,6 +261,38 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
         return threadPool;
     }
 
+    /**
+     * Resolves the compressor to use for a message sent for the provided action, <tt>null</tt> if it should not be
+     * compressed. The per action settings take precedence over the compression requested by the message options and
+     * the transport level <tt>transport.tcp.compress</tt> setting.
+     */
+    @Nullable
+    Compressor compressor(String action, boolean compress, @Nullable String compressorType, Version version) {
+        for (int i = 0; i < compressActionPatterns.length; i++) {
+            if (Regex.simpleMatch(compressActionPatterns[i], action)) {
+                if (compressActionTypes[i] == null) {
+                    return null;
+                }
+                compress = true;
+                compressorType = compressActionTypes[i];
+                break;
+            }
+        }
+        if (!compress && !this.compress) {
+            return null;
+        }
+        if (compressorType == null) {
+            compressorType = this.compressType;
+        }
+        // the types are validated when the settings and options are parsed, so there is no unknown type to fall back from
+        Compressor compressor = compressorType == null ? CompressorFactory.defaultCompressor() : CompressorFactory.compressor(compressorType);
+        // older nodes only know how to uncompress lzf
+        if (version.before(Version.V_1_0_0_Beta1) && !LZFCompressor.TYPE.equals(compressor.type())) {
+            compressor = CompressorFactory.compressor(LZFCompressor.TYPE);
+        }
+        return compressor;
+    }
+
     @Override
     protected void doStart() throws ElasticSearchException {
         if (blockingClient) {
@@ -517,35 +582,38 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
     public void sendRequest(final DiscoveryNode node, final long requestId, final String action, final TransportRequest request, TransportRequestOptions options) throws IOException, TransportException {
         Channel targetChannel = nodeChannel(node, options);
 
-        if (compress) {
-            options.withCompress(true);
-        }
-
         byte status = 0;
         status = TransportStatus.setRequest(status);
 
+        // we pick the smallest of the 2, to support both backward and forward compatibility
+        // note, this is the only place we need to do this, since from here on, we use the serialized version
+        // as the version to use also when the node receiving this request will send the response with
+        Version version = Version.smallest(this.version, node.version());
+
         BytesStreamOutput bStream = new BytesStreamOutput();
         bStream.skip(NettyHeader.HEADER_SIZE);
         StreamOutput stream = bStream;
-        if (options.compress()) {
+        CompressedStreamOutput compressedStream = null;
+        Compressor compressor = compressor(action, options.compress(), options.compressorType(), version);
+        if (compressor != null) {
             status = TransportStatus.setCompress(status);
-            stream = CompressorFactory.defaultCompressor().streamOutput(stream);
+            stream = compressedStream = compressor.streamOutput(stream);
         }
         stream = new HandlesStreamOutput(stream);
 
-        // we pick the smallest of the 2, to support both backward and forward compatibility
-        // note, this is the only place we need to do this, since from here on, we use the serialized version
-        // as the version to use also when the node receiving this request will send the response with
-        Version version = Version.smallest(this.version, node.version());
-
         stream.setVersion(version);
         stream.writeString(action);
         request.writeTo(stream);
         stream.close();
 
+        if (compressedStream != null) {
+            transportServiceAdapter.compressed(action, compressedStream.totalUncompressed(), bStream.size() - NettyHeader.HEADER_SIZE);
+        }
+
         ChannelBuffer buffer = bStream.bytes().toChannelBuffer();
         NettyHeader.writeHeader(buffer, requestId, status, version);
         targetChannel.write(buffer);
+        transportServiceAdapter.requestSent(action, buffer.readableBytes());
 
         // We handle close connection exception in the #exceptionCaught method, which is the main reason we want to add this future
 //        channelFuture.addListener(new ChannelFutureListener() {
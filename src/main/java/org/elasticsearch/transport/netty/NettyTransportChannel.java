@@ -20,7 +20,8 @@
 package org.elasticsearch.transport.netty;
 
 import org.elasticsearch.Version;
-import org.elasticsearch.common.compress.CompressorFactory;
+import org.elasticsearch.common.compress.CompressedStreamOutput;
+import org.elasticsearch.common.compress.Compressor;
 import org.elasticsearch.common.io.ThrowableObjectOutputStream;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.HandlesStreamOutput;
@@ -64,25 +65,27 @@ public class NettyTransportChannel implements TransportChannel {
 
     @Override
     public void sendResponse(TransportResponse response, TransportResponseOptions options) throws IOException {
-        if (transport.compress) {
-            options.withCompress(true);
-        }
-
         byte status = 0;
         status = TransportStatus.setResponse(status);
 
         BytesStreamOutput bStream = new BytesStreamOutput();
         bStream.skip(NettyHeader.HEADER_SIZE);
         StreamOutput stream = bStream;
-        if (options.compress()) {
+        CompressedStreamOutput compressedStream = null;
+        Compressor compressor = transport.compressor(action, options.compress(), options.compressorType(), version);
+        if (compressor != null) {
             status = TransportStatus.setCompress(status);
-            stream = CompressorFactory.defaultCompressor().streamOutput(stream);
+            stream = compressedStream = compressor.streamOutput(stream);
         }
         stream = new HandlesStreamOutput(stream);
         stream.setVersion(version);
         response.writeTo(stream);
         stream.close();
 
+        if (compressedStream != null) {
+            transport.transportServiceAdapter().compressed(action, compressedStream.totalUncompressed(), bStream.size() - NettyHeader.HEADER_SIZE);
+        }
+
         ChannelBuffer buffer = bStream.bytes().toChannelBuffer();
         NettyHeader.writeHeader(buffer, requestId, status, version);
         channel.write(buffer);
@@ -20,17 +20,23 @@
 package org.elasticsearch.action.bulk;
 
 import com.google.common.base.Charsets;
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
 import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.io.stream.BytesStreamInput;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.columnar.ColumnarSchema;
 import org.elasticsearch.test.ElasticsearchTestCase;
 import org.junit.Test;
 
+import java.util.Map;
+
 import static org.elasticsearch.common.io.Streams.copyToStringFromClasspath;
 import static org.hamcrest.MatcherAssert.assertThat;
-import static org.hamcrest.Matchers.equalTo;
-import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.*;
 
 public class BulkRequestTests extends ElasticsearchTestCase {
 
@@ -80,4 +86,72 @@ public class BulkRequestTests extends ElasticsearchTestCase {
         assertThat(((UpdateRequest) bulkRequest.requests().get(1)).upsertRequest().source().toUtf8(), equalTo("{\"counter\":1}"));
     }
 
+    @Test
+    public void testColumnarBulk() throws Exception {
+        ColumnarSchema schema = new ColumnarSchema(new String[]{"count", "value", "flag", "name"},
+                new ColumnarSchema.Type[]{ColumnarSchema.Type.LONG, ColumnarSchema.Type.DOUBLE, ColumnarSchema.Type.BOOLEAN, ColumnarSchema.Type.STRING});
+        ColumnarBulkBuilder columnarBulk = new ColumnarBulkBuilder()
+                .block("index1", "type1", schema)
+                .row("1", 1, 1.5, true, "first")
+                .row(null, 2, null, false, null)
+                .block(null, null, schema)
+                .row("3", 3, 3.5, null, "third");
+
+        BulkRequest bulkRequest = new BulkRequest();
+        bulkRequest.addColumnar(columnarBulk.bytes(), "index2", "type2", true);
+        assertThat(bulkRequest.numberOfActions(), equalTo(3));
+
+        IndexRequest indexRequest = (IndexRequest) bulkRequest.requests().get(0);
+        assertThat(indexRequest.index(), equalTo("index1"));
+        assertThat(indexRequest.type(), equalTo("type1"));
+        assertThat(indexRequest.id(), equalTo("1"));
+        Map<String, Object> source = indexRequest.sourceAsMap();
+        assertThat(((Number) source.get("count")).longValue(), equalTo(1l));
+        assertThat((Double) source.get("value"), equalTo(1.5));
+        assertThat((Boolean) source.get("flag"), equalTo(true));
+        assertThat((String) source.get("name"), equalTo("first"));
+
+        // missing values are left out of the document
+        indexRequest = (IndexRequest) bulkRequest.requests().get(1);
+        assertThat(indexRequest.id(), nullValue());
+        assertThat(indexRequest.sourceAsMap().keySet(), containsInAnyOrder("count", "flag"));
+
+        indexRequest = (IndexRequest) bulkRequest.requests().get(2);
+        assertThat(indexRequest.index(), equalTo("index2"));
+        assertThat(indexRequest.type(), equalTo("type2"));
+
+        // the row walks the same as its source
+        XContentParser parser = indexRequest.columnarRow().parser();
+        assertThat(parser.nextToken(), equalTo(XContentParser.Token.START_OBJECT));
+        assertThat(parser.nextToken(), equalTo(XContentParser.Token.FIELD_NAME));
+        assertThat(parser.currentName(), equalTo("count"));
+        assertThat(parser.nextToken(), equalTo(XContentParser.Token.VALUE_NUMBER));
+        assertThat(parser.numberType(), equalTo(XContentParser.NumberType.LONG));
+        assertThat(parser.longValue(), equalTo(3l));
+        assertThat(parser.nextToken(), equalTo(XContentParser.Token.FIELD_NAME));
+        assertThat(parser.nextToken(), equalTo(XContentParser.Token.VALUE_NUMBER));
+        assertThat(parser.doubleValue(), equalTo(3.5));
+        assertThat(parser.nextToken(), equalTo(XContentParser.Token.FIELD_NAME));
+        assertThat(parser.currentName(), equalTo("name"));
+        assertThat(parser.nextToken(), equalTo(XContentParser.Token.VALUE_STRING));
+        assertThat(parser.text(), equalTo("third"));
+        assertThat(parser.nextToken(), equalTo(XContentParser.Token.END_OBJECT));
+        assertThat(parser.nextToken(), nullValue());
+
+        // only the row goes over the wire, the source is generated back from it
+        BytesStreamOutput out = new BytesStreamOutput();
+        indexRequest.writeTo(out);
+        IndexRequest read = new IndexRequest();
+        read.readFrom(new BytesStreamInput(out.bytes()));
+        assertThat(read.columnarRow(), notNullValue());
+        assertThat(read.sourceAsMap(), equalTo(indexRequest.sourceAsMap()));
+    }
+
+    @Test(expected = ElasticSearchIllegalArgumentException.class)
+    public void testColumnarBulkExplicitIndex() throws Exception {
+        ColumnarSchema schema = new ColumnarSchema(new String[]{"count"}, new ColumnarSchema.Type[]{ColumnarSchema.Type.LONG});
+        ColumnarBulkBuilder columnarBulk = new ColumnarBulkBuilder().block("index1", "type1", schema).row("1", 1);
+        new BulkRequest().addColumnar(columnarBulk.bytes(), null, null, false);
+    }
+
 }
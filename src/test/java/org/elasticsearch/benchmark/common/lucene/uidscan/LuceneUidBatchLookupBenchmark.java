@@ -0,0 +1,116 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.common.lucene.uidscan;
+
+import jsr166y.ThreadLocalRandom;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.*;
+import org.apache.lucene.store.FSDirectory;
+import org.elasticsearch.common.StopWatch;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.lucene.uid.Versions;
+import org.elasticsearch.common.unit.SizeValue;
+
+import java.io.File;
+
+/**
+ * Compares resolving the versions of a batch of uids one by one with {@link Versions#loadVersion(IndexReader, Term)}
+ * against the sorted per segment lookup of {@link Versions#loadVersions(IndexReader, Term[])}.
+ */
+public class LuceneUidBatchLookupBenchmark {
+
+    public static void main(String[] args) throws Exception {
+
+        FSDirectory dir = FSDirectory.open(new File("work/test"));
+        IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER).setOpenMode(IndexWriterConfig.OpenMode.CREATE));
+
+        final long INDEX_COUNT = SizeValue.parseSizeValue("1m").singles();
+        final int BATCH_SIZE = 1000;
+        final int BATCH_COUNT = 500;
+        final int WARMUP_COUNT = 100;
+        final long startUid = 1000000;
+
+        long LIMIT = startUid + INDEX_COUNT;
+        StopWatch watch = new StopWatch().start();
+        System.out.println("Indexing " + INDEX_COUNT + " docs...");
+        for (long i = startUid; i < LIMIT; i++) {
+            Document doc = new Document();
+            doc.add(new StringField("_uid", Long.toString(i), Store.NO));
+            doc.add(new NumericDocValuesField("_version", i));
+            writer.addDocument(doc);
+        }
+        System.out.println("Done indexing, took " + watch.stop().lastTaskTime());
+
+        final IndexReader reader = DirectoryReader.open(writer, true);
+        System.out.println("Reader has " + reader.leaves().size() + " segments");
+
+        Term[][] batches = new Term[BATCH_COUNT + WARMUP_COUNT][BATCH_SIZE];
+        for (Term[] batch : batches) {
+            for (int i = 0; i < batch.length; i++) {
+                long id = startUid + (Math.abs(ThreadLocalRandom.current().nextInt()) % INDEX_COUNT);
+                batch[i] = new Term("_uid", Long.toString(id));
+            }
+        }
+
+        // warm up both paths
+        for (int i = 0; i < WARMUP_COUNT; i++) {
+            single(reader, batches[i]);
+            batched(reader, batches[i]);
+        }
+
+        watch = new StopWatch().start();
+        for (int i = WARMUP_COUNT; i < batches.length; i++) {
+            single(reader, batches[i]);
+        }
+        watch.stop();
+        System.out.println("Single lookups took " + watch.totalTime() + ", TP Seconds " + ((BATCH_COUNT * BATCH_SIZE) / watch.totalTime().secondsFrac()));
+
+        watch = new StopWatch().start();
+        for (int i = WARMUP_COUNT; i < batches.length; i++) {
+            batched(reader, batches[i]);
+        }
+        watch.stop();
+        System.out.println("Batched lookups took " + watch.totalTime() + ", TP Seconds " + ((BATCH_COUNT * BATCH_SIZE) / watch.totalTime().secondsFrac()));
+
+        reader.close();
+        writer.close();
+        dir.close();
+    }
+
+    private static void single(IndexReader reader, Term[] batch) throws Exception {
+        for (Term term : batch) {
+            if (Versions.loadVersion(reader, term) != Long.parseLong(term.text())) {
+                System.err.println("wrong id...");
+            }
+        }
+    }
+
+    private static void batched(IndexReader reader, Term[] batch) throws Exception {
+        long[] versions = Versions.loadVersions(reader, batch);
+        for (int i = 0; i < batch.length; i++) {
+            if (versions[i] != Long.parseLong(batch[i].text())) {
+                System.err.println("wrong id...");
+            }
+        }
+    }
+}
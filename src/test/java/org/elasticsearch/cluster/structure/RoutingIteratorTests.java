@@ -26,6 +26,7 @@ import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.cluster.routing.*;
 import org.elasticsearch.cluster.routing.allocation.AllocationService;
 import org.elasticsearch.cluster.routing.allocation.decider.AwarenessAllocationDecider;
+import org.elasticsearch.cluster.routing.operation.ResponseCollectorService;
 import org.elasticsearch.cluster.routing.operation.hash.djb.DjbHashFunction;
 import org.elasticsearch.cluster.routing.operation.plain.PlainOperationRouting;
 import org.elasticsearch.common.settings.ImmutableSettings;
@@ -33,6 +34,10 @@ import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.test.ElasticsearchTestCase;
 import org.junit.Test;
 
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
 import static org.elasticsearch.cluster.ClusterState.newClusterStateBuilder;
 import static org.elasticsearch.cluster.metadata.IndexMetaData.newIndexMetaDataBuilder;
 import static org.elasticsearch.cluster.metadata.MetaData.newMetaDataBuilder;
@@ -331,7 +336,7 @@ public class RoutingIteratorTests extends ElasticsearchTestCase {
         routingTable = strategy.applyStartedShards(clusterState, clusterState.routingNodes().shardsWithState(INITIALIZING)).routingTable();
         clusterState = newClusterStateBuilder().state(clusterState).routingTable(routingTable).build();
 
-        PlainOperationRouting operationRouting = new PlainOperationRouting(ImmutableSettings.Builder.EMPTY_SETTINGS, new DjbHashFunction(), new AwarenessAllocationDecider());
+        PlainOperationRouting operationRouting = new PlainOperationRouting(ImmutableSettings.Builder.EMPTY_SETTINGS, new DjbHashFunction(), new AwarenessAllocationDecider(), new ResponseCollectorService(ImmutableSettings.Builder.EMPTY_SETTINGS));
 
         GroupShardsIterator shardIterators = operationRouting.searchShards(clusterState, new String[]{"test"}, new String[]{"test"}, null, "_shards:0");
         assertThat(shardIterators.size(), equalTo(1));
@@ -362,4 +367,70 @@ public class RoutingIteratorTests extends ElasticsearchTestCase {
         assertThat(shardIterators.iterator().next().shardId().id(), equalTo(0));
         assertThat(shardIterators.iterator().next().nextOrNull().currentNodeId(), equalTo("node1"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testAdaptiveReplicaSelection() {
+        AllocationService strategy = new AllocationService(settingsBuilder()
+                .put("cluster.routing.allocation.concurrent_recoveries", 10)
+                .build());
+
+        MetaData metaData = newMetaDataBuilder()
+                .put(newIndexMetaDataBuilder("test").numberOfShards(5).numberOfReplicas(1))
+                .build();
+
+        RoutingTable routingTable = routingTable()
+                .addAsNew(metaData.index("test"))
+                .build();
+
+        ClusterState clusterState = newClusterStateBuilder().metaData(metaData).routingTable(routingTable).build();
+
+        clusterState = newClusterStateBuilder().state(clusterState).nodes(newNodesBuilder()
+                .put(newNode("node1"))
+                .put(newNode("node2"))
+                .localNodeId("node1")
+        ).build();
+        routingTable = strategy.reroute(clusterState).routingTable();
+        clusterState = newClusterStateBuilder().state(clusterState).routingTable(routingTable).build();
+
+        routingTable = strategy.applyStartedShards(clusterState, clusterState.routingNodes().shardsWithState(INITIALIZING)).routingTable();
+        clusterState = newClusterStateBuilder().state(clusterState).routingTable(routingTable).build();
+
+        routingTable = strategy.applyStartedShards(clusterState, clusterState.routingNodes().shardsWithState(INITIALIZING)).routingTable();
+        clusterState = newClusterStateBuilder().state(clusterState).routingTable(routingTable).build();
+
+        ResponseCollectorService collector = new ResponseCollectorService(ImmutableSettings.Builder.EMPTY_SETTINGS);
+        PlainOperationRouting operationRouting = new PlainOperationRouting(settingsBuilder().put("cluster.routing.operation.adaptive_replica_selection", true).build(),
+                new DjbHashFunction(), new AwarenessAllocationDecider(), collector);
+
+        // no statistics yet, both copies are used
+        Set<String> selectedNodes = new HashSet<String>();
+        for (int i = 0; i < 4; i++) {
+            GroupShardsIterator shardIterators = operationRouting.searchShards(clusterState, new String[]{"test"}, new String[]{"test"}, null, null);
+            assertThat(shardIterators.size(), equalTo(5));
+            for (ShardIterator shardIterator : shardIterators) {
+                assertThat(shardIterator.size(), equalTo(2));
+                selectedNodes.add(shardIterator.nextOrNull().currentNodeId());
+            }
+        }
+        assertThat(selectedNodes.size(), equalTo(2));
+
+        for (int i = 0; i < 10; i++) {
+            collector.requestSent("node1");
+            collector.addNodeStatistics("node1", 0, TimeUnit.MILLISECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(1));
+            collector.requestSent("node2");
+            collector.addNodeStatistics("node2", 20, TimeUnit.MILLISECONDS.toNanos(100), TimeUnit.MILLISECONDS.toNanos(50));
+        }
+        assertThat(collector.rank("node1"), lessThan(collector.rank("node2")));
+
+        // the slow node is only used as a fallback
+        for (int i = 0; i < 4; i++) {
+            GroupShardsIterator shardIterators = operationRouting.searchShards(clusterState, new String[]{"test"}, new String[]{"test"}, null, null);
+            assertThat(shardIterators.size(), equalTo(5));
+            for (ShardIterator shardIterator : shardIterators) {
+                assertThat(shardIterator.size(), equalTo(2));
+                assertThat(shardIterator.nextOrNull().currentNodeId(), equalTo("node1"));
+                assertThat(shardIterator.nextOrNull().currentNodeId(), equalTo("node2"));
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.compress.lz4;
+
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.compress.CompressedStreamInput;
+import org.elasticsearch.common.compress.CompressedStreamOutput;
+import org.elasticsearch.common.compress.Compressor;
+import org.elasticsearch.common.compress.CompressorFactory;
+import org.elasticsearch.common.io.stream.BytesStreamInput;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ */
+public class LZ4CompressorTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        Compressor compressor = CompressorFactory.compressor(LZ4Compressor.TYPE);
+        assertThat(compressor, instanceOf(LZ4Compressor.class));
+        for (int i = 0; i < 10; i++) {
+            byte[] data = randomData(randomIntBetween(0, 3 * LZ4Compressor.CHUNK_SIZE));
+            byte[] compressed = compressor.compress(data, 0, data.length);
+            assertThat(CompressorFactory.compressor(compressed), sameInstance(compressor));
+            assertThat(compressor.uncompress(compressed, 0, compressed.length), equalTo(data));
+            assertThat(CompressorFactory.uncompressIfNeeded(new BytesArray(compressed)).toBytes(), equalTo(data));
+        }
+    }
+
+    @Test
+    public void testStreams() throws IOException {
+        Compressor compressor = CompressorFactory.compressor(LZ4Compressor.TYPE);
+        byte[] data = randomData(randomIntBetween(1, 3 * LZ4Compressor.CHUNK_SIZE));
+
+        BytesStreamOutput bStream = new BytesStreamOutput();
+        CompressedStreamOutput out = compressor.streamOutput(bStream);
+        int offset = 0;
+        while (offset < data.length) {
+            int length = Math.min(data.length - offset, randomIntBetween(1, LZ4Compressor.CHUNK_SIZE * 2));
+            out.writeBytes(data, offset, length);
+            offset += length;
+        }
+        out.close();
+        assertThat(out.totalUncompressed(), equalTo((long) data.length));
+
+        CompressedStreamInput in = compressor.streamInput(new BytesStreamInput(bStream.bytes()));
+        byte[] uncompressed = new byte[data.length];
+        in.readBytes(uncompressed, 0, uncompressed.length);
+        assertThat(uncompressed, equalTo(data));
+        assertThat(in.read(), equalTo(-1));
+        in.close();
+    }
+
+    @Test
+    public void testNotDetectedAsLZF() throws IOException {
+        byte[] data = randomData(1024);
+        byte[] compressed = CompressorFactory.compressor("lzf").compress(data, 0, data.length);
+        assertThat(CompressorFactory.compressor(LZ4Compressor.TYPE).isCompressed(compressed, 0, compressed.length), equalTo(false));
+    }
+
+    private byte[] randomData(int length) {
+        // use a small alphabet so the data is actually compressible
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) randomIntBetween('a', 'h');
+        }
+        return data;
+    }
+}
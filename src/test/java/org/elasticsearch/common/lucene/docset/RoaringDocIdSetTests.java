@@ -0,0 +1,163 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.lucene.docset;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.FixedBitSet;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ */
+public class RoaringDocIdSetTests extends ElasticsearchTestCase {
+
+    private FixedBitSet randomBitSet(int numBits) {
+        FixedBitSet bits = new FixedBitSet(numBits);
+        // mix empty, sparse and dense blocks
+        for (int block = 0; block * RoaringDocIdSet.BLOCK_SIZE < numBits; block++) {
+            int start = block * RoaringDocIdSet.BLOCK_SIZE;
+            int end = Math.min(numBits, start + RoaringDocIdSet.BLOCK_SIZE);
+            int numDocs;
+            switch (randomInt(3)) {
+                case 0:
+                    numDocs = 0;
+                    break;
+                case 1:
+                    numDocs = randomIntBetween(1, 100);
+                    break;
+                case 2:
+                    numDocs = randomIntBetween(RoaringDocIdSet.MAX_SPARSE - 10, RoaringDocIdSet.MAX_SPARSE + 10);
+                    break;
+                default:
+                    numDocs = randomIntBetween(0, end - start);
+            }
+            for (int i = 0; i < numDocs; i++) {
+                bits.set(randomIntBetween(start, end - 1));
+            }
+        }
+        return bits;
+    }
+
+    private RoaringDocIdSet roaring(FixedBitSet bits) throws IOException {
+        return new RoaringDocIdSet.Builder(bits.length()).add(bits.iterator()).build();
+    }
+
+    private void assertSameDocs(DocIdSetIterator expected, DocIdSetIterator actual) throws IOException {
+        for (int doc = expected.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = expected.nextDoc()) {
+            assertThat(actual.nextDoc(), equalTo(doc));
+        }
+        assertThat(actual.nextDoc(), equalTo(DocIdSetIterator.NO_MORE_DOCS));
+    }
+
+    @Test
+    public void testIterationAndRandomAccess() throws IOException {
+        int numBits = randomIntBetween(1, 5 * RoaringDocIdSet.BLOCK_SIZE);
+        FixedBitSet bits = randomBitSet(numBits);
+        RoaringDocIdSet set = roaring(bits);
+        assertThat(set.length(), equalTo(numBits));
+        assertThat(set.cardinality(), equalTo((long) bits.cardinality()));
+        assertSameDocs(bits.iterator(), set.iterator());
+        for (int i = 0; i < numBits; i++) {
+            assertThat(set.get(i), equalTo(bits.get(i)));
+        }
+    }
+
+    @Test
+    public void testAdvance() throws IOException {
+        int numBits = randomIntBetween(1, 5 * RoaringDocIdSet.BLOCK_SIZE);
+        FixedBitSet bits = randomBitSet(numBits);
+        DocIdSetIterator expected = bits.iterator();
+        DocIdSetIterator actual = roaring(bits).iterator();
+        int target = 0;
+        while (true) {
+            int doc = expected.advance(target);
+            assertThat(actual.advance(target), equalTo(doc));
+            if (doc == DocIdSetIterator.NO_MORE_DOCS) {
+                break;
+            }
+            target = doc + 1 + randomInt(randomBoolean() ? 10 : RoaringDocIdSet.BLOCK_SIZE);
+        }
+    }
+
+    @Test
+    public void testAndOrNot() throws IOException {
+        int numBits = randomIntBetween(1, 5 * RoaringDocIdSet.BLOCK_SIZE);
+        FixedBitSet bits1 = randomBitSet(numBits);
+        FixedBitSet bits2 = randomBitSet(numBits);
+        DocIdSet[] sets = new DocIdSet[]{roaring(bits1), roaring(bits2)};
+
+        FixedBitSet and = bits1.clone();
+        and.and(bits2);
+        assertSameDocs(and.iterator(), new AndDocIdSet(sets).iterator());
+
+        FixedBitSet or = bits1.clone();
+        or.or(bits2);
+        assertSameDocs(or.iterator(), new OrDocIdSet(sets).iterator());
+
+        FixedBitSet not = bits1.clone();
+        not.flip(0, numBits);
+        assertSameDocs(not.iterator(), new NotDocIdSet(sets[0], numBits).iterator());
+    }
+
+    @Test
+    public void testToCacheable() throws IOException {
+        int numBits = 2 * RoaringDocIdSet.BLOCK_SIZE;
+        Directory dir = new RAMDirectory();
+        IndexWriter indexWriter = new IndexWriter(dir, new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER));
+        for (int i = 0; i < numBits; i++) {
+            indexWriter.addDocument(new Document());
+        }
+        indexWriter.forceMerge(1);
+        DirectoryReader directoryReader = DirectoryReader.open(indexWriter, true);
+        AtomicReader reader = directoryReader.leaves().get(0).reader();
+        assertThat(reader.maxDoc(), equalTo(numBits));
+
+        FixedBitSet sparse = new FixedBitSet(numBits);
+        for (int i = 0; i < 100; i++) {
+            sparse.set(randomInt(numBits - 1));
+        }
+        DocIdSet cacheable = DocIdSets.toCacheable(reader, sparse);
+        assertThat(cacheable, instanceOf(RoaringDocIdSet.class));
+        assertThat(DocIdSets.sizeInBytes(cacheable), lessThan(DocIdSets.sizeInBytes(sparse)));
+        assertSameDocs(sparse.iterator(), cacheable.iterator());
+        // compression can be disabled for consumers that need a fixed bit set
+        assertThat(DocIdSets.toCacheable(reader, sparse, false), sameInstance((DocIdSet) sparse));
+
+        FixedBitSet dense = new FixedBitSet(numBits);
+        dense.set(0, numBits);
+        assertThat(DocIdSets.toCacheable(reader, dense), sameInstance((DocIdSet) dense));
+
+        directoryReader.close();
+        indexWriter.close();
+    }
+}
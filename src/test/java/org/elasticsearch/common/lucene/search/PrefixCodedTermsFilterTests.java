@@ -0,0 +1,105 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.lucene.search;
+
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.*;
+import org.apache.lucene.queries.TermsFilter;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.lucene.docset.DocIdSets;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ */
+public class PrefixCodedTermsFilterTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testMatchesSameDocsAsTermsFilter() throws Exception {
+        String fieldName = "field1";
+        Directory rd = new RAMDirectory();
+        IndexWriter w = new IndexWriter(rd, new IndexWriterConfig(Lucene.VERSION, new KeywordAnalyzer()));
+        int numDocs = atLeast(100);
+        for (int i = 0; i < numDocs; i++) {
+            Document doc = new Document();
+            doc.add(new Field(fieldName, "term_" + randomInt(numDocs), StringField.TYPE_NOT_STORED));
+            w.addDocument(doc);
+            if (rarely()) {
+                w.commit();
+            }
+        }
+        DirectoryReader reader = DirectoryReader.open(w, true);
+        w.close();
+
+        int iters = atLeast(10);
+        for (int iter = 0; iter < iters; iter++) {
+            List<BytesRef> terms = new ArrayList<BytesRef>();
+            int numTerms = randomIntBetween(1, numDocs);
+            for (int i = 0; i < numTerms; i++) {
+                // duplicates and terms that don't exist in the index
+                terms.add(new BytesRef("term_" + randomInt(numDocs * 2)));
+            }
+            TermsFilter expected = new TermsFilter(fieldName, terms);
+            PrefixCodedTermsFilter actual = new PrefixCodedTermsFilter(fieldName, terms);
+            assertThat(actual, equalTo(new PrefixCodedTermsFilter(fieldName, terms)));
+            assertThat(actual.hashCode(), equalTo(new PrefixCodedTermsFilter(fieldName, terms).hashCode()));
+            for (AtomicReaderContext context : reader.leaves()) {
+                int maxDoc = context.reader().maxDoc();
+                DocIdSet expectedSet = expected.getDocIdSet(context, context.reader().getLiveDocs());
+                DocIdSet actualSet = actual.getDocIdSet(context, context.reader().getLiveDocs());
+                FixedBitSet expectedBits = DocIdSets.isEmpty(expectedSet) ? new FixedBitSet(maxDoc) : DocIdSets.toFixedBitSet(expectedSet.iterator(), maxDoc);
+                FixedBitSet actualBits = DocIdSets.isEmpty(actualSet) ? new FixedBitSet(maxDoc) : DocIdSets.toFixedBitSet(actualSet.iterator(), maxDoc);
+                assertThat(actualBits, equalTo(expectedBits));
+            }
+        }
+
+        reader.close();
+        rd.close();
+    }
+
+    @Test
+    public void testSharedPrefixesAreCompressed() {
+        List<BytesRef> terms = new ArrayList<BytesRef>();
+        for (int i = 0; i < 1000; i++) {
+            terms.add(new BytesRef("some_long_shared_prefix_" + i));
+        }
+        PrefixCodedTermsFilter filter = new PrefixCodedTermsFilter("field", terms);
+        assertThat(filter.size(), equalTo(1000));
+        assertThat(filter.sizeInBytes(), lessThan(1000l * "some_long_shared_prefix_".length()));
+
+        terms.addAll(new ArrayList<BytesRef>(terms));
+        assertThat(new PrefixCodedTermsFilter("field", terms).size(), equalTo(1000));
+        assertThat(new PrefixCodedTermsFilter("field", terms), equalTo(filter));
+        assertThat(new PrefixCodedTermsFilter("other_field", terms), not(equalTo(filter)));
+    }
+}
@@ -114,6 +114,53 @@ public class VersionsTests extends ElasticsearchLuceneTestCase {
         dir.close();
     }
 
+    @Test
+    public void testBatchedVersions() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER));
+        final int numDocs = atLeast(50);
+        for (int i = 0; i < numDocs; i++) {
+            Document doc = new Document();
+            doc.add(new Field(UidFieldMapper.NAME, Integer.toString(i), UidFieldMapper.Defaults.FIELD_TYPE));
+            doc.add(new NumericDocValuesField(VersionFieldMapper.NAME, i + 1));
+            writer.addDocument(doc);
+            if (rarely()) {
+                writer.commit(); // spread the docs over several segments
+            }
+        }
+        // an update and a delete, so some uids are only found in later segments
+        Document doc = new Document();
+        doc.add(new Field(UidFieldMapper.NAME, "0", UidFieldMapper.Defaults.FIELD_TYPE));
+        doc.add(new NumericDocValuesField(VersionFieldMapper.NAME, 100));
+        writer.updateDocument(new Term(UidFieldMapper.NAME, "0"), doc);
+        writer.deleteDocuments(new Term(UidFieldMapper.NAME, "1"));
+        DirectoryReader directoryReader = DirectoryReader.open(writer, true);
+
+        // unsorted, with duplicates and missing uids
+        final int numTerms = atLeast(20);
+        Term[] terms = new Term[numTerms];
+        for (int i = 0; i < numTerms; i++) {
+            terms[i] = new Term(UidFieldMapper.NAME, Integer.toString(random().nextInt(numDocs + 10)));
+        }
+        long[] versions = Versions.loadVersions(directoryReader, terms);
+        Versions.DocIdAndVersion[] docIdsAndVersions = Versions.loadDocIdsAndVersions(directoryReader, terms);
+        for (int i = 0; i < numTerms; i++) {
+            assertThat(versions[i], equalTo(Versions.loadVersion(directoryReader, terms[i])));
+            Versions.DocIdAndVersion expected = Versions.loadDocIdAndVersion(directoryReader, terms[i]);
+            if (expected == null) {
+                assertThat(docIdsAndVersions[i], nullValue());
+            } else {
+                assertThat(docIdsAndVersions[i].docId, equalTo(expected.docId));
+                assertThat(docIdsAndVersions[i].context.ord, equalTo(expected.context.ord));
+            }
+        }
+        assertThat(Versions.loadVersions(directoryReader, new Term[]{new Term(UidFieldMapper.NAME, "0"), new Term(UidFieldMapper.NAME, "1")}),
+                equalTo(new long[]{100, Versions.NOT_FOUND}));
+        directoryReader.close();
+        writer.close();
+        dir.close();
+    }
+
     @Test
     public void testNestedDocuments() throws IOException {
         Directory dir = newDirectory();
@@ -0,0 +1,65 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.metrics;
+
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ */
+public class HistogramMetricTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testBuckets() {
+        assertThat(HistogramMetric.bucket(0), equalTo(0));
+        assertThat(HistogramMetric.bucket(1), equalTo(1));
+        assertThat(HistogramMetric.bucket(2), equalTo(2));
+        assertThat(HistogramMetric.bucket(3), equalTo(2));
+        assertThat(HistogramMetric.bucket(4), equalTo(3));
+        assertThat(HistogramMetric.bucket(Long.MAX_VALUE), equalTo(HistogramMetric.BUCKETS - 1));
+        for (int i = 0; i < HistogramMetric.BUCKETS - 1; i++) {
+            assertThat(HistogramMetric.bucket(HistogramMetric.upperBound(i)), equalTo(i));
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        HistogramMetric metric = new HistogramMetric();
+        assertThat(HistogramMetric.percentile(metric.counts(), 50), equalTo(-1l));
+        for (int i = 0; i < 90; i++) {
+            metric.inc(5);
+        }
+        for (int i = 0; i < 10; i++) {
+            metric.inc(100);
+        }
+        assertThat(metric.count(), equalTo(100l));
+        assertThat(metric.sum(), equalTo(90 * 5l + 10 * 100l));
+        assertThat(HistogramMetric.percentile(metric.counts(), 50), equalTo(7l));
+        assertThat(HistogramMetric.percentile(metric.counts(), 90), equalTo(7l));
+        assertThat(HistogramMetric.percentile(metric.counts(), 99), equalTo(127l));
+
+        metric.clear();
+        assertThat(metric.count(), equalTo(0l));
+        assertThat(HistogramMetric.percentile(metric.counts(), 99), equalTo(-1l));
+    }
+}
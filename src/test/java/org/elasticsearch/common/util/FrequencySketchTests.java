@@ -0,0 +1,81 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.util;
+
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Tests for {@link FrequencySketch}
+ */
+public class FrequencySketchTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testFrequency() {
+        FrequencySketch sketch = new FrequencySketch(1000);
+        int hash = randomInt();
+        assertThat(sketch.frequency(hash), equalTo(0));
+        for (int i = 1; i <= 5; i++) {
+            assertThat(sketch.incrementAndGet(hash), equalTo(i));
+        }
+        assertThat(sketch.frequency(hash), equalTo(5));
+    }
+
+    @Test
+    public void testNeverUnderestimates() {
+        FrequencySketch sketch = new FrequencySketch(64);
+        int[] counts = new int[200];
+        for (int i = 0; i < 300; i++) {
+            int key = randomInt(counts.length - 1);
+            counts[key]++;
+            sketch.incrementAndGet(key);
+        }
+        for (int key = 0; key < counts.length; key++) {
+            // no reset happens with less increments than 10 times the counters
+            assertThat(sketch.frequency(key), greaterThanOrEqualTo(Math.min(counts[key], FrequencySketch.MAX_COUNT)));
+        }
+    }
+
+    @Test
+    public void testSaturation() {
+        FrequencySketch sketch = new FrequencySketch(1000);
+        for (int i = 0; i < 20; i++) {
+            sketch.incrementAndGet(7);
+        }
+        assertThat(sketch.frequency(7), equalTo(FrequencySketch.MAX_COUNT));
+    }
+
+    @Test
+    public void testAging() {
+        // 16 counters per row, counters are halved every 160 increments
+        FrequencySketch sketch = new FrequencySketch(16);
+        for (int i = 0; i < 10; i++) {
+            sketch.incrementAndGet(1);
+        }
+        assertThat(sketch.frequency(1), greaterThanOrEqualTo(10));
+        for (int i = 0; i < 150; i++) {
+            sketch.incrementAndGet(2);
+        }
+        assertThat(sketch.frequency(1), lessThan(10));
+    }
+}
@@ -368,4 +368,57 @@ public class XContentMapValuesTests extends ElasticsearchTestCase {
         assertThat(filteredMap.get("field").toString(), equalTo("value"));
 
     }
+
+    @Test
+    public void testStreamingMatchesMaps() throws Exception {
+        XContentBuilder builder = XContentFactory.jsonBuilder().startObject()
+                .field("field", "value")
+                .field("number", 3)
+                .nullField("null")
+                .startObject("obj")
+                    .field("field", "value1")
+                    .startObject("inner").field("field", "value2").field("other", 2).endObject()
+                    .startObject("empty").endObject()
+                    .startArray("arr").value(1).startObject().field("field", "value3").endObject().startArray().value(2).endArray().endArray()
+                .endObject()
+                .field("obj.dotted", "value4")
+                .startArray("arr")
+                    .startObject().field("field", "value5").field("other", "value6").endObject()
+                    .startObject().field("other", "value7").endObject()
+                    .startArray().startObject().field("other", "value8").endObject().endArray()
+                .endArray()
+                .endObject();
+        Map<String, Object> source = XContentHelper.convertToMap(builder.bytes(), true).v2();
+
+        String[] paths = {"field", "number", "null", "missing", "obj", "obj.field", "obj.inner", "obj.inner.field",
+                "obj.empty", "obj.arr", "obj.arr.field", "obj.dotted", "arr", "arr.field", "arr.other", "field.missing"};
+        for (String path : paths) {
+            assertThat(path, XContentMapValues.extractValue(path, XContentHelper.createParser(builder.bytes())),
+                    equalTo(XContentMapValues.extractValue(path, source)));
+            assertThat(path, XContentMapValues.extractRawValues(path, XContentHelper.createParser(builder.bytes())),
+                    equalTo(XContentMapValues.extractRawValues(path, source)));
+        }
+
+        String[][][] filters = {
+                {{}, {}},
+                {{"field"}, {}},
+                {{"obj"}, {}},
+                {{"obj.inner"}, {}},
+                {{"obj.empty"}, {}},
+                {{"obj.*"}, {"obj.inner.other"}},
+                {{"*.field"}, {}},
+                {{"arr.other"}, {}},
+                {{"arr.field"}, {}},
+                {{"obj.arr.field"}, {}},
+                {{}, {"obj", "arr.other"}},
+                {{"null", "number"}, {}},
+                {{"missing"}, {}},
+        };
+        for (String[][] filter : filters) {
+            XContentBuilder filtered = XContentFactory.jsonBuilder();
+            XContentMapValues.filter(XContentHelper.createParser(builder.bytes()), filtered, filter[0], filter[1]);
+            assertThat(Arrays.toString(filter[0]) + Arrays.toString(filter[1]), XContentHelper.convertToMap(filtered.bytes(), false).v2(),
+                    equalTo(XContentMapValues.filter(source, filter[0], filter[1])));
+        }
+    }
 }
@@ -1,20 +1,24 @@
 package org.elasticsearch.document;
 
 import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.ColumnarBulkBuilder;
 import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.action.index.IndexResponse;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.update.UpdateRequestBuilder;
 import org.elasticsearch.action.update.UpdateResponse;
+import org.elasticsearch.cluster.routing.IndexShardRoutingTable;
 import org.elasticsearch.common.Priority;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.xcontent.columnar.ColumnarSchema;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.test.AbstractIntegrationTest;
 import org.junit.Test;
 
+import java.util.Map;
 import java.util.concurrent.CyclicBarrier;
 
 import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
@@ -156,6 +160,43 @@ public class BulkTests extends AbstractIntegrationTest {
         assertThat(((UpdateResponse) bulkResponse.getItems()[2].getResponse()).getVersion(), equalTo(15l));
     }
 
+    @Test
+    public void testBulkIndexParsedInParallel() throws Exception {
+        client().admin().indices().prepareCreate("test")
+                .setSettings(ImmutableSettings.settingsBuilder().put("index.number_of_shards", 1)).execute().actionGet();
+        ensureGreen();
+
+        // enough items for the shard to parse them on the bulk parse pool, with dynamic fields, a broken doc and the same id twice
+        int numDocs = 500;
+        BulkRequestBuilder bulkRequestBuilder = client().prepareBulk();
+        for (int i = 0; i < numDocs; i++) {
+            if (i == 250) {
+                bulkRequestBuilder.add(client().prepareIndex("test", "type", "broken").setSource(new BytesArray("{\"field\": ")));
+            } else {
+                bulkRequestBuilder.add(client().prepareIndex("test", "type", Integer.toString(i % 400)).setSource("field_" + (i % 20), i));
+            }
+        }
+        BulkResponse bulkResponse = bulkRequestBuilder.execute().actionGet();
+        assertThat(bulkResponse.hasFailures(), equalTo(true));
+        for (int i = 0; i < numDocs; i++) {
+            if (i == 250) {
+                assertThat(bulkResponse.getItems()[i].isFailed(), equalTo(true));
+            } else {
+                assertThat(bulkResponse.getItems()[i].isFailed(), equalTo(false));
+                // items are still applied in order, the second write to an id sees the first one
+                assertThat(((IndexResponse) bulkResponse.getItems()[i].getResponse()).getVersion(), equalTo(i < 400 ? 1l : 2l));
+            }
+        }
+
+        client().admin().indices().prepareRefresh("test").execute().actionGet();
+        SearchResponse searchResponse = client().prepareSearch("test").setSize(0).execute().actionGet();
+        assertThat(searchResponse.getHits().totalHits(), equalTo(399l));
+        for (int i = 0; i < 20; i++) {
+            searchResponse = client().prepareSearch("test").setSize(0).setQuery(QueryBuilders.rangeQuery("field_" + i).gte(0)).execute().actionGet();
+            assertThat(searchResponse.getHits().totalHits(), greaterThan(0l));
+        }
+    }
+
     @Test
     public void testBulkUpdate_malformedScripts() throws Exception {
 
@@ -452,4 +493,69 @@ public class BulkTests extends AbstractIntegrationTest {
         assertThat(successes, equalTo(1));
     }
 
+    @Test
+    public void testColumnarBulkOnReplicas() throws Exception {
+        cluster().ensureAtLeastNumNodes(2);
+        client().admin().indices().prepareCreate("test")
+                .setSettings(ImmutableSettings.settingsBuilder()
+                        .put("index.number_of_shards", 1)
+                        .put("index.number_of_replicas", 1)).execute().actionGet();
+        ensureGreen();
+
+        ColumnarSchema schema = new ColumnarSchema(new String[]{"count", "value", "flag", "name"},
+                new ColumnarSchema.Type[]{ColumnarSchema.Type.LONG, ColumnarSchema.Type.DOUBLE, ColumnarSchema.Type.BOOLEAN, ColumnarSchema.Type.STRING});
+        ColumnarBulkBuilder columnarBulk = new ColumnarBulkBuilder().block("test", "type1", schema);
+        int numDocs = 50;
+        for (int i = 0; i < numDocs; i++) {
+            columnarBulk.row(Integer.toString(i), i, i + 0.5, i % 2 == 0, i % 2 == 0 ? "even" : null);
+        }
+        BulkResponse bulkResponse = client().prepareBulk().add(columnarBulk).execute().actionGet();
+        assertThat(bulkResponse.hasFailures(), equalTo(false));
+        assertThat(bulkResponse.getItems().length, equalTo(numDocs));
+        refresh();
+
+        // the rows are sent to the replica as rows, and parsed there without going through their source
+        IndexShardRoutingTable shardRoutingTable = client().admin().cluster().prepareState().execute().actionGet()
+                .getState().routingTable().index("test").shard(0);
+        assertThat(shardRoutingTable.replicaShards().size(), equalTo(1));
+        String[] preferences = new String[]{
+                "_only_node:" + shardRoutingTable.primaryShard().currentNodeId(),
+                "_only_node:" + shardRoutingTable.replicaShards().get(0).currentNodeId()
+        };
+        for (String preference : preferences) {
+            for (int i = 0; i < numDocs; i++) {
+                GetResponse getResponse = client().prepareGet("test", "type1", Integer.toString(i)).setPreference(preference).execute().actionGet();
+                assertThat(getResponse.isExists(), equalTo(true));
+                Map<String, Object> source = getResponse.getSourceAsMap();
+                assertThat(((Number) source.get("count")).longValue(), equalTo((long) i));
+                assertThat(((Number) source.get("value")).doubleValue(), equalTo(i + 0.5));
+                assertThat((Boolean) source.get("flag"), equalTo(i % 2 == 0));
+                if (i % 2 == 0) {
+                    assertThat((String) source.get("name"), equalTo("even"));
+                } else {
+                    assertThat(source.containsKey("name"), equalTo(false));
+                }
+            }
+
+            SearchResponse searchResponse = client().prepareSearch("test").setPreference(preference).setSize(0)
+                    .setQuery(QueryBuilders.termQuery("name", "even")).execute().actionGet();
+            assertNoFailures(searchResponse);
+            assertThat(searchResponse.getHits().totalHits(), equalTo(25l));
+
+            searchResponse = client().prepareSearch("test").setPreference(preference).setSize(0)
+                    .setQuery(QueryBuilders.termQuery("flag", true)).execute().actionGet();
+            assertNoFailures(searchResponse);
+            assertThat(searchResponse.getHits().totalHits(), equalTo(25l));
+
+            searchResponse = client().prepareSearch("test").setPreference(preference).setSize(0)
+                    .setQuery(QueryBuilders.rangeQuery("count").gte(10).lt(20)).execute().actionGet();
+            assertNoFailures(searchResponse);
+            assertThat(searchResponse.getHits().totalHits(), equalTo(10l));
+
+            searchResponse = client().prepareSearch("test").setPreference(preference).setSize(0)
+                    .setQuery(QueryBuilders.rangeQuery("value").gt(39.0)).execute().actionGet();
+            assertNoFailures(searchResponse);
+            assertThat(searchResponse.getHits().totalHits(), equalTo(11l));
+        }
+    }
 }
@@ -26,6 +26,7 @@ import org.apache.lucene.document.Field;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.*;
 import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.common.Strings;
@@ -65,7 +66,9 @@ import java.util.Locale;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 
 /**
  */
@@ -222,6 +225,88 @@ public class SimpleIdCacheTests extends ElasticsearchTestCase {
         assertThat(typeCache.docById(new HashedBytesArray(Strings.toUTF8Bytes("8"))), equalTo(4));
     }
 
+    @Test
+    public void testGlobalOrdinals() throws Exception {
+        SimpleIdCache idCache = createSimpleIdCache(Tuple.tuple("child", "parent"));
+        IndexWriter writer = createIndexWriter();
+        writer.addDocument(doc("parent", "2"));
+        writer.addDocument(childDoc("child", "1", "parent", "2"));
+        writer.addDocument(childDoc("child", "2", "parent", "3"));
+        writer.commit();
+
+        writer.addDocument(childDoc("child", "3", "parent", "1"));
+        writer.addDocument(doc("parent", "3"));
+        writer.addDocument(doc("parent", "1"));
+        writer.addDocument(childDoc("child", "4", "parent", "2"));
+        writer.commit();
+
+        writer.close();
+        DirectoryReader topLevelReader = DirectoryReader.open(writer.getDirectory());
+        List<AtomicReaderContext> leaves = topLevelReader.getContext().leaves();
+        idCache.refresh(leaves);
+        GlobalIdOrdinals ordinals = idCache.globalOrdinals("parent", leaves);
+        assertThat(idCache.globalOrdinals("parent", leaves), sameInstance(ordinals));
+
+        assertThat(ordinals.numberOfOrds(), equalTo(3));
+        assertThat(ordinals.idByOrd(0, new BytesRef()).utf8ToString(), equalTo("1"));
+        assertThat(ordinals.idByOrd(1, new BytesRef()).utf8ToString(), equalTo("2"));
+        assertThat(ordinals.idByOrd(2, new BytesRef()).utf8ToString(), equalTo("3"));
+
+        GlobalIdOrdinals.Segment segment = ordinals.segment(leaves.get(0).reader());
+        assertThat(segment.ordByDoc(0), equalTo(1));
+        assertThat(segment.ordByDoc(1), equalTo(-1));
+        assertThat(segment.parentOrdByDoc(0), equalTo(-1));
+        assertThat(segment.parentOrdByDoc(1), equalTo(1));
+        assertThat(segment.parentOrdByDoc(2), equalTo(2));
+
+        segment = ordinals.segment(leaves.get(1).reader());
+        assertThat(segment.parentOrdByDoc(0), equalTo(0));
+        assertThat(segment.ordByDoc(1), equalTo(2));
+        assertThat(segment.ordByDoc(2), equalTo(0));
+        assertThat(segment.parentOrdByDoc(3), equalTo(1));
+
+        idCache.clear(leaves.get(1).reader());
+        assertThat(idCache.globalOrdinals("parent", leaves.subList(0, 1)).numberOfOrds(), equalTo(2));
+    }
+
+    @Test
+    public void testGlobalOrdinalsOfSupersededReaderAreEvicted() throws Exception {
+        SimpleIdCache idCache = createSimpleIdCache(Tuple.tuple("child", "parent"));
+        IndexWriter writer = createIndexWriter();
+        writer.addDocument(doc("parent", "1"));
+        writer.addDocument(childDoc("child", "1", "parent", "1"));
+        writer.commit();
+
+        DirectoryReader firstReader = DirectoryReader.open(writer, true);
+        List<AtomicReaderContext> firstLeaves = firstReader.getContext().leaves();
+        idCache.refresh(firstLeaves);
+        GlobalIdOrdinals firstOrdinals = idCache.globalOrdinals("parent", firstLeaves);
+        assertThat(idCache.globalOrdinals("parent", firstLeaves), sameInstance(firstOrdinals));
+
+        // refresh, the segment of the first reader is part of the second one as well
+        writer.addDocument(doc("parent", "2"));
+        writer.addDocument(childDoc("child", "2", "parent", "2"));
+        writer.commit();
+        DirectoryReader secondReader = DirectoryReader.openIfChanged(firstReader, writer, true);
+        List<AtomicReaderContext> secondLeaves = secondReader.getContext().leaves();
+        assertThat(secondLeaves.size(), equalTo(2));
+        idCache.refresh(secondLeaves);
+        GlobalIdOrdinals secondOrdinals = idCache.globalOrdinals("parent", secondLeaves);
+        assertThat(secondOrdinals.numberOfOrds(), equalTo(2));
+        assertThat(idCache.globalOrdinals("parent", secondLeaves), sameInstance(secondOrdinals));
+
+        // only the ordinals of the latest reader are kept, the first ones have to be built again
+        GlobalIdOrdinals rebuilt = idCache.globalOrdinals("parent", firstLeaves);
+        assertThat(rebuilt, not(sameInstance(firstOrdinals)));
+        assertThat(rebuilt.numberOfOrds(), equalTo(1));
+        // and building them again evicted the ones of the second reader
+        assertThat(idCache.globalOrdinals("parent", secondLeaves), not(sameInstance(secondOrdinals)));
+
+        firstReader.close();
+        secondReader.close();
+        writer.close();
+    }
+
     @Test(expected = AssertionError.class)
     public void testRefresh_tripAssert() throws Exception {
         SimpleIdCache idCache = createSimpleIdCache(Tuple.tuple("child", "parent"));
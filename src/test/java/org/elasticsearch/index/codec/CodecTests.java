@@ -19,6 +19,7 @@
 
 package org.elasticsearch.index.codec;
 
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
 import org.apache.lucene.codecs.Codec;
 import org.apache.lucene.codecs.bloom.BloomFilteringPostingsFormat;
 import org.apache.lucene.codecs.diskdv.DiskDocValuesFormat;
@@ -33,6 +34,12 @@ import org.apache.lucene.codecs.memory.MemoryPostingsFormat;
 import org.apache.lucene.codecs.perfield.PerFieldPostingsFormat;
 import org.apache.lucene.codecs.pulsing.Pulsing41PostingsFormat;
 import org.apache.lucene.codecs.simpletext.SimpleTextCodec;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.Directory;
 import org.elasticsearch.common.inject.Injector;
 import org.elasticsearch.common.inject.ModulesBuilder;
 import org.elasticsearch.common.settings.ImmutableSettings;
@@ -60,6 +67,7 @@ import java.util.Arrays;
 
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.not;
 
 public class CodecTests extends ElasticsearchLuceneTestCase {
     
@@ -397,6 +405,53 @@ public class CodecTests extends ElasticsearchLuceneTestCase {
         assertThat(documentMapper.rootMapper(VersionFieldMapper.class).docValuesFormatProvider().get(), instanceOf(DiskDocValuesFormat.class));
     }
 
+    @Test
+    public void testStoredFieldsCompression() throws Exception {
+        CodecService codecService = createCodecService(ImmutableSettings.settingsBuilder()
+                .put(CodecService.STORED_FIELDS_COMPRESSION, "high")
+                .put(CodecService.STORED_FIELDS_BLOCK_SIZE, "64kb").build());
+        Codec codec = codecService.codec("default");
+        assertThat(codec, instanceOf(StoredFieldsCompressionCodec.class));
+        assertThat(codec.getName(), equalTo(StoredFieldsCompressionCodec.HIGH_COMPRESSION_NAME));
+        // postings and doc values are still resolved from the mappings
+        assertThat(codec.postingsFormat(), instanceOf(PerFieldPostingsFormat.class));
+        assertStoredFieldsReadable(codec);
+
+        codecService = createCodecService(ImmutableSettings.settingsBuilder()
+                .put(CodecService.STORED_FIELDS_BLOCK_SIZE, "4kb").build());
+        codec = codecService.codec("default");
+        assertThat(codec, instanceOf(StoredFieldsCompressionCodec.class));
+        // the fast compression format is the default one, only the block size differs
+        assertThat(codec.getName(), equalTo("Lucene45"));
+        assertStoredFieldsReadable(codec);
+
+        codecService = createCodecService(ImmutableSettings.settingsBuilder()
+                .put(CodecService.STORED_FIELDS_COMPRESSION, "fast").build());
+        assertThat(codecService.codec("default"), not(instanceOf(StoredFieldsCompressionCodec.class)));
+    }
+
+    private void assertStoredFieldsReadable(Codec codec) throws IOException {
+        Directory dir = newDirectory();
+        IndexWriterConfig config = new IndexWriterConfig(TEST_VERSION_CURRENT, new KeywordAnalyzer());
+        config.setCodec(codec);
+        IndexWriter writer = new IndexWriter(dir, config);
+        int numDocs = 100 + random().nextInt(500);
+        for (int i = 0; i < numDocs; i++) {
+            Document doc = new Document();
+            doc.add(new StoredField("_source", "{\"field\":\"value" + i + "\"}"));
+            writer.addDocument(doc);
+        }
+        writer.close();
+        // segments are read back with the codec resolved by name
+        DirectoryReader reader = DirectoryReader.open(dir);
+        assertThat(reader.numDocs(), equalTo(numDocs));
+        for (int i = 0; i < numDocs; i++) {
+            assertThat(reader.document(i).get("_source"), equalTo("{\"field\":\"value" + i + "\"}"));
+        }
+        reader.close();
+        dir.close();
+    }
+
     private static CodecService createCodecService() {
         return createCodecService(ImmutableSettings.Builder.EMPTY_SETTINGS);
     }
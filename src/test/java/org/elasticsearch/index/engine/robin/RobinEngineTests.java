@@ -20,6 +20,7 @@
 package org.elasticsearch.index.engine.robin;
 
 import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.NumericDocValuesField;
@@ -374,6 +375,58 @@ public class RobinEngineTests extends ElasticsearchTestCase {
         engine.close();
     }
 
+    @Test
+    public void testRefreshStaleness() throws Exception {
+        assertThat(engine.refreshStaleness().millis(), equalTo(0l));
+
+        ParsedDocument doc = testParsedDocument("1", "1", "test", null, -1, -1, testDocumentWithTextField(), Lucene.STANDARD_ANALYZER, B_1, false);
+        engine.create(new Engine.Create(null, newUid("1"), doc));
+        assertThat(engine.refreshNeeded(), equalTo(true));
+        Thread.sleep(10);
+        assertThat(engine.refreshStaleness().millis(), greaterThan(0l));
+
+        engine.refresh(new Engine.Refresh("test").force(false));
+        assertThat(engine.refreshNeeded(), equalTo(false));
+        assertThat(engine.refreshStaleness().millis(), equalTo(0l));
+        Engine.Searcher searchResult = engine.acquireSearcher("test");
+        MatcherAssert.assertThat(searchResult, EngineSearcherTotalHitsMatcher.engineSearcherTotalHits(1));
+        searchResult.release();
+    }
+
+    @Test
+    public void testIndexingBufferRamUsed() throws Exception {
+        long initial = engine.indexingBufferRamUsed();
+
+        ParsedDocument doc = testParsedDocument("1", "1", "test", null, -1, -1, testDocumentWithTextField(), Lucene.STANDARD_ANALYZER, B_1, false);
+        engine.create(new Engine.Create(null, newUid("1"), doc));
+        long buffered = engine.indexingBufferRamUsed();
+        assertThat(buffered, greaterThan(initial));
+
+        // refreshing writes the buffered document to a segment
+        engine.refresh(new Engine.Refresh("test").force(false));
+        assertThat(engine.indexingBufferRamUsed(), lessThan(buffered));
+    }
+
+    @Test
+    public void testWriteIndexingBufferKeepsVisibility() throws Exception {
+        ParsedDocument doc = testParsedDocument("1", "1", "test", null, -1, -1, testDocumentWithTextField(), Lucene.STANDARD_ANALYZER, B_1, false);
+        engine.create(new Engine.Create(null, newUid("1"), doc));
+        long buffered = engine.indexingBufferRamUsed();
+
+        // writing the buffer frees it, but the document is not visible until the next refresh
+        engine.writeIndexingBuffer();
+        assertThat(engine.indexingBufferRamUsed(), lessThan(buffered));
+        assertThat(engine.refreshNeeded(), equalTo(true));
+        Engine.Searcher searchResult = engine.acquireSearcher("test");
+        MatcherAssert.assertThat(searchResult, EngineSearcherTotalHitsMatcher.engineSearcherTotalHits(0));
+        searchResult.release();
+
+        engine.refresh(new Engine.Refresh("test").force(false));
+        searchResult = engine.acquireSearcher("test");
+        MatcherAssert.assertThat(searchResult, EngineSearcherTotalHitsMatcher.engineSearcherTotalHits(1));
+        searchResult.release();
+    }
+
     @Test
     public void testSimpleOperations() throws Exception {
         Engine.Searcher searchResult = engine.acquireSearcher("test");
@@ -778,6 +831,82 @@ public class RobinEngineTests extends ElasticsearchTestCase {
         assertThat(index.version(), equalTo(1l));
     }
 
+    @Test
+    public void testBulk() throws Exception {
+        ParsedDocument doc = testParsedDocument("1", "1", "test", null, -1, -1, testDocument(), Lucene.STANDARD_ANALYZER, B_1, false);
+        engine.index(new Engine.Index(null, newUid("1"), doc));
+        engine.refresh(new Engine.Refresh("test").force(false));
+
+        ParsedDocument doc2 = testParsedDocument("2", "2", "test", null, -1, -1, testDocument(), Lucene.STANDARD_ANALYZER, B_2, false);
+        Engine.Bulk bulk = new Engine.Bulk(new Engine.IndexingOperation[]{
+                new Engine.Index(null, newUid("2"), doc2),
+                null,
+                new Engine.Index(null, newUid("1"), doc),
+                new Engine.Create(null, newUid("1"), doc),
+                new Engine.Index(null, newUid("2"), doc2).version(1l)
+        });
+        engine.bulk(bulk);
+
+        assertThat(bulk.failure(0), nullValue());
+        assertThat(((Engine.Index) bulk.ops()[0]).version(), equalTo(1l));
+        assertThat(bulk.failure(1), nullValue());
+        assertThat(bulk.failure(2), nullValue());
+        assertThat(((Engine.Index) bulk.ops()[2]).version(), equalTo(2l));
+        assertThat(bulk.failure(3), instanceOf(DocumentAlreadyExistsException.class));
+        assertThat(bulk.failure(4), nullValue());
+        assertThat(((Engine.Index) bulk.ops()[4]).version(), equalTo(2l));
+
+        engine.refresh(new Engine.Refresh("test").force(false));
+        Engine.Searcher searcher = engine.acquireSearcher("test");
+        MatcherAssert.assertThat(searcher, EngineSearcherTotalHitsMatcher.engineSearcherTotalHits(2));
+        searcher.release();
+    }
+
+    @Test
+    public void testBulkGroupWithFailingDocument() throws Exception {
+        ParsedDocument existing = testParsedDocument("0", "0", "test", null, -1, -1, testDocument(), Lucene.STANDARD_ANALYZER, B_1, false);
+        engine.index(new Engine.Index(null, newUid("0"), existing));
+
+        // new documents are added to the writer as a single block, one that fails analysis must only fail itself
+        int numOps = between(2, 100);
+        int failing = between(1, numOps - 1);
+        Engine.IndexingOperation[] ops = new Engine.IndexingOperation[numOps];
+        ops[0] = new Engine.Index(null, newUid("0"), existing);
+        for (int i = 1; i < numOps; i++) {
+            Document document = testDocument();
+            if (i == failing) {
+                document.add(new TextField("value", new TokenStream() {
+                    @Override
+                    public boolean incrementToken() throws IOException {
+                        throw new IOException("simulated analysis failure");
+                    }
+                }));
+            }
+            String id = Integer.toString(i);
+            ParsedDocument doc = testParsedDocument(id, id, "test", null, -1, -1, document, Lucene.STANDARD_ANALYZER, B_2, false);
+            ops[i] = randomBoolean() ? new Engine.Index(null, newUid(id), doc) : new Engine.Create(null, newUid(id), doc);
+        }
+        Engine.Bulk bulk = new Engine.Bulk(ops);
+        engine.bulk(bulk);
+
+        assertThat(bulk.failure(0), nullValue());
+        assertThat(((Engine.Index) ops[0]).version(), equalTo(2l));
+        assertThat(((Engine.Index) ops[0]).created(), equalTo(false));
+        for (int i = 1; i < numOps; i++) {
+            if (i == failing) {
+                assertThat(bulk.failure(i), notNullValue());
+            } else {
+                assertThat(bulk.failure(i), nullValue());
+            }
+        }
+
+        engine.refresh(new Engine.Refresh("test").force(false));
+        Engine.Searcher searcher = engine.acquireSearcher("test");
+        MatcherAssert.assertThat(searcher, EngineSearcherTotalHitsMatcher.engineSearcherTotalHits(numOps - 1));
+        MatcherAssert.assertThat(searcher, EngineSearcherTotalHitsMatcher.engineSearcherTotalHits(new TermQuery(newUid(Integer.toString(failing))), 0));
+        searcher.release();
+    }
+
     @Test
     public void testExternalVersioningNewIndex() {
         ParsedDocument doc = testParsedDocument("1", "1", "test", null, -1, -1, testDocument(), Lucene.STANDARD_ANALYZER, B_1, false);
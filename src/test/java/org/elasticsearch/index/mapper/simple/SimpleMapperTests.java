@@ -21,8 +21,10 @@ package org.elasticsearch.index.mapper.simple;
 
 import com.google.common.base.Charsets;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexableField;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.index.mapper.*;
 import org.elasticsearch.test.ElasticsearchTestCase;
 import org.junit.Test;
@@ -30,7 +32,7 @@ import org.junit.Test;
 import static org.elasticsearch.common.io.Streams.copyToBytesFromClasspath;
 import static org.elasticsearch.common.io.Streams.copyToStringFromClasspath;
 import static org.elasticsearch.index.mapper.MapperBuilders.*;
-import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.*;
 
 /**
  *
@@ -128,4 +130,39 @@ public class SimpleMapperTests extends ElasticsearchTestCase {
             assertThat(e.getMessage(), equalTo("failed to parse, document is empty"));
         }
     }
+
+    @Test
+    public void testReleasedDocumentFieldsAreReused() throws Exception {
+        String mapping = XContentFactory.jsonBuilder().startObject().startObject("person").startObject("properties")
+                .startObject("name").field("type", "string").field("store", "yes").endObject()
+                .startObject("age").field("type", "long").field("store", "yes").endObject()
+                .endObject().endObject().endObject().string();
+        DocumentMapper docMapper = MapperTestUtils.newParser().parse(mapping);
+
+        ParsedDocument parsed = docMapper.parse("person", "1", XContentFactory.jsonBuilder().startObject()
+                .field("name", "shay").field("age", 30).endObject().bytes());
+        Document doc = parsed.rootDoc();
+        IndexableField name = doc.getField("name");
+        IndexableField age = doc.getField("age");
+        assertThat(name.stringValue(), equalTo("shay"));
+        assertThat(age.numericValue().longValue(), equalTo(30l));
+
+        // not released, nothing is reused
+        ParsedDocument other = docMapper.parse("person", "2", XContentFactory.jsonBuilder().startObject()
+                .field("name", "kimchy").field("age", 31).endObject().bytes());
+        assertThat(other.rootDoc(), not(sameInstance(doc)));
+        assertThat(other.rootDoc().getField("name"), not(sameInstance(name)));
+        assertThat(name.stringValue(), equalTo("shay"));
+
+        parsed.release();
+        ParsedDocument reused = docMapper.parse("person", "3", XContentFactory.jsonBuilder().startObject()
+                .field("name", "banon").field("age", 32).endObject().bytes());
+        assertThat(reused.rootDoc(), sameInstance(doc));
+        assertThat(reused.rootDoc().getField("name"), sameInstance(name));
+        assertThat(reused.rootDoc().getField("age"), sameInstance(age));
+        assertThat(name.stringValue(), equalTo("banon"));
+        assertThat(age.numericValue().longValue(), equalTo(32l));
+        assertThat(reused.rootDoc().getFields("name").length, equalTo(1));
+        assertThat(reused.rootDoc().get("_uid"), equalTo("person#3"));
+    }
 }
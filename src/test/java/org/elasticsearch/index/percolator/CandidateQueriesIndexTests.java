@@ -0,0 +1,104 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.percolator;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.memory.MemoryIndex;
+import org.apache.lucene.search.*;
+import org.elasticsearch.common.lucene.HashedBytesRef;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.lucene.search.MatchNoDocsQuery;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ */
+public class CandidateQueriesIndexTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testExtractTerms() {
+        assertThat(CandidateQueriesIndex.extractTerms(new TermQuery(new Term("field", "value"))), contains(new Term("field", "value")));
+        assertThat(CandidateQueriesIndex.extractTerms(new MatchAllDocsQuery()), nullValue());
+
+        PhraseQuery phraseQuery = new PhraseQuery();
+        phraseQuery.add(new Term("field", "a"));
+        phraseQuery.add(new Term("field", "longest"));
+        assertThat(CandidateQueriesIndex.extractTerms(phraseQuery), contains(new Term("field", "longest")));
+
+        BooleanQuery disjunction = new BooleanQuery();
+        disjunction.add(new TermQuery(new Term("field", "a")), BooleanClause.Occur.SHOULD);
+        disjunction.add(new TermQuery(new Term("field", "b")), BooleanClause.Occur.SHOULD);
+        assertThat(CandidateQueriesIndex.extractTerms(disjunction), containsInAnyOrder(new Term("field", "a"), new Term("field", "b")));
+
+        // a single clause that can't be analyzed makes the whole disjunction unanalyzable
+        disjunction.add(new MatchAllDocsQuery(), BooleanClause.Occur.SHOULD);
+        assertThat(CandidateQueriesIndex.extractTerms(disjunction), nullValue());
+
+        BooleanQuery conjunction = new BooleanQuery();
+        conjunction.add(new MatchAllDocsQuery(), BooleanClause.Occur.MUST);
+        conjunction.add(new TermQuery(new Term("field", "c")), BooleanClause.Occur.MUST);
+        conjunction.add(new TermQuery(new Term("field", "d")), BooleanClause.Occur.SHOULD);
+        conjunction.add(new TermQuery(new Term("field", "e")), BooleanClause.Occur.MUST_NOT);
+        assertThat(CandidateQueriesIndex.extractTerms(conjunction), contains(new Term("field", "c")));
+
+        BooleanQuery prohibitedOnly = new BooleanQuery();
+        prohibitedOnly.add(new TermQuery(new Term("field", "e")), BooleanClause.Occur.MUST_NOT);
+        assertThat(CandidateQueriesIndex.extractTerms(prohibitedOnly), nullValue());
+    }
+
+    @Test
+    public void testCandidates() throws Exception {
+        CandidateQueriesIndex index = new CandidateQueriesIndex();
+        Query matching = new TermQuery(new Term("field", "brown"));
+        Query notMatching = new TermQuery(new Term("field", "green"));
+        Query otherField = new TermQuery(new Term("other", "brown"));
+        Query unanalyzable = new MatchNoDocsQuery();
+        Map<HashedBytesRef, Query> queries = ImmutableMap.of(
+                new HashedBytesRef("1"), matching,
+                new HashedBytesRef("2"), notMatching,
+                new HashedBytesRef("3"), otherField,
+                new HashedBytesRef("4"), unanalyzable
+        );
+        for (Map.Entry<HashedBytesRef, Query> entry : queries.entrySet()) {
+            index.add(entry.getKey(), entry.getValue());
+        }
+
+        MemoryIndex memoryIndex = new MemoryIndex();
+        memoryIndex.addField("field", "the quick brown fox", new WhitespaceAnalyzer(Lucene.VERSION));
+        IndexSearcher searcher = memoryIndex.createSearcher();
+
+        Map<HashedBytesRef, Query> candidates = index.candidates(searcher.getIndexReader(), queries);
+        assertThat(candidates.size(), equalTo(2));
+        assertThat(candidates.get(new HashedBytesRef("1")), sameInstance(matching));
+        assertThat(candidates.get(new HashedBytesRef("4")), sameInstance(unanalyzable));
+
+        // replacing and removing queries updates the candidates
+        index.add(new HashedBytesRef("2"), new TermQuery(new Term("field", "fox")));
+        index.remove(new HashedBytesRef("4"));
+        candidates = index.candidates(searcher.getIndexReader(), queries);
+        assertThat(candidates.keySet(), containsInAnyOrder(new HashedBytesRef("1"), new HashedBytesRef("2")));
+    }
+}
@@ -86,4 +86,17 @@ public class GeoHashUtilsTests extends ElasticsearchTestCase {
 
         assertEquals(geoHash, GeoHashUtils.encode(decode.lat(), decode.lon()));
     }
+
+    @Test
+    public void testEncodeAsLong() {
+        for (int i = 0; i < 1000; i++) {
+            double lat = randomDouble() * 180 - 90;
+            double lon = randomDouble() * 360 - 180;
+            for (int precision = 1; precision <= GeoHashUtils.PRECISION; precision++) {
+                long bits = GeoHashUtils.encodeAsLong(lat, lon, precision);
+                assertEquals(GeoHashUtils.encode(lat, lon, precision), GeoHashUtils.toString(bits, precision));
+            }
+        }
+        assertEquals("ezs42e44yx96", GeoHashUtils.toString(GeoHashUtils.encodeAsLong(42.6, -5.6, 12), 12));
+    }
 }
@@ -0,0 +1,89 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.shard;
+
+import com.google.common.base.Predicate;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.shard.service.InternalIndexShard;
+import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.test.AbstractIntegrationTest;
+import org.elasticsearch.test.AbstractIntegrationTest.ClusterScope;
+import org.elasticsearch.test.AbstractIntegrationTest.Scope;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitCount;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ */
+@ClusterScope(scope = Scope.TEST, numNodes = 1)
+public class AdaptiveRefreshTests extends AbstractIntegrationTest {
+
+    @Test
+    public void testIdleShardRefreshesOnSearch() throws Exception {
+        client().admin().indices().prepareCreate("test")
+                .setSettings(ImmutableSettings.builder()
+                        .put("index.number_of_shards", 1)
+                        .put("index.number_of_replicas", 0)
+                        .put(InternalIndexShard.INDEX_REFRESH_INTERVAL, "100ms")
+                        .put(InternalIndexShard.INDEX_REFRESH_ADAPTIVE, true)
+                        .put(InternalIndexShard.INDEX_REFRESH_IDLE_INTERVAL, "1h")
+                        .put(InternalIndexShard.INDEX_REFRESH_SEARCH_IDLE_AFTER, "2s"))
+                .get();
+        ensureGreen();
+        final InternalIndexShard shard = (InternalIndexShard) cluster().getInstance(IndicesService.class).indexServiceSafe("test").shardSafe(0);
+
+        logger.info("--> waiting for the shard to become search idle");
+        assertThat(awaitBusy(new Predicate<Object>() {
+            @Override
+            public boolean apply(Object input) {
+                return shard.effectiveRefreshInterval().millis() == TimeValue.timeValueHours(1).millis();
+            }
+        }), equalTo(true));
+        assertThat(shard.refreshStats().getIntervalInMillis(), equalTo(TimeValue.timeValueHours(1).millis()));
+
+        logger.info("--> indexing on the idle shard, the scheduled refresh backs off");
+        long refreshes = shard.refreshStats().getTotal();
+        client().prepareIndex("test", "type", "1").setSource("field", "value").get();
+        // several ticks of the configured refresh interval
+        Thread.sleep(500);
+        assertThat(shard.engine().refreshNeeded(), equalTo(true));
+        assertThat(shard.refreshStats().getTotal(), equalTo(refreshes));
+
+        logger.info("--> the first search refreshes the shard");
+        assertHitCount(client().prepareSearch("test").get(), 1);
+        assertThat(shard.engine().refreshNeeded(), equalTo(false));
+        assertThat(shard.refreshStats().getTotal(), equalTo(refreshes + 1));
+
+        logger.info("--> the searched shard is back to the configured refresh interval");
+        assertThat(shard.effectiveRefreshInterval().millis(), equalTo(100l));
+        client().prepareIndex("test", "type", "2").setSource("field", "value").get();
+        assertThat(awaitBusy(new Predicate<Object>() {
+            @Override
+            public boolean apply(Object input) {
+                return !shard.engine().refreshNeeded();
+            }
+        }, 1, TimeUnit.SECONDS), equalTo(true));
+        assertHitCount(client().prepareSearch("test").get(), 2);
+    }
+}
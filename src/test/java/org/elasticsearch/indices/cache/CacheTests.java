@@ -23,9 +23,11 @@ import org.elasticsearch.action.admin.cluster.node.stats.NodesStatsResponse;
 import org.elasticsearch.action.admin.indices.stats.CommonStatsFlags;
 import org.elasticsearch.action.admin.indices.stats.IndicesStatsResponse;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.common.settings.ImmutableSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.query.FilterBuilders;
+import org.elasticsearch.indices.cache.filter.IndicesFilterCache;
 import org.elasticsearch.search.sort.SortOrder;
 import org.elasticsearch.test.AbstractIntegrationTest;
 import org.elasticsearch.test.AbstractIntegrationTest.ClusterScope;
@@ -44,7 +46,79 @@ public class CacheTests extends AbstractIntegrationTest {
     @Override
     protected Settings nodeSettings(int nodeOrdinal) {
         //Filter cache is cleaned periodically, default is 60s, so make sure it runs often. Thread.sleep for 60s is bad
-        return  ImmutableSettings.settingsBuilder().put(super.nodeSettings(nodeOrdinal)).put("indices.cache.filter.clean_interval", "1ms").build();
+        //Cache filters on first use, even on the tiny segments these tests create
+        return  ImmutableSettings.settingsBuilder().put(super.nodeSettings(nodeOrdinal)).put("indices.cache.filter.clean_interval", "1ms")
+                .put(IndicesFilterCache.INDICES_CACHE_FILTER_ADMISSION_MIN_FREQUENCY, 1)
+                .put(IndicesFilterCache.INDICES_CACHE_FILTER_ADMISSION_TERM_FILTER_MIN_DOCS, 0).build();
+    }
+
+    @Test
+    public void testFilterCacheAdmission() {
+        client().admin().cluster().prepareUpdateSettings().setTransientSettings(ImmutableSettings.settingsBuilder().put(IndicesFilterCache.INDICES_CACHE_FILTER_ADMISSION_MIN_FREQUENCY, 2)).execute().actionGet();
+        try {
+            client().admin().indices().prepareCreate("test").setSettings(ImmutableSettings.settingsBuilder().put("index.number_of_shards", 1)).execute().actionGet();
+            client().prepareIndex("test", "type", "1").setSource("field", "value").execute().actionGet();
+            client().admin().indices().prepareRefresh().execute().actionGet();
+
+            // used once, the filter is executed but not cached
+            SearchResponse searchResponse = client().prepareSearch().setQuery(filteredQuery(matchAllQuery(), FilterBuilders.termFilter("field", "value"))).execute().actionGet();
+            assertThat(searchResponse.getHits().getHits().length, equalTo(1));
+            IndicesStatsResponse indicesStats = client().admin().indices().prepareStats("test").clear().setFilterCache(true).execute().actionGet();
+            assertThat(indicesStats.getTotal().getFilterCache().getMemorySizeInBytes(), equalTo(0l));
+            assertThat(indicesStats.getTotal().getFilterCache().getAdmissions(), equalTo(0l));
+            assertThat(indicesStats.getTotal().getFilterCache().getRejections(), equalTo(1l));
+
+            // used again, now it gets cached
+            searchResponse = client().prepareSearch().setQuery(filteredQuery(matchAllQuery(), FilterBuilders.termFilter("field", "value"))).execute().actionGet();
+            assertThat(searchResponse.getHits().getHits().length, equalTo(1));
+            indicesStats = client().admin().indices().prepareStats("test").clear().setFilterCache(true).execute().actionGet();
+            assertThat(indicesStats.getTotal().getFilterCache().getMemorySizeInBytes(), greaterThan(0l));
+            assertThat(indicesStats.getTotal().getFilterCache().getAdmissions(), equalTo(1l));
+            assertThat(indicesStats.getTotal().getFilterCache().getRejections(), equalTo(1l));
+        } finally {
+            client().admin().cluster().prepareUpdateSettings().setTransientSettings(ImmutableSettings.settingsBuilder().put(IndicesFilterCache.INDICES_CACHE_FILTER_ADMISSION_MIN_FREQUENCY, 1)).execute().actionGet();
+        }
+    }
+
+    @Test
+    public void testQueryCache() {
+        client().admin().indices().prepareCreate("test").setSettings(ImmutableSettings.settingsBuilder().put("index.number_of_shards", 1)).execute().actionGet();
+        client().prepareIndex("test", "type", "1").setSource("field", "value").execute().actionGet();
+        client().admin().indices().prepareRefresh().execute().actionGet();
+
+        SearchResponse searchResponse = client().prepareSearch("test").setSearchType(SearchType.COUNT).setQueryCache(true)
+                .setQuery(filteredQuery(matchAllQuery(), FilterBuilders.termFilter("field", "value"))).execute().actionGet();
+        assertThat(searchResponse.getHits().getTotalHits(), equalTo(1l));
+        IndicesStatsResponse indicesStats = client().admin().indices().prepareStats("test").clear().setQueryCache(true).execute().actionGet();
+        assertThat(indicesStats.getTotal().getQueryCache().getMemorySizeInBytes(), greaterThan(0l));
+        assertThat(indicesStats.getTotal().getQueryCache().getHitCount(), equalTo(0l));
+        assertThat(indicesStats.getTotal().getQueryCache().getMissCount(), equalTo(1l));
+
+        // same request on the same reader, served from the cache
+        searchResponse = client().prepareSearch("test").setSearchType(SearchType.COUNT).setQueryCache(true)
+                .setQuery(filteredQuery(matchAllQuery(), FilterBuilders.termFilter("field", "value"))).execute().actionGet();
+        assertThat(searchResponse.getHits().getTotalHits(), equalTo(1l));
+        indicesStats = client().admin().indices().prepareStats("test").clear().setQueryCache(true).execute().actionGet();
+        assertThat(indicesStats.getTotal().getQueryCache().getHitCount(), equalTo(1l));
+        assertThat(indicesStats.getTotal().getQueryCache().getMissCount(), equalTo(1l));
+
+        // a refresh that changes the shard invalidates the cached result
+        client().prepareIndex("test", "type", "2").setSource("field", "value").execute().actionGet();
+        client().admin().indices().prepareRefresh().execute().actionGet();
+        searchResponse = client().prepareSearch("test").setSearchType(SearchType.COUNT).setQueryCache(true)
+                .setQuery(filteredQuery(matchAllQuery(), FilterBuilders.termFilter("field", "value"))).execute().actionGet();
+        assertThat(searchResponse.getHits().getTotalHits(), equalTo(2l));
+        indicesStats = client().admin().indices().prepareStats("test").clear().setQueryCache(true).execute().actionGet();
+        assertThat(indicesStats.getTotal().getQueryCache().getHitCount(), equalTo(1l));
+        assertThat(indicesStats.getTotal().getQueryCache().getMissCount(), equalTo(2l));
+
+        // requests that did not opt in are never cached
+        searchResponse = client().prepareSearch("test").setSearchType(SearchType.COUNT)
+                .setQuery(filteredQuery(matchAllQuery(), FilterBuilders.termFilter("field", "value"))).execute().actionGet();
+        assertThat(searchResponse.getHits().getTotalHits(), equalTo(2l));
+        indicesStats = client().admin().indices().prepareStats("test").clear().setQueryCache(true).execute().actionGet();
+        assertThat(indicesStats.getTotal().getQueryCache().getHitCount(), equalTo(1l));
+        assertThat(indicesStats.getTotal().getQueryCache().getMissCount(), equalTo(2l));
     }
 
     @Test
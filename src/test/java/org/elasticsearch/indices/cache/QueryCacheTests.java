@@ -0,0 +1,111 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.cache;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Predicate;
+import org.elasticsearch.action.admin.indices.stats.IndicesStatsResponse;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.query.FilterBuilders;
+import org.elasticsearch.test.AbstractIntegrationTest;
+import org.elasticsearch.test.AbstractIntegrationTest.ClusterScope;
+import org.elasticsearch.test.AbstractIntegrationTest.Scope;
+import org.junit.Test;
+
+import java.util.Set;
+
+import static org.elasticsearch.index.query.QueryBuilders.filteredQuery;
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ */
+@ClusterScope(scope = Scope.TEST, numNodes = 2)
+public class QueryCacheTests extends AbstractIntegrationTest {
+
+    @Test
+    public void testQueryCacheWithSeveralShardsOnRemoteNode() {
+        // all the shards on a single node, searched from the other one, so the shard requests are batched
+        final Set<String> dataNode = cluster().nRandomNodes(1);
+        client().admin().indices().prepareCreate("test").setSettings(ImmutableSettings.settingsBuilder()
+                .put("index.number_of_shards", 3).put("index.number_of_replicas", 0)
+                .put("index.routing.allocation.include._name", Joiner.on(',').join(dataNode))).execute().actionGet();
+        ensureGreen();
+        for (int i = 0; i < 10; i++) {
+            client().prepareIndex("test", "type", Integer.toString(i)).setSource("field", "value").execute().actionGet();
+        }
+        client().admin().indices().prepareRefresh().execute().actionGet();
+
+        Client client = cluster().client(new Predicate<Settings>() {
+            @Override
+            public boolean apply(Settings input) {
+                return !dataNode.contains(input.get("name"));
+            }
+        });
+
+        SearchResponse searchResponse = client.prepareSearch("test").setSearchType(SearchType.COUNT).setQueryCache(true)
+                .setQuery(filteredQuery(matchAllQuery(), FilterBuilders.termFilter("field", "value"))).execute().actionGet();
+        assertThat(searchResponse.getHits().getTotalHits(), equalTo(10l));
+        IndicesStatsResponse indicesStats = client().admin().indices().prepareStats("test").clear().setQueryCache(true).execute().actionGet();
+        assertThat(indicesStats.getTotal().getQueryCache().getHitCount(), equalTo(0l));
+        assertThat(indicesStats.getTotal().getQueryCache().getMissCount(), equalTo(3l));
+
+        searchResponse = client.prepareSearch("test").setSearchType(SearchType.COUNT).setQueryCache(true)
+                .setQuery(filteredQuery(matchAllQuery(), FilterBuilders.termFilter("field", "value"))).execute().actionGet();
+        assertThat(searchResponse.getHits().getTotalHits(), equalTo(10l));
+        indicesStats = client().admin().indices().prepareStats("test").clear().setQueryCache(true).execute().actionGet();
+        assertThat(indicesStats.getTotal().getQueryCache().getHitCount(), equalTo(3l));
+        assertThat(indicesStats.getTotal().getQueryCache().getMissCount(), equalTo(3l));
+    }
+
+    @Test
+    public void testQueryCacheSkipsRequestsUsingNow() {
+        client().admin().indices().prepareCreate("test").setSettings(ImmutableSettings.settingsBuilder()
+                .put("index.number_of_shards", 1).put("index.number_of_replicas", 0))
+                .addMapping("type", "date", "type=date").execute().actionGet();
+        ensureGreen();
+        client().prepareIndex("test", "type", "1").setSource("date", "2013-01-01").execute().actionGet();
+        client().admin().indices().prepareRefresh().execute().actionGet();
+
+        // the result depends on the time of the request, so it is not cached
+        for (int i = 0; i < 2; i++) {
+            SearchResponse searchResponse = client().prepareSearch("test").setSearchType(SearchType.COUNT).setQueryCache(true)
+                    .setQuery(filteredQuery(matchAllQuery(), FilterBuilders.rangeFilter("date").lt("now-1h"))).execute().actionGet();
+            assertThat(searchResponse.getHits().getTotalHits(), equalTo(1l));
+        }
+        IndicesStatsResponse indicesStats = client().admin().indices().prepareStats("test").clear().setQueryCache(true).execute().actionGet();
+        assertThat(indicesStats.getTotal().getQueryCache().getHitCount(), equalTo(0l));
+        assertThat(indicesStats.getTotal().getQueryCache().getMissCount(), equalTo(0l));
+
+        // fixed dates are
+        for (int i = 0; i < 2; i++) {
+            SearchResponse searchResponse = client().prepareSearch("test").setSearchType(SearchType.COUNT).setQueryCache(true)
+                    .setQuery(filteredQuery(matchAllQuery(), FilterBuilders.rangeFilter("date").lt("2014-01-01"))).execute().actionGet();
+            assertThat(searchResponse.getHits().getTotalHits(), equalTo(1l));
+        }
+        indicesStats = client().admin().indices().prepareStats("test").clear().setQueryCache(true).execute().actionGet();
+        assertThat(indicesStats.getTotal().getQueryCache().getHitCount(), equalTo(1l));
+        assertThat(indicesStats.getTotal().getQueryCache().getMissCount(), equalTo(1l));
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.memory;
+
+import com.google.common.base.Predicate;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.indexing.IndexingStats;
+import org.elasticsearch.test.AbstractIntegrationTest;
+import org.elasticsearch.test.AbstractIntegrationTest.ClusterScope;
+import org.elasticsearch.test.AbstractIntegrationTest.Scope;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitCount;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ */
+@ClusterScope(scope = Scope.SUITE, numNodes = 1)
+public class IndexBufferPressureTests extends AbstractIntegrationTest {
+
+    @Override
+    protected Settings nodeSettings(int nodeOrdinal) {
+        return ImmutableSettings.settingsBuilder()
+                .put("indices.memory.index_buffer_allocation", "demand")
+                .put("indices.memory.index_buffer_size", "1mb")
+                .put("indices.memory.interval", "100ms")
+                .put("indices.memory.pressure_interval", "50ms")
+                .put(super.nodeSettings(nodeOrdinal)).build();
+    }
+
+    @Test
+    public void testPressureWritesBuffersWithoutRefreshing() throws Exception {
+        client().admin().indices().prepareCreate("test").setSettings(settingsBuilder()
+                .put("index.number_of_shards", 2)
+                .put("index.number_of_replicas", 0)
+                .put("index.refresh_interval", -1)
+                // a translog flush refreshes, keep it from making the documents visible
+                .put("index.translog.disable_flush", true))
+                .get();
+        ensureGreen();
+
+        int docs = 0;
+        boolean written = false;
+        for (int round = 0; round < 20 && !written; round++) {
+            BulkRequestBuilder bulk = client().prepareBulk();
+            for (int i = 0; i < 500; i++, docs++) {
+                StringBuilder text = new StringBuilder();
+                for (int j = 0; j < 20; j++) {
+                    text.append("term").append(docs * 20 + j).append(' ');
+                }
+                bulk.add(client().prepareIndex("test", "type", Integer.toString(docs)).setSource("field", text.toString()));
+            }
+            assertThat(bulk.get().hasFailures(), equalTo(false));
+            written = awaitBusy(new Predicate<Object>() {
+                @Override
+                public boolean apply(Object input) {
+                    return pressureWrites() > 0;
+                }
+            }, 1, TimeUnit.SECONDS);
+        }
+        assertThat("the buffers of " + docs + " documents never exceeded the budget", written, equalTo(true));
+
+        // the buffers were written to segments, but the refresh interval still decides when the documents show up
+        assertHitCount(client().prepareCount("test").get(), 0);
+        refresh();
+        assertHitCount(client().prepareCount("test").get(), docs);
+    }
+
+    private long pressureWrites() {
+        IndexingStats indexing = client().admin().indices().prepareStats("test").clear().setIndexing(true).get().getTotal().getIndexing();
+        Map<String, Long> writes = indexing.getIndexBufferWrites();
+        if (writes == null || !writes.containsKey(IndexingMemoryController.PRESSURE_WRITE)) {
+            return 0;
+        }
+        return writes.get(IndexingMemoryController.PRESSURE_WRITE);
+    }
+}
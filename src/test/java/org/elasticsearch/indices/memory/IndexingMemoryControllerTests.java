@@ -0,0 +1,73 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.memory;
+
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ */
+public class IndexingMemoryControllerTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testEvenAllocation() {
+        IndexingMemoryController controller = controller(settingsBuilder()
+                .put("indices.memory.index_buffer_size", "100mb")
+                .build());
+        assertThat(controller.shardIndexingBufferSize(4).bytes(), equalTo(ByteSizeUnit.MB.toBytes(25)));
+        // never below min_shard_index_buffer_size
+        assertThat(controller.shardIndexingBufferSize(100).bytes(), equalTo(ByteSizeUnit.MB.toBytes(4)));
+    }
+
+    @Test
+    public void testDemandAllocation() {
+        IndexingMemoryController controller = controller(settingsBuilder()
+                .put("indices.memory.index_buffer_size", "100mb")
+                .put("indices.memory.index_buffer_allocation", "demand")
+                .build());
+        // each shard may use the whole budget, however many shards are active
+        assertThat(controller.shardIndexingBufferSize(1).bytes(), equalTo(ByteSizeUnit.MB.toBytes(100)));
+        assertThat(controller.shardIndexingBufferSize(100).bytes(), equalTo(ByteSizeUnit.MB.toBytes(100)));
+
+        controller = controller(settingsBuilder()
+                .put("indices.memory.index_buffer_size", "100mb")
+                .put("indices.memory.max_shard_index_buffer_size", "32mb")
+                .put("indices.memory.index_buffer_allocation", "demand")
+                .build());
+        assertThat(controller.shardIndexingBufferSize(1).bytes(), equalTo(ByteSizeUnit.MB.toBytes(32)));
+        assertThat(controller.shardIndexingBufferSize(100).bytes(), equalTo(ByteSizeUnit.MB.toBytes(32)));
+    }
+
+    @Test(expected = ElasticSearchIllegalArgumentException.class)
+    public void testUnknownAllocation() {
+        controller(settingsBuilder().put("indices.memory.index_buffer_allocation", "greedy").build());
+    }
+
+    private static IndexingMemoryController controller(Settings settings) {
+        // the thread pool and indices service are only used once started
+        return new IndexingMemoryController(settings, null, null);
+    }
+}
@@ -297,7 +297,7 @@ public class SimpleIndexStatsTests extends AbstractIntegrationTest {
     @Test
     public void testFlagOrdinalOrder() {
         Flag[] flags = new Flag[]{Flag.Store, Flag.Indexing, Flag.Get, Flag.Search, Flag.Merge, Flag.Flush, Flag.Refresh,
-                Flag.FilterCache, Flag.IdCache, Flag.FieldData, Flag.Docs, Flag.Warmer, Flag.Percolate, Flag.Completion};
+                Flag.FilterCache, Flag.IdCache, Flag.FieldData, Flag.Docs, Flag.Warmer, Flag.Percolate, Flag.Completion, Flag.QueryCache};
 
         assertThat(flags.length, equalTo(Flag.values().length));
         for (int i = 0; i < flags.length; i++) {
@@ -349,6 +349,9 @@ public class SimpleIndexStatsTests extends AbstractIntegrationTest {
             case Completion:
                 builder.setCompletion(set);
                 break;
+            case QueryCache:
+                builder.setQueryCache(set);
+                break;
             default:
                 assert false : "new flag? " + flag;
                 break;
@@ -385,6 +388,8 @@ public class SimpleIndexStatsTests extends AbstractIntegrationTest {
                 return response.getPercolate() != null;
             case Completion:
                 return response.getCompletion() != null;
+            case QueryCache:
+                return response.getQueryCache() != null;
             default:
                 assert false : "new flag? " + flag;
                 return false;
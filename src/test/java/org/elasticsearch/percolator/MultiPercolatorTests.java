@@ -111,6 +111,60 @@ public class MultiPercolatorTests extends AbstractIntegrationTest {
         assertThat(item.errorMessage(), containsString("document missing"));
     }
 
+    @Test
+    public void testBatchedAndSingleItems() throws Exception {
+        client().admin().indices().prepareCreate("test")
+                .setSettings(ImmutableSettings.settingsBuilder().put("index.number_of_shards", 1).build())
+                .execute().actionGet();
+        ensureGreen();
+
+        logger.info("--> register a queries");
+        client().prepareIndex("test", "_percolator", "1")
+                .setSource(jsonBuilder().startObject().field("query", matchQuery("field1", "b")).field("group", "a").endObject())
+                .execute().actionGet();
+        client().prepareIndex("test", "_percolator", "2")
+                .setSource(jsonBuilder().startObject().field("query", matchQuery("field1", "c")).field("group", "b").endObject())
+                .execute().actionGet();
+        client().prepareIndex("test", "_percolator", "3")
+                .setSource(jsonBuilder().startObject().field("query", matchAllQuery()).field("group", "a").endObject())
+                .execute().actionGet();
+        client().admin().indices().prepareRefresh("test").execute().actionGet();
+
+        MultiPercolateResponse response = client().prepareMultiPercolate()
+                .add(client().preparePercolate() // batched
+                        .setIndices("test").setDocumentType("type")
+                        .setPercolateDoc(docBuilder().setDoc(jsonBuilder().startObject().field("field1", "b").endObject())))
+                .add(client().preparePercolate() // percolated on its own because of the query
+                        .setIndices("test").setDocumentType("type")
+                        .setPercolateQuery(termQuery("group", "a"))
+                        .setPercolateDoc(docBuilder().setDoc(jsonBuilder().startObject().field("field1", "c").endObject())))
+                .add(client().preparePercolate() // batched count
+                        .setIndices("test").setDocumentType("type").setOnlyCount(true)
+                        .setPercolateDoc(docBuilder().setDoc(jsonBuilder().startObject().field("field1", "b c").endObject())))
+                .add(client().preparePercolate() // batched with a size
+                        .setIndices("test").setDocumentType("type").setSize(1)
+                        .setPercolateDoc(docBuilder().setDoc(jsonBuilder().startObject().field("field1", "b c").endObject())))
+                .execute().actionGet();
+
+        MultiPercolateResponse.Item item = response.getItems()[0];
+        assertNoFailures(item.response());
+        assertThat(convertFromTextArray(item.getResponse().getMatches(), "test"), arrayContainingInAnyOrder("1", "3"));
+
+        item = response.getItems()[1];
+        assertNoFailures(item.response());
+        assertThat(convertFromTextArray(item.getResponse().getMatches(), "test"), arrayContaining("3"));
+
+        item = response.getItems()[2];
+        assertNoFailures(item.response());
+        assertThat(item.getResponse().getCount(), equalTo(3l));
+        assertThat(item.getResponse().getMatches(), emptyArray());
+
+        item = response.getItems()[3];
+        assertNoFailures(item.response());
+        assertThat(item.getResponse().getCount(), equalTo(3l));
+        assertThat(item.getResponse().getMatches(), arrayWithSize(1));
+    }
+
     @Test
     public void testExistingDocsOnly() throws Exception {
         client().admin().indices().prepareCreate("test")
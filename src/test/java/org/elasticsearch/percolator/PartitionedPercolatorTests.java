@@ -0,0 +1,131 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.percolator;
+
+import org.elasticsearch.action.percolate.PercolateResponse;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.test.AbstractIntegrationTest;
+import org.elasticsearch.test.AbstractIntegrationTest.ClusterScope;
+import org.elasticsearch.test.AbstractIntegrationTest.Scope;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.elasticsearch.action.percolate.PercolateSourceBuilder.docBuilder;
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.index.query.QueryBuilders.*;
+import static org.elasticsearch.index.query.functionscore.ScoreFunctionBuilders.scriptFunction;
+import static org.elasticsearch.percolator.PercolatorTests.convertFromTextArray;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertNoFailures;
+import static org.hamcrest.Matchers.*;
+
+/**
+ */
+@ClusterScope(scope = Scope.TEST)
+public class PartitionedPercolatorTests extends AbstractIntegrationTest {
+
+    @Override
+    protected Settings nodeSettings(int nodeOrdinal) {
+        return settingsBuilder()
+                .put(super.nodeSettings(nodeOrdinal))
+                .put("percolator.partitions", 4)
+                .put("percolator.partition_min_queries", 2)
+                .build();
+    }
+
+    @Test
+    public void testPartitionedPercolation() throws Exception {
+        client().admin().indices().prepareCreate("test")
+                .setSettings(settingsBuilder().put("index.number_of_shards", 1))
+                .execute().actionGet();
+        ensureGreen();
+
+        int numQueries = randomIntBetween(20, 100);
+        Set<String> expectedMatches = new HashSet<String>();
+        for (int i = 0; i < numQueries; i++) {
+            String value = i % 3 == 0 ? "b" : "a";
+            if ("b".equals(value)) {
+                expectedMatches.add(Integer.toString(i));
+            }
+            client().prepareIndex("test", "_percolator", Integer.toString(i))
+                    .setSource(jsonBuilder().startObject()
+                            .field("query", termQuery("field1", value))
+                            .field("level", i)
+                            .endObject())
+                    .execute().actionGet();
+        }
+        refresh();
+        String[] expected = expectedMatches.toArray(new String[expectedMatches.size()]);
+
+        PercolateResponse response = client().preparePercolate().setIndices("test").setDocumentType("type")
+                .setPercolateDoc(docBuilder().setDoc(jsonBuilder().startObject().field("field1", "b").endObject()))
+                .execute().actionGet();
+        assertNoFailures(response);
+        assertThat(response.getCount(), equalTo((long) expected.length));
+        assertThat(convertFromTextArray(response.getMatches(), "test"), arrayContainingInAnyOrder(expected));
+
+        response = client().preparePercolate().setIndices("test").setDocumentType("type")
+                .setOnlyCount(true)
+                .setPercolateDoc(docBuilder().setDoc(jsonBuilder().startObject().field("field1", "b").endObject()))
+                .execute().actionGet();
+        assertNoFailures(response);
+        assertThat(response.getCount(), equalTo((long) expected.length));
+
+        response = client().preparePercolate().setIndices("test").setDocumentType("type")
+                .setOnlyCount(true)
+                .setPercolateQuery(matchAllQuery())
+                .setPercolateDoc(docBuilder().setDoc(jsonBuilder().startObject().field("field1", "b").endObject()))
+                .execute().actionGet();
+        assertNoFailures(response);
+        assertThat(response.getCount(), equalTo((long) expected.length));
+
+        response = client().preparePercolate().setIndices("test").setDocumentType("type")
+                .setPercolateQuery(matchAllQuery())
+                .setPercolateDoc(docBuilder().setDoc(jsonBuilder().startObject().field("field1", "b").endObject()))
+                .execute().actionGet();
+        assertNoFailures(response);
+        assertThat(response.getCount(), equalTo((long) expected.length));
+        assertThat(convertFromTextArray(response.getMatches(), "test"), arrayContainingInAnyOrder(expected));
+
+        response = client().preparePercolate().setIndices("test").setDocumentType("type")
+                .setScore(true)
+                .setPercolateQuery(functionScoreQuery(matchAllQuery(), scriptFunction("doc['level'].value")))
+                .setPercolateDoc(docBuilder().setDoc(jsonBuilder().startObject().field("field1", "b").endObject()))
+                .execute().actionGet();
+        assertNoFailures(response);
+        assertThat(response.getCount(), equalTo((long) expected.length));
+        assertThat(convertFromTextArray(response.getMatches(), "test"), arrayContainingInAnyOrder(expected));
+        for (PercolateResponse.Match match : response) {
+            assertThat((int) match.getScore(), equalTo(Integer.valueOf(match.getId().string())));
+        }
+
+        int size = randomIntBetween(1, expected.length);
+        response = client().preparePercolate().setIndices("test").setDocumentType("type")
+                .setSize(size)
+                .setPercolateDoc(docBuilder().setDoc(jsonBuilder().startObject().field("field1", "b").endObject()))
+                .execute().actionGet();
+        assertNoFailures(response);
+        assertThat(response.getCount(), equalTo((long) expected.length));
+        assertThat(response.getMatches().length, equalTo(size));
+    }
+
+}
@@ -0,0 +1,160 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.geo;
+
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.geo.GeoHashUtils;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.search.facet.geohashgrid.GeoHashGridFacet;
+import org.elasticsearch.test.AbstractIntegrationTest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.search.facet.FacetBuilders.geoHashGridFacet;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertNoFailures;
+import static org.hamcrest.Matchers.*;
+
+/**
+ */
+public class GeoHashGridFacetTests extends AbstractIntegrationTest {
+
+    private Map<String, Long> indexRandomPoints(int numDocs, int precision) throws Exception {
+        String mapping = XContentFactory.jsonBuilder().startObject().startObject("type1")
+                .startObject("properties").startObject("location").field("type", "geo_point").endObject().endObject()
+                .endObject().endObject().string();
+        client().admin().indices().prepareCreate("test").setSettings(settingsBuilder().put("index.number_of_shards", between(1, 5)))
+                .addMapping("type1", mapping).execute().actionGet();
+        ensureGreen();
+
+        Map<String, Long> expected = new HashMap<String, Long>();
+        List<IndexRequestBuilder> builders = new ArrayList<IndexRequestBuilder>();
+        for (int i = 0; i < numDocs; i++) {
+            // keep the points close to each other, so that cells hold several of them
+            double lat = 40 + randomDouble() * 10;
+            double lon = -75 + randomDouble() * 10;
+            builders.add(client().prepareIndex("test", "type1", Integer.toString(i)).setSource(jsonBuilder().startObject()
+                    .startObject("location").field("lat", lat).field("lon", lon).endObject()
+                    .endObject()));
+            String geohash = GeoHashUtils.encode(lat, lon, precision);
+            Long count = expected.get(geohash);
+            expected.put(geohash, count == null ? 1 : count + 1);
+        }
+        indexRandom(true, builders.toArray(new IndexRequestBuilder[builders.size()]));
+        return expected;
+    }
+
+    @Test
+    public void testCellCounts() throws Exception {
+        int precision = between(1, 4);
+        Map<String, Long> expected = indexRandomPoints(between(50, 500), precision);
+
+        SearchResponse searchResponse = client().prepareSearch("test").setQuery(matchAllQuery())
+                .addFacet(geoHashGridFacet("grid").field("location").precision(precision))
+                .execute().actionGet();
+        assertNoFailures(searchResponse);
+
+        GeoHashGridFacet facet = searchResponse.getFacets().facet("grid");
+        assertThat(facet.getPrecision(), equalTo(precision));
+        assertThat(facet.getCells().size(), equalTo(expected.size()));
+        long previousCount = Long.MAX_VALUE;
+        for (GeoHashGridFacet.Cell cell : facet) {
+            assertThat(cell.getGeoHash().length(), equalTo(precision));
+            assertThat(cell.getCount(), equalTo(expected.get(cell.getGeoHash())));
+            assertThat(cell.getCount(), lessThanOrEqualTo(previousCount));
+            previousCount = cell.getCount();
+        }
+
+        // only the cells with the highest counts are returned
+        searchResponse = client().prepareSearch("test").setQuery(matchAllQuery())
+                .addFacet(geoHashGridFacet("grid").field("location").precision(precision).size(1).shardSize(10000))
+                .execute().actionGet();
+        assertNoFailures(searchResponse);
+        facet = searchResponse.getFacets().facet("grid");
+        assertThat(facet.getCells().size(), equalTo(1));
+        long maxCount = 0;
+        for (Long count : expected.values()) {
+            maxCount = Math.max(maxCount, count);
+        }
+        assertThat(facet.getCells().get(0).getCount(), equalTo(maxCount));
+    }
+
+    @Test
+    public void testBoundingBox() throws Exception {
+        client().admin().indices().prepareCreate("test").addMapping("type1", XContentFactory.jsonBuilder().startObject().startObject("type1")
+                .startObject("properties").startObject("location").field("type", "geo_point").endObject().endObject()
+                .endObject().endObject().string()).execute().actionGet();
+        ensureGreen();
+
+        // New York, Times Square, and Paris
+        client().prepareIndex("test", "type1", "1").setSource(jsonBuilder().startObject()
+                .startObject("location").field("lat", 40.7143528).field("lon", -74.0059731).endObject()
+                .endObject()).execute().actionGet();
+        client().prepareIndex("test", "type1", "2").setSource(jsonBuilder().startObject()
+                .startObject("location").field("lat", 40.759011).field("lon", -73.9844722).endObject()
+                .endObject()).execute().actionGet();
+        client().prepareIndex("test", "type1", "3").setSource(jsonBuilder().startObject()
+                .startObject("location").field("lat", 48.8566).field("lon", 2.3522).endObject()
+                .endObject()).execute().actionGet();
+        // a document with two points in the same cell is counted once
+        client().prepareIndex("test", "type1", "4").setSource(jsonBuilder().startObject()
+                .startArray("location")
+                .startObject().field("lat", 48.857).field("lon", 2.352).endObject()
+                .startObject().field("lat", 48.858).field("lon", 2.353).endObject()
+                .endArray()
+                .endObject()).execute().actionGet();
+        refresh();
+
+        SearchResponse searchResponse = client().prepareSearch("test").setQuery(matchAllQuery())
+                .addFacet(geoHashGridFacet("grid").field("location").precision(3))
+                .execute().actionGet();
+        assertNoFailures(searchResponse);
+        GeoHashGridFacet facet = searchResponse.getFacets().facet("grid");
+        assertThat(facet.getCells().size(), equalTo(2));
+        assertThat(facet.getCells().get(0).getCount(), equalTo(2l));
+        assertThat(facet.getCells().get(1).getCount(), equalTo(2l));
+
+        // only around New York
+        searchResponse = client().prepareSearch("test").setQuery(matchAllQuery())
+                .addFacet(geoHashGridFacet("grid").field("location").precision(3).boundingBox(41, -75, 40, -73))
+                .execute().actionGet();
+        assertNoFailures(searchResponse);
+        facet = searchResponse.getFacets().facet("grid");
+        assertThat(facet.getCells().size(), equalTo(1));
+        assertThat(facet.getCells().get(0).getGeoHash(), equalTo(GeoHashUtils.encode(40.7143528, -74.0059731, 3)));
+        assertThat(facet.getCells().get(0).getCount(), equalTo(2l));
+
+        // a box crossing the date line that covers Paris but not New York
+        searchResponse = client().prepareSearch("test").setQuery(matchAllQuery())
+                .addFacet(geoHashGridFacet("grid").field("location").precision(3).boundingBox(50, 0, 40, -170))
+                .execute().actionGet();
+        assertNoFailures(searchResponse);
+        facet = searchResponse.getFacets().facet("grid");
+        assertThat(facet.getCells().size(), equalTo(1));
+        assertThat(facet.getCells().get(0).getGeoHash(), equalTo(GeoHashUtils.encode(48.8566, 2.3522, 3)));
+    }
+}
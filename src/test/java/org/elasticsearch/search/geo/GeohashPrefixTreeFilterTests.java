@@ -0,0 +1,158 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.geo;
+
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.geo.GeoDistance;
+import org.elasticsearch.common.unit.DistanceUnit;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.index.query.FilterBuilder;
+import org.elasticsearch.index.query.GeoPolygonFilterBuilder;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.test.AbstractIntegrationTest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.index.query.FilterBuilders.*;
+import static org.elasticsearch.index.query.QueryBuilders.filteredQuery;
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertNoFailures;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Checks that the geohash execution of the geo filters matches exactly the same documents as the in memory one.
+ */
+public class GeohashPrefixTreeFilterTests extends AbstractIntegrationTest {
+
+    private int indexRandomPoints(double minLat, double maxLat, double minLon, double maxLon) throws Exception {
+        String mapping = XContentFactory.jsonBuilder().startObject().startObject("type1")
+                .startObject("properties").startObject("location").field("type", "geo_point")
+                .field("geohash_prefix", true).field("geohash_precision", between(4, 12)).endObject().endObject()
+                .endObject().endObject().string();
+        client().admin().indices().prepareCreate("test").setSettings(settingsBuilder().put("index.number_of_shards", between(1, 5)))
+                .addMapping("type1", mapping).execute().actionGet();
+        ensureGreen();
+
+        int numDocs = between(100, 1000);
+        List<IndexRequestBuilder> builders = new ArrayList<IndexRequestBuilder>();
+        for (int i = 0; i < numDocs; i++) {
+            double lat = minLat + randomDouble() * (maxLat - minLat);
+            double lon = minLon + randomDouble() * (maxLon - minLon);
+            if (lon > 180) {
+                lon -= 360;
+            }
+            builders.add(client().prepareIndex("test", "type1", Integer.toString(i)).setSource(jsonBuilder().startObject()
+                    .startObject("location").field("lat", lat).field("lon", lon).endObject()
+                    .endObject()));
+        }
+        indexRandom(true, builders.toArray(new IndexRequestBuilder[builders.size()]));
+        return numDocs;
+    }
+
+    private Set<String> search(FilterBuilder filter, int numDocs) {
+        SearchResponse searchResponse = client().prepareSearch("test").setQuery(filteredQuery(matchAllQuery(), filter))
+                .setSize(numDocs).execute().actionGet();
+        assertNoFailures(searchResponse);
+        Set<String> ids = new HashSet<String>();
+        for (SearchHit hit : searchResponse.getHits()) {
+            ids.add(hit.id());
+        }
+        assertThat(ids.size(), equalTo((int) searchResponse.getHits().totalHits()));
+        return ids;
+    }
+
+    @Test
+    public void testBoundingBox() throws Exception {
+        int numDocs = indexRandomPoints(30, 50, -85, -65);
+        for (int i = 0; i < 10; i++) {
+            double top = 30 + randomDouble() * 20;
+            double bottom = 30 + randomDouble() * (top - 30);
+            double left = -85 + randomDouble() * 20;
+            double right = left + randomDouble() * (-65 - left);
+            Set<String> expected = search(geoBoundingBoxFilter("location").topLeft(top, left).bottomRight(bottom, right), numDocs);
+            Set<String> actual = search(geoBoundingBoxFilter("location").topLeft(top, left).bottomRight(bottom, right).type("geohash"), numDocs);
+            assertThat(actual, equalTo(expected));
+        }
+    }
+
+    @Test
+    public void testBoundingBoxAcrossDateLine() throws Exception {
+        int numDocs = indexRandomPoints(-20, 20, 160, 200);
+        for (int i = 0; i < 10; i++) {
+            double left = 160 + randomDouble() * 20;
+            double right = -180 + randomDouble() * 20;
+            Set<String> expected = search(geoBoundingBoxFilter("location").topLeft(10, left).bottomRight(-10, right), numDocs);
+            Set<String> actual = search(geoBoundingBoxFilter("location").topLeft(10, left).bottomRight(-10, right).type("geohash"), numDocs);
+            assertThat(actual, equalTo(expected));
+        }
+    }
+
+    @Test
+    public void testDistance() throws Exception {
+        int numDocs = indexRandomPoints(30, 50, -85, -65);
+        for (int i = 0; i < 10; i++) {
+            double lat = 30 + randomDouble() * 20;
+            double lon = -85 + randomDouble() * 20;
+            double distance = 1 + randomDouble() * 1000;
+            GeoDistance geoDistance = randomBoolean() ? GeoDistance.ARC : GeoDistance.PLANE;
+            Set<String> expected = search(geoDistanceFilter("location").point(lat, lon).distance(distance, DistanceUnit.KILOMETERS)
+                    .geoDistance(geoDistance), numDocs);
+            Set<String> actual = search(geoDistanceFilter("location").point(lat, lon).distance(distance, DistanceUnit.KILOMETERS)
+                    .geoDistance(geoDistance).optimizeBbox("geohash"), numDocs);
+            assertThat(actual, equalTo(expected));
+        }
+    }
+
+    @Test
+    public void testPolygon() throws Exception {
+        int numDocs = indexRandomPoints(30, 50, -85, -65);
+        for (int i = 0; i < 10; i++) {
+            // a concave polygon, so that some of its edges cross cells that are otherwise inside of it
+            double lat = 35 + randomDouble() * 10;
+            double lon = -80 + randomDouble() * 10;
+            double size = 0.1 + randomDouble() * 5;
+            double[][] points = {
+                    {lat + size, lon - size}, {lat, lon}, {lat + size, lon + size},
+                    {lat - size, lon + size}, {lat - size, lon - size}
+            };
+            Set<String> expected = search(polygon(points, null), numDocs);
+            Set<String> actual = search(polygon(points, "geohash"), numDocs);
+            assertThat(actual, equalTo(expected));
+        }
+    }
+
+    private FilterBuilder polygon(double[][] points, String type) {
+        GeoPolygonFilterBuilder builder = geoPolygonFilter("location");
+        for (double[] point : points) {
+            builder.addPoint(point[0], point[1]);
+        }
+        if (type != null) {
+            builder.type(type);
+        }
+        return builder;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.internal;
+
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.elasticsearch.ElasticSearchIllegalStateException;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamInput;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.search.query.QuerySearchBatchResult;
+import org.elasticsearch.search.query.QuerySearchResult;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ *
+ */
+public class ShardSearchBatchRequestTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testSerialization() throws Exception {
+        BytesReference source = new BytesArray("{\"query\":{\"match_all\":{}}}");
+        List<ShardSearchRequest> requests = new ArrayList<ShardSearchRequest>();
+        for (int i = 0; i < 3; i++) {
+            requests.add(new ShardSearchRequest("test" + (i % 2), i, 5, SearchType.QUERY_THEN_FETCH)
+                    .source(source).types(new String[]{"type1"}).nowInMillis(42)
+                    .filteringAliases(i == 0 ? null : new String[]{"alias" + i}));
+        }
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        new ShardSearchBatchRequest(requests).writeTo(out);
+        ShardSearchBatchRequest batchRequest = new ShardSearchBatchRequest();
+        batchRequest.readFrom(new BytesStreamInput(out.bytes().toBytes(), false));
+
+        assertThat(batchRequest.requests().size(), equalTo(3));
+        for (int i = 0; i < 3; i++) {
+            ShardSearchRequest request = batchRequest.requests().get(i);
+            assertThat(request.index(), equalTo("test" + (i % 2)));
+            assertThat(request.shardId(), equalTo(i));
+            assertThat(request.numberOfShards(), equalTo(5));
+            assertThat(request.searchType(), equalTo(SearchType.QUERY_THEN_FETCH));
+            assertThat(request.source().toUtf8(), equalTo(source.toUtf8()));
+            assertThat(request.extraSource(), nullValue());
+            assertThat(request.types(), equalTo(new String[]{"type1"}));
+            assertThat(request.nowInMillis(), equalTo(42l));
+            assertThat(request.scroll(), nullValue());
+            if (i == 0) {
+                assertThat(request.filteringAliases().length, equalTo(0));
+            } else {
+                assertThat(request.filteringAliases(), equalTo(new String[]{"alias" + i}));
+            }
+        }
+    }
+
+    @Test
+    public void testResultSerialization() throws Exception {
+        QuerySearchBatchResult result = new QuerySearchBatchResult(2);
+        QuerySearchResult queryResult = new QuerySearchResult(7, null);
+        queryResult.topDocs(new TopDocs(0, new ScoreDoc[0], Float.NaN));
+        result.result(0, queryResult);
+        result.failure(1, new ElasticSearchIllegalStateException("shard failed"));
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        result.writeTo(out);
+        QuerySearchBatchResult readResult = new QuerySearchBatchResult();
+        readResult.readFrom(new BytesStreamInput(out.bytes().toBytes(), false));
+
+        assertThat(readResult.size(), equalTo(2));
+        assertThat(readResult.result(0).id(), equalTo(7l));
+        assertThat(readResult.failure(0), nullValue());
+        assertThat(readResult.result(1), nullValue());
+        assertThat(readResult.failure(1), instanceOf(ElasticSearchIllegalStateException.class));
+        assertThat(readResult.failure(1).getMessage(), equalTo("shard failed"));
+    }
+}
@@ -1104,6 +1104,45 @@ public class SimpleQueryTests extends AbstractIntegrationTest {
         assertThat(searchResponse.getHits().getTotalHits(), equalTo(0l));
     }
 
+    @Test
+    public void testTermsLookupFilterUpdatedLookupDocument() throws Exception {
+        assertAcked(prepareCreate("lookup").addMapping("type",
+                jsonBuilder().startObject().startObject("type").startObject("properties")
+                    .startObject("terms").field("type", "string").endObject()
+                    .endObject().endObject().endObject()));
+        assertAcked(prepareCreate("test").addMapping("type",
+                jsonBuilder().startObject().startObject("type").startObject("properties")
+                    .startObject("term").field("type", "string").field("index", "not_analyzed").endObject()
+                    .endObject().endObject().endObject()));
+        ensureGreen();
+        client().prepareIndex("lookup", "type", "1").setSource("terms", new String[]{"1", "3"}).execute().actionGet();
+        client().prepareIndex("test", "type", "1").setSource("term", "1").execute().actionGet();
+        client().prepareIndex("test", "type", "2").setSource("term", "2").execute().actionGet();
+        client().prepareIndex("test", "type", "3").setSource("term", "3").execute().actionGet();
+        refresh();
+
+        SearchResponse searchResponse = client().prepareSearch("test")
+                .setQuery(filteredQuery(matchAllQuery(), termsLookupFilter("term").lookupIndex("lookup").lookupType("type").lookupId("1").lookupPath("terms"))
+                ).execute().actionGet();
+        assertNoFailures(searchResponse);
+        assertHitCount(searchResponse, 2l);
+
+        // the cached lookup is rebuilt once the lookup document changes, even before a refresh
+        client().prepareIndex("lookup", "type", "1").setSource("terms", new String[]{"1", "2", "3"}).execute().actionGet();
+        searchResponse = client().prepareSearch("test")
+                .setQuery(filteredQuery(matchAllQuery(), termsLookupFilter("term").lookupIndex("lookup").lookupType("type").lookupId("1").lookupPath("terms"))
+                ).execute().actionGet();
+        assertNoFailures(searchResponse);
+        assertHitCount(searchResponse, 3l);
+
+        client().prepareDelete("lookup", "type", "1").execute().actionGet();
+        searchResponse = client().prepareSearch("test")
+                .setQuery(filteredQuery(matchAllQuery(), termsLookupFilter("term").lookupIndex("lookup").lookupType("type").lookupId("1").lookupPath("terms"))
+                ).execute().actionGet();
+        assertNoFailures(searchResponse);
+        assertHitCount(searchResponse, 0l);
+    }
+
     @Test
     public void testBasicFilterById() throws Exception {
         createIndex("test");
@@ -0,0 +1,84 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.scroll;
+
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.http.HttpServerTransport;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.rest.helper.HttpClient;
+import org.elasticsearch.rest.helper.HttpClientResponse;
+import org.elasticsearch.test.AbstractIntegrationTest;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Tests the streamed export of search hits over http.
+ */
+public class SearchExportTests extends AbstractIntegrationTest {
+
+    @Test
+    public void testExportSeveralScrollPages() throws Exception {
+        client().admin().indices().prepareCreate("test").setSettings(ImmutableSettings.settingsBuilder()
+                .put("index.number_of_shards", between(1, 5)).put("index.number_of_replicas", 0)).execute().actionGet();
+        ensureGreen();
+
+        int numDocs = between(100, 500);
+        IndexRequestBuilder[] builders = new IndexRequestBuilder[numDocs];
+        for (int i = 0; i < numDocs; i++) {
+            builders[i] = client().prepareIndex("test", "type1", Integer.toString(i))
+                    .setSource(jsonBuilder().startObject().field("field", i).endObject());
+        }
+        indexRandom(true, builders);
+
+        // a small page size, so the export goes through many scroll batches
+        int pageSize = between(1, 10);
+        HttpClientResponse response = httpClient().request("/test/_search/export?size=" + pageSize);
+        assertThat(response.cause(), nullValue());
+        assertThat(response.errorCode(), equalTo(RestStatus.OK.getStatus()));
+        assertThat(response.getHeader("Transfer-Encoding"), equalTo("chunked"));
+
+        Set<String> ids = new HashSet<String>();
+        for (String line : response.response().split("\n")) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            Map<String, Object> hit = XContentHelper.convertToMap(line.getBytes("UTF-8"), false).v2();
+            assertThat("export failed: " + line, hit.containsKey("error"), equalTo(false));
+            assertThat("hit exported twice: " + line, ids.add((String) hit.get("_id")), equalTo(true));
+        }
+        assertThat(ids.size(), equalTo(numDocs));
+        for (int i = 0; i < numDocs; i++) {
+            assertThat(ids, hasItem(Integer.toString(i)));
+        }
+    }
+
+    private HttpClient httpClient() {
+        HttpServerTransport httpServerTransport = cluster().getInstance(HttpServerTransport.class);
+        return new HttpClient(httpServerTransport.boundAddress().publishAddress());
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.transport;
+
+import com.google.common.base.Predicate;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.test.AbstractIntegrationTest;
+import org.elasticsearch.test.AbstractIntegrationTest.ClusterScope;
+import org.elasticsearch.test.AbstractIntegrationTest.Scope;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.junit.Test;
+
+import java.util.Iterator;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ */
+@ClusterScope(scope = Scope.TEST, numNodes = 2)
+public class TransportStatsTests extends AbstractIntegrationTest {
+
+    private static final String ACTION = "test/transport_stats";
+
+    @Test
+    public void testActionStatsInNodesStats() throws Exception {
+        Iterator<String> nodes = cluster().nRandomNodes(2).iterator();
+        final String sender = nodes.next();
+        final String receiver = nodes.next();
+        TransportService senderService = cluster().getInstance(TransportService.class, sender);
+        TransportService receiverService = cluster().getInstance(TransportService.class, receiver);
+        DiscoveryNode receiverNode = cluster().getInstance(ClusterService.class, receiver).localNode();
+        final String senderId = cluster().getInstance(ClusterService.class, sender).localNode().id();
+        final String receiverId = receiverNode.id();
+
+        receiverService.registerHandler(ACTION, new BaseTransportRequestHandler<TransportRequest.Empty>() {
+            @Override
+            public TransportRequest.Empty newInstance() {
+                return TransportRequest.Empty.INSTANCE;
+            }
+
+            @Override
+            public String executor() {
+                return ThreadPool.Names.GENERIC;
+            }
+
+            @Override
+            public void messageReceived(TransportRequest.Empty request, TransportChannel channel) throws Exception {
+                channel.sendResponse(TransportResponse.Empty.INSTANCE);
+            }
+        });
+
+        final int requests = between(1, 20);
+        for (int i = 0; i < requests; i++) {
+            senderService.submitRequest(receiverNode, ACTION, TransportRequest.Empty.INSTANCE, new FutureTransportResponseHandler<TransportResponse.Empty>() {
+                @Override
+                public TransportResponse.Empty newInstance() {
+                    return TransportResponse.Empty.INSTANCE;
+                }
+            }).txGet();
+        }
+
+        // the stats of each node are read from the other one, so they are serialized on the way
+        TransportStats.ActionStats sent = actionStats(receiver, senderId);
+        assertThat(sent, notNullValue());
+        assertThat(sent.getTxCount(), equalTo((long) requests));
+        assertThat(sent.getRxCount(), equalTo(0l));
+        // the latency is recorded before the response handler is notified
+        assertThat(sent.getLatencyCount(), equalTo((long) requests));
+        assertThat(sent.getLatency(50), notNullValue());
+
+        // the handled count is recorded once the handler returns, which can be after the response was sent
+        assertThat(awaitBusy(new Predicate<Object>() {
+            @Override
+            public boolean apply(Object input) {
+                TransportStats.ActionStats received = actionStats(sender, receiverId);
+                return received != null && received.getHandledCount() == requests;
+            }
+        }), equalTo(true));
+        TransportStats.ActionStats received = actionStats(sender, receiverId);
+        assertThat(received.getRxCount(), equalTo((long) requests));
+        assertThat(received.getRxSize().bytes(), greaterThan(0l));
+        assertThat(received.getTxCount(), equalTo(0l));
+        assertThat(received.getLatencyCount(), equalTo(0l));
+        assertThat(received.getLatency(50), nullValue());
+
+        receiverService.removeHandler(ACTION);
+    }
+
+    private TransportStats.ActionStats actionStats(final String fromNode, String nodeId) {
+        Client client = cluster().client(new Predicate<Settings>() {
+            @Override
+            public boolean apply(Settings input) {
+                return fromNode.equals(input.get("name"));
+            }
+        });
+        TransportStats stats = client.admin().cluster().prepareNodesStats(nodeId).clear().setTransport(true).get().getNodesMap().get(nodeId).getTransport();
+        for (TransportStats.ActionStats actionStats : stats.getActions()) {
+            if (ACTION.equals(actionStats.getAction())) {
+                return actionStats;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.transport.netty;
+
+import com.google.common.base.Predicate;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.compress.lz4.LZ4Compressor;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.test.AbstractIntegrationTest;
+import org.elasticsearch.test.AbstractIntegrationTest.ClusterScope;
+import org.elasticsearch.test.AbstractIntegrationTest.Scope;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.*;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ */
+@ClusterScope(scope = Scope.TEST, numNodes = 2)
+public class NettyTransportCompressionTests extends AbstractIntegrationTest {
+
+    private static final String ACTION = "test/compressed";
+
+    @Override
+    protected Settings nodeSettings(int nodeOrdinal) {
+        return ImmutableSettings.settingsBuilder()
+                .put(super.nodeSettings(nodeOrdinal))
+                .put(TransportModule.TRANSPORT_TYPE_KEY, NettyTransportModule.class.getName())
+                .build();
+    }
+
+    @Test
+    public void testCompressionStatsInNodesStats() throws Exception {
+        Iterator<String> nodes = cluster().nRandomNodes(2).iterator();
+        final String sender = nodes.next();
+        final String receiver = nodes.next();
+        TransportService senderService = cluster().getInstance(TransportService.class, sender);
+        TransportService receiverService = cluster().getInstance(TransportService.class, receiver);
+        DiscoveryNode receiverNode = cluster().getInstance(ClusterService.class, receiver).localNode();
+        String senderId = cluster().getInstance(ClusterService.class, sender).localNode().id();
+        // repetitive, so it compresses well
+        final String message = Strings.collectionToDelimitedString(Collections.nCopies(200, "compress me"), " ");
+
+        receiverService.registerHandler(ACTION, new BaseTransportRequestHandler<MessageRequest>() {
+            @Override
+            public MessageRequest newInstance() {
+                return new MessageRequest();
+            }
+
+            @Override
+            public String executor() {
+                return ThreadPool.Names.GENERIC;
+            }
+
+            @Override
+            public void messageReceived(MessageRequest request, TransportChannel channel) throws Exception {
+                channel.sendResponse(new MessageResponse(request.message), TransportResponseOptions.options().withCompressorType(LZ4Compressor.TYPE));
+            }
+        });
+
+        int requests = between(1, 10);
+        for (int i = 0; i < requests; i++) {
+            MessageResponse response = senderService.submitRequest(receiverNode, ACTION, new MessageRequest(message),
+                    TransportRequestOptions.options().withCompressorType(LZ4Compressor.TYPE), new FutureTransportResponseHandler<MessageResponse>() {
+                @Override
+                public MessageResponse newInstance() {
+                    return new MessageResponse();
+                }
+            }).txGet();
+            assertThat(response.message, equalTo(message));
+        }
+
+        // the sender compressed the requests, the receiver the responses
+        for (String[] node : new String[][]{{sender, senderId}, {receiver, receiverNode.id()}}) {
+            TransportStats.CompressionStats stats = compressionStats(node[0], node[1]);
+            assertThat(stats, notNullValue());
+            assertThat(stats.getCount(), equalTo((long) requests));
+            assertThat(stats.getUncompressedSize().bytes(), greaterThan((long) requests * message.length()));
+            assertThat(stats.getCompressedSize().bytes(), greaterThan(0l));
+            assertThat(stats.getCompressedSize().bytes(), lessThan(stats.getUncompressedSize().bytes()));
+        }
+
+        receiverService.removeHandler(ACTION);
+    }
+
+    private TransportStats.CompressionStats compressionStats(final String nodeName, String nodeId) {
+        // read the stats from another node, so they are serialized on the way
+        Client client = cluster().client(new Predicate<Settings>() {
+            @Override
+            public boolean apply(Settings input) {
+                return !nodeName.equals(input.get("name"));
+            }
+        });
+        TransportStats stats = client.admin().cluster().prepareNodesStats(nodeId).clear().setTransport(true).get().getNodesMap().get(nodeId).getTransport();
+        for (TransportStats.CompressionStats compressionStats : stats.getCompression()) {
+            if (ACTION.equals(compressionStats.getAction())) {
+                return compressionStats;
+            }
+        }
+        return null;
+    }
+
+    static class MessageRequest extends TransportRequest {
+
+        String message;
+
+        MessageRequest() {
+        }
+
+        MessageRequest(String message) {
+            this.message = message;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            message = in.readString();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeString(message);
+        }
+    }
+
+    static class MessageResponse extends TransportResponse {
+
+        String message;
+
+        MessageResponse() {
+        }
+
+        MessageResponse(String message) {
+            this.message = message;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            message = in.readString();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeString(message);
+        }
+    }
+}
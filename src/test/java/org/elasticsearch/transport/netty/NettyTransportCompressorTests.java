@@ -0,0 +1,120 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.transport.netty;
+
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.compress.CompressorFactory;
+import org.elasticsearch.common.compress.lz4.LZ4Compressor;
+import org.elasticsearch.common.compress.lzf.LZFCompressor;
+import org.elasticsearch.common.network.NetworkService;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.elasticsearch.transport.TransportRequestOptions;
+import org.elasticsearch.transport.TransportResponseOptions;
+import org.junit.Test;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+/**
+ */
+public class NettyTransportCompressorTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testCompressionFromOptions() {
+        NettyTransport transport = transport(settingsBuilder().build());
+        assertThat(transport.compressor("test/action", false, null, Version.CURRENT), nullValue());
+        assertThat(transport.compressor("test/action", true, null, Version.CURRENT), sameInstance(CompressorFactory.defaultCompressor()));
+        assertThat(transport.compressor("test/action", true, LZ4Compressor.TYPE, Version.CURRENT).type(), equalTo(LZ4Compressor.TYPE));
+        assertThat(transport.compressor("test/action", true, LZFCompressor.TYPE, Version.CURRENT).type(), equalTo(LZFCompressor.TYPE));
+    }
+
+    @Test
+    public void testTransportLevelCompression() {
+        NettyTransport transport = transport(settingsBuilder()
+                .put("transport.tcp.compress", true)
+                .put("transport.tcp.compress_type", LZ4Compressor.TYPE)
+                .build());
+        // compressed even when the options don't ask for it, with the transport level type
+        assertThat(transport.compressor("test/action", false, null, Version.CURRENT).type(), equalTo(LZ4Compressor.TYPE));
+        // the type of the options wins over the transport level one
+        assertThat(transport.compressor("test/action", true, LZFCompressor.TYPE, Version.CURRENT).type(), equalTo(LZFCompressor.TYPE));
+    }
+
+    @Test
+    public void testPerActionCompression() {
+        NettyTransport transport = transport(settingsBuilder()
+                .put("transport.tcp.compress", true)
+                .put("transport.tcp.compress_type", LZFCompressor.TYPE)
+                .put("transport.tcp.compress_actions.bulk/*", LZ4Compressor.TYPE)
+                .put("transport.tcp.compress_actions.ping/*", "none")
+                .build());
+        // the action pattern wins over both the options and the transport level settings
+        assertThat(transport.compressor("bulk/shard", false, null, Version.CURRENT).type(), equalTo(LZ4Compressor.TYPE));
+        assertThat(transport.compressor("bulk/shard", true, LZFCompressor.TYPE, Version.CURRENT).type(), equalTo(LZ4Compressor.TYPE));
+        // a null type disables compression for the matching actions
+        assertThat(transport.compressor("ping/zen", false, null, Version.CURRENT), nullValue());
+        assertThat(transport.compressor("ping/zen", true, LZ4Compressor.TYPE, Version.CURRENT), nullValue());
+        // other actions use the transport level settings
+        assertThat(transport.compressor("search/query", false, null, Version.CURRENT).type(), equalTo(LZFCompressor.TYPE));
+
+        transport = transport(settingsBuilder().put("transport.tcp.compress_actions.bulk/*", LZ4Compressor.TYPE).build());
+        assertThat(transport.compressor("bulk/shard", false, null, Version.CURRENT).type(), equalTo(LZ4Compressor.TYPE));
+        assertThat(transport.compressor("search/query", false, null, Version.CURRENT), nullValue());
+    }
+
+    @Test
+    public void testLZFForOlderNodes() {
+        NettyTransport transport = transport(settingsBuilder()
+                .put("transport.tcp.compress_actions.bulk/*", LZ4Compressor.TYPE)
+                .build());
+        assertThat(transport.compressor("bulk/shard", false, null, Version.V_0_90_5).type(), equalTo(LZFCompressor.TYPE));
+        assertThat(transport.compressor("test/action", true, LZ4Compressor.TYPE, Version.V_0_90_5).type(), equalTo(LZFCompressor.TYPE));
+        assertThat(transport.compressor("test/action", false, null, Version.V_0_90_5), nullValue());
+    }
+
+    @Test(expected = ElasticSearchIllegalArgumentException.class)
+    public void testUnknownPerActionType() {
+        transport(settingsBuilder().put("transport.tcp.compress_actions.bulk/*", "lz44").build());
+    }
+
+    @Test(expected = ElasticSearchIllegalArgumentException.class)
+    public void testUnknownTransportLevelType() {
+        transport(settingsBuilder().put("transport.tcp.compress_type", "lz44").build());
+    }
+
+    @Test(expected = ElasticSearchIllegalArgumentException.class)
+    public void testUnknownRequestOptionsType() {
+        TransportRequestOptions.options().withCompressorType("lz44");
+    }
+
+    @Test(expected = ElasticSearchIllegalArgumentException.class)
+    public void testUnknownResponseOptionsType() {
+        TransportResponseOptions.options().withCompressorType("lz44");
+    }
+
+    private static NettyTransport transport(Settings settings) {
+        // resolving compressors doesn't need the transport to be started, nor a thread pool
+        return new NettyTransport(settings, null, new NetworkService(settings), Version.CURRENT);
+    }
+}